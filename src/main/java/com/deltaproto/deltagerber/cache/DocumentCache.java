@@ -0,0 +1,290 @@
+package com.deltaproto.deltagerber.cache;
+
+import com.deltaproto.deltagerber.io.ContentHash;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Contour;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache of parsed documents keyed by the SHA-256 of the source bytes and the parser version.
+ *
+ * <p>Entries are weighed by their estimated retained heap and the least recently used
+ * entries are evicted once the total exceeds the configured limit. The cache is safe for
+ * concurrent use; concurrent requests for the same content parse it once. Cached documents
+ * are shared between callers and must not be modified.</p>
+ */
+public class DocumentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentCache.class);
+
+    private static final byte GERBER = 1;
+    private static final byte DRILL = 2;
+
+    // Rough retained sizes of the parsed model, including the list slot
+    private static final long DOCUMENT_BYTES = 2048;
+    private static final long APERTURE_BYTES = 96;
+    private static final long DRAW_BYTES = 64;
+    private static final long ARC_BYTES = 88;
+    private static final long FLASH_BYTES = 72;
+    private static final long OBJECT_BYTES = 96;
+    private static final long REGION_BYTES = 64;
+    private static final long CONTOUR_BYTES = 96;
+    private static final long SEGMENT_BYTES = 64;
+    private static final long HIT_BYTES = 48;
+    private static final long SLOT_BYTES = 64;
+
+    private final long maxBytes;
+
+    // Access-ordered, guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightBytes;
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+
+    /**
+     * Cache holding documents with an estimated total of at most {@code maxBytes}.
+     */
+    public DocumentCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public GerberDocument getGerber(byte[] content) {
+        return getGerber(content, 0, content.length);
+    }
+
+    /**
+     * The Gerber document for a range of UTF-8 source bytes, parsed on a miss.
+     */
+    public GerberDocument getGerber(byte[] content, int offset, int length) {
+        Key key = new Key(GERBER, GerberParser.VERSION, ContentHash.of(content, offset, length));
+        return get(key, () -> new GerberParser().parse(new String(content, offset, length, StandardCharsets.UTF_8)),
+            DocumentCache::estimateBytes);
+    }
+
+    public DrillDocument getDrill(byte[] content) {
+        return getDrill(content, 0, content.length);
+    }
+
+    /**
+     * The Excellon document for a range of UTF-8 source bytes, parsed on a miss.
+     */
+    public DrillDocument getDrill(byte[] content, int offset, int length) {
+        Key key = new Key(DRILL, ExcellonParser.VERSION, ContentHash.of(content, offset, length));
+        return get(key, () -> new ExcellonParser().parse(new String(content, offset, length, StandardCharsets.UTF_8)),
+            DocumentCache::estimateBytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> parse, ToLongFunction<T> weigher) {
+        T cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // Another thread is parsing the same content
+            hits.increment();
+            return (T) join(inFlight);
+        }
+        try {
+            // It may have been cached between the lookup and registering the load
+            cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                future.complete(cached);
+                return cached;
+            }
+            misses.increment();
+            long start = System.nanoTime();
+            T document = parse.get();
+            parseNanos.add(System.nanoTime() - start);
+            put(key, document, weigher.applyAsLong(document));
+            future.complete(document);
+            return document;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T lookup(Key key) {
+        Entry entry = entries.get(key);
+        return entry != null ? (T) entry.document : null;
+    }
+
+    private synchronized void put(Key key, Object document, long bytes) {
+        if (bytes > maxBytes) {
+            log.debug("Not caching document of ~{} bytes, cache limit is {} bytes", bytes, maxBytes);
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(document, bytes));
+        if (previous != null) {
+            weightBytes -= previous.bytes;
+        }
+        weightBytes += bytes;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weightBytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            weightBytes -= evicted.bytes;
+            evictions.increment();
+        }
+        log.trace("Cached document of ~{} bytes, {} entries, ~{} bytes total", bytes, entries.size(), weightBytes);
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Remove all entries. Counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weightBytes = 0;
+    }
+
+    public Stats getStats() {
+        int size;
+        long bytes;
+        synchronized (this) {
+            size = entries.size();
+            bytes = weightBytes;
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, bytes, parseNanos.sum());
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Estimated retained heap of a parsed Gerber document.
+     */
+    static long estimateBytes(GerberDocument document) {
+        long bytes = DOCUMENT_BYTES + APERTURE_BYTES * document.getApertures().size();
+        for (GraphicsObject object : document.getObjects()) {
+            bytes += estimateBytes(object);
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(GraphicsObject object) {
+        if (object instanceof Draw) {
+            return DRAW_BYTES;
+        } else if (object instanceof Arc) {
+            return ARC_BYTES;
+        } else if (object instanceof Flash) {
+            return FLASH_BYTES;
+        } else if (object instanceof Region region) {
+            long bytes = REGION_BYTES;
+            for (Contour contour : region.getContours()) {
+                bytes += CONTOUR_BYTES + SEGMENT_BYTES * contour.getSegments().size();
+            }
+            return bytes;
+        } else if (object instanceof StepRepeatBlock block) {
+            // The block's objects are held once, whatever the number of instances
+            long bytes = OBJECT_BYTES;
+            for (GraphicsObject obj : block.getObjects()) {
+                bytes += estimateBytes(obj);
+            }
+            return bytes;
+        }
+        return OBJECT_BYTES;
+    }
+
+    /**
+     * Estimated retained heap of a parsed Excellon document.
+     */
+    static long estimateBytes(DrillDocument document) {
+        long bytes = DOCUMENT_BYTES;
+        for (var operation : document.getOperations()) {
+            bytes += operation instanceof DrillSlot ? SLOT_BYTES : HIT_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Cache counters. Loads that waited for a concurrent parse of the same content
+     * count as hits.
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long weightBytes, long parseNanos) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private record Entry(Object document, long bytes) {
+    }
+
+    private static final class Key {
+        private final byte type;
+        private final int parserVersion;
+        private final byte[] hash;
+        private final int hashCode;
+
+        Key(byte type, int parserVersion, byte[] hash) {
+            this.type = type;
+            this.parserVersion = parserVersion;
+            this.hash = hash;
+            this.hashCode = 31 * (31 * type + parserVersion) + Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && k.type == type && k.parserVersion == parserVersion
+                && Arrays.equals(k.hash, hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
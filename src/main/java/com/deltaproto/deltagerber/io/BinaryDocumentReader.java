@@ -0,0 +1,311 @@
+package com.deltaproto.deltagerber.io;
+
+import com.deltaproto.deltagerber.model.drill.CoordinateMode;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.Tool;
+import com.deltaproto.deltagerber.model.gerber.ComponentPlacement;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Unit;
+import com.deltaproto.deltagerber.model.gerber.aperture.*;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.deltaproto.deltagerber.io.BinaryFormat.*;
+
+/**
+ * Loads documents written by {@link BinaryDocumentWriter}.
+ *
+ * <p>The file is memory-mapped. Metadata (apertures, attributes, tools) is read eagerly;
+ * the graphics objects and drill operations are a read-only list view over the mapping
+ * that builds each object when it is accessed, so loading does not depend on the number
+ * of objects.</p>
+ */
+public final class BinaryDocumentReader {
+
+    private BinaryDocumentReader() {
+    }
+
+    /**
+     * Load a Gerber document.
+     */
+    public static GerberDocument readGerber(Path file) throws IOException {
+        return readGerber(file, null);
+    }
+
+    /**
+     * Load a Gerber document, checking that it was written for the source with the given
+     * {@link ContentHash}.
+     *
+     * @throws StaleDocumentException if the source hash differs
+     */
+    public static GerberDocument readGerber(Path file, byte[] expectedSourceHash) throws IOException {
+        ByteBuffer buffer = map(file);
+        try {
+            checkHeader(buffer, file, TYPE_GERBER, expectedSourceHash);
+            return readGerberBody(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary document: " + file, e);
+        }
+    }
+
+    /**
+     * Load an Excellon document.
+     */
+    public static DrillDocument readDrill(Path file) throws IOException {
+        return readDrill(file, null);
+    }
+
+    /**
+     * Load an Excellon document, checking that it was written for the source with the given
+     * {@link ContentHash}.
+     *
+     * @throws StaleDocumentException if the source hash differs
+     */
+    public static DrillDocument readDrill(Path file, byte[] expectedSourceHash) throws IOException {
+        ByteBuffer buffer = map(file);
+        try {
+            checkHeader(buffer, file, TYPE_DRILL, expectedSourceHash);
+            return readDrillBody(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary document: " + file, e);
+        }
+    }
+
+    /**
+     * The source hash stored in a binary document, without loading the document.
+     */
+    public static byte[] readSourceHash(Path file) throws IOException {
+        ByteBuffer buffer = map(file);
+        try {
+            checkHeader(buffer, file, buffer.limit() > 8 ? buffer.get(8) : 0, null);
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(HEADER_LENGTH - HASH_LENGTH, hash);
+            return hash;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary document: " + file, e);
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return buffer;
+        }
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path file, byte type, byte[] expectedSourceHash)
+            throws IOException {
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary document: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary document version " + version + " (expected "
+                + VERSION + "): " + file);
+        }
+        byte actualType = buffer.get();
+        if (actualType != type) {
+            throw new IOException("Unexpected binary document type " + actualType + ": " + file);
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        buffer.get(hash);
+        if (expectedSourceHash != null && !Arrays.equals(hash, expectedSourceHash)) {
+            throw new StaleDocumentException("Binary document " + file + " was written for source "
+                + ContentHash.toHex(hash) + ", not " + ContentHash.toHex(expectedSourceHash));
+        }
+    }
+
+    private static GerberDocument readGerberBody(ByteBuffer buffer) throws IOException {
+        String fileName = readString(buffer);
+        Unit unit = Unit.values()[buffer.get()];
+        CoordinateFormat format = null;
+        if (buffer.get() != 0) {
+            int integerDigits = buffer.getInt();
+            int decimalDigits = buffer.getInt();
+            boolean leadingZeroOmitted = buffer.get() != 0;
+            boolean absoluteNotation = buffer.get() != 0;
+            format = new CoordinateFormat(integerDigits, decimalDigits, leadingZeroOmitted, absoluteNotation);
+        }
+
+        List<FileAttribute> attributes = new ArrayList<>();
+        int attributeCount = buffer.getInt();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = readString(buffer);
+            attributes.add(new FileAttribute(name, readStrings(buffer)));
+        }
+
+        Map<String, MacroTemplate> templates = new HashMap<>();
+        int templateCount = buffer.getInt();
+        for (int i = 0; i < templateCount; i++) {
+            MacroTemplate template = new MacroTemplate(readString(buffer));
+            String body = readString(buffer);
+            if (!body.isEmpty()) {
+                template.parse(body);
+            }
+            templates.put(template.getName(), template);
+        }
+
+        Map<Integer, Aperture> apertures = new HashMap<>();
+        int apertureCount = buffer.getInt();
+        for (int i = 0; i < apertureCount; i++) {
+            Aperture aperture = readAperture(buffer, templates);
+            apertures.put(aperture.getDCode(), aperture);
+        }
+
+        List<ComponentPlacement> components = new ArrayList<>();
+        int componentCount = buffer.getInt();
+        for (int i = 0; i < componentCount; i++) {
+            String refdes = readString(buffer);
+            String value = readString(buffer);
+            String footprint = readString(buffer);
+            String mountType = readString(buffer);
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            double rotation = buffer.getDouble();
+            components.add(new ComponentPlacement(refdes, value, footprint, mountType, x, y, rotation,
+                readString(buffer)));
+        }
+        List<String> warnings = readStrings(buffer);
+
+        GerberDocument document = new GerberDocument(new MappedObjectList(buffer, apertures));
+        document.setFileName(fileName);
+        document.setUnit(unit);
+        document.setCoordinateFormat(format);
+        attributes.forEach(document::addFileAttribute);
+        templates.values().forEach(document::addMacroTemplate);
+        apertures.values().forEach(document::addAperture);
+        components.forEach(document::addComponent);
+        warnings.forEach(document::addWarning);
+        return document;
+    }
+
+    private static Aperture readAperture(ByteBuffer buffer, Map<String, MacroTemplate> templates)
+            throws IOException {
+        int dCode = buffer.getInt();
+        byte type = buffer.get();
+        switch (type) {
+            case APERTURE_CIRCLE -> {
+                double diameter = buffer.getDouble();
+                return new CircleAperture(dCode, diameter, buffer.getDouble());
+            }
+            case APERTURE_RECTANGLE -> {
+                double width = buffer.getDouble();
+                double height = buffer.getDouble();
+                return new RectangleAperture(dCode, width, height, buffer.getDouble());
+            }
+            case APERTURE_OBROUND -> {
+                double width = buffer.getDouble();
+                double height = buffer.getDouble();
+                return new ObroundAperture(dCode, width, height, buffer.getDouble());
+            }
+            case APERTURE_POLYGON -> {
+                double outerDiameter = buffer.getDouble();
+                int numVertices = buffer.getInt();
+                double rotation = buffer.getDouble();
+                return new PolygonAperture(dCode, outerDiameter, numVertices, rotation, buffer.getDouble());
+            }
+            case APERTURE_MACRO -> {
+                String name = readString(buffer);
+                MacroTemplate template = templates.get(name);
+                if (template == null) {
+                    throw new IOException("Aperture D" + dCode + " refers to unknown macro " + name);
+                }
+                double unitFactor = buffer.getDouble();
+                List<Double> parameters = new ArrayList<>();
+                int parameterCount = buffer.getInt();
+                for (int i = 0; i < parameterCount; i++) {
+                    parameters.add(buffer.getDouble());
+                }
+                double[] registers = new double[buffer.getInt()];
+                for (int i = 0; i < registers.length; i++) {
+                    registers[i] = buffer.getDouble();
+                }
+                return new MacroAperture(dCode, template, parameters, registers, unitFactor);
+            }
+            default -> throw new IOException("Unknown aperture type " + type + " for D" + dCode);
+        }
+    }
+
+    private static DrillDocument readDrillBody(ByteBuffer buffer) {
+        String fileName = readString(buffer);
+        Unit unit = Unit.values()[buffer.get()];
+        CoordinateMode coordinateMode = CoordinateMode.values()[buffer.get()];
+        int integerDigits = buffer.getInt();
+        int decimalDigits = buffer.getInt();
+        boolean leadingZeros = buffer.get() != 0;
+
+        Tool[] tools = new Tool[buffer.getInt()];
+        for (int i = 0; i < tools.length; i++) {
+            int number = buffer.getInt();
+            Tool tool = new Tool(number, buffer.getDouble());
+            tool.setFeedRate(readString(buffer));
+            tool.setSpindleSpeed(readString(buffer));
+            tool.setMaxRetractRate(readString(buffer));
+            tools[i] = tool;
+        }
+        Map<Integer, Tool> toolMap = new LinkedHashMap<>();
+        int mapSize = buffer.getInt();
+        for (int i = 0; i < mapSize; i++) {
+            int key = buffer.getInt();
+            toolMap.put(key, tools[buffer.getInt()]);
+        }
+        List<String> comments = readStrings(buffer);
+
+        DrillDocument document = new DrillDocument(new MappedOperationList(buffer, tools));
+        document.setFileName(fileName);
+        document.setUnit(unit);
+        document.setCoordinateMode(coordinateMode);
+        document.setIntegerDigits(integerDigits);
+        document.setDecimalDigits(decimalDigits);
+        document.setLeadingZeros(leadingZeros);
+        document.getTools().putAll(toolMap);
+        comments.forEach(document::addComment);
+        return document;
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(buffer));
+        }
+        return strings;
+    }
+
+    /**
+     * Position of a column in the mapping: skips it and returns the offset of its first value.
+     */
+    static int skipColumn(ByteBuffer buffer, int elementBytes) {
+        int count = buffer.getInt();
+        int offset = buffer.position();
+        buffer.position(offset + count * elementBytes);
+        return offset;
+    }
+}
@@ -0,0 +1,441 @@
+package com.deltaproto.deltagerber.io;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.drill.Tool;
+import com.deltaproto.deltagerber.model.gerber.ComponentPlacement;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.*;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+import com.deltaproto.deltagerber.model.gerber.operation.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.deltaproto.deltagerber.io.BinaryFormat.*;
+
+/**
+ * Writes parsed documents in the binary document format (see {@link BinaryFormat}),
+ * to be loaded again with {@link BinaryDocumentReader} instead of re-parsing the source.
+ *
+ * <p>Fixed-point objects are stored as their double millimetre equivalent.</p>
+ */
+public final class BinaryDocumentWriter {
+
+    private BinaryDocumentWriter() {
+    }
+
+    /**
+     * Write a Gerber document together with the {@link ContentHash} of its source.
+     */
+    public static void writeGerber(GerberDocument document, byte[] sourceHash, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeGerber(document, sourceHash, out);
+        }
+    }
+
+    public static void writeGerber(GerberDocument document, byte[] sourceHash, OutputStream stream)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        writeHeader(out, TYPE_GERBER, sourceHash);
+
+        writeString(out, document.getFileName());
+        out.writeByte(document.getUnit().ordinal());
+        CoordinateFormat format = document.getCoordinateFormat();
+        out.writeBoolean(format != null);
+        if (format != null) {
+            out.writeInt(format.getIntegerDigits());
+            out.writeInt(format.getDecimalDigits());
+            out.writeBoolean(format.isLeadingZeroOmitted());
+            out.writeBoolean(format.isAbsoluteNotation());
+        }
+
+        out.writeInt(document.getFileAttributes().size());
+        for (FileAttribute attribute : document.getFileAttributes().values()) {
+            writeString(out, attribute.getName());
+            writeStrings(out, attribute.getValues());
+        }
+
+        out.writeInt(document.getMacroTemplates().size());
+        for (MacroTemplate template : document.getMacroTemplates().values()) {
+            writeString(out, template.getName());
+            writeString(out, template.getBody());
+        }
+
+        out.writeInt(document.getApertures().size());
+        for (Aperture aperture : document.getApertures().values()) {
+            writeAperture(out, aperture);
+        }
+
+        out.writeInt(document.getComponents().size());
+        for (ComponentPlacement c : document.getComponents()) {
+            writeString(out, c.getRefdes());
+            writeString(out, c.getValue());
+            writeString(out, c.getFootprint());
+            writeString(out, c.getMountType());
+            out.writeDouble(c.getX());
+            out.writeDouble(c.getY());
+            out.writeDouble(c.getRotation());
+            writeString(out, c.getSide());
+        }
+
+        writeStrings(out, document.getWarnings());
+        writeObjects(out, expandStepRepeat(document.getObjects()));
+        out.flush();
+    }
+
+    /**
+     * Write an Excellon document together with the {@link ContentHash} of its source.
+     */
+    public static void writeDrill(DrillDocument document, byte[] sourceHash, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeDrill(document, sourceHash, out);
+        }
+    }
+
+    public static void writeDrill(DrillDocument document, byte[] sourceHash, OutputStream stream)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        writeHeader(out, TYPE_DRILL, sourceHash);
+
+        writeString(out, document.getFileName());
+        out.writeByte(document.getUnit().ordinal());
+        out.writeByte(document.getCoordinateMode().ordinal());
+        out.writeInt(document.getIntegerDigits());
+        out.writeInt(document.getDecimalDigits());
+        out.writeBoolean(document.isLeadingZeros());
+
+        // Tool table: the document's tools plus any other tool an operation refers to
+        List<Tool> tools = new ArrayList<>();
+        Map<Tool, Integer> toolIndex = new IdentityHashMap<>();
+        for (Tool tool : document.getTools().values()) {
+            toolIndex.putIfAbsent(tool, tools.size());
+            tools.add(tool);
+        }
+        for (DrillOperation op : document.getOperations()) {
+            if (!toolIndex.containsKey(op.getTool())) {
+                toolIndex.put(op.getTool(), tools.size());
+                tools.add(op.getTool());
+            }
+        }
+        out.writeInt(tools.size());
+        for (Tool tool : tools) {
+            out.writeInt(tool.getNumber());
+            out.writeDouble(tool.getDiameter());
+            writeString(out, tool.getFeedRate());
+            writeString(out, tool.getSpindleSpeed());
+            writeString(out, tool.getMaxRetractRate());
+        }
+        out.writeInt(document.getTools().size());
+        for (Map.Entry<Integer, Tool> entry : document.getTools().entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(toolIndex.get(entry.getValue()));
+        }
+
+        writeStrings(out, document.getComments());
+
+        List<DrillOperation> operations = document.getOperations();
+        int n = operations.size();
+        byte[] kinds = new byte[n];
+        int[] toolRefs = new int[n];
+        int[] slots = new int[n];
+        DoubleColumn hits = new DoubleColumn();
+        DoubleColumn slotCoords = new DoubleColumn();
+        for (int i = 0; i < n; i++) {
+            DrillOperation op = operations.get(i).toMm();
+            toolRefs[i] = toolIndex.get(op.getTool());
+            if (op instanceof DrillHit hit) {
+                kinds[i] = KIND_HIT;
+                slots[i] = hits.size() / 2;
+                hits.add(hit.getX(), hit.getY());
+            } else if (op instanceof DrillSlot slot) {
+                kinds[i] = KIND_SLOT;
+                slots[i] = slotCoords.size() / 4;
+                slotCoords.add(slot.getStartX(), slot.getStartY(), slot.getEndX(), slot.getEndY());
+            } else {
+                throw new IOException("Unsupported drill operation: " + op.getClass().getName());
+            }
+        }
+        out.writeInt(n);
+        out.write(kinds);
+        writeInts(out, toolRefs, n);
+        writeInts(out, slots, n);
+        hits.writeTo(out, 2);
+        slotCoords.writeTo(out, 4);
+        out.flush();
+    }
+
+    private static void writeHeader(DataOutputStream out, byte type, byte[] sourceHash) throws IOException {
+        if (sourceHash == null || sourceHash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Source hash must be a " + HASH_LENGTH + "-byte SHA-256 hash");
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(type);
+        out.write(sourceHash);
+    }
+
+    private static void writeAperture(DataOutputStream out, Aperture aperture) throws IOException {
+        out.writeInt(aperture.getDCode());
+        if (aperture instanceof CircleAperture c) {
+            out.writeByte(APERTURE_CIRCLE);
+            out.writeDouble(c.getDiameter());
+            out.writeDouble(c.getHoleDiameter());
+        } else if (aperture instanceof RectangleAperture r) {
+            out.writeByte(APERTURE_RECTANGLE);
+            out.writeDouble(r.getWidth());
+            out.writeDouble(r.getHeight());
+            out.writeDouble(r.getHoleDiameter());
+        } else if (aperture instanceof ObroundAperture o) {
+            out.writeByte(APERTURE_OBROUND);
+            out.writeDouble(o.getWidth());
+            out.writeDouble(o.getHeight());
+            out.writeDouble(o.getHoleDiameter());
+        } else if (aperture instanceof PolygonAperture p) {
+            out.writeByte(APERTURE_POLYGON);
+            out.writeDouble(p.getOuterDiameter());
+            out.writeInt(p.getNumVertices());
+            out.writeDouble(p.getRotation());
+            out.writeDouble(p.getHoleDiameter());
+        } else if (aperture instanceof MacroAperture m) {
+            out.writeByte(APERTURE_MACRO);
+            writeString(out, m.getTemplate().getName());
+            out.writeDouble(m.getUnitFactor());
+            out.writeInt(m.getParameters().size());
+            for (double p : m.getParameters()) {
+                out.writeDouble(p);
+            }
+            out.writeInt(m.getRegisters().length);
+            for (double r : m.getRegisters()) {
+                out.writeDouble(r);
+            }
+        } else {
+            throw new IOException("Unsupported aperture: " + aperture.getClass().getName());
+        }
+    }
+
+    /**
+     * The objects with step-and-repeat blocks replaced by their instances; the format has
+     * no block section, so panels are stored fully expanded.
+     */
+    private static List<GraphicsObject> expandStepRepeat(List<GraphicsObject> objects) {
+        for (GraphicsObject obj : objects) {
+            if (obj instanceof StepRepeatBlock) {
+                List<GraphicsObject> expanded = new ArrayList<>();
+                StepRepeatBlock.flatten(objects).forEach(expanded::add);
+                return expanded;
+            }
+        }
+        return objects;
+    }
+
+    private static void writeObjects(DataOutputStream out, List<GraphicsObject> objects) throws IOException {
+        int n = objects.size();
+        byte[] kinds = new byte[n];
+        int[] slots = new int[n];
+        DoubleColumn draws = new DoubleColumn();
+        IntColumn drawApertures = new IntColumn();
+        DoubleColumn arcs = new DoubleColumn();
+        IntColumn arcApertures = new IntColumn();
+        ByteColumn arcClockwise = new ByteColumn();
+        DoubleColumn flashes = new DoubleColumn();
+        IntColumn flashApertures = new IntColumn();
+        DoubleColumn transformed = new DoubleColumn();
+        IntColumn transformedApertures = new IntColumn();
+        ByteColumn transformedMirror = new ByteColumn();
+        IntColumn regionFirstContour = new IntColumn();
+        DoubleColumn contourStarts = new DoubleColumn();
+        IntColumn contourFirstSegment = new IntColumn();
+        IntColumn contourFirstCoord = new IntColumn();
+        ByteColumn segmentKinds = new ByteColumn();
+        DoubleColumn segmentCoords = new DoubleColumn();
+
+        int i = 0;
+        for (GraphicsObject object : objects) {
+            GraphicsObject obj = object.toMm();
+            byte kind;
+            if (obj instanceof Draw d) {
+                kind = KIND_DRAW;
+                slots[i] = drawApertures.size();
+                draws.add(d.getStartX(), d.getStartY(), d.getEndX(), d.getEndY());
+                drawApertures.add(dCode(d.getAperture()));
+            } else if (obj instanceof Arc a) {
+                kind = KIND_ARC;
+                slots[i] = arcApertures.size();
+                arcs.add(a.getStartX(), a.getStartY(), a.getEndX(), a.getEndY());
+                arcs.add(a.getCenterX(), a.getCenterY());
+                arcApertures.add(dCode(a.getAperture()));
+                arcClockwise.add(a.isClockwise() ? 1 : 0);
+            } else if (obj instanceof Flash f && f.getRotation() == 0 && f.getScale() == 1.0
+                    && !f.isMirrorX() && !f.isMirrorY()) {
+                kind = KIND_FLASH;
+                slots[i] = flashApertures.size();
+                flashes.add(f.getX(), f.getY());
+                flashApertures.add(dCode(f.getAperture()));
+            } else if (obj instanceof Flash f) {
+                kind = KIND_TRANSFORMED_FLASH;
+                slots[i] = transformedApertures.size();
+                transformed.add(f.getX(), f.getY(), f.getRotation(), f.getScale());
+                transformedApertures.add(dCode(f.getAperture()));
+                transformedMirror.add((f.isMirrorX() ? 1 : 0) | (f.isMirrorY() ? 2 : 0));
+            } else if (obj instanceof Region r) {
+                kind = KIND_REGION;
+                slots[i] = regionFirstContour.size();
+                regionFirstContour.add(contourFirstSegment.size());
+                for (Contour contour : r.getContours()) {
+                    contourStarts.add(contour.getStartX(), contour.getStartY());
+                    contourFirstSegment.add(segmentKinds.size());
+                    contourFirstCoord.add(segmentCoords.size());
+                    for (Contour.ContourSegment seg : contour.getSegments()) {
+                        segmentCoords.add(seg.getX(), seg.getY());
+                        if (seg.isArc()) {
+                            segmentCoords.add(seg.getCenterX(), seg.getCenterY());
+                            segmentKinds.add(seg.isClockwise() ? SEGMENT_ARC_CW : SEGMENT_ARC_CCW);
+                        } else {
+                            segmentKinds.add(SEGMENT_LINE);
+                        }
+                    }
+                }
+            } else {
+                throw new IOException("Unsupported graphics object: " + obj.getClass().getName());
+            }
+            kinds[i] = obj.getPolarity() == Polarity.CLEAR ? (byte) (kind | CLEAR_FLAG) : kind;
+            i++;
+        }
+        // End markers, so that the ranges of the last region and contour are known
+        regionFirstContour.add(contourFirstSegment.size());
+        contourFirstSegment.add(segmentKinds.size());
+        contourFirstCoord.add(segmentCoords.size());
+
+        out.writeInt(n);
+        out.write(kinds);
+        writeInts(out, slots, n);
+        draws.writeTo(out, 4);
+        drawApertures.writeTo(out);
+        arcs.writeTo(out, 6);
+        arcApertures.writeTo(out);
+        arcClockwise.writeTo(out);
+        flashes.writeTo(out, 2);
+        flashApertures.writeTo(out);
+        transformed.writeTo(out, 4);
+        transformedApertures.writeTo(out);
+        transformedMirror.writeTo(out);
+        regionFirstContour.writeTo(out);
+        contourStarts.writeTo(out, 2);
+        contourFirstSegment.writeTo(out);
+        contourFirstCoord.writeTo(out);
+        segmentKinds.writeTo(out);
+        segmentCoords.writeTo(out, 1);
+    }
+
+    private static int dCode(Aperture aperture) {
+        return aperture != null ? aperture.getDCode() : NO_APERTURE;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Growable column of doubles, written as its element count followed by the values.
+     */
+    private static final class DoubleColumn {
+        private double[] values = new double[64];
+        private int size;
+
+        void add(double... v) {
+            if (size + v.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + v.length));
+            }
+            System.arraycopy(v, 0, values, size, v.length);
+            size += v.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out, int stride) throws IOException {
+            out.writeInt(size / stride);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(values[i]);
+            }
+        }
+    }
+
+    private static final class IntColumn {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            writeInts(out, values, size);
+        }
+    }
+
+    private static final class ByteColumn {
+        private byte[] values = new byte[64];
+        private int size;
+
+        void add(int v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = (byte) v;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            out.write(values, 0, size);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.deltaproto.deltagerber.io;
+
+/**
+ * Constants of the binary document format.
+ *
+ * <p>All values are big-endian. A file starts with a header:</p>
+ * <pre>
+ * int    MAGIC
+ * int    VERSION
+ * byte   document type (TYPE_GERBER or TYPE_DRILL)
+ * byte[] SHA-256 content hash of the source file (HASH_LENGTH bytes)
+ * </pre>
+ * <p>followed by the document's metadata (read eagerly) and its objects in columnar
+ * sections (read on access from the memory mapping). Strings are an int byte length,
+ * -1 for null, followed by UTF-8 bytes.</p>
+ */
+final class BinaryFormat {
+
+    static final int MAGIC = 0x44474244; // "DGBD"
+
+    /** Bump on any change to the layout below or to what the parsers produce. */
+    static final int VERSION = 2;
+
+    static final byte TYPE_GERBER = 1;
+    static final byte TYPE_DRILL = 2;
+
+    static final int HASH_LENGTH = 32;
+    static final int HEADER_LENGTH = 4 + 4 + 1 + HASH_LENGTH;
+
+    // Object kinds; the high bit of the kind byte marks CLEAR polarity
+    static final byte KIND_DRAW = 0;
+    static final byte KIND_ARC = 1;
+    static final byte KIND_FLASH = 2;
+    static final byte KIND_TRANSFORMED_FLASH = 3;
+    static final byte KIND_REGION = 4;
+    static final byte KIND_MASK = 0x7F;
+    static final byte CLEAR_FLAG = (byte) 0x80;
+
+    static final byte SEGMENT_LINE = 0;
+    static final byte SEGMENT_ARC_CW = 1;
+    static final byte SEGMENT_ARC_CCW = 2;
+
+    // Aperture types
+    static final byte APERTURE_CIRCLE = 0;
+    static final byte APERTURE_RECTANGLE = 1;
+    static final byte APERTURE_OBROUND = 2;
+    static final byte APERTURE_POLYGON = 3;
+    static final byte APERTURE_MACRO = 4;
+
+    // Drill operation kinds
+    static final byte KIND_HIT = 0;
+    static final byte KIND_SLOT = 1;
+
+    /** Aperture reference for objects without an aperture. */
+    static final int NO_APERTURE = Integer.MIN_VALUE;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,52 @@
+package com.deltaproto.deltagerber.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 hashes of source files, used to detect stale binary documents.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static byte[] of(byte[] content) {
+        return digest().digest(content);
+    }
+
+    public static byte[] of(byte[] content, int offset, int length) {
+        MessageDigest digest = digest();
+        digest.update(content, offset, length);
+        return digest.digest();
+    }
+
+    public static byte[] of(Path file) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    public static String toHex(byte[] hash) {
+        return HexFormat.of().formatHex(hash);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.deltaproto.deltagerber.io;
+
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.*;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import static com.deltaproto.deltagerber.io.BinaryFormat.*;
+
+/**
+ * Read-only view of the graphics object columns of a mapped binary document.
+ * {@link #get(int)} builds a new object from the mapping on every call.
+ */
+final class MappedObjectList extends AbstractList<GraphicsObject> implements RandomAccess {
+
+    private final ByteBuffer buffer;
+    private final Map<Integer, Aperture> apertures;
+    private final int size;
+
+    private final int kinds;
+    private final int slots;
+    private final int drawCoords;
+    private final int drawApertures;
+    private final int arcCoords;
+    private final int arcApertures;
+    private final int arcClockwise;
+    private final int flashCoords;
+    private final int flashApertures;
+    private final int transformedValues;
+    private final int transformedApertures;
+    private final int transformedMirror;
+    private final int regionFirstContour;
+    private final int contourStarts;
+    private final int contourFirstSegment;
+    private final int contourFirstCoord;
+    private final int segmentKinds;
+    private final int segmentCoords;
+
+    /**
+     * Map the object section starting at the buffer's position.
+     */
+    MappedObjectList(ByteBuffer buffer, Map<Integer, Aperture> apertures) {
+        this.buffer = buffer;
+        this.apertures = apertures;
+        this.size = buffer.getInt();
+        this.kinds = buffer.position();
+        this.slots = kinds + size;
+        buffer.position(slots + size * 4);
+        this.drawCoords = BinaryDocumentReader.skipColumn(buffer, 4 * 8);
+        this.drawApertures = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.arcCoords = BinaryDocumentReader.skipColumn(buffer, 6 * 8);
+        this.arcApertures = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.arcClockwise = BinaryDocumentReader.skipColumn(buffer, 1);
+        this.flashCoords = BinaryDocumentReader.skipColumn(buffer, 2 * 8);
+        this.flashApertures = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.transformedValues = BinaryDocumentReader.skipColumn(buffer, 4 * 8);
+        this.transformedApertures = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.transformedMirror = BinaryDocumentReader.skipColumn(buffer, 1);
+        this.regionFirstContour = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.contourStarts = BinaryDocumentReader.skipColumn(buffer, 2 * 8);
+        this.contourFirstSegment = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.contourFirstCoord = BinaryDocumentReader.skipColumn(buffer, 4);
+        this.segmentKinds = BinaryDocumentReader.skipColumn(buffer, 1);
+        this.segmentCoords = BinaryDocumentReader.skipColumn(buffer, 8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public GraphicsObject get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        byte kind = buffer.get(kinds + index);
+        int slot = buffer.getInt(slots + index * 4);
+        GraphicsObject object = switch (kind & KIND_MASK) {
+            case KIND_DRAW -> {
+                int c = drawCoords + slot * 4 * 8;
+                yield new Draw(d(c), d(c + 8), d(c + 16), d(c + 24), aperture(drawApertures, slot));
+            }
+            case KIND_ARC -> {
+                int c = arcCoords + slot * 6 * 8;
+                yield new Arc(d(c), d(c + 8), d(c + 16), d(c + 24), d(c + 32), d(c + 40),
+                    buffer.get(arcClockwise + slot) != 0, aperture(arcApertures, slot));
+            }
+            case KIND_FLASH -> {
+                int c = flashCoords + slot * 2 * 8;
+                yield new Flash(d(c), d(c + 8), aperture(flashApertures, slot));
+            }
+            case KIND_TRANSFORMED_FLASH -> {
+                int c = transformedValues + slot * 4 * 8;
+                byte mirror = buffer.get(transformedMirror + slot);
+                yield new Flash(d(c), d(c + 8), aperture(transformedApertures, slot), d(c + 16), d(c + 24),
+                    (mirror & 1) != 0, (mirror & 2) != 0);
+            }
+            case KIND_REGION -> region(slot);
+            default -> throw new IllegalStateException("Unknown object kind " + kind + " at " + index);
+        };
+        if ((kind & CLEAR_FLAG) != 0) {
+            object.setPolarity(Polarity.CLEAR);
+        }
+        return object;
+    }
+
+    private Region region(int slot) {
+        Region region = new Region();
+        int firstContour = buffer.getInt(regionFirstContour + slot * 4);
+        int endContour = buffer.getInt(regionFirstContour + (slot + 1) * 4);
+        for (int c = firstContour; c < endContour; c++) {
+            int start = contourStarts + c * 2 * 8;
+            Contour contour = new Contour(d(start), d(start + 8));
+            int firstSegment = buffer.getInt(contourFirstSegment + c * 4);
+            int endSegment = buffer.getInt(contourFirstSegment + (c + 1) * 4);
+            int coord = segmentCoords + buffer.getInt(contourFirstCoord + c * 4) * 8;
+            for (int s = firstSegment; s < endSegment; s++) {
+                byte segmentKind = buffer.get(segmentKinds + s);
+                if (segmentKind == SEGMENT_LINE) {
+                    contour.addLineTo(d(coord), d(coord + 8));
+                    coord += 2 * 8;
+                } else {
+                    contour.addArcTo(d(coord), d(coord + 8), d(coord + 16), d(coord + 24),
+                        segmentKind == SEGMENT_ARC_CW);
+                    coord += 4 * 8;
+                }
+            }
+            region.addContour(contour);
+        }
+        return region;
+    }
+
+    private double d(int offset) {
+        return buffer.getDouble(offset);
+    }
+
+    private Aperture aperture(int column, int slot) {
+        int dCode = buffer.getInt(column + slot * 4);
+        return dCode == NO_APERTURE ? null : apertures.get(dCode);
+    }
+}
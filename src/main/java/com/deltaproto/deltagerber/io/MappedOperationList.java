@@ -0,0 +1,65 @@
+package com.deltaproto.deltagerber.io;
+
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.drill.Tool;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import static com.deltaproto.deltagerber.io.BinaryFormat.*;
+
+/**
+ * Read-only view of the drill operation columns of a mapped binary document.
+ * {@link #get(int)} builds a new operation from the mapping on every call.
+ */
+final class MappedOperationList extends AbstractList<DrillOperation> implements RandomAccess {
+
+    private final ByteBuffer buffer;
+    private final Tool[] tools;
+    private final int size;
+
+    private final int kinds;
+    private final int toolRefs;
+    private final int slots;
+    private final int hitCoords;
+    private final int slotCoords;
+
+    /**
+     * Map the operation section starting at the buffer's position.
+     */
+    MappedOperationList(ByteBuffer buffer, Tool[] tools) {
+        this.buffer = buffer;
+        this.tools = tools;
+        this.size = buffer.getInt();
+        this.kinds = buffer.position();
+        this.toolRefs = kinds + size;
+        this.slots = toolRefs + size * 4;
+        buffer.position(slots + size * 4);
+        this.hitCoords = BinaryDocumentReader.skipColumn(buffer, 2 * 8);
+        this.slotCoords = BinaryDocumentReader.skipColumn(buffer, 4 * 8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public DrillOperation get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        Tool tool = tools[buffer.getInt(toolRefs + index * 4)];
+        int slot = buffer.getInt(slots + index * 4);
+        if (buffer.get(kinds + index) == KIND_HIT) {
+            int c = hitCoords + slot * 2 * 8;
+            return new DrillHit(tool, buffer.getDouble(c), buffer.getDouble(c + 8));
+        }
+        int c = slotCoords + slot * 4 * 8;
+        return new DrillSlot(tool, buffer.getDouble(c), buffer.getDouble(c + 8),
+            buffer.getDouble(c + 16), buffer.getDouble(c + 24));
+    }
+}
@@ -0,0 +1,13 @@
+package com.deltaproto.deltagerber.io;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a binary document was written for a different version of its source file.
+ */
+public class StaleDocumentException extends IOException {
+
+    public StaleDocumentException(String message) {
+        super(message);
+    }
+}
@@ -1,165 +1,623 @@
 package com.deltaproto.deltagerber.lexer;
 
+import com.deltaproto.deltagerber.parser.ParserException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Lexer for Gerber files.
  * Tokenizes Gerber content into a stream of tokens.
+ *
+ * <p>The default {@link Mode#SINGLE_PASS} mode walks the input once as a character
+ * state machine: each %...% block is tokenized where it starts and all other text
+ * is tokenized in command-sized segments, so tokens come out in source order and
+ * carry the line they start on. {@link Mode#REGEX} selects the original
+ * regex-based lexer, which produces the same token types and contents.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
  */
 public class GerberLexer {
 
     private static final Logger log = LoggerFactory.getLogger(GerberLexer.class);
 
-    // Multi-line pattern for extended commands (can span multiple lines)
-    private static final Pattern EXTENDED_COMMAND = Pattern.compile("%([^%]+)%", Pattern.DOTALL);
-    private static final Pattern COORD_PATTERN = Pattern.compile(
-        "([XYIJ][+-]?\\d+)+(?:D0?([123]))?\\*"
-    );
-    private static final Pattern D_CODE_PATTERN = Pattern.compile("D(\\d+)\\*");
-    private static final Pattern G_CODE_PATTERN = Pattern.compile("G(\\d{1,2})\\*?");
-    private static final Pattern M_CODE_PATTERN = Pattern.compile("M(\\d{2})\\*");
-    private static final Pattern COMMENT_PATTERN = Pattern.compile("G04\\s*(.*)\\*");
+    /**
+     * Tokenization strategy.
+     */
+    public enum Mode {
+        /** Single pass over the characters, no regular expressions (default). */
+        SINGLE_PASS,
+        /** Original implementation: regex extraction of %...% blocks, then line splitting. */
+        REGEX
+    }
+
+    private final Mode mode;
+
+    private int mapWindowSize = MappedFileScanner.DEFAULT_WINDOW_SIZE;
+
+    // Reader input is read in chunks of this many characters
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Longest command the reader path buffers before giving up on it
+    static final int MAX_COMMAND_SIZE = 4 * 1024 * 1024;
+
+    // Returned by the scan helpers when a command runs past the end of the available input
+    private static final int INCOMPLETE = -2;
+
+    // Line number at the current scan position (1-based)
+    private int line;
+
+    // False while more input may follow the characters being scanned
+    private boolean endOfInput;
+
+    // Offset of the scanned characters' index 0 from the start of the input
+    private int base;
+
+    // Receives the offset of every line break, or null
+    private IntConsumer newlineListener;
+
+    public GerberLexer() {
+        this(Mode.SINGLE_PASS);
+    }
+
+    public GerberLexer(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Set the size of the memory-mapped windows used by {@link #tokenize(Path, Consumer)}.
+     */
+    public GerberLexer setMapWindowSize(int mapWindowSize) {
+        this.mapWindowSize = mapWindowSize;
+        return this;
+    }
+
+    /**
+     * Report the offset of every line break to the listener as it is scanned, e.g. to
+     * build a table for turning offsets into lines and columns. Offsets are counted as
+     * for {@link PositionedSink}. Ranges tokenized on their own are not reported.
+     */
+    public GerberLexer setNewlineListener(IntConsumer newlineListener) {
+        this.newlineListener = newlineListener;
+        return this;
+    }
 
     public List<Token> tokenize(String content) {
+        if (mode == Mode.REGEX) {
+            return new RegexGerberLexer().tokenize(content);
+        }
+        List<Token> tokens = new ArrayList<>(Math.max(16, content.length() / 12));
+        tokenize(content, tokens::add);
+        return tokens;
+    }
+
+    /**
+     * Tokenize content and hand each token to the consumer in source order.
+     */
+    public void tokenize(CharSequence content, Consumer<Token> out) {
+        if (mode == Mode.REGEX) {
+            new RegexGerberLexer().tokenize(content.toString()).forEach(out);
+            return;
+        }
+        tokenizePositioned(content, (token, position) -> out.accept(token));
+    }
+
+    /**
+     * Tokenize content like {@link #tokenize(CharSequence, Consumer)}, handing over the
+     * position of each token as well. Needs the single-pass lexer.
+     */
+    public void tokenizePositioned(CharSequence content, PositionedSink out) {
+        requireSinglePass();
         long startTime = System.currentTimeMillis();
         log.trace("Starting tokenization, content length: {} chars", content.length());
 
-        List<Token> tokens = new ArrayList<>();
-
-        // First pass: extract all extended commands from the entire content
-        // Track their position for proper ordering, and build a mapping for position lookup
-        List<PositionedToken> extendedTokens = new ArrayList<>();
-        List<int[]> extRanges = new ArrayList<>(); // [start, length] of each extended command
-        StringBuilder remaining = new StringBuilder();
-        int lastEnd = 0;
-        Matcher extMatcher = EXTENDED_COMMAND.matcher(content);
-
-        while (extMatcher.find()) {
-            // Add content before this extended command
-            remaining.append(content, lastEnd, extMatcher.start());
-
-            // Track this extended command's range for position mapping
-            extRanges.add(new int[]{extMatcher.start(), extMatcher.end() - extMatcher.start()});
-
-            // Calculate line number at start of this extended command
-            int lineNum = countLines(content, extMatcher.start());
-            int position = extMatcher.start();
-
-            // A single %...% block can contain multiple commands separated by *.
-            // e.g. %FSLAX25Y25*MOIN*% contains both a format spec and a unit command.
-            // Exception: aperture macro blocks use * as statement terminators within
-            // the body, so the whole block must be kept as one token.
-            String blockContent = extMatcher.group(1);
-            if (blockContent.trim().startsWith("AM")) {
-                extendedTokens.add(new PositionedToken(
-                    new Token(TokenType.APERTURE_MACRO, blockContent.trim(), lineNum), position));
-                lastEnd = extMatcher.end();
+        line = 1;
+        endOfInput = true;
+        base = 0;
+        scan(content, 0, content.length(), out);
+
+        log.trace("Tokenization complete in {}ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Tokenize the range [from, to) of content, which must start at a position returned by
+     * {@link #split(CharSequence, int)}, numbering lines from {@code firstLine}. The tokens
+     * are the ones {@link #tokenize(CharSequence, Consumer)} produces for that range.
+     */
+    public void tokenize(CharSequence content, int from, int to, int firstLine, Consumer<Token> out) {
+        if (mode == Mode.REGEX) {
+            throw new UnsupportedOperationException("Range tokenization needs the single-pass lexer");
+        }
+        line = firstLine;
+        endOfInput = true;
+        base = 0;
+        IntConsumer listener = newlineListener;
+        newlineListener = null;
+        try {
+            scan(content, from, to, (token, position) -> out.accept(token));
+        } finally {
+            newlineListener = listener;
+        }
+    }
+
+    /**
+     * A range of the input that can be tokenized on its own, starting on line {@code line}.
+     */
+    public record Range(int start, int end, int line) {
+    }
+
+    /**
+     * Split content into at most {@code parts} ranges of roughly equal size that can be
+     * tokenized independently, e.g. in parallel. Every range after the first starts after
+     * a line break outside any %...% block, where the lexer holds no state besides the line
+     * number. Content without such line breaks stays in one range.
+     */
+    public static List<Range> split(CharSequence content, int parts) {
+        // Blocks only depend on where the '%' characters are, so the scan can jump from
+        // one '%' or line break to the next
+        String text = content.toString();
+        int length = text.length();
+        int target = Math.max(1, length / Math.max(1, parts));
+        List<Range> ranges = new ArrayList<>(Math.max(1, parts));
+        int start = 0;
+        int startLine = 1;
+        int line = 1;
+        int pos = 0;
+        int percent = text.indexOf('%');
+        while (pos < length) {
+            int newline = text.indexOf('\n', pos);
+            if (newline < 0) {
+                break;
+            }
+            if (percent < 0 || newline < percent) {
+                line++;
+                pos = newline + 1;
+                if (pos - start >= target && pos < length && ranges.size() + 1 < parts) {
+                    ranges.add(new Range(start, pos, startLine));
+                    start = pos;
+                    startLine = line;
+                }
                 continue;
             }
-            String[] commands = blockContent.split("\\*");
-            for (String cmd : commands) {
-                cmd = cmd.trim();
-                if (cmd.isEmpty()) continue;
-
-                Token token = parseExtendedCommand(cmd, lineNum);
-                if (token != null) {
-                    extendedTokens.add(new PositionedToken(token, position));
+            // Same block rule as the scanner: an empty or unterminated block is a stray '%'
+            int close = text.indexOf('%', percent + 1);
+            if (close > percent + 1) {
+                line += countNewlines(text, percent + 1, close);
+                pos = close + 1;
+                percent = text.indexOf('%', pos);
+            } else {
+                percent = close;
+            }
+        }
+        ranges.add(new Range(start, length, startLine));
+        return ranges;
+    }
+
+    /**
+     * Tokenize everything a reader supplies, handing each token to the consumer as soon
+     * as its command is complete. Input is read in fixed-size chunks; only a command that
+     * straddles a chunk boundary is carried over, so memory use does not grow with the
+     * input size. A leading byte order mark is skipped. The reader is not closed.
+     *
+     * @throws ParserException if a single command, such as a '%' block that is never
+     *         closed, runs past {@value #MAX_COMMAND_SIZE} characters
+     */
+    public void tokenize(Reader reader, Consumer<Token> out) throws IOException {
+        if (mode == Mode.REGEX) {
+            StringWriter content = new StringWriter();
+            reader.transferTo(content);
+            tokenize(content.toString(), out);
+            return;
+        }
+        tokenizePositioned(reader, (token, position) -> out.accept(token));
+    }
+
+    /**
+     * Tokenize a reader like {@link #tokenize(Reader, Consumer)}, handing over the
+     * position of each token as well. Needs the single-pass lexer.
+     */
+    public void tokenizePositioned(Reader reader, PositionedSink out) throws IOException {
+        requireSinglePass();
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting streaming tokenization");
+
+        line = 1;
+        endOfInput = false;
+        base = 0;
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length = 0;
+        boolean first = true;
+        long total = 0;
+        while (!endOfInput) {
+            // Fill the buffer so each chunk is scanned in one go
+            while (length < buffer.length) {
+                int n = reader.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    endOfInput = true;
+                    break;
+                }
+                length += n;
+                total += n;
+            }
+            int from = 0;
+            if (first && length > 0) {
+                first = false;
+                if (buffer[0] == '\uFEFF') {
+                    from = 1;
+                    base = -1;
+                }
+            }
+            int stop = scan(CharBuffer.wrap(buffer, 0, length), from, length, out);
+            if (stop == 0 && length == buffer.length) {
+                // A single command fills the whole buffer; scan stopped at its start line
+                if (buffer.length >= MAX_COMMAND_SIZE) {
+                    throw new ParserException(buffer[0] == '%'
+                        ? "Unterminated '%' block: no closing '%' within " + MAX_COMMAND_SIZE + " characters"
+                        : "Command longer than " + MAX_COMMAND_SIZE + " characters", line);
                 }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_COMMAND_SIZE));
+            } else if (stop > 0) {
+                // Tokens refer to the chunk they came from, so carry over into a fresh one
+                char[] next = new char[buffer.length];
+                System.arraycopy(buffer, stop, next, 0, length - stop);
+                buffer = next;
+                length -= stop;
+                base += stop;
             }
+        }
+
+        log.trace("Streaming tokenization complete in {}ms, {} chars", System.currentTimeMillis() - startTime, total);
+    }
 
-            lastEnd = extMatcher.end();
+    /**
+     * Tokenize a file by lexing straight from a memory mapping of its bytes, without
+     * decoding the file to a String. Gerber is 7-bit ASCII; the text of comments and
+     * attributes is decoded as UTF-8 when their tokens are created.
+     */
+    public void tokenize(Path file, Consumer<Token> out) throws IOException {
+        if (mode == Mode.REGEX) {
+            tokenize(Files.readString(file), out);
+            return;
         }
+        tokenizePositioned(file, (token, position) -> out.accept(token));
+    }
 
-        // Add remaining content after the last extended command
-        remaining.append(content.substring(lastEnd));
+    /**
+     * Tokenize a file like {@link #tokenize(Path, Consumer)}, handing over the position
+     * of each token as well; positions count bytes. Needs the single-pass lexer.
+     */
+    public void tokenizePositioned(Path file, PositionedSink out) throws IOException {
+        requireSinglePass();
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting mapped tokenization of {}", file);
+
+        line = 1;
+        base = 0;
+        MappedFileScanner.scan(file, mapWindowSize, (window, last) -> {
+            endOfInput = last;
+            int consumed = scan(window, 0, window.length(), out);
+            base += consumed;
+            return consumed;
+        });
+
+        log.trace("Mapped tokenization complete in {}ms", System.currentTimeMillis() - startTime);
+    }
+
+    private void requireSinglePass() {
+        if (mode == Mode.REGEX) {
+            throw new UnsupportedOperationException("Token positions need the single-pass lexer");
+        }
+    }
+
+    /**
+     * Scan [from, to) of the source, emitting tokens for every command.
+     *
+     * @return position of the first character not consumed: {@code to}, or the start of a
+     *         command that continues past {@code to} when more input may follow
+     */
+    private int scan(CharSequence src, int from, int to, PositionedSink out) {
+        PositionedSink direct = base == 0 ? out : (token, position) -> out.accept(token, base + position);
+        int pos = from;
+        while (pos < to) {
+            char c = src.charAt(pos);
+            if (c == '\n') {
+                line++;
+                if (newlineListener != null) newlineListener.accept(base + pos);
+                pos++;
+            } else if (c == '%') {
+                int close = blockEnd(src, pos, to);
+                if (close == INCOMPLETE) {
+                    return pos;
+                }
+                if (close < 0) {
+                    // Unterminated or empty block: the '%' is ignored like any stray character
+                    pos++;
+                    continue;
+                }
+                tokenizeExtendedBlock(src, pos + 1, close, direct);
+                line += reportNewlines(src, pos + 1, close);
+                pos = close + 1;
+            } else if (c == '*' || Character.isWhitespace(c)) {
+                pos++;
+            } else {
+                int end = scanSegment(src, pos, to, direct);
+                if (end == INCOMPLETE) {
+                    return pos;
+                }
+                pos = end;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Position of the '%' closing the block opened at {@code open}, -1 if the block is
+     * empty or unterminated, or {@link #INCOMPLETE} if that depends on input not seen yet.
+     */
+    private int blockEnd(CharSequence src, int open, int to) {
+        int close = indexOf(src, '%', open + 1, to);
+        if (close < 0 && !endOfInput) {
+            return INCOMPLETE;
+        }
+        return close == open + 1 ? -1 : close;
+    }
 
-        // Pre-compute cumulative offset array for O(1) position lookup
-        int[] cumulativeOffset = new int[extRanges.size() + 1];
-        cumulativeOffset[0] = 0;
-        for (int i = 0; i < extRanges.size(); i++) {
-            cumulativeOffset[i + 1] = cumulativeOffset[i] + extRanges.get(i)[1];
+    private static int countNewlines(CharSequence src, int start, int end) {
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (src.charAt(i) == '\n') n++;
         }
+        return n;
+    }
 
-        // Second pass: process remaining content line by line
-        // Track positions for simple commands too
-        List<PositionedToken> simpleTokens = new ArrayList<>();
-        String[] lines = remaining.toString().split("\n");
-        int lineNum = 0;
-        int charPos = 0;
+    /**
+     * {@link #countNewlines} that also reports each line break to the newline listener.
+     */
+    private int reportNewlines(CharSequence src, int start, int end) {
+        if (newlineListener == null) {
+            return countNewlines(src, start, end);
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (src.charAt(i) == '\n') {
+                n++;
+                newlineListener.accept(base + i);
+            }
+        }
+        return n;
+    }
 
-        for (String line : lines) {
-            lineNum++;
-            String trimmedLine = line.trim();
-            if (!trimmedLine.isEmpty()) {
-                // Find position of this line in original content using pre-computed offsets
-                int origPos = findOriginalPositionFast(charPos, extRanges, cumulativeOffset);
-                tokenizeSimpleCommandsWithPosition(trimmedLine, lineNum, origPos, simpleTokens);
+    /**
+     * Tokenize one simple command segment starting at {@code start}: the text up to and
+     * including the next '*', or up to the end of the line. %...% blocks inside a segment
+     * are cut out of its text, so a command interrupted by a block still reads as one
+     * command; the block's own tokens are emitted in source order around it.
+     *
+     * @return position after the segment, or {@link #INCOMPLETE}
+     */
+    private int scanSegment(CharSequence src, int start, int to, PositionedSink out) {
+        int pos = start;
+        while (pos < to) {
+            char c = src.charAt(pos);
+            if (c == '*') {
+                tokenizeSimpleCommands(src, start, pos + 1, out);
+                return pos + 1;
             }
-            charPos += line.length() + 1; // +1 for newline
+            if (c == '\n') {
+                break;
+            }
+            if (c == '%') {
+                int close = blockEnd(src, pos, to);
+                if (close == INCOMPLETE) {
+                    return INCOMPLETE;
+                }
+                if (close >= 0) {
+                    return scanSplicedSegment(src, start, pos, to, out);
+                }
+            }
+            pos++;
         }
+        if (pos == to && !endOfInput) {
+            return INCOMPLETE;
+        }
+        tokenizeSimpleCommands(src, start, pos, out);
+        return pos;
+    }
 
-        // Merge extended and simple tokens, sorted by position
-        log.trace("Merging {} extended + {} simple tokens", extendedTokens.size(), simpleTokens.size());
-        List<PositionedToken> allTokens = new ArrayList<>(extendedTokens);
-        allTokens.addAll(simpleTokens);
-        allTokens.sort((a, b) -> Integer.compare(a.position, b.position));
+    /**
+     * Slow path of {@link #scanSegment} for a segment interrupted by a %...% block at
+     * {@code blockPos}: the segment text is copied without its blocks, tokenized, and
+     * merged with the block tokens by source position.
+     */
+    private int scanSplicedSegment(CharSequence src, int start, int blockPos, int to, PositionedSink out) {
+        int lineBefore = line;
+        StringBuilder text = new StringBuilder();
+        // Fragments of the spliced text: offset in text, source position and line
+        List<int[]> fragments = new ArrayList<>();
+        List<Token> blockTokens = new ArrayList<>();
+        List<Integer> blockPositions = new ArrayList<>();
+
+        text.append(src, start, blockPos);
+        fragments.add(new int[]{0, start, line});
+
+        int pos = blockPos;
+        boolean complete = false;
+        while (pos < to) {
+            char c = src.charAt(pos);
+            if (c == '%') {
+                int close = blockEnd(src, pos, to);
+                if (close == INCOMPLETE) {
+                    break;
+                }
+                if (close >= 0) {
+                    int open = pos;
+                    tokenizeExtendedBlock(src, pos + 1, close, (token, position) -> {
+                        blockTokens.add(token);
+                        blockPositions.add(open);
+                    });
+                    line += countNewlines(src, pos + 1, close);
+                    pos = close + 1;
+                    fragments.add(new int[]{text.length(), pos, line});
+                    continue;
+                }
+            }
+            if (c == '\n') {
+                complete = true;
+                break;
+            }
+            text.append(c);
+            pos++;
+            if (c == '*') {
+                complete = true;
+                break;
+            }
+        }
+        if (!complete && !endOfInput) {
+            // Nothing has been emitted yet; rescan the whole segment once more input arrives
+            line = lineBefore;
+            return INCOMPLETE;
+        }
+        // Line breaks can only be inside the blocks; report them now the segment is complete
+        if (newlineListener != null) {
+            reportNewlines(src, blockPos, pos);
+        }
 
-        for (PositionedToken pt : allTokens) {
-            tokens.add(pt.token);
+        int[] nextBlock = {0};
+        int lineAfter = line;
+        tokenizeSimpleCommands(text, 0, text.length(), (token, offset) -> {
+            int[] fragment = fragments.get(0);
+            for (int[] f : fragments) {
+                if (f[0] <= offset) fragment = f;
+            }
+            int position = fragment[1] + offset - fragment[0];
+            while (nextBlock[0] < blockTokens.size() && blockPositions.get(nextBlock[0]) <= position) {
+                out.accept(blockTokens.get(nextBlock[0]), blockPositions.get(nextBlock[0]++));
+            }
+            out.accept(new Token(token.getType(), token.getContent(), fragment[2]), position);
+        });
+        while (nextBlock[0] < blockTokens.size()) {
+            out.accept(blockTokens.get(nextBlock[0]), blockPositions.get(nextBlock[0]++));
         }
+        line = lineAfter;
+        return pos;
+    }
 
-        log.trace("Tokenization complete in {}ms: {} tokens", System.currentTimeMillis() - startTime, tokens.size());
-        return tokens;
+    /**
+     * Receives a token together with the position of its first character, counted from
+     * the start of the input after any byte order mark: in chars for text and readers, in
+     * bytes for files. Tokens of a %...% block get the position of its opening '%'.
+     */
+    @FunctionalInterface
+    public interface PositionedSink {
+        void accept(Token token, int position);
     }
 
-    private static class PositionedToken {
-        final Token token;
-        final int position;
+    private static int indexOf(CharSequence src, char ch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (src.charAt(i) == ch) return i;
+        }
+        return -1;
+    }
 
-        PositionedToken(Token token, int position) {
-            this.token = token;
-            this.position = position;
+    private void tokenizeExtendedBlock(CharSequence src, int start, int end, PositionedSink out) {
+        // A single %...% block can contain multiple commands separated by *.
+        // e.g. %FSLAX25Y25*MOIN*% contains both a format spec and a unit command.
+        // Exception: aperture macro blocks use * as statement terminators within
+        // the body, so the whole block must be kept as one token.
+        int s = skipLeadingBlanks(src, start, end);
+        if (s + 1 < end && src.charAt(s) == 'A' && src.charAt(s + 1) == 'M') {
+            out.accept(new Token(TokenType.APERTURE_MACRO, trimmed(src, s, end), line), start - 1);
+            return;
+        }
+        int cmdStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || src.charAt(i) == '*') {
+                String cmd = normalizedCommand(src, cmdStart, i);
+                if (!cmd.isEmpty()) {
+                    Token token = parseExtendedCommand(cmd, line);
+                    if (token != null) {
+                        out.accept(token, start - 1);
+                    }
+                }
+                cmdStart = i + 1;
+            }
         }
     }
 
-    private int findOriginalPositionFast(int remainingPos, List<int[]> extRanges, int[] cumulativeOffset) {
-        // Binary search to find how many extended commands are before this position
-        int count = 0;
-        int adjustedPos = remainingPos;
-        for (int i = 0; i < extRanges.size(); i++) {
-            int[] range = extRanges.get(i);
-            int origStart = range[0];
-            // The original start minus all previous removals gives us the position in remaining string
-            int remainingStart = origStart - cumulativeOffset[i];
-            if (remainingStart <= remainingPos) {
-                count = i + 1;
-            } else {
+    // Same character set as String.trim()
+    private static int skipLeadingBlanks(CharSequence src, int start, int end) {
+        while (start < end && src.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static String trimmed(CharSequence src, int start, int end) {
+        start = skipLeadingBlanks(src, start, end);
+        while (end > start && src.charAt(end - 1) <= ' ') end--;
+        return substring(src, start, end);
+    }
+
+    /**
+     * Trimmed command text with every run of whitespace collapsed to a single space.
+     * Equivalent to {@code cmd.trim().replaceAll("\\s+", " ").trim()}.
+     */
+    private static String normalizedCommand(CharSequence src, int start, int end) {
+        start = skipLeadingBlanks(src, start, end);
+        while (end > start && src.charAt(end - 1) <= ' ') end--;
+
+        boolean clean = true;
+        for (int i = start; i < end; i++) {
+            char c = src.charAt(i);
+            if (isRegexSpace(c) && (c != ' ' || isRegexSpace(src.charAt(i + 1)))) {
+                clean = false;
                 break;
             }
         }
-        return remainingPos + cumulativeOffset[count];
-    }
+        if (clean) {
+            return substring(src, start, end);
+        }
 
-    private int countLines(String content, int pos) {
-        int lines = 1;
-        for (int i = 0; i < pos && i < content.length(); i++) {
-            if (content.charAt(i) == '\n') {
-                lines++;
+        StringBuilder sb = new StringBuilder(end - start);
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = src.charAt(i);
+            if (isRegexSpace(c)) {
+                inSpace = true;
+            } else {
+                if (inSpace) sb.append(' ');
+                inSpace = false;
+                sb.append(c);
             }
         }
-        return lines;
+        return sb.toString().trim();
     }
 
-    private Token parseExtendedCommand(String cmd, int line) {
-        // Normalize whitespace in command
-        cmd = cmd.replaceAll("\\s+", " ").trim();
+    // Characters matched by the regex class \s
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static String substring(CharSequence src, int start, int end) {
+        if (src instanceof String s) {
+            return s.substring(start, end);
+        }
+        return src.subSequence(start, end).toString();
+    }
 
+    private Token parseExtendedCommand(String cmd, int line) {
         if (cmd.startsWith("FS")) {
             return new Token(TokenType.FORMAT_SPEC, cmd, line);
         } else if (cmd.startsWith("MO")) {
@@ -201,38 +659,31 @@ public class GerberLexer {
         return new Token(TokenType.UNKNOWN, cmd, line);
     }
 
-    private void tokenizeSimpleCommandsWithPosition(String line, int lineNum, int basePos, List<PositionedToken> tokens) {
-        // Handle multiple commands on one line
-        // Optimized: use character-based parsing for common patterns to avoid regex overhead
-        int pos = 0;
-        int len = line.length();
+    /**
+     * Tokenize the simple (non-extended) commands in [start, end). The range never spans
+     * a line break or a %...% block and contains at most one '*', at its end.
+     */
+    private void tokenizeSimpleCommands(CharSequence src, int start, int end, PositionedSink out) {
+        int pos = start;
 
-        while (pos < len) {
-            char c = line.charAt(pos);
+        while (pos < end) {
+            char c = src.charAt(pos);
 
             // Fast path: coordinates starting with X, Y, I, J (most common case ~95%+ of lines)
             if (c == 'X' || c == 'Y' || c == 'I' || c == 'J') {
-                int coordEnd = parseCoordinateFast(line, pos);
+                int coordEnd = parseCoordinateEnd(src, pos, end);
                 if (coordEnd > pos) {
                     // Extract coordinate part (without D code and *)
-                    int dPos = line.indexOf('D', pos);
-                    int starPos = line.indexOf('*', pos);
-                    int coordPartEnd = (dPos > pos && dPos < coordEnd) ? dPos :
-                                       (starPos > pos && starPos < coordEnd) ? starPos : coordEnd;
-                    String coordPart = line.substring(pos, coordPartEnd);
-                    tokens.add(new PositionedToken(new Token(TokenType.COORDINATE, coordPart, lineNum), basePos + pos));
+                    int dPos = indexOf(src, 'D', pos, coordEnd);
+                    int starPos = indexOf(src, '*', pos, coordEnd);
+                    int coordPartEnd = dPos > pos ? dPos : starPos > pos ? starPos : coordEnd;
+                    out.accept(new Token(TokenType.COORDINATE, src, pos, coordPartEnd, line), pos);
 
                     // Check for embedded D code (D01, D02, D03)
-                    if (dPos > pos && dPos < coordEnd) {
-                        int dCode = parseDCodeFast(line, dPos);
-                        if (dCode >= 1 && dCode <= 3) {
-                            TokenType dType = switch (dCode) {
-                                case 1 -> TokenType.D01;
-                                case 2 -> TokenType.D02;
-                                case 3 -> TokenType.D03;
-                                default -> TokenType.UNKNOWN;
-                            };
-                            tokens.add(new PositionedToken(new Token(dType, "D0" + dCode, lineNum), basePos + dPos));
+                    if (dPos > pos) {
+                        Token op = operationToken(parseDCodeValue(src, dPos, end));
+                        if (op != null) {
+                            out.accept(op, dPos);
                         }
                     }
                     pos = coordEnd;
@@ -242,9 +693,9 @@ public class GerberLexer {
 
             // Fast path: G codes
             if (c == 'G') {
-                int gEnd = parseGCodeFast(line, pos);
+                int gEnd = parseGCodeEnd(src, pos, end);
                 if (gEnd > pos) {
-                    int gCode = parseNumberAt(line, pos + 1, gEnd);
+                    int gCode = parseNumberAt(src, pos + 1, gEnd);
                     TokenType type = switch (gCode) {
                         case 1 -> TokenType.G01;
                         case 2 -> TokenType.G02;
@@ -260,44 +711,39 @@ public class GerberLexer {
                     // don't consume the trailing * or D-code that follows
                     if (gCode == 54 || gCode == 55) {
                         pos = pos + 1; // skip 'G'
-                        while (pos < len && Character.isDigit(line.charAt(pos))) pos++; // skip digits
+                        while (pos < end && Character.isDigit(src.charAt(pos))) pos++; // skip digits
                         continue; // let the loop parse the following D-code
                     }
 
                     // G70/G71: deprecated unit commands
-                    if (gCode == 70) {
-                        tokens.add(new PositionedToken(new Token(TokenType.UNIT, "MOIN", lineNum), basePos + pos));
-                        pos = gEnd;
-                        continue;
-                    }
-                    if (gCode == 71) {
-                        tokens.add(new PositionedToken(new Token(TokenType.UNIT, "MOMM", lineNum), basePos + pos));
+                    if (gCode == 70 || gCode == 71) {
+                        out.accept(new Token(TokenType.UNIT, gCode == 70 ? "MOIN" : "MOMM", line), pos);
                         pos = gEnd;
                         continue;
                     }
 
                     // Handle G04 comments specially
                     if (gCode == 4) {
-                        int starPos = line.indexOf('*', pos);
+                        int starPos = indexOf(src, '*', pos, end);
                         if (starPos > gEnd) {
-                            String commentContent = line.substring(gEnd, starPos).trim();
+                            String commentContent = trimmed(src, gEnd, starPos);
                             if (commentContent.startsWith("#@!")) {
                                 String attrContent = commentContent.substring(3).trim();
                                 if (attrContent.startsWith("TF.")) {
-                                    tokens.add(new PositionedToken(new Token(TokenType.FILE_ATTRIBUTE, attrContent, lineNum), basePos + pos));
+                                    out.accept(new Token(TokenType.FILE_ATTRIBUTE, attrContent, line), pos);
                                 } else if (attrContent.startsWith("TA.")) {
-                                    tokens.add(new PositionedToken(new Token(TokenType.APERTURE_ATTRIBUTE, attrContent, lineNum), basePos + pos));
+                                    out.accept(new Token(TokenType.APERTURE_ATTRIBUTE, attrContent, line), pos);
                                 } else if (attrContent.startsWith("TD")) {
-                                    tokens.add(new PositionedToken(new Token(TokenType.DELETE_ATTRIBUTE, attrContent, lineNum), basePos + pos));
+                                    out.accept(new Token(TokenType.DELETE_ATTRIBUTE, attrContent, line), pos);
                                 }
                             } else {
-                                tokens.add(new PositionedToken(new Token(TokenType.COMMENT, commentContent, lineNum), basePos + pos));
+                                out.accept(new Token(TokenType.COMMENT, commentContent, line), pos);
                             }
                             pos = starPos + 1;
                             continue;
                         }
                     }
-                    tokens.add(new PositionedToken(new Token(type, "G" + gCode, lineNum), basePos + pos));
+                    out.accept(new Token(type, codeText('G', gCode), line), pos);
                     pos = gEnd;
                     continue;
                 }
@@ -305,16 +751,16 @@ public class GerberLexer {
 
             // Fast path: D codes (standalone)
             if (c == 'D') {
-                int dEnd = parseDCodeEnd(line, pos);
+                int dEnd = parseTerminatedCodeEnd(src, pos, end);
                 if (dEnd > pos) {
-                    int dCode = parseNumberAt(line, pos + 1, dEnd - 1); // -1 to skip *
+                    int dCode = parseNumberAt(src, pos + 1, dEnd - 1); // -1 to skip *
                     TokenType type = switch (dCode) {
                         case 1 -> TokenType.D01;
                         case 2 -> TokenType.D02;
                         case 3 -> TokenType.D03;
                         default -> TokenType.APERTURE_SELECT;
                     };
-                    tokens.add(new PositionedToken(new Token(type, "D" + dCode, lineNum), basePos + pos));
+                    out.accept(new Token(type, codeText('D', dCode), line), pos);
                     pos = dEnd;
                     continue;
                 }
@@ -322,43 +768,63 @@ public class GerberLexer {
 
             // Fast path: M codes
             if (c == 'M') {
-                int mEnd = parseMCodeEnd(line, pos);
+                int mEnd = parseTerminatedCodeEnd(src, pos, end);
                 if (mEnd > pos) {
-                    int mCode = parseNumberAt(line, pos + 1, mEnd - 1);
+                    int mCode = parseNumberAt(src, pos + 1, mEnd - 1);
                     if (mCode == 0 || mCode == 2) {
-                        tokens.add(new PositionedToken(new Token(TokenType.END_OF_FILE, "M" + mCode, lineNum), basePos + pos));
+                        out.accept(new Token(TokenType.END_OF_FILE, codeText('M', mCode), line), pos);
                     }
                     pos = mEnd;
                     continue;
                 }
             }
 
-            // Skip * and whitespace
-            if (c == '*' || Character.isWhitespace(c)) {
-                pos++;
-                continue;
-            }
-
-            // Skip unknown character
+            // Skip *, whitespace and unknown characters
             pos++;
         }
     }
 
-    // Fast coordinate parsing: returns end position (after trailing *)
-    private int parseCoordinateFast(String line, int start) {
+    private Token operationToken(int dCode) {
+        return switch (dCode) {
+            case 1 -> new Token(TokenType.D01, "D01", line);
+            case 2 -> new Token(TokenType.D02, "D02", line);
+            case 3 -> new Token(TokenType.D03, "D03", line);
+            default -> null;
+        };
+    }
+
+    // Reuse the text of D/G/M codes instead of building a String for every command
+    private static final int CODE_TEXT_CACHE = 1000;
+    private static final String[][] CODE_TEXT = new String[3][CODE_TEXT_CACHE];
+
+    private static String codeText(char letter, int code) {
+        if (code < 0 || code >= CODE_TEXT_CACHE) {
+            return letter + Integer.toString(code);
+        }
+        String[] texts = CODE_TEXT[letter == 'D' ? 0 : letter == 'G' ? 1 : 2];
+        String text = texts[code];
+        if (text == null) {
+            // Racing threads may both create the text; either copy is fine
+            text = letter + Integer.toString(code);
+            texts[code] = text;
+        }
+        return text;
+    }
+
+    // Coordinate block end: returns position after the trailing * (or start if not a coordinate)
+    private static int parseCoordinateEnd(CharSequence src, int start, int end) {
         int pos = start;
-        int len = line.length();
         boolean hasCoord = false;
 
-        while (pos < len) {
-            char c = line.charAt(pos);
+        while (pos < end) {
+            char c = src.charAt(pos);
             if (c == 'X' || c == 'Y' || c == 'I' || c == 'J') {
                 pos++;
                 // Skip optional sign
-                if (pos < len && (line.charAt(pos) == '+' || line.charAt(pos) == '-')) pos++;
+                if (pos < end && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
                 // Must have at least one digit
-                if (pos < len && Character.isDigit(line.charAt(pos))) {
-                    while (pos < len && Character.isDigit(line.charAt(pos))) pos++;
+                if (pos < end && Character.isDigit(src.charAt(pos))) {
+                    while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
                     hasCoord = true;
                 } else {
                     return start; // Invalid
@@ -367,11 +833,9 @@ public class GerberLexer {
                 // D code - check if D01, D02, D03
                 int dStart = pos;
                 pos++;
-                if (pos < len && line.charAt(pos) == '0') pos++; // Optional leading 0
-                if (pos < len && Character.isDigit(line.charAt(pos))) {
-                    while (pos < len && Character.isDigit(line.charAt(pos))) pos++;
-                }
-                if (pos < len && line.charAt(pos) == '*') {
+                if (pos < end && src.charAt(pos) == '0') pos++; // Optional leading 0
+                while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
+                if (pos < end && src.charAt(pos) == '*') {
                     return pos + 1;
                 }
                 pos = dStart + 1; // Backtrack, might be aperture select
@@ -385,34 +849,32 @@ public class GerberLexer {
         return hasCoord ? pos : start;
     }
 
-    // Parse D code value at position (e.g., "D01" returns 1)
-    private int parseDCodeFast(String line, int dPos) {
+    // D code value at position (e.g., "D01" returns 1)
+    private static int parseDCodeValue(CharSequence src, int dPos, int end) {
         int pos = dPos + 1; // Skip 'D'
-        int len = line.length();
-        if (pos < len && line.charAt(pos) == '0') pos++; // Skip optional leading 0
+        if (pos < end && src.charAt(pos) == '0') pos++; // Skip optional leading 0
         int val = 0;
-        while (pos < len && Character.isDigit(line.charAt(pos))) {
-            val = val * 10 + (line.charAt(pos) - '0');
+        while (pos < end && Character.isDigit(src.charAt(pos))) {
+            val = val * 10 + (src.charAt(pos) - '0');
             pos++;
         }
         return val;
     }
 
-    // Parse G code end position (G followed by digits, optionally *)
-    private int parseGCodeFast(String line, int start) {
+    // G code end position (G followed by digits, optionally *)
+    private static int parseGCodeEnd(CharSequence src, int start, int end) {
         int pos = start + 1; // Skip 'G'
-        int len = line.length();
-        while (pos < len && Character.isDigit(line.charAt(pos))) pos++;
+        while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
         if (pos == start + 1) return start; // No digits
-        if (pos < len && line.charAt(pos) == '*') pos++;
+        if (pos < end && src.charAt(pos) == '*') pos++;
         return pos;
     }
 
-    // Parse number from start to end position
-    private int parseNumberAt(String line, int start, int end) {
+    // Number from start to end position, ignoring non-digits
+    private static int parseNumberAt(CharSequence src, int start, int end) {
         int val = 0;
-        for (int i = start; i < end && i < line.length(); i++) {
-            char c = line.charAt(i);
+        for (int i = start; i < end; i++) {
+            char c = src.charAt(i);
             if (Character.isDigit(c)) {
                 val = val * 10 + (c - '0');
             }
@@ -420,23 +882,12 @@ public class GerberLexer {
         return val;
     }
 
-    // Parse D code end (D followed by digits and *)
-    private int parseDCodeEnd(String line, int start) {
-        int pos = start + 1; // Skip 'D'
-        int len = line.length();
-        while (pos < len && Character.isDigit(line.charAt(pos))) pos++;
-        if (pos == start + 1) return start; // No digits
-        if (pos < len && line.charAt(pos) == '*') return pos + 1;
-        return start; // Must end with *
-    }
-
-    // Parse M code end (M followed by digits and *)
-    private int parseMCodeEnd(String line, int start) {
-        int pos = start + 1; // Skip 'M'
-        int len = line.length();
-        while (pos < len && Character.isDigit(line.charAt(pos))) pos++;
+    // End of a letter code that must be terminated by * (Dnn*, Mnn*)
+    private static int parseTerminatedCodeEnd(CharSequence src, int start, int end) {
+        int pos = start + 1; // Skip letter
+        while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
         if (pos == start + 1) return start; // No digits
-        if (pos < len && line.charAt(pos) == '*') return pos + 1;
+        if (pos < end && src.charAt(pos) == '*') return pos + 1;
         return start; // Must end with *
     }
 }
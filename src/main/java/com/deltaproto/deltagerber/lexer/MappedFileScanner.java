@@ -0,0 +1,74 @@
+package com.deltaproto.deltagerber.lexer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Feeds a file to a scanner through read-only memory mappings, without decoding it to a
+ * String. Files larger than the window size are mapped one window at a time; each window
+ * starts where the scanner stopped consuming the previous one, so a command is never
+ * split across windows. A leading UTF-8 byte order mark is skipped.
+ */
+public final class MappedFileScanner {
+
+    /** Default mapping window: large enough for most files to be mapped in one piece. */
+    public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * Consumes the text of one mapped window.
+     */
+    @FunctionalInterface
+    public interface WindowScanner {
+        /**
+         * Scan a window of the file.
+         *
+         * @param window  the window contents
+         * @param last    true if the window reaches the end of the file
+         * @return number of characters consumed; the next window starts right after them.
+         *         Must be the full window length when {@code last} is true.
+         */
+        int scan(ByteCharSequence window, boolean last) throws IOException;
+    }
+
+    private MappedFileScanner() {
+    }
+
+    public static void scan(Path file, int windowSize, WindowScanner scanner) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = skipByteOrderMark(channel, size);
+            int window = windowSize;
+            while (position < size) {
+                long length = Math.min(size - position, window);
+                boolean last = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = scanner.scan(new ByteCharSequence(buffer), last);
+                if (last) {
+                    break;
+                }
+                if (consumed == 0) {
+                    // A single command is larger than the window
+                    if (window > Integer.MAX_VALUE / 2) {
+                        throw new IOException("Command too large to map in " + file);
+                    }
+                    window *= 2;
+                } else {
+                    position += consumed;
+                    window = windowSize;
+                }
+            }
+        }
+    }
+
+    private static long skipByteOrderMark(FileChannel channel, long size) throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3);
+        boolean bom = (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB && (head.get(2) & 0xFF) == 0xBF;
+        return bom ? 3 : 0;
+    }
+}
@@ -2,16 +2,39 @@ package com.deltaproto.deltagerber.lexer;
 
 /**
  * A token from the Gerber lexer.
+ *
+ * <p>A token either holds its content as a String or refers to a range of the source
+ * text, in which case the String is only created if {@link #getContent()} is called.
+ * Hot paths such as coordinate decoding read the range directly through
+ * {@link #getSource()}, {@link #getStart()} and {@link #getEnd()}.</p>
  */
 public class Token {
 
     private final TokenType type;
-    private final String content;
+    private String content;
+    private final CharSequence source;
+    private final int start;
+    private final int end;
     private final int line;
 
     public Token(TokenType type, String content, int line) {
         this.type = type;
         this.content = content;
+        this.source = content;
+        this.start = 0;
+        this.end = content.length();
+        this.line = line;
+    }
+
+    /**
+     * Token whose content is the range [start, end) of the source text.
+     * The source must not change afterwards.
+     */
+    public Token(TokenType type, CharSequence source, int start, int end, int line) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.end = end;
         this.line = line;
     }
 
@@ -20,15 +43,33 @@ public class Token {
     }
 
     public String getContent() {
+        if (content == null) {
+            content = source instanceof String s ? s.substring(start, end) : source.subSequence(start, end).toString();
+        }
         return content;
     }
 
+    /**
+     * Text the content was taken from; the content is {@code source[start, end)}.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
     public int getLine() {
         return line;
     }
 
     @Override
     public String toString() {
-        return String.format("Token[%s, '%s', line %d]", type, content, line);
+        return String.format("Token[%s, '%s', line %d]", type, getContent(), line);
     }
 }
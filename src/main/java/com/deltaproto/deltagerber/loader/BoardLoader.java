@@ -0,0 +1,283 @@
+package com.deltaproto.deltagerber.loader;
+
+import com.deltaproto.deltagerber.cache.DocumentCache;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Loads all files of a board job concurrently.
+ *
+ * <p>Each {@link Source} is read, classified by its header (unless its format and layer
+ * type are given, see {@link LayerScanner}) and parsed as a separate task on the loader's
+ * executor, so a job takes about as long as its largest layer rather than the sum of all
+ * layers. Files that cannot be read,
+ * classified or parsed are reported in {@link Result#getFailures()}; the other layers are
+ * returned in source order.</p>
+ */
+public class BoardLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(BoardLoader.class);
+
+    /** Source file formats. */
+    public enum Format { GERBER, EXCELLON }
+
+    private final Executor executor;
+    private DocumentCache documentCache = null;
+
+    /**
+     * Loader that parses on the common fork-join pool.
+     */
+    public BoardLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loader that parses on the given executor, one task per file.
+     */
+    public BoardLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Parse through a document cache instead of parsing every file.
+     */
+    public BoardLoader setDocumentCache(DocumentCache documentCache) {
+        this.documentCache = documentCache;
+        return this;
+    }
+
+    /**
+     * Load all sources, waiting until every file has been parsed or has failed.
+     */
+    public Result load(List<Source> sources) {
+        long start = System.nanoTime();
+        List<CompletableFuture<MultiLayerSVGRenderer.Layer>> futures = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            futures.add(CompletableFuture.supplyAsync(() -> loadLayer(source), executor));
+        }
+
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            try {
+                layers.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Failed to load {}: {}", source.getName(), cause.getMessage());
+                failures.add(new Failure(source.getName(), cause));
+            }
+        }
+        log.debug("Loaded {} layers ({} failed) in {}ms", layers.size(), failures.size(),
+            (System.nanoTime() - start) / 1_000_000);
+        return new Result(layers, failures);
+    }
+
+    private MultiLayerSVGRenderer.Layer loadLayer(Source source) {
+        byte[] content;
+        int offset;
+        int length;
+        if (source.path != null) {
+            try {
+                content = Files.readAllBytes(source.path);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            offset = 0;
+            length = content.length;
+        } else {
+            content = source.content;
+            offset = source.offset;
+            length = source.length;
+        }
+
+        Format format = source.format;
+        LayerType layerType = source.layerType;
+        if (format == null || layerType == null) {
+            LayerScanner.Header header = LayerScanner.scan(content, offset, length);
+            if (format == null) {
+                format = header.format();
+            }
+            if (layerType == null && header.format() == format) {
+                layerType = header.layerType();
+            }
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Neither a Gerber nor an Excellon file: " + source.getName());
+        }
+
+        MultiLayerSVGRenderer.Layer layer;
+        if (format == Format.EXCELLON) {
+            DrillDocument doc = documentCache != null
+                ? documentCache.getDrill(content, offset, length)
+                : new ExcellonParser().parse(new String(content, offset, length, StandardCharsets.UTF_8));
+            layer = new MultiLayerSVGRenderer.Layer(source.getName(), doc);
+        } else {
+            GerberDocument doc = documentCache != null
+                ? documentCache.getGerber(content, offset, length)
+                : new GerberParser().parse(new String(content, offset, length, StandardCharsets.UTF_8));
+            layer = new MultiLayerSVGRenderer.Layer(source.getName(), doc);
+        }
+        if (layerType == null) {
+            layerType = format == Format.EXCELLON ? LayerType.DRILL : LayerType.OTHER;
+        }
+        return layer.setLayerType(layerType);
+    }
+
+    /**
+     * Tell Gerber from Excellon by their header: Excellon files have an M48 header,
+     * Gerber files a format (%FS) or unit (%MO) command before their first graphics
+     * command. Returns null for anything else.
+     */
+    public static Format classify(byte[] content, int offset, int length) {
+        return LayerScanner.scan(content, offset, length).format();
+    }
+
+    /**
+     * Scan the header of every source without parsing it, so layer types can be shown
+     * or chosen before the job is loaded. A source that cannot be read is logged and
+     * reported with an empty header.
+     */
+    public static List<LayerScanner.Header> scan(List<Source> sources) {
+        List<LayerScanner.Header> headers = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            LayerScanner.Header header;
+            if (source.path != null) {
+                try {
+                    header = LayerScanner.scan(source.path);
+                } catch (IOException e) {
+                    log.warn("Failed to scan {}: {}", source.getName(), e.getMessage());
+                    header = LayerScanner.scan(new byte[0], 0, 0);
+                }
+            } else {
+                header = LayerScanner.scan(source.content, source.offset, source.length);
+            }
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    /**
+     * One source file per entry of a zip archive, read into memory. Directories are skipped.
+     */
+    public static List<Source> zipSources(InputStream zip) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(zip)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    String name = entry.getName();
+                    sources.add(Source.of(name.substring(name.lastIndexOf('/') + 1), in.readAllBytes()));
+                }
+            }
+        }
+        return sources;
+    }
+
+    public static List<Source> zipSources(Path zip) throws IOException {
+        try (InputStream in = Files.newInputStream(zip)) {
+            return zipSources(in);
+        }
+    }
+
+    /**
+     * A named file to load: a path read by the loading task, or bytes already in memory.
+     */
+    public static final class Source {
+        private final String name;
+        private final Path path;
+        private final byte[] content;
+        private final int offset;
+        private final int length;
+        private Format format = null;
+        private LayerType layerType = null;
+
+        private Source(String name, Path path, byte[] content, int offset, int length) {
+            this.name = name;
+            this.path = path;
+            this.content = content;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public static Source of(Path file) {
+            return new Source(file.getFileName().toString(), file, null, 0, 0);
+        }
+
+        public static Source of(String name, byte[] content) {
+            return of(name, content, 0, content.length);
+        }
+
+        /**
+         * A range of a larger buffer; the bytes are not copied.
+         */
+        public static Source of(String name, byte[] content, int offset, int length) {
+            return new Source(name, null, content, offset, length);
+        }
+
+        /**
+         * Parse as the given format instead of classifying the content.
+         */
+        public Source setFormat(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Layer type of the loaded layer. Defaults to the type declared by the file's
+         * .FileFunction attribute, else DRILL for Excellon files and OTHER for Gerber files.
+         */
+        public Source setLayerType(LayerType layerType) {
+            this.layerType = layerType;
+            return this;
+        }
+
+        public String getName() { return name; }
+        public Format getFormat() { return format; }
+        public LayerType getLayerType() { return layerType; }
+    }
+
+    /**
+     * A file that could not be loaded.
+     */
+    public record Failure(String name, Throwable error) {
+    }
+
+    /**
+     * The loaded layers, in source order, and the files that failed.
+     */
+    public static final class Result {
+        private final List<MultiLayerSVGRenderer.Layer> layers;
+        private final List<Failure> failures;
+
+        Result(List<MultiLayerSVGRenderer.Layer> layers, List<Failure> failures) {
+            this.layers = Collections.unmodifiableList(layers);
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        public List<MultiLayerSVGRenderer.Layer> getLayers() { return layers; }
+        public List<Failure> getFailures() { return failures; }
+        public boolean isComplete() { return failures.isEmpty(); }
+    }
+}
@@ -0,0 +1,366 @@
+package com.deltaproto.deltagerber.loader;
+
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.Unit;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the header of a Gerber or Excellon file to classify it without parsing it.
+ *
+ * <p>A Gerber file is scanned statement by statement up to its first graphics command
+ * (a coordinate, D01-D03 or G36); an Excellon file up to the end of its M48 header. At
+ * most {@link #HEADER_LIMIT} bytes are looked at either way. The scan picks up the X2
+ * file attributes (.FileFunction, .FilePolarity, .GenerationSoftware, also in the
+ * {@code #@!} comment form), the unit and the coordinate format, and derives the
+ * {@link LayerType} from the file function.</p>
+ */
+public final class LayerScanner {
+
+    /** The most bytes of a file that are scanned. */
+    public static final int HEADER_LIMIT = 64 * 1024;
+
+    private static final Pattern FORMAT_SPEC = Pattern.compile("FS([LT]?)([AI]?)X(\\d)(\\d)Y(\\d)(\\d)");
+    private static final Pattern FILE_FORMAT_COMMENT = Pattern.compile("FILE_FORMAT\\s*=\\s*(\\d):(\\d)");
+    private static final Pattern EXCELLON_UNIT = Pattern.compile("^(METRIC|INCH)[,\\s]*(LZ|TZ)?");
+
+    private final byte[] buf;
+    private final int end;
+
+    private BoardLoader.Format format;
+    private List<String> fileFunction = Collections.emptyList();
+    private String filePolarity;
+    private String generationSoftware;
+    private Unit unit;
+    private CoordinateFormat coordinateFormat;
+
+    // Excellon format, resolved into a CoordinateFormat at the end of the header
+    private int drillIntegerDigits = -1;
+    private int drillDecimalDigits = -1;
+    private Boolean drillLeadingZeros;
+
+    private LayerScanner(byte[] buf, int end) {
+        this.buf = buf;
+        this.end = end;
+    }
+
+    /**
+     * Scan the header of a file, reading no more than {@link #HEADER_LIMIT} bytes of it.
+     */
+    public static Header scan(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(HEADER_LIMIT);
+            return scan(head, 0, head.length);
+        }
+    }
+
+    /**
+     * Scan the header of a file held in [offset, offset + length) of a buffer.
+     */
+    public static Header scan(byte[] content, int offset, int length) {
+        LayerScanner scanner = new LayerScanner(content, offset + Math.min(length, HEADER_LIMIT));
+        int pos = offset;
+        // UTF-8 byte order mark
+        if (scanner.end - pos >= 3 && content[pos] == (byte) 0xEF && content[pos + 1] == (byte) 0xBB
+                && content[pos + 2] == (byte) 0xBF) {
+            pos += 3;
+        }
+        if (scanner.isExcellonStart(pos)) {
+            scanner.scanExcellon(pos);
+        } else {
+            scanner.scanGerber(pos);
+        }
+        return scanner.header();
+    }
+
+    private Header header() {
+        LayerType layerType = format == null ? null : layerType(format, fileFunction);
+        return new Header(format, layerType, fileFunction, filePolarity, generationSoftware, unit, coordinateFormat);
+    }
+
+    /**
+     * The layer type declared by a .FileFunction attribute, falling back to DRILL for
+     * Excellon files and OTHER for Gerber files.
+     */
+    public static LayerType layerType(BoardLoader.Format format, List<String> fileFunction) {
+        String function = fileFunction.isEmpty() ? "" : fileFunction.get(0);
+        boolean top = false;
+        boolean bottom = false;
+        boolean drill = "Plated".equalsIgnoreCase(function) || "NonPlated".equalsIgnoreCase(function);
+        boolean nonPlated = false;
+        for (String value : fileFunction) {
+            top |= "Top".equalsIgnoreCase(value);
+            bottom |= "Bot".equalsIgnoreCase(value) || "Bottom".equalsIgnoreCase(value);
+            drill |= "Drill".equalsIgnoreCase(value) || "Route".equalsIgnoreCase(value);
+            nonPlated |= "NonPlated".equalsIgnoreCase(value) || "NPTH".equalsIgnoreCase(value);
+        }
+        if (drill) {
+            return nonPlated ? LayerType.DRILL_NON_PLATED
+                : "Plated".equalsIgnoreCase(function) ? LayerType.DRILL_PLATED : LayerType.DRILL;
+        }
+        LayerType sided = switch (function) {
+            case "Copper" -> top ? LayerType.COPPER_TOP : bottom ? LayerType.COPPER_BOTTOM : null;
+            case "Soldermask" -> top ? LayerType.SOLDERMASK_TOP : bottom ? LayerType.SOLDERMASK_BOTTOM : null;
+            case "Legend" -> top ? LayerType.SILKSCREEN_TOP : bottom ? LayerType.SILKSCREEN_BOTTOM : null;
+            case "Paste" -> top ? LayerType.PASTE_TOP : bottom ? LayerType.PASTE_BOTTOM : null;
+            case "Component" -> top ? LayerType.PNP_TOP : bottom ? LayerType.PNP_BOTTOM : null;
+            case "Profile" -> LayerType.OUTLINE;
+            default -> null;
+        };
+        if (sided != null) {
+            return sided;
+        }
+        return format == BoardLoader.Format.EXCELLON ? LayerType.DRILL : LayerType.OTHER;
+    }
+
+    // --- Gerber ---
+
+    private void scanGerber(int pos) {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '%') {
+                int close = indexOf('%', pos + 1, end);
+                if (close < 0) {
+                    break;
+                }
+                int command = pos + 1;
+                while (command < close) {
+                    int star = indexOf('*', command, close);
+                    if (star < 0) star = close;
+                    extendedCommand(skipWhitespace(command, star), star);
+                    command = star + 1;
+                }
+                pos = close + 1;
+            } else if (isWhitespace(b)) {
+                pos++;
+            } else {
+                int star = indexOf('*', pos, end);
+                if (star < 0 || !wordCommand(pos, star)) {
+                    break;
+                }
+                pos = star + 1;
+            }
+        }
+        if (coordinateFormat != null || unit != null) {
+            format = BoardLoader.Format.GERBER;
+        }
+    }
+
+    private void extendedCommand(int start, int stop) {
+        if (startsWith(start, stop, "TF")) {
+            fileAttribute(text(start, stop));
+        } else if (startsWith(start, stop, "MOMM")) {
+            unit = Unit.MM;
+        } else if (startsWith(start, stop, "MOIN")) {
+            unit = Unit.INCH;
+        } else if (startsWith(start, stop, "FS")) {
+            Matcher matcher = FORMAT_SPEC.matcher(text(start, stop));
+            if (matcher.find()) {
+                // Missing L/T and A/I flags default to L and A, as in the parser
+                coordinateFormat = new CoordinateFormat(Integer.parseInt(matcher.group(3)),
+                    Integer.parseInt(matcher.group(4)), !matcher.group(1).equals("T"), !matcher.group(2).equals("I"));
+            }
+        }
+    }
+
+    /**
+     * Handle a word command; false when it is a graphics command, which ends the header.
+     */
+    private boolean wordCommand(int start, int stop) {
+        if (startsWith(start, stop, "G04")) {
+            String comment = text(start + 3, stop).trim();
+            if (comment.startsWith("#@!")) {
+                String attribute = comment.substring(3).trim();
+                if (attribute.startsWith("TF.")) {
+                    fileAttribute(attribute);
+                }
+            }
+            return true;
+        }
+        if (startsWith(start, stop, "G70")) {
+            if (unit == null) unit = Unit.INCH;
+            return true;
+        }
+        if (startsWith(start, stop, "G71")) {
+            if (unit == null) unit = Unit.MM;
+            return true;
+        }
+        if (startsWith(start, stop, "G36") || startsWith(start, stop, "M02") || startsWith(start, stop, "M00")) {
+            return false;
+        }
+        for (int i = start; i < stop; i++) {
+            byte c = buf[i];
+            if (c == 'X' || c == 'Y' || c == 'I' || c == 'J') {
+                return false;
+            }
+            if (c == 'D') {
+                int code = 0;
+                int j = i + 1;
+                while (j < stop && buf[j] >= '0' && buf[j] <= '9') {
+                    code = code * 10 + (buf[j++] - '0');
+                }
+                if (j > i + 1 && code >= 1 && code <= 3) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void fileAttribute(String content) {
+        if (content.startsWith("TF")) content = content.substring(2);
+        if (content.startsWith(".")) content = content.substring(1);
+        String[] parts = content.split(",");
+        List<String> values = new ArrayList<>(parts.length);
+        for (int i = 1; i < parts.length; i++) {
+            values.add(parts[i].trim());
+        }
+        switch (parts[0].trim()) {
+            case "FileFunction" -> fileFunction = Collections.unmodifiableList(values);
+            case "FilePolarity" -> filePolarity = values.isEmpty() ? null : values.get(0);
+            case "GenerationSoftware" -> {
+                if (values.size() >= 2) generationSoftware = values.get(0) + " " + values.get(1);
+            }
+            default -> { /* Not needed for classification */ }
+        }
+    }
+
+    // --- Excellon ---
+
+    private boolean isExcellonStart(int pos) {
+        pos = skipWhitespace(pos, end);
+        if (pos >= end) {
+            return false;
+        }
+        if (buf[pos] == ';' || startsWith(pos, end, "M48")) {
+            return true;
+        }
+        // A lone '%' (rewind stop) before M48
+        int eol = lineEnd(pos);
+        return buf[pos] == '%' && trimEnd(pos + 1, eol) == pos + 1;
+    }
+
+    private void scanExcellon(int pos) {
+        while (pos < end) {
+            int eol = lineEnd(pos);
+            int start = skipWhitespace(pos, eol);
+            int stop = trimEnd(start, eol);
+            pos = eol + 1;
+            if (start == stop) {
+                continue;
+            }
+            if (buf[start] == ';') {
+                drillComment(text(start + 1, stop).trim());
+            } else if (startsWith(start, stop, "M48")) {
+                format = BoardLoader.Format.EXCELLON;
+            } else if (format == null) {
+                // Only comments and rewind stops precede M48
+                if (buf[start] != '%') break;
+            } else if (buf[start] == '%' || startsWith(start, stop, "M95")) {
+                break;
+            } else {
+                Matcher matcher = EXCELLON_UNIT.matcher(text(start, stop));
+                if (matcher.find()) {
+                    unit = matcher.group(1).equals("INCH") ? Unit.INCH : Unit.MM;
+                    if (matcher.group(2) != null) {
+                        drillLeadingZeros = matcher.group(2).equals("LZ");
+                    }
+                }
+            }
+        }
+        if (format != null && (unit != null || drillIntegerDigits >= 0)) {
+            // Defaults as in the Excellon parser: 3.3 for metric, 2.4 for inch, leading zeros kept
+            int integerDigits = drillIntegerDigits >= 0 ? drillIntegerDigits : unit == Unit.MM ? 3 : 2;
+            int decimalDigits = drillDecimalDigits >= 0 ? drillDecimalDigits : unit == Unit.MM ? 3 : 4;
+            boolean leadingZeros = drillLeadingZeros == null || drillLeadingZeros;
+            coordinateFormat = new CoordinateFormat(integerDigits, decimalDigits, !leadingZeros, true);
+        }
+        if (format == null) {
+            fileFunction = Collections.emptyList();
+            filePolarity = null;
+            generationSoftware = null;
+        }
+    }
+
+    private void drillComment(String comment) {
+        Matcher matcher = FILE_FORMAT_COMMENT.matcher(comment);
+        if (matcher.find()) {
+            drillIntegerDigits = Integer.parseInt(matcher.group(1));
+            drillDecimalDigits = Integer.parseInt(matcher.group(2));
+        } else if (comment.startsWith("#@!")) {
+            String attribute = comment.substring(3).trim();
+            if (attribute.startsWith("TF.")) {
+                fileAttribute(attribute);
+            }
+        }
+    }
+
+    // --- Byte helpers ---
+
+    private String text(int start, int stop) {
+        return new String(buf, start, stop - start, StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(int start, int stop, String prefix) {
+        if (stop - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if ((buf[start + i] & 0xFF) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private int lineEnd(int pos) {
+        int eol = indexOf('\n', pos, end);
+        return eol < 0 ? end : eol;
+    }
+
+    private int skipWhitespace(int pos, int stop) {
+        while (pos < stop && isWhitespace(buf[pos])) pos++;
+        return pos;
+    }
+
+    private int trimEnd(int start, int stop) {
+        while (stop > start && isWhitespace(buf[stop - 1])) stop--;
+        return stop;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * What the header of a file declares. The format is null for a file that is neither
+     * Gerber nor Excellon, in which case the layer type is null as well; the other fields
+     * are null (or empty) when the header does not declare them.
+     */
+    public record Header(BoardLoader.Format format, LayerType layerType, List<String> fileFunction,
+                         String filePolarity, String generationSoftware, Unit unit,
+                         CoordinateFormat coordinateFormat) {
+
+        /** True for a Gerber X3 component placement (PnP) file. */
+        public boolean isComponentFile() {
+            return !fileFunction.isEmpty() && "Component".equals(fileFunction.get(0));
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.deltaproto.deltagerber.model.drill;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.DecimalDigits;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.SpatialIndex;
 import com.deltaproto.deltagerber.model.gerber.Unit;
 
 import java.util.ArrayList;
@@ -21,25 +24,35 @@ public class DrillDocument {
     private boolean leadingZeros = true;
 
     private final Map<Integer, Tool> tools = new LinkedHashMap<>();
-    private final List<DrillOperation> operations = new ArrayList<>();
+    private final List<DrillOperation> operations;
     private final List<String> comments = new ArrayList<>();
 
-    private BoundingBox boundingBox;
+    // Built on first use and published whole, since cached documents are shared between
+    // threads (see DocumentCache)
+    private volatile HoleTable holeTable = new HoleTable();
+    private volatile BoundingBox boundingBox;
+    private volatile SpatialIndex<DrillOperation> spatialIndex;
 
     public DrillDocument() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * Document that keeps its operations in the given list.
+     */
+    public DrillDocument(List<DrillOperation> operations) {
+        this.operations = operations;
     }
 
     public BoundingBox calculateBoundingBox() {
-        boundingBox = new BoundingBox();
-        for (DrillOperation op : operations) {
-            boundingBox.include(op.getBoundingBox());
-        }
-        return boundingBox;
+        BoundingBox box = getHoleTable().getBoundingBox();
+        boundingBox = box;
+        return box;
     }
 
     public BoundingBox getBoundingBox() {
-        if (boundingBox == null) calculateBoundingBox();
-        return boundingBox;
+        BoundingBox box = boundingBox;
+        return box != null ? box : calculateBoundingBox();
     }
 
     public void addTool(Tool tool) {
@@ -52,6 +65,38 @@ public class DrillDocument {
 
     public void addOperation(DrillOperation operation) {
         operations.add(operation);
+        holeTable.add(operation);
+    }
+
+    /**
+     * The operations grouped by tool in primitive arrays. Kept up to date by
+     * {@link #addOperation}; operations added to the list directly, or supplied with it
+     * to the constructor, are picked up by building a new table on the next call, so a
+     * table already handed out is never changed by reading.
+     */
+    public HoleTable getHoleTable() {
+        HoleTable table = holeTable;
+        if (table.getOperationCount() != operations.size()) {
+            table = new HoleTable();
+            for (DrillOperation op : operations) {
+                table.add(op);
+            }
+            holeTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Spatial index over the operations, built on first use and rebuilt when operations
+     * have been added since.
+     */
+    public SpatialIndex<DrillOperation> getSpatialIndex() {
+        SpatialIndex<DrillOperation> index = spatialIndex;
+        if (index == null || index.getItemCount() != operations.size()) {
+            index = new SpatialIndex<>(operations, DrillOperation::getBoundingBox, DrillOperation::distanceTo);
+            spatialIndex = index;
+        }
+        return index;
     }
 
     public void addComment(String comment) {
@@ -63,7 +108,82 @@ public class DrillDocument {
         if (value == null || value.isEmpty()) {
             return Double.NaN;
         }
+        return parseCoordinate(value, 0, value.length());
+    }
+
+    /**
+     * Parse the coordinate in [start, end) of a character sequence without allocating.
+     * The digits are read into a long mantissa and scaled by a power of ten, giving the
+     * same double as {@link Double#parseDouble} on the padded digits.
+     */
+    public double parseCoordinate(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+            }
+        }
+
+        long mantissa = mantissa(text, pos, end);
+        int decimals = decimals(end - pos);
+        if (!DecimalDigits.isExact(mantissa, decimals)) {
+            return parseCoordinateText(text.subSequence(start, end).toString());
+        }
+        double parsed = DecimalDigits.scale(mantissa, decimals);
+        return negative ? -parsed : parsed;
+    }
+
+    /**
+     * Parse the coordinate in [start, end) straight to nanometres in the document's unit.
+     * The digits' mantissa is scaled in integer arithmetic, so mm values are exact and
+     * inch values are rounded once.
+     */
+    public long parseCoordinateNm(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+            }
+        }
+
+        long nm = DecimalDigits.scaleRounded(mantissa(text, pos, end), decimals(end - pos), unit.getNmFactor());
+        if (nm < 0) {
+            // More digits than a long holds: round the decoded value instead
+            return FixedPoint.toNm(unit.toMm(parseCoordinateText(text.subSequence(start, end).toString())));
+        }
+        return negative ? -nm : nm;
+    }
+
+    /**
+     * Unsigned digits in [pos, end) as a mantissa over 10^{@link #decimals}, or -1 if they
+     * don't fit in a long.
+     */
+    private long mantissa(CharSequence text, int pos, int end) {
+        int digits = end - pos;
+        int totalDigits = integerDigits + decimalDigits;
+        long mantissa = DecimalDigits.mantissa(text, pos, end);
+        if (leadingZeros && digits < totalDigits) {
+            // Trailing zeros omitted: pad on the right, the decimals are the last digits
+            mantissa = DecimalDigits.appendZeros(mantissa, digits, totalDigits - digits);
+        }
+        return mantissa;
+    }
+
+    private int decimals(int digits) {
+        // Leading zeros omitted: pad on the left, the integer part is the first digits
+        return leadingZeros ? decimalDigits : Math.max(digits, integerDigits + decimalDigits) - integerDigits;
+    }
 
+    /**
+     * String-based decoding, used for digit strings too long for the exact fast path.
+     */
+    private double parseCoordinateText(String value) {
         // Handle sign
         boolean negative = value.startsWith("-");
         if (negative || value.startsWith("+")) {
@@ -1,6 +1,7 @@
 package com.deltaproto.deltagerber.model.drill;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 
 /**
  * A single drill hit at a specific location.
@@ -30,11 +31,25 @@ public class DrillHit extends DrillOperation {
         return new BoundingBox(x - r, y - r, x + r, y + r);
     }
 
+    @Override
+    public double distanceTo(double px, double py) {
+        return Math.max(0, Math.hypot(px - x, py - y) - tool.getDiameter() / 2);
+    }
+
     @Override
     public String toSvg() {
-        return String.format(java.util.Locale.US,
-            "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"currentColor\"/>",
-            x, y, tool.getDiameter() / 2);
+        return toSvg(x, y, tool.getDiameter());
+    }
+
+    /**
+     * The SVG circle of a hit at (x, y) drilled with the given diameter.
+     */
+    public static String toSvg(double x, double y, double diameter) {
+        StringBuilder svg = new StringBuilder("<circle cx=\"");
+        SvgNumbers.append(svg, x);
+        SvgNumbers.append(svg.append("\" cy=\""), y);
+        SvgNumbers.append(svg.append("\" r=\""), diameter / 2);
+        return svg.append("\" fill=\"currentColor\"/>").toString();
     }
 
     @Override
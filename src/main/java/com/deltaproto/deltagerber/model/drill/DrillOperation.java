@@ -17,11 +17,27 @@ public abstract class DrillOperation {
         return tool;
     }
 
+    /**
+     * This operation with double millimetre coordinates. Fixed-point operations
+     * convert themselves; all others are returned as is.
+     */
+    public DrillOperation toMm() {
+        return this;
+    }
+
     /**
      * Get the bounding box of this operation.
      */
     public abstract BoundingBox getBoundingBox();
 
+    /**
+     * Distance from a point to the drilled area: 0 for a point in the hole.
+     */
+    public double distanceTo(double x, double y) {
+        DrillOperation mm = toMm();
+        return mm != this ? mm.distanceTo(x, y) : getBoundingBox().distanceTo(x, y);
+    }
+
     /**
      * Generate SVG for this operation.
      */
@@ -1,6 +1,8 @@
 package com.deltaproto.deltagerber.model.drill;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 
 /**
  * A routed slot from one point to another.
@@ -47,13 +49,26 @@ public class DrillSlot extends DrillOperation {
         return bbox;
     }
 
+    @Override
+    public double distanceTo(double x, double y) {
+        return Math.max(0, Geometry.segmentDistance(x, y, startX, startY, endX, endY) - tool.getDiameter() / 2);
+    }
+
     @Override
     public String toSvg() {
+        return toSvg(startX, startY, endX, endY, tool.getDiameter());
+    }
+
+    /**
+     * The SVG path of a slot routed with the given diameter.
+     */
+    public static String toSvg(double startX, double startY, double endX, double endY, double diameter) {
         // Render slot as a path with M/L commands (line with round caps)
-        return String.format(java.util.Locale.US,
-            "<path d=\"M %.6f %.6f L %.6f %.6f\" " +
-            "stroke=\"currentColor\" stroke-width=\"%.6f\" stroke-linecap=\"round\" fill=\"none\"/>",
-            startX, startY, endX, endY, tool.getDiameter());
+        StringBuilder svg = new StringBuilder("<path d=\"");
+        SvgNumbers.append(svg, "M ", startX, startY);
+        SvgNumbers.append(svg, " L ", endX, endY);
+        SvgNumbers.append(svg.append("\" stroke=\"currentColor\" stroke-width=\""), diameter);
+        return svg.append("\" stroke-linecap=\"round\" fill=\"none\"/>").toString();
     }
 
     @Override
@@ -0,0 +1,73 @@
+package com.deltaproto.deltagerber.model.drill;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link DrillHit} with its position in nanometres.
+ */
+public class FixedDrillHit extends DrillOperation {
+
+    private final long x;
+    private final long y;
+
+    public FixedDrillHit(Tool tool, long x, long y) {
+        super(tool);
+        this.x = x;
+        this.y = y;
+    }
+
+    public long getXNm() {
+        return x;
+    }
+
+    public long getYNm() {
+        return y;
+    }
+
+    @Override
+    public DrillHit toMm() {
+        return new DrillHit(tool, FixedPoint.toMm(x), FixedPoint.toMm(y));
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        double r = tool.getDiameter() / 2;
+        double mmX = FixedPoint.toMm(x);
+        double mmY = FixedPoint.toMm(y);
+        return new BoundingBox(mmX - r, mmY - r, mmX + r, mmY + r);
+    }
+
+    @Override
+    public double distanceTo(double px, double py) {
+        return Math.max(0, Math.hypot(px - FixedPoint.toMm(x), py - FixedPoint.toMm(y)) - tool.getDiameter() / 2);
+    }
+
+    @Override
+    public String toSvg() {
+        return DrillHit.toSvg(FixedPoint.toMm(x), FixedPoint.toMm(y), tool.getDiameter());
+    }
+
+    /**
+     * Equal when the tool and nanometre position are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedDrillHit other = (FixedDrillHit) o;
+        return x == other.x && y == other.y && tool == other.tool;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(x, y, tool);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedDrillHit[%d, %d nm, T%d]", x, y, tool.getNumber());
+    }
+}
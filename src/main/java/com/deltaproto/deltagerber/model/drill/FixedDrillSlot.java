@@ -0,0 +1,83 @@
+package com.deltaproto.deltagerber.model.drill;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link DrillSlot} with coordinates in nanometres.
+ */
+public class FixedDrillSlot extends DrillOperation {
+
+    private final long startX;
+    private final long startY;
+    private final long endX;
+    private final long endY;
+
+    public FixedDrillSlot(Tool tool, long startX, long startY, long endX, long endY) {
+        super(tool);
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+    public long getStartXNm() { return startX; }
+    public long getStartYNm() { return startY; }
+    public long getEndXNm() { return endX; }
+    public long getEndYNm() { return endY; }
+
+    @Override
+    public DrillSlot toMm() {
+        return new DrillSlot(tool, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY));
+    }
+
+    /**
+     * Bounds computed in nanometres, converting only the result.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        double r = tool.getDiameter() / 2;
+        return new BoundingBox(
+            FixedPoint.toMm(Math.min(startX, endX)) - r, FixedPoint.toMm(Math.min(startY, endY)) - r,
+            FixedPoint.toMm(Math.max(startX, endX)) + r, FixedPoint.toMm(Math.max(startY, endY)) + r);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Math.max(0, Geometry.segmentDistance(x, y, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY)) - tool.getDiameter() / 2);
+    }
+
+    @Override
+    public String toSvg() {
+        return DrillSlot.toSvg(FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY), tool.getDiameter());
+    }
+
+    /**
+     * Equal when the tool and nanometre coordinates are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedDrillSlot other = (FixedDrillSlot) o;
+        return startX == other.startX && startY == other.startY && endX == other.endX && endY == other.endY
+            && tool == other.tool;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startX, startY, endX, endY, tool);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedDrillSlot[%d,%d -> %d,%d nm, T%d]",
+            startX, startY, endX, endY, tool.getNumber());
+    }
+}
@@ -0,0 +1,303 @@
+package com.deltaproto.deltagerber.model.drill;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The holes of a drill document grouped by tool, with coordinates in mm kept in
+ * primitive arrays: hits as x/y pairs and slots as start/end quadruples.
+ *
+ * <p>Counts, diameters and the bounding box are maintained as holes are added, so they
+ * cost nothing to read. Tools appear in the order of their first hole; within a tool,
+ * holes keep their order in the file.</p>
+ */
+public class HoleTable {
+
+    private final Map<Tool, ToolHoles> tools = new LinkedHashMap<>();
+    private final Collection<ToolHoles> view = Collections.unmodifiableCollection(tools.values());
+    private int operationCount;
+    private int hitCount;
+    private int slotCount;
+
+    /**
+     * Add a hit or slot. Fixed-point operations are converted to mm.
+     */
+    public void add(DrillOperation operation) {
+        ToolHoles holes = tools.computeIfAbsent(operation.getTool(), ToolHoles::new);
+        if (operation instanceof DrillHit hit) {
+            holes.addHit(hit.getX(), hit.getY());
+            hitCount++;
+        } else if (operation instanceof FixedDrillHit hit) {
+            holes.addHit(FixedPoint.toMm(hit.getXNm()), FixedPoint.toMm(hit.getYNm()));
+            hitCount++;
+        } else if (operation instanceof DrillSlot slot) {
+            holes.addSlot(slot.getStartX(), slot.getStartY(), slot.getEndX(), slot.getEndY());
+            slotCount++;
+        } else if (operation instanceof FixedDrillSlot slot) {
+            holes.addSlot(FixedPoint.toMm(slot.getStartXNm()), FixedPoint.toMm(slot.getStartYNm()),
+                FixedPoint.toMm(slot.getEndXNm()), FixedPoint.toMm(slot.getEndYNm()));
+            slotCount++;
+        } else {
+            throw new IllegalArgumentException("Unknown drill operation: " + operation);
+        }
+        operationCount++;
+    }
+
+    public void clear() {
+        tools.clear();
+        operationCount = 0;
+        hitCount = 0;
+        slotCount = 0;
+    }
+
+    /**
+     * The holes of each tool that has any, in order of first use.
+     */
+    public Collection<ToolHoles> getTools() {
+        return view;
+    }
+
+    /**
+     * The holes of a tool, or null if it has none.
+     */
+    public ToolHoles getHoles(Tool tool) {
+        return tools.get(tool);
+    }
+
+    /**
+     * Number of operations added: hits plus slots.
+     */
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Smallest diameter of a tool with holes, or NaN if there are none.
+     */
+    public double getMinDiameter() {
+        double min = Double.NaN;
+        for (ToolHoles holes : tools.values()) {
+            double d = holes.tool.getDiameter();
+            if (Double.isNaN(min) || d < min) min = d;
+        }
+        return min;
+    }
+
+    /**
+     * Largest diameter of a tool with holes, or NaN if there are none.
+     */
+    public double getMaxDiameter() {
+        double max = Double.NaN;
+        for (ToolHoles holes : tools.values()) {
+            double d = holes.tool.getDiameter();
+            if (Double.isNaN(max) || d > max) max = d;
+        }
+        return max;
+    }
+
+    /**
+     * Bounding box of all holes including their radius; the same box as the union of
+     * the operations' bounding boxes.
+     */
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = new BoundingBox();
+        for (ToolHoles holes : tools.values()) {
+            box.include(holes.getBoundingBox());
+        }
+        return box;
+    }
+
+    /**
+     * Append one circle definition per tool with hits, with IDs made of the prefix and
+     * the tool's position in {@link #getTools()}.
+     */
+    public void appendSvgDefs(StringBuilder svg, String indent, String idPrefix) {
+        int index = 0;
+        for (ToolHoles holes : tools.values()) {
+            if (holes.hitCount > 0) {
+                svg.append(indent).append(holes.tool.toSvgDef(idPrefix + index)).append('\n');
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Append the holes, tool by tool: a {@code <use>} of the tool's circle definition
+     * (see {@link #appendSvgDefs}) per hit, and one path holding all of the tool's slots.
+     * Fill and stroke are inherited from the enclosing group.
+     */
+    public void appendSvg(StringBuilder svg, String indent, String idPrefix) {
+        appendSvg(svg, indent, idPrefix, null);
+    }
+
+    /**
+     * Like {@link #appendSvg(StringBuilder, String, String)}, but only the holes that reach
+     * into the viewport, or all holes if it is null.
+     */
+    public void appendSvg(StringBuilder svg, String indent, String idPrefix, BoundingBox viewport) {
+        appendSvg(svg, indent, idPrefix, viewport, SvgOptions.exact());
+    }
+
+    /**
+     * Like {@link #appendSvg(StringBuilder, String, String, BoundingBox)}, with numbers and
+     * paths written as the options say, e.g. {@link SvgOptions#isCompact() compact}.
+     */
+    public void appendSvg(StringBuilder svg, String indent, String idPrefix, BoundingBox viewport,
+                          SvgOptions options) {
+        int index = 0;
+        for (ToolHoles holes : tools.values()) {
+            double r = holes.tool.getDiameter() / 2;
+            if (viewport != null && !viewport.intersects(holes.getBoundingBox())) {
+                index++;
+                continue;
+            }
+            String href = "<use href=\"#" + idPrefix + index + "\" x=\"";
+            for (int i = 0; i < holes.hitCount; i++) {
+                double x = holes.hits[2 * i];
+                double y = holes.hits[2 * i + 1];
+                if (viewport != null && !reaches(viewport, x, y, x, y, r)) {
+                    continue;
+                }
+                SvgNumbers.append(svg.append(indent).append(href), x, options);
+                SvgNumbers.append(svg.append("\" y=\""), y, options).append("\"/>\n");
+            }
+            PathData path = null;
+            for (int i = 0; i < holes.slotCount; i++) {
+                int s = 4 * i;
+                if (viewport != null && !reaches(viewport, holes.slots[s], holes.slots[s + 1],
+                        holes.slots[s + 2], holes.slots[s + 3], r)) {
+                    continue;
+                }
+                if (path == null) {
+                    path = new PathData(svg.append(indent).append("<path d=\""), options);
+                }
+                path.moveTo(holes.slots[s], holes.slots[s + 1]).lineTo(holes.slots[s + 2], holes.slots[s + 3]);
+            }
+            if (path != null) {
+                SvgNumbers.append(svg.append("\" stroke=\"currentColor\" stroke-width=\""), holes.tool.getDiameter(), options);
+                svg.append("\" stroke-linecap=\"round\" fill=\"none\"/>\n");
+            }
+            index++;
+        }
+    }
+
+    /**
+     * True if the box of the segment from (x1, y1) to (x2, y2), grown by r, intersects the viewport.
+     */
+    private static boolean reaches(BoundingBox viewport, double x1, double y1, double x2, double y2, double r) {
+        return Math.min(x1, x2) - r <= viewport.getMaxX() && Math.max(x1, x2) + r >= viewport.getMinX()
+            && Math.min(y1, y2) - r <= viewport.getMaxY() && Math.max(y1, y2) + r >= viewport.getMinY();
+    }
+
+    /**
+     * The hits and slots of one tool.
+     */
+    public static final class ToolHoles {
+        private final Tool tool;
+        private double[] hits = new double[16];
+        private int hitCount;
+        private double[] slots = new double[0];
+        private int slotCount;
+        // Extent of the hit centres and slot end points
+        private double minX = Double.POSITIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY;
+        private double maxY = Double.NEGATIVE_INFINITY;
+
+        ToolHoles(Tool tool) {
+            this.tool = tool;
+        }
+
+        void addHit(double x, double y) {
+            if (2 * hitCount == hits.length) {
+                hits = Arrays.copyOf(hits, hits.length * 2);
+            }
+            hits[2 * hitCount] = x;
+            hits[2 * hitCount + 1] = y;
+            hitCount++;
+            extend(x, y);
+        }
+
+        void addSlot(double startX, double startY, double endX, double endY) {
+            if (4 * slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(16, slots.length * 2));
+            }
+            int i = 4 * slotCount;
+            slots[i] = startX;
+            slots[i + 1] = startY;
+            slots[i + 2] = endX;
+            slots[i + 3] = endY;
+            slotCount++;
+            extend(startX, startY);
+            extend(endX, endY);
+        }
+
+        private void extend(double x, double y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        public Tool getTool() {
+            return tool;
+        }
+
+        public int getHitCount() {
+            return hitCount;
+        }
+
+        public double getHitX(int i) {
+            return hits[2 * i];
+        }
+
+        public double getHitY(int i) {
+            return hits[2 * i + 1];
+        }
+
+        public int getSlotCount() {
+            return slotCount;
+        }
+
+        public double getSlotStartX(int i) {
+            return slots[4 * i];
+        }
+
+        public double getSlotStartY(int i) {
+            return slots[4 * i + 1];
+        }
+
+        public double getSlotEndX(int i) {
+            return slots[4 * i + 2];
+        }
+
+        public double getSlotEndY(int i) {
+            return slots[4 * i + 3];
+        }
+
+        public BoundingBox getBoundingBox() {
+            if (hitCount + slotCount == 0) {
+                return new BoundingBox();
+            }
+            double r = tool.getDiameter() / 2;
+            return new BoundingBox(minX - r, minY - r, maxX + r, maxY + r);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.deltaproto.deltagerber.model.drill;
 
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+
 /**
  * Represents a drill tool definition.
  */
@@ -52,7 +54,8 @@ public class Tool {
      * Generate SVG definition for this tool (a circle).
      */
     public String toSvgDef(String id) {
-        return String.format("<circle id=\"%s\" r=\"%.6f\"/>", id, diameter / 2);
+        StringBuilder svg = new StringBuilder("<circle id=\"").append(id).append("\" r=\"");
+        return SvgNumbers.append(svg, diameter / 2).append("\"/>").toString();
     }
 
     @Override
@@ -112,6 +112,33 @@ public class BoundingBox {
         return isValid() ? (minY + maxY) / 2 : 0;
     }
 
+    /**
+     * Check if this box and another share at least one point, including their edges.
+     */
+    public boolean intersects(BoundingBox other) {
+        return isValid() && other.isValid()
+            && minX <= other.maxX && maxX >= other.minX && minY <= other.maxY && maxY >= other.minY;
+    }
+
+    /**
+     * Check if a point lies inside the box or on its edge.
+     */
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Distance from a point to the box; 0 inside, infinite for an invalid box.
+     */
+    public double distanceTo(double x, double y) {
+        if (!isValid()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return Math.hypot(dx, dy);
+    }
+
     @Override
     public String toString() {
         if (!isValid()) {
@@ -26,7 +26,78 @@ public class CoordinateFormat {
         if (coordStr == null || coordStr.isEmpty()) {
             return 0.0;
         }
+        return parseCoordinate(coordStr, 0, coordStr.length());
+    }
+
+    /**
+     * Parse the coordinate in [start, end) of a character sequence, e.g. a range of a
+     * lexer token's source, without allocating. The digits are read into a long mantissa
+     * and scaled by a power of ten, which gives the same double as {@link Double#parseDouble}
+     * on the padded digits with the decimal point inserted.
+     */
+    public double parseCoordinate(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+            }
+        }
+
+        long mantissa = mantissa(text, pos, end);
+        // The decimal part is always the last decimalDigits digits (see parseCoordinateText)
+        if (!DecimalDigits.isExact(mantissa, decimalDigits)) {
+            return parseCoordinateText(text.subSequence(start, end).toString());
+        }
+        double value = DecimalDigits.scale(mantissa, decimalDigits);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse the coordinate in [start, end) straight to nanometres in the given unit. The
+     * digits' mantissa is scaled in integer arithmetic, so mm values are exact and inch
+     * values are rounded once, instead of once more on the way through a double.
+     */
+    public long parseCoordinateNm(CharSequence text, int start, int end, Unit unit) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+            }
+        }
 
+        long nm = DecimalDigits.scaleRounded(mantissa(text, pos, end), decimalDigits, unit.getNmFactor());
+        if (nm < 0) {
+            // More digits than a long holds: round the decoded value instead
+            return FixedPoint.toNm(unit.toMm(parseCoordinateText(text.subSequence(start, end).toString())));
+        }
+        return negative ? -nm : nm;
+    }
+
+    /**
+     * Unsigned digits in [pos, end) as a mantissa over 10^decimalDigits, or -1 if they
+     * don't fit in a long.
+     */
+    private long mantissa(CharSequence text, int pos, int end) {
+        int digits = end - pos;
+        int totalDigits = integerDigits + decimalDigits;
+        long mantissa = DecimalDigits.mantissa(text, pos, end);
+        if (!leadingZeroOmitted && digits < totalDigits) {
+            // Trailing zeros omitted - the missing digits are zeros on the right
+            mantissa = DecimalDigits.appendZeros(mantissa, digits, totalDigits - digits);
+        }
+        return mantissa;
+    }
+
+    /**
+     * String-based decoding, used for digit strings too long for the exact fast path.
+     */
+    private double parseCoordinateText(String coordStr) {
         boolean negative = coordStr.startsWith("-");
         if (negative || coordStr.startsWith("+")) {
             coordStr = coordStr.substring(1);
@@ -0,0 +1,102 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+/**
+ * Allocation-free helpers for decoding the fixed-point digit strings used by Gerber and
+ * Excellon coordinates.
+ *
+ * <p>A digit string is read into a {@code long} mantissa and divided by a power of ten.
+ * When the mantissa fits in 53 bits and the power is at most 10^22, both operands are
+ * exact doubles, so the IEEE division yields the correctly rounded value of the decimal
+ * number: bit for bit what {@link Double#parseDouble} returns for the same digits with a
+ * decimal point inserted. Callers fall back to string parsing when {@link #isExact} fails.</p>
+ */
+public final class DecimalDigits {
+
+    /** Largest mantissa that is exactly representable as a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Longest digit string that always fits in a long. */
+    public static final int MAX_DIGITS = 18;
+
+    private static final long[] LONG_POWERS = new long[MAX_DIGITS + 1];
+    private static final double[] DOUBLE_POWERS = new double[23];
+
+    static {
+        LONG_POWERS[0] = 1;
+        for (int i = 1; i < LONG_POWERS.length; i++) {
+            LONG_POWERS[i] = LONG_POWERS[i - 1] * 10;
+        }
+        for (int i = 0; i < DOUBLE_POWERS.length; i++) {
+            DOUBLE_POWERS[i] = Double.parseDouble("1e" + i);
+        }
+    }
+
+    private DecimalDigits() {
+    }
+
+    /**
+     * Value of the digits in [start, end), or -1 if the range is empty, longer than
+     * {@link #MAX_DIGITS} or contains anything but ASCII digits.
+     */
+    public static long mantissa(CharSequence text, int start, int end) {
+        if (start >= end || end - start > MAX_DIGITS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Mantissa with {@code zeros} zero digits appended, or -1 if the result could overflow.
+     */
+    public static long appendZeros(long mantissa, int digits, int zeros) {
+        if (mantissa < 0 || digits + zeros > MAX_DIGITS) {
+            return -1;
+        }
+        return mantissa * LONG_POWERS[zeros];
+    }
+
+    /**
+     * True when {@link #scale} is exact for these operands.
+     */
+    public static boolean isExact(long mantissa, int decimals) {
+        return mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA && decimals >= 0 && decimals < DOUBLE_POWERS.length;
+    }
+
+    /**
+     * {@code mantissa / 10^decimals}, correctly rounded when {@link #isExact} holds.
+     */
+    public static double scale(long mantissa, int decimals) {
+        return mantissa / DOUBLE_POWERS[decimals];
+    }
+
+    /**
+     * {@code mantissa * factor / 10^decimals} rounded half up, in integer arithmetic, or -1
+     * if the mantissa is negative or the result could overflow. With a factor of whole
+     * nanometres per unit this is the exact nanometre value of the digits.
+     */
+    public static long scaleRounded(long mantissa, int decimals, long factor) {
+        if (mantissa < 0 || decimals < 0) {
+            return -1;
+        }
+        // Cancel powers of ten first, so whole results need no division
+        while (decimals > 0 && factor % 10 == 0) {
+            factor /= 10;
+            decimals--;
+        }
+        if (decimals >= LONG_POWERS.length || mantissa > Long.MAX_VALUE / factor) {
+            return -1;
+        }
+        long product = mantissa * factor;
+        long divisor = LONG_POWERS[decimals];
+        long quotient = product / divisor;
+        return product % divisor * 2 >= divisor ? quotient + 1 : quotient;
+    }
+}
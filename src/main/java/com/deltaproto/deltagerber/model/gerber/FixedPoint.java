@@ -0,0 +1,47 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+/**
+ * Conversions for the fixed-point coordinate model, which stores coordinates as
+ * {@code long} nanometres instead of {@code double} millimetres.
+ *
+ * <p>One nanometre resolves every Gerber and Excellon format in practice: 6 decimals
+ * in mm is exactly 1 nm, and 6 decimals in inch is 25.4 nm. Integer coordinates make
+ * endpoint comparison, hashing and deduplication exact: fixed-point objects are equal
+ * when their nanometres are, and their end points are {@link Point} keys.</p>
+ */
+public final class FixedPoint {
+
+    /** Nanometres per millimetre. */
+    public static final long NM_PER_MM = 1_000_000L;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * An exact position in nanometres, e.g. a hash key for end points that must meet.
+     */
+    public record Point(long x, long y) {
+    }
+
+    /**
+     * Round a millimetre value to the nearest nanometre.
+     */
+    public static long toNm(double mm) {
+        return Math.round(mm * NM_PER_MM);
+    }
+
+    /**
+     * Convert nanometres back to millimetres.
+     */
+    public static double toMm(long nm) {
+        return nm / (double) NM_PER_MM;
+    }
+
+    /**
+     * Convert a nanometre value computed in floating point, e.g. an arc's extent, to
+     * millimetres.
+     */
+    public static double toMm(double nm) {
+        return nm / NM_PER_MM;
+    }
+}
@@ -0,0 +1,135 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-shape distances for hit testing. Every distance is 0 for a point inside or
+ * on the shape.
+ */
+public final class Geometry {
+
+    private Geometry() {
+    }
+
+    /**
+     * Distance from (px, py) to the segment from (ax, ay) to (bx, by).
+     */
+    public static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    /**
+     * Sweep angle of an arc in radians, in (0, 2&pi;]. Coinciding start and end points
+     * make a full circle, as when the arc is drawn.
+     */
+    public static double arcSweep(double startX, double startY, double endX, double endY,
+                                  double centerX, double centerY, boolean clockwise) {
+        double startAngle = Math.atan2(startY - centerY, startX - centerX);
+        double endAngle = Math.atan2(endY - centerY, endX - centerX);
+        double sweep = clockwise ? startAngle - endAngle : endAngle - startAngle;
+        if (sweep <= 0) sweep += 2 * Math.PI;
+        return sweep;
+    }
+
+    /**
+     * Distance from (px, py) to the arc around (centerX, centerY) from start to end.
+     */
+    public static double arcDistance(double px, double py, double startX, double startY, double endX, double endY,
+                                     double centerX, double centerY, boolean clockwise) {
+        double sweep = arcSweep(startX, startY, endX, endY, centerX, centerY, clockwise);
+        double startAngle = Math.atan2(startY - centerY, startX - centerX);
+        double angle = Math.atan2(py - centerY, px - centerX);
+        double offset = clockwise ? startAngle - angle : angle - startAngle;
+        if (offset < 0) offset += 2 * Math.PI;
+        if (offset <= sweep) {
+            double radius = Math.hypot(startX - centerX, startY - centerY);
+            return Math.abs(Math.hypot(px - centerX, py - centerY) - radius);
+        }
+        return Math.min(Math.hypot(px - startX, py - startY), Math.hypot(px - endX, py - endY));
+    }
+
+    /**
+     * True if a ray from (px, py) towards +x crosses the closed ring of {@code length / 2}
+     * points an odd number of times.
+     */
+    public static boolean crossesOddly(double px, double py, double[] ring, int length) {
+        boolean odd = false;
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            double yi = ring[i + 1];
+            double yj = ring[j + 1];
+            if ((yi > py) != (yj > py)) {
+                double x = ring[i] + (py - yi) * (ring[j] - ring[i]) / (yj - yi);
+                if (px < x) odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * Distance from (px, py) to the edges of the closed ring of {@code length / 2} points.
+     */
+    public static double ringDistance(double px, double py, double[] ring, int length) {
+        double distance = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            distance = Math.min(distance, segmentDistance(px, py, ring[j], ring[j + 1], ring[i], ring[i + 1]));
+        }
+        return distance;
+    }
+
+    /**
+     * Distance from (px, py) to the convex hull of a few points given as x/y pairs.
+     */
+    public static double convexHullDistance(double px, double py, double[] points) {
+        double[] hull = convexHull(points);
+        int n = hull.length;
+        if (n == 2) {
+            return Math.hypot(px - hull[0], py - hull[1]);
+        }
+        boolean inside = n >= 6;
+        for (int i = 0, j = n - 2; i < n && inside; j = i, i += 2) {
+            double cross = (hull[i] - hull[j]) * (py - hull[j + 1]) - (hull[i + 1] - hull[j + 1]) * (px - hull[j]);
+            if (cross < 0) inside = false;
+        }
+        return inside ? 0 : ringDistance(px, py, hull, n);
+    }
+
+    /**
+     * Counter-clockwise convex hull of x/y pairs (Andrew's monotone chain).
+     */
+    private static double[] convexHull(double[] points) {
+        int n = points.length / 2;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> points[2 * a] != points[2 * b]
+            ? Double.compare(points[2 * a], points[2 * b])
+            : Double.compare(points[2 * a + 1], points[2 * b + 1]));
+        int[] hull = new int[2 * n];
+        int k = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int lower = k;
+            for (int m = 0; m < n; m++) {
+                int p = order[pass == 0 ? m : n - 1 - m];
+                while (k >= lower + 2 && cross(points, hull[k - 2], hull[k - 1], p) <= 0) k--;
+                hull[k++] = p;
+            }
+            k--;
+        }
+        k = Math.max(k, 1);
+        double[] result = new double[2 * k];
+        for (int i = 0; i < k; i++) {
+            result[2 * i] = points[2 * hull[i]];
+            result[2 * i + 1] = points[2 * hull[i] + 1];
+        }
+        return result;
+    }
+
+    private static double cross(double[] p, int o, int a, int b) {
+        return (p[2 * a] - p[2 * o]) * (p[2 * b + 1] - p[2 * o + 1])
+            - (p[2 * a + 1] - p[2 * o + 1]) * (p[2 * b] - p[2 * o]);
+    }
+}
@@ -3,6 +3,7 @@ package com.deltaproto.deltagerber.model.gerber;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
 import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
 import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+import com.deltaproto.deltagerber.model.gerber.operation.ColumnarObjectList;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 
 import java.util.ArrayList;
@@ -23,24 +24,43 @@ public class GerberDocument {
     private final Map<String, FileAttribute> fileAttributes = new HashMap<>();
     private final Map<Integer, Aperture> apertures = new HashMap<>();
     private final Map<String, MacroTemplate> macroTemplates = new HashMap<>();
-    private final List<GraphicsObject> objects = new ArrayList<>();
+    private final List<GraphicsObject> objects;
     private final List<String> warnings = new ArrayList<>();
     private final List<ComponentPlacement> components = new ArrayList<>();
 
-    private BoundingBox boundingBox;
+    // Built on first use and published whole, since cached documents are shared between
+    // threads (see DocumentCache)
+    private volatile BoundingBox boundingBox;
+    private SourceMap sourceMap;
+    private volatile SpatialIndex<GraphicsObject> spatialIndex;
 
     public GerberDocument() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * Document that keeps its graphics objects in the given list, e.g. a
+     * {@link ColumnarObjectList} for large layers.
+     */
+    public GerberDocument(List<GraphicsObject> objects) {
+        this.objects = objects;
     }
 
     /**
      * Calculate the bounding box of all graphics objects.
      */
     public BoundingBox calculateBoundingBox() {
-        boundingBox = new BoundingBox();
-        for (GraphicsObject obj : objects) {
-            boundingBox.include(obj.getBoundingBox());
+        BoundingBox box;
+        if (objects instanceof ColumnarObjectList columnar) {
+            box = columnar.calculateBoundingBox();
+        } else {
+            box = new BoundingBox();
+            for (GraphicsObject obj : objects) {
+                box.include(obj.getBoundingBox());
+            }
         }
-        return boundingBox;
+        boundingBox = box;
+        return box;
     }
 
     /**
@@ -105,13 +125,11 @@ public class GerberDocument {
     }
 
     public double getWidth() {
-        if (boundingBox == null) calculateBoundingBox();
-        return boundingBox.getWidth();
+        return getBoundingBox().getWidth();
     }
 
     public double getHeight() {
-        if (boundingBox == null) calculateBoundingBox();
-        return boundingBox.getHeight();
+        return getBoundingBox().getHeight();
     }
 
     public double getWidthMm() {
@@ -186,6 +204,31 @@ public class GerberDocument {
         this.fileName = fileName;
     }
 
+    /**
+     * Spatial index over the graphics objects, built on first use and rebuilt when
+     * objects have been added since. A step-and-repeat block is indexed as one object.
+     */
+    public SpatialIndex<GraphicsObject> getSpatialIndex() {
+        SpatialIndex<GraphicsObject> index = spatialIndex;
+        if (index == null || index.getItemCount() != objects.size()) {
+            index = new SpatialIndex<>(objects, GraphicsObject::getBoundingBox, GraphicsObject::distanceTo);
+            spatialIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Source offsets of the graphics objects, or null unless the parser recorded them
+     * (see {@link com.deltaproto.deltagerber.parser.GerberParser#setSourceMap(boolean)}).
+     */
+    public SourceMap getSourceMap() {
+        return sourceMap;
+    }
+
+    public void setSourceMap(SourceMap sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+
     public CoordinateFormat getCoordinateFormat() {
         return coordinateFormat;
     }
@@ -215,8 +258,8 @@ public class GerberDocument {
     }
 
     public BoundingBox getBoundingBox() {
-        if (boundingBox == null) calculateBoundingBox();
-        return boundingBox;
+        BoundingBox box = boundingBox;
+        return box != null ? box : calculateBoundingBox();
     }
 
     public List<String> getWarnings() {
@@ -0,0 +1,111 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+import java.util.Arrays;
+
+/**
+ * Where in the source file each graphics object of a document came from.
+ *
+ * <p>Holds one {@code int} per object: the offset of the command that produced it,
+ * counted from the start of the file after any byte order mark. Lines and columns are
+ * not stored per object; they are found by a binary search over a table of line break
+ * offsets, one {@code int} per line. Offsets are chars for text input and bytes for
+ * files, which is the same for Gerber's 7-bit ASCII.</p>
+ *
+ * <p>The object at index i of {@link GerberDocument#getObjects()} has entry i. A Draw,
+ * Arc or Flash maps to the first coordinate of its statement, or to its D-code if it has
+ * no coordinates; a Region maps to its G36; a copy made by step-and-repeat maps to its
+ * original, and a {@link com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock}
+ * to the %SR% that opened it.</p>
+ */
+public class SourceMap {
+
+    private int[] offsets = new int[64];
+    private int objectCount;
+    // Offsets of the line breaks, ascending
+    private int[] newlines = new int[64];
+    private int newlineCount;
+
+    public void addObject(int offset) {
+        if (objectCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[objectCount++] = offset;
+    }
+
+    /**
+     * Record a line break. Line breaks must be added in ascending order.
+     */
+    public void addNewline(int offset) {
+        if (newlineCount == newlines.length) {
+            newlines = Arrays.copyOf(newlines, newlines.length * 2);
+        }
+        newlines[newlineCount++] = offset;
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    public int getOffset(int index) {
+        if (index < 0 || index >= objectCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + objectCount);
+        }
+        return offsets[index];
+    }
+
+    /**
+     * Line of the object at an index, 1-based.
+     */
+    public int getLine(int index) {
+        return lineOf(getOffset(index));
+    }
+
+    /**
+     * Column of the object at an index, 1-based.
+     */
+    public int getColumn(int index) {
+        return columnOf(getOffset(index));
+    }
+
+    /**
+     * Number of lines seen: one more than the number of line breaks.
+     */
+    public int getLineCount() {
+        return newlineCount + 1;
+    }
+
+    /**
+     * Line containing an offset, 1-based.
+     */
+    public int lineOf(int offset) {
+        // Number of line breaks before the offset
+        int low = 0;
+        int high = newlineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (newlines[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Column of an offset within its line, 1-based.
+     */
+    public int columnOf(int offset) {
+        int line = lineOf(offset);
+        int lineStart = line == 1 ? 0 : newlines[line - 2] + 1;
+        return offset - lineStart + 1;
+    }
+
+    /**
+     * Release the unused capacity of the tables.
+     */
+    public void trimToSize() {
+        offsets = Arrays.copyOf(offsets, objectCount);
+        newlines = Arrays.copyOf(newlines, newlineCount);
+    }
+}
@@ -0,0 +1,346 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable packed R-tree over the bounding boxes of a list of items, bulk-loaded with
+ * Sort-Tile-Recursive packing.
+ *
+ * <p>Every level of the tree is one run of entries in flat arrays: four doubles of box
+ * and one int per entry, where a leaf entry holds an item index and a node entry the
+ * position of its first child. Building sorts each level twice, so it takes
+ * O(n log n); a query only visits the nodes whose boxes reach the query.</p>
+ *
+ * <p>{@link #query} selects by bounding box. {@link #objectsAt} and {@link #nearest}
+ * refine the candidates with an exact distance function. Results of the box and point
+ * queries are in list order, which is the paint order for graphics objects. Items
+ * without a valid bounding box are not indexed. The item list must not change while
+ * the index is in use.</p>
+ */
+public final class SpatialIndex<T> {
+
+    /**
+     * Distance from a point to an item: 0 for a point on the item, and never less than
+     * the distance to the item's bounding box.
+     */
+    @FunctionalInterface
+    public interface Distance<T> {
+        double between(T item, double x, double y);
+    }
+
+    private static final int NODE_SIZE = 16;
+
+    private final List<T> items;
+    private final int itemCount;
+    private final Distance<? super T> distance;
+    // Entries of all levels, leaves first: minX, minY, maxX, maxY
+    private final double[] boxes;
+    // Leaf entries: item index; node entries: position of the first child
+    private final int[] ids;
+    // End of each level's run of entries; the root is the last entry
+    private final int[] levelEnds;
+
+    public SpatialIndex(List<T> items, Function<? super T, BoundingBox> bounds, Distance<? super T> distance) {
+        this.items = items;
+        this.itemCount = items.size();
+        this.distance = distance;
+
+        double[] leafBoxes = new double[4 * itemCount];
+        int[] leafIds = new int[itemCount];
+        int leaves = 0;
+        for (int i = 0; i < itemCount; i++) {
+            BoundingBox box = bounds.apply(items.get(i));
+            if (box != null && box.isValid()) {
+                leafBoxes[4 * leaves] = box.getMinX();
+                leafBoxes[4 * leaves + 1] = box.getMinY();
+                leafBoxes[4 * leaves + 2] = box.getMaxX();
+                leafBoxes[4 * leaves + 3] = box.getMaxY();
+                leafIds[leaves++] = i;
+            }
+        }
+
+        List<Integer> ends = new ArrayList<>();
+        int total = leaves;
+        ends.add(leaves);
+        for (int count = leaves; count > 1; ) {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            total += count;
+            ends.add(total);
+        }
+        levelEnds = ends.stream().mapToInt(Integer::intValue).toArray();
+        boxes = Arrays.copyOf(leafBoxes, 4 * total);
+        ids = Arrays.copyOf(leafIds, total);
+
+        int start = 0;
+        for (int level = 0; level + 1 < levelEnds.length; level++) {
+            int end = levelEnds[level];
+            sortTiles(start, end);
+            int parent = end;
+            for (int first = start; first < end; first += NODE_SIZE) {
+                int last = Math.min(first + NODE_SIZE, end);
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int e = first; e < last; e++) {
+                    minX = Math.min(minX, boxes[4 * e]);
+                    minY = Math.min(minY, boxes[4 * e + 1]);
+                    maxX = Math.max(maxX, boxes[4 * e + 2]);
+                    maxY = Math.max(maxY, boxes[4 * e + 3]);
+                }
+                boxes[4 * parent] = minX;
+                boxes[4 * parent + 1] = minY;
+                boxes[4 * parent + 2] = maxX;
+                boxes[4 * parent + 3] = maxY;
+                ids[parent++] = first;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Order the entries [start, end) of a level for packing: into vertical slices by the
+     * x of their centres, then each slice by y, so every run of {@link #NODE_SIZE}
+     * entries is a compact tile.
+     */
+    private void sortTiles(int start, int end) {
+        int nodes = (end - start + NODE_SIZE - 1) / NODE_SIZE;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = NODE_SIZE * ((nodes + slices - 1) / slices);
+        sortByCentre(start, end, 0);
+        for (int slice = start; slice < end; slice += sliceSize) {
+            sortByCentre(slice, Math.min(slice + sliceSize, end), 1);
+        }
+    }
+
+    private void sortByCentre(int start, int end, int axis) {
+        int count = end - start;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int e = start; e < end; e++) {
+            double centre = boxes[4 * e + axis] + boxes[4 * e + axis + 2];
+            min = Math.min(min, centre);
+            max = Math.max(max, centre);
+        }
+        // Sort primitive keys: the centre quantized to 31 bits above the entry's offset
+        double scale = max > min ? Integer.MAX_VALUE / (max - min) : 0;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int e = start + i;
+            long quantized = (long) ((boxes[4 * e + axis] + boxes[4 * e + axis + 2] - min) * scale);
+            keys[i] = quantized << 32 | i;
+        }
+        Arrays.sort(keys);
+        double[] sortedBoxes = new double[4 * count];
+        int[] sortedIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            int e = start + (int) keys[i];
+            System.arraycopy(boxes, 4 * e, sortedBoxes, 4 * i, 4);
+            sortedIds[i] = ids[e];
+        }
+        System.arraycopy(sortedBoxes, 0, boxes, 4 * start, 4 * count);
+        System.arraycopy(sortedIds, 0, ids, start, count);
+    }
+
+    /**
+     * Number of items in the list when the index was built.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Bounding box of all indexed items.
+     */
+    public BoundingBox getBounds() {
+        if (ids.length == 0) {
+            return new BoundingBox();
+        }
+        int root = ids.length - 1;
+        return new BoundingBox(boxes[4 * root], boxes[4 * root + 1], boxes[4 * root + 2], boxes[4 * root + 3]);
+    }
+
+    /**
+     * Hand the index of every item whose bounding box intersects the rectangle to the
+     * consumer, in no particular order.
+     */
+    public void query(double minX, double minY, double maxX, double maxY, IntConsumer out) {
+        if (ids.length == 0) {
+            return;
+        }
+        int[] stack = new int[2 * (NODE_SIZE * levelEnds.length + 1)];
+        int size = 0;
+        stack[size++] = ids.length - 1;
+        stack[size++] = levelEnds.length - 1;
+        while (size > 0) {
+            int level = stack[--size];
+            int entry = stack[--size];
+            if (boxes[4 * entry] > maxX || boxes[4 * entry + 1] > maxY
+                    || boxes[4 * entry + 2] < minX || boxes[4 * entry + 3] < minY) {
+                continue;
+            }
+            if (level == 0) {
+                out.accept(ids[entry]);
+                continue;
+            }
+            int last = Math.min(ids[entry] + NODE_SIZE, levelEnds[level - 1]);
+            for (int child = ids[entry]; child < last; child++) {
+                stack[size++] = child;
+                stack[size++] = level - 1;
+            }
+        }
+    }
+
+    /**
+     * Items whose bounding box intersects the box, in list order.
+     */
+    public List<T> query(BoundingBox box) {
+        if (!box.isValid()) {
+            return List.of();
+        }
+        return collect(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY(), -1, 0, 0);
+    }
+
+    /**
+     * Items that cover the point, in list order.
+     */
+    public List<T> objectsAt(double x, double y) {
+        return objectsAt(x, y, 0);
+    }
+
+    /**
+     * Items within a distance of the point, e.g. the tolerance of a pointer, in list order.
+     */
+    public List<T> objectsAt(double x, double y, double tolerance) {
+        return collect(x - tolerance, y - tolerance, x + tolerance, y + tolerance, tolerance, x, y);
+    }
+
+    private List<T> collect(double minX, double minY, double maxX, double maxY,
+                            double tolerance, double x, double y) {
+        int[][] found = {new int[16]};
+        int[] count = {0};
+        query(minX, minY, maxX, maxY, index -> {
+            if (tolerance >= 0 && distance.between(items.get(index), x, y) > tolerance) {
+                return;
+            }
+            if (count[0] == found[0].length) {
+                found[0] = Arrays.copyOf(found[0], count[0] * 2);
+            }
+            found[0][count[0]++] = index;
+        });
+        int[] indices = Arrays.copyOf(found[0], count[0]);
+        Arrays.sort(indices);
+        return itemsAt(indices);
+    }
+
+    /**
+     * The k items nearest to the point by exact distance, nearest first.
+     */
+    public List<T> nearest(double x, double y, int k) {
+        int[] indices = new int[Math.max(0, Math.min(k, ids.length))];
+        int found = 0;
+        if (indices.length == 0) {
+            return List.of();
+        }
+        // Best-first search: nodes and leaves are queued by the distance to their box,
+        // items by their exact distance, which is never less
+        Queue queue = new Queue();
+        queue.push(boxDistance(ids.length - 1, x, y), ids.length - 1, levelEnds.length - 1);
+        while (queue.size > 0 && found < indices.length) {
+            int level = queue.topLevel();
+            int entry = queue.pop();
+            if (level < 0) {
+                indices[found++] = entry;
+            } else if (level == 0) {
+                queue.push(distance.between(items.get(ids[entry]), x, y), ids[entry], -1);
+            } else {
+                int last = Math.min(ids[entry] + NODE_SIZE, levelEnds[level - 1]);
+                for (int child = ids[entry]; child < last; child++) {
+                    queue.push(boxDistance(child, x, y), child, level - 1);
+                }
+            }
+        }
+        return itemsAt(Arrays.copyOf(indices, found));
+    }
+
+    private double boxDistance(int entry, double x, double y) {
+        double dx = Math.max(0, Math.max(boxes[4 * entry] - x, x - boxes[4 * entry + 2]));
+        double dy = Math.max(0, Math.max(boxes[4 * entry + 1] - y, y - boxes[4 * entry + 3]));
+        return Math.hypot(dx, dy);
+    }
+
+    private List<T> itemsAt(int[] indices) {
+        return new AbstractList<>() {
+            @Override
+            public T get(int index) {
+                return items.get(indices[index]);
+            }
+
+            @Override
+            public int size() {
+                return indices.length;
+            }
+        };
+    }
+
+    /**
+     * Binary min-heap of entries keyed by distance, with the level of each entry
+     * (-1 for an item).
+     */
+    private static final class Queue {
+        private double[] keys = new double[64];
+        private int[] entries = new int[64];
+        private int[] levels = new int[64];
+        private int size;
+
+        void push(double key, int entry, int level) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                set(i, keys[parent], entries[parent], levels[parent]);
+                i = parent;
+            }
+            set(i, key, entry, level);
+        }
+
+        int topLevel() {
+            return levels[0];
+        }
+
+        int pop() {
+            int top = entries[0];
+            size--;
+            double key = keys[size];
+            int entry = entries[size];
+            int level = levels[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                set(i, keys[child], entries[child], levels[child]);
+                i = child;
+            }
+            set(i, key, entry, level);
+            return top;
+        }
+
+        private void set(int i, double key, int entry, int level) {
+            keys[i] = key;
+            entries[i] = entry;
+            levels[i] = level;
+        }
+    }
+}
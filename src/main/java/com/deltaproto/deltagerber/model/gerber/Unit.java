@@ -4,13 +4,23 @@ package com.deltaproto.deltagerber.model.gerber;
  * Unit of measurement for Gerber coordinates.
  */
 public enum Unit {
-    MM(1.0),
-    INCH(25.4);
+    MM(1.0, 1_000_000L),
+    INCH(25.4, 25_400_000L);
 
     private final double mmFactor;
+    private final long nmFactor;
 
-    Unit(double mmFactor) {
+    Unit(double mmFactor, long nmFactor) {
         this.mmFactor = mmFactor;
+        this.nmFactor = nmFactor;
+    }
+
+    /**
+     * Nanometres per unit; a whole number for both units, so conversions to
+     * nanometres can stay in integer arithmetic.
+     */
+    public long getNmFactor() {
+        return nmFactor;
     }
 
     /**
@@ -3,12 +3,23 @@ package com.deltaproto.deltagerber.model.gerber.aperture;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Base class for all aperture types.
+ *
+ * <p>Apertures are immutable, so each one caches its bounding box and its SVG definitions.
+ * Documents can be shared between threads (see
+ * {@link com.deltaproto.deltagerber.cache.DocumentCache}), so the caches are too.</p>
  */
 public abstract class Aperture {
 
+    private static final String ID_ATTRIBUTE = "id=\"";
+
     private final int dCode;
+    private volatile BoundingBox boundingBox;
+    private final Map<String, String> svgDefs = new ConcurrentHashMap<>();
 
     protected Aperture(int dCode) {
         this.dCode = dCode;
@@ -27,7 +38,45 @@ public abstract class Aperture {
     /**
      * Get the bounding box of this aperture centered at origin.
      */
-    public abstract BoundingBox getBoundingBox();
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = getSharedBoundingBox();
+        return new BoundingBox(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY());
+    }
+
+    /**
+     * Get the cached bounding box of this aperture centered at origin, without copying it,
+     * for the bounds of the objects using the aperture. It is shared, so callers must not
+     * modify it.
+     */
+    public BoundingBox getSharedBoundingBox() {
+        BoundingBox box = boundingBox;
+        if (box == null) {
+            box = computeBoundingBox();
+            boundingBox = box;
+        }
+        return box;
+    }
+
+    /**
+     * Compute the bounding box of this aperture centered at origin.
+     */
+    protected abstract BoundingBox computeBoundingBox();
+
+    /**
+     * Distance from a point, relative to the aperture's centre, to the aperture's shape:
+     * 0 inside. Shapes without an exact test use their bounding box.
+     */
+    public double distanceTo(double x, double y) {
+        return getSharedBoundingBox().distanceTo(x, y);
+    }
+
+    /**
+     * Distance that a point inside a centred round hole keeps from the shape around it,
+     * or {@code distance} if the point is outside the hole.
+     */
+    protected static double outsideHole(double distance, double x, double y, double holeDiameter) {
+        return holeDiameter > 0 ? Math.max(distance, holeDiameter / 2 - Math.hypot(x, y)) : distance;
+    }
 
     /**
      * Generate SVG definition for this aperture with default options (exact mode).
@@ -38,10 +87,47 @@ public abstract class Aperture {
     }
 
     /**
-     * Generate SVG definition for this aperture with specified options.
+     * Generate SVG definition for this aperture with specified options. It is the cached
+     * {@link #getSvgDefBody body} with the id filled in.
      * @param id the SVG element id
      * @param options output options (exact or polygonized)
      * @return SVG element string for the defs section
      */
-    public abstract String toSvgDef(String id, SvgOptions options);
+    public String toSvgDef(String id, SvgOptions options) {
+        String body = getSvgDefBody(options);
+        // Every definition starts with its element and the element's (here empty) id
+        int idAt = body.indexOf(ID_ATTRIBUTE) + ID_ATTRIBUTE.length();
+        return new StringBuilder(body.length() + id.length())
+            .append(body, 0, idAt).append(id).append(body, idAt, body.length()).toString();
+    }
+
+    /**
+     * The SVG definition for this aperture with an empty id, so apertures of the same shape
+     * have equal bodies. It is cached per the options a definition depends on, so rendering
+     * the same document again, e.g. the other side of a board, reuses it.
+     * @param options output options (exact or polygonized)
+     * @return SVG element string with {@code id=""}
+     */
+    public String getSvgDefBody(SvgOptions options) {
+        String key = options.isPolygonize() + "|" + options.getCircleSegments() + "|"
+            + options.isCompact() + "|" + options.getDecimals() + "|"
+            + options.getDarkColor() + "|" + options.getClearColor();
+        String body = svgDefs.get(key);
+        if (body == null) {
+            StringBuilder svg = new StringBuilder();
+            appendSvgDef(svg, "", options);
+            body = svg.toString();
+            svgDefs.put(key, body);
+        }
+        return body;
+    }
+
+    /**
+     * Append the SVG definition for this aperture to {@code svg}, e.g. the shared output
+     * buffer of a render.
+     * @param svg target builder
+     * @param id the SVG element id
+     * @param options output options (exact or polygonized)
+     */
+    public abstract void appendSvgDef(StringBuilder svg, String id, SvgOptions options);
 }
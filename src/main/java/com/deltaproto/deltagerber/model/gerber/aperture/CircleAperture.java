@@ -1,6 +1,8 @@
 package com.deltaproto.deltagerber.model.gerber.aperture;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
@@ -44,43 +46,45 @@ public class CircleAperture extends Aperture {
     }
 
     @Override
-    public BoundingBox getBoundingBox() {
+    protected BoundingBox computeBoundingBox() {
         double r = diameter / 2;
         return new BoundingBox(-r, -r, r, r);
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public double distanceTo(double x, double y) {
+        return outsideHole(Math.max(0, Math.hypot(x, y) - diameter / 2), x, y, holeDiameter);
+    }
+
+    @Override
+    public void appendSvgDef(StringBuilder svg, String id, SvgOptions options) {
         double r = diameter / 2;
 
         if (options.isPolygonize()) {
             // Polygonized mode: approximate circles as paths
-            String pathData;
+            svg.append("<path id=\"").append(id).append("\" d=\"");
+            PathData path = new PathData(svg, options);
             if (hasHole()) {
                 double hr = holeDiameter / 2;
-                pathData = SvgPathUtils.annulusPath(0, 0, r, hr, options.getCircleSegments());
+                SvgPathUtils.annulusPath(path, 0, 0, r, hr, options.getCircleSegments());
             } else {
-                pathData = SvgPathUtils.circlePath(0, 0, r, options.getCircleSegments());
+                SvgPathUtils.circlePath(path, 0, 0, r, options.getCircleSegments());
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            svg.append("\" fill-rule=\"evenodd\"/>");
         } else {
             // Exact mode: use native SVG elements
             if (hasHole()) {
                 // Use path with arc commands for true transparent hole (fill-rule evenodd)
                 double hr = holeDiameter / 2;
                 // Outer circle clockwise, inner circle counter-clockwise
-                String pathData = String.format(java.util.Locale.US,
-                    "M %.6f 0 A %.6f %.6f 0 1 1 %.6f 0 A %.6f %.6f 0 1 1 %.6f 0 Z " +  // Outer CW
-                    "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",    // Inner CCW
-                    r, r, r, -r, r, r, r,
-                    hr, hr, hr, -hr, hr, hr, hr);
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
+                svg.append("<path id=\"").append(id).append("\" d=\"");
+                PathData path = new PathData(svg, options);
+                SvgPathUtils.arcCirclePath(path, r, 1);   // Outer CW
+                SvgPathUtils.arcCirclePath(path, hr, 0);  // Inner CCW
+                svg.append("\" fill-rule=\"evenodd\"/>");
             } else {
-                return String.format(java.util.Locale.US,
-                    "<circle id=\"%s\" cx=\"0\" cy=\"0\" r=\"%.6f\"/>",
-                    id, r);
+                svg.append("<circle id=\"").append(id).append(options.isCompact() ? "\" r=\"" : "\" cx=\"0\" cy=\"0\" r=\"");
+                SvgNumbers.append(svg, r, options).append("\"/>");
             }
         }
     }
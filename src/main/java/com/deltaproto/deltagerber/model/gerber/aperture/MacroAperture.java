@@ -7,7 +7,6 @@ import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * An aperture instantiated from a macro template.
@@ -16,7 +15,7 @@ public class MacroAperture extends Aperture {
 
     private final MacroTemplate template;
     private final List<Double> parameters;
-    private final Map<Integer, Double> evaluatedVariables;
+    private final double[] registers;
     private final double unitFactor;
 
     public MacroAperture(int dCode, MacroTemplate template, List<Double> parameters) {
@@ -24,10 +23,19 @@ public class MacroAperture extends Aperture {
     }
 
     public MacroAperture(int dCode, MacroTemplate template, List<Double> parameters, double unitFactor) {
+        this(dCode, template, parameters, template.evaluateVariables(parameters), unitFactor);
+    }
+
+    /**
+     * Macro aperture with already evaluated variables, e.g. when loading a stored document.
+     * {@code registers[n]} holds the value of $n.
+     */
+    public MacroAperture(int dCode, MacroTemplate template, List<Double> parameters,
+                         double[] registers, double unitFactor) {
         super(dCode);
         this.template = template;
         this.parameters = new ArrayList<>(parameters);
-        this.evaluatedVariables = template.evaluateVariables(parameters);
+        this.registers = registers;
         this.unitFactor = unitFactor;
     }
 
@@ -39,28 +47,38 @@ public class MacroAperture extends Aperture {
         return parameters;
     }
 
+    /**
+     * The evaluated macro variables, indexed by variable number.
+     */
+    public double[] getRegisters() {
+        return registers;
+    }
+
+    public double getUnitFactor() {
+        return unitFactor;
+    }
+
     @Override
     public String getTemplateCode() {
         return template.getName();
     }
 
     @Override
-    public BoundingBox getBoundingBox() {
+    protected BoundingBox computeBoundingBox() {
         BoundingBox bbox = new BoundingBox();
         for (MacroPrimitive primitive : template.getPrimitives()) {
-            BoundingBox primBounds = primitive.getBoundingBox(evaluatedVariables, unitFactor);
+            BoundingBox primBounds = primitive.getBoundingBox(registers, unitFactor);
             bbox.extend(primBounds);
         }
         return bbox;
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
-        StringBuilder svg = new StringBuilder();
+    public void appendSvgDef(StringBuilder svg, String id, SvgOptions options) {
         svg.append(String.format("<g id=\"%s\">", id));
 
         for (MacroPrimitive primitive : template.getPrimitives()) {
-            String primSvg = primitive.toSvg(evaluatedVariables, options, unitFactor);
+            String primSvg = primitive.toSvg(registers, options, unitFactor);
             if (primSvg != null && !primSvg.isEmpty()) {
                 // Primitives render fill="currentColor" (the sentinel used for defs).
                 // In SVG, currentColor reads the CSS `color` property — not `fill` — so
@@ -73,6 +91,5 @@ public class MacroAperture extends Aperture {
         }
 
         svg.append("</g>");
-        return svg.toString();
     }
 }
@@ -1,6 +1,8 @@
 package com.deltaproto.deltagerber.model.gerber.aperture;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
@@ -46,80 +48,67 @@ public class ObroundAperture extends Aperture {
     }
 
     @Override
-    public BoundingBox getBoundingBox() {
+    protected BoundingBox computeBoundingBox() {
         double hw = width / 2;
         double hh = height / 2;
         return new BoundingBox(-hw, -hh, hw, hh);
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public double distanceTo(double x, double y) {
+        // A stadium: the points within the radius of the centre line
+        double r = Math.min(width, height) / 2;
+        double hx = width / 2 - r;
+        double hy = height / 2 - r;
+        double distance = Geometry.segmentDistance(x, y, -hx, -hy, hx, hy) - r;
+        return outsideHole(Math.max(0, distance), x, y, holeDiameter);
+    }
+
+    @Override
+    public void appendSvgDef(StringBuilder svg, String id, SvgOptions options) {
         double hw = width / 2;
         double hh = height / 2;
         double r = Math.min(hw, hh);
 
+        svg.append("<path id=\"").append(id).append("\" d=\"");
+        PathData path = new PathData(svg, options);
         if (options.isPolygonize()) {
             // Polygonized mode: approximate arcs with line segments
-            String pathData = SvgPathUtils.obroundPath(0, 0, width, height);
+            SvgPathUtils.obroundPath(path, 0, 0, width, height);
             if (hasHole()) {
-                pathData = pathData + " " + reverseCirclePath(0, 0, holeDiameter / 2, options.getCircleSegments());
+                SvgPathUtils.reverseCirclePath(path, 0, 0, holeDiameter / 2, options.getCircleSegments());
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            svg.append("\" fill-rule=\"evenodd\"/>");
         } else {
             // Exact mode: use SVG arc commands
-            StringBuilder path = new StringBuilder();
             if (width > height) {
                 // Horizontal obround
                 double flatWidth = width - height;
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f ", -flatWidth/2, -hh));
-                path.append(String.format(java.util.Locale.US, "L %.6f %.6f ", flatWidth/2, -hh));
-                path.append(String.format(java.util.Locale.US, "A %.6f %.6f 0 0 1 %.6f %.6f ", r, r, flatWidth/2, hh));
-                path.append(String.format(java.util.Locale.US, "L %.6f %.6f ", -flatWidth/2, hh));
-                path.append(String.format(java.util.Locale.US, "A %.6f %.6f 0 0 1 %.6f %.6f ", r, r, -flatWidth/2, -hh));
-                path.append("Z");
+                path.moveTo(-flatWidth/2, -hh)
+                    .lineTo(flatWidth/2, -hh)
+                    .arcTo(r, 0, 1, flatWidth/2, hh)
+                    .lineTo(-flatWidth/2, hh)
+                    .arcTo(r, 0, 1, -flatWidth/2, -hh)
+                    .close();
             } else {
                 // Vertical obround
                 double flatHeight = height - width;
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f ", -hw, -flatHeight/2));
-                path.append(String.format(java.util.Locale.US, "A %.6f %.6f 0 0 1 %.6f %.6f ", r, r, hw, -flatHeight/2));
-                path.append(String.format(java.util.Locale.US, "L %.6f %.6f ", hw, flatHeight/2));
-                path.append(String.format(java.util.Locale.US, "A %.6f %.6f 0 0 1 %.6f %.6f ", r, r, -hw, flatHeight/2));
-                path.append(String.format(java.util.Locale.US, "L %.6f %.6f ", -hw, -flatHeight/2));
-                path.append("Z");
+                path.moveTo(-hw, -flatHeight/2)
+                    .arcTo(r, 0, 1, hw, -flatHeight/2)
+                    .lineTo(hw, flatHeight/2)
+                    .arcTo(r, 0, 1, -hw, flatHeight/2)
+                    .lineTo(-hw, -flatHeight/2)
+                    .close();
             }
 
             if (hasHole()) {
                 // Add hole circle counter-clockwise for true transparent hole
-                double hr = holeDiameter / 2;
-                path.append(String.format(java.util.Locale.US,
-                    " M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",
-                    hr, hr, hr, -hr, hr, hr, hr));
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, path);
-            } else {
-                return String.format("<path id=\"%s\" d=\"%s\"/>", id, path);
-            }
-        }
-    }
-
-    /**
-     * Generate a circle path in reverse (counter-clockwise) for hole cutouts.
-     */
-    private String reverseCirclePath(double cx, double cy, double radius, int segments) {
-        StringBuilder path = new StringBuilder();
-        for (int i = segments - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == segments - 1) {
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f", x, y));
+                SvgPathUtils.arcCirclePath(path, holeDiameter / 2, 0);
+                svg.append("\" fill-rule=\"evenodd\"/>");
             } else {
-                path.append(String.format(java.util.Locale.US, " L %.6f %.6f", x, y));
+                svg.append("\"/>");
             }
         }
-        path.append(" Z");
-        return path.toString();
     }
 
     @Override
@@ -1,6 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
@@ -57,81 +60,59 @@ public class PolygonAperture extends Aperture {
     }
 
     @Override
-    public BoundingBox getBoundingBox() {
+    protected BoundingBox computeBoundingBox() {
         double r = outerDiameter / 2;
         return new BoundingBox(-r, -r, r, r);
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public double distanceTo(double x, double y) {
         double r = outerDiameter / 2;
         double rotRad = Math.toRadians(rotation);
-
-        // Generate polygon points (exact for both modes - polygons are exact by definition)
-        StringBuilder points = new StringBuilder();
+        double[] vertices = new double[2 * numVertices];
         for (int i = 0; i < numVertices; i++) {
             double angle = rotRad + (2 * Math.PI * i / numVertices);
-            double x = r * Math.cos(angle);
-            double y = r * Math.sin(angle);
-            if (i > 0) points.append(" ");
-            points.append(String.format(java.util.Locale.US, "%.6f,%.6f", x, y));
+            vertices[2 * i] = r * Math.cos(angle);
+            vertices[2 * i + 1] = r * Math.sin(angle);
         }
+        return outsideHole(Geometry.convexHullDistance(x, y, vertices), x, y, holeDiameter);
+    }
+
+    @Override
+    public void appendSvgDef(StringBuilder svg, String id, SvgOptions options) {
+        double r = outerDiameter / 2;
+        double rotRad = Math.toRadians(rotation);
 
         if (options.isPolygonize()) {
             // Polygonized mode: use path for consistency
-            String pathData = SvgPathUtils.polygonPath(0, 0, outerDiameter, numVertices, rotation);
+            svg.append("<path id=\"").append(id).append("\" d=\"");
+            PathData path = new PathData(svg, options);
+            SvgPathUtils.polygonPath(path, 0, 0, outerDiameter, numVertices, rotation);
             if (hasHole()) {
-                double hr = holeDiameter / 2;
-                pathData = pathData + " " + reverseCirclePath(0, 0, hr, options.getCircleSegments());
+                SvgPathUtils.reverseCirclePath(path, 0, 0, holeDiameter / 2, options.getCircleSegments());
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            svg.append("\" fill-rule=\"evenodd\"/>");
         } else {
-            // Exact mode
+            // Exact mode (polygons are exact by definition)
             if (hasHole()) {
                 // Use path for true transparent hole (fill-rule evenodd)
-                double hr = holeDiameter / 2;
                 // Polygon as path + hole circle counter-clockwise
-                StringBuilder pathData = new StringBuilder();
+                svg.append("<path id=\"").append(id).append("\" d=\"");
+                PathData path = new PathData(svg, options);
+                SvgPathUtils.polygonPath(path, 0, 0, outerDiameter, numVertices, rotation);
+                SvgPathUtils.arcCirclePath(path, holeDiameter / 2, 0);
+                svg.append("\" fill-rule=\"evenodd\"/>");
+            } else {
+                svg.append("<polygon id=\"").append(id).append("\" points=\"");
                 for (int i = 0; i < numVertices; i++) {
                     double angle = rotRad + (2 * Math.PI * i / numVertices);
-                    double x = r * Math.cos(angle);
-                    double y = r * Math.sin(angle);
-                    pathData.append(String.format(java.util.Locale.US,
-                        "%s %.6f %.6f ", i == 0 ? "M" : "L", x, y));
+                    if (i > 0) svg.append(" ");
+                    SvgNumbers.append(svg, r * Math.cos(angle), options).append(',');
+                    SvgNumbers.append(svg, r * Math.sin(angle), options);
                 }
-                pathData.append("Z ");
-                // Add hole circle counter-clockwise
-                pathData.append(String.format(java.util.Locale.US,
-                    "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",
-                    hr, hr, hr, -hr, hr, hr, hr));
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
-            } else {
-                return String.format(java.util.Locale.US,
-                    "<polygon id=\"%s\" points=\"%s\"/>",
-                    id, points);
-            }
-        }
-    }
-
-    /**
-     * Generate a circle path in reverse (counter-clockwise) for hole cutouts.
-     */
-    private String reverseCirclePath(double cx, double cy, double radius, int segments) {
-        StringBuilder path = new StringBuilder();
-        for (int i = segments - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == segments - 1) {
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(java.util.Locale.US, " L %.6f %.6f", x, y));
+                svg.append("\"/>");
             }
         }
-        path.append(" Z");
-        return path.toString();
     }
 
     @Override
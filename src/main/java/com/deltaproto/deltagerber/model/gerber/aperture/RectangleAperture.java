@@ -1,6 +1,8 @@
 package com.deltaproto.deltagerber.model.gerber.aperture;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
@@ -46,44 +48,50 @@ public class RectangleAperture extends Aperture {
     }
 
     @Override
-    public BoundingBox getBoundingBox() {
+    protected BoundingBox computeBoundingBox() {
         double hw = width / 2;
         double hh = height / 2;
         return new BoundingBox(-hw, -hh, hw, hh);
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public double distanceTo(double x, double y) {
+        double dx = Math.max(0, Math.abs(x) - width / 2);
+        double dy = Math.max(0, Math.abs(y) - height / 2);
+        return outsideHole(Math.hypot(dx, dy), x, y, holeDiameter);
+    }
+
+    @Override
+    public void appendSvgDef(StringBuilder svg, String id, SvgOptions options) {
         double hw = width / 2;
         double hh = height / 2;
 
         if (options.isPolygonize()) {
             // Polygonized mode: use path approximations
-            String pathData;
+            svg.append("<path id=\"").append(id).append("\" d=\"");
+            PathData path = new PathData(svg, options);
             if (hasHole()) {
-                pathData = SvgPathUtils.rectangleWithHolePath(0, 0, width, height, holeDiameter);
+                SvgPathUtils.rectangleWithHolePath(path, 0, 0, width, height, holeDiameter);
             } else {
-                pathData = SvgPathUtils.rectanglePath(0, 0, width, height);
+                SvgPathUtils.rectanglePath(path, 0, 0, width, height);
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            svg.append("\" fill-rule=\"evenodd\"/>");
         } else {
             // Exact mode: use native SVG elements
             if (hasHole()) {
                 // Use path for true transparent hole (fill-rule evenodd)
                 double hr = holeDiameter / 2;
                 // Rectangle clockwise, hole circle counter-clockwise
-                String pathData = String.format(java.util.Locale.US,
-                    "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z " +  // Rect CW
-                    "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",  // Circle CCW
-                    -hw, -hh, hw, -hh, hw, hh, -hw, hh,
-                    hr, hr, hr, -hr, hr, hr, hr);
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
+                svg.append("<path id=\"").append(id).append("\" d=\"");
+                PathData path = new PathData(svg, options);
+                SvgPathUtils.rectanglePath(path, 0, 0, width, height);  // Rect CW
+                SvgPathUtils.arcCirclePath(path, hr, 0);  // Circle CCW
+                svg.append("\" fill-rule=\"evenodd\"/>");
             } else {
-                return String.format(java.util.Locale.US,
-                    "<rect id=\"%s\" x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\"/>",
-                    id, -hw, -hh, width, height);
+                SvgNumbers.append(svg.append("<rect id=\"").append(id).append("\" x=\""), -hw, options);
+                SvgNumbers.append(svg.append("\" y=\""), -hh, options);
+                SvgNumbers.append(svg.append("\" width=\""), width, options);
+                SvgNumbers.append(svg.append("\" height=\""), height, options).append("\"/>");
             }
         }
     }
@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * Center line primitive (code 21).
@@ -29,13 +29,13 @@ public class CenterLinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double exp = exposure.evaluate(variables);
-        double w = width.evaluate(variables) * unitFactor;
-        double h = height.evaluate(variables) * unitFactor;
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double exp = exposure.evaluate(registers);
+        double w = width.evaluate(registers) * unitFactor;
+        double h = height.evaluate(registers) * unitFactor;
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         double hw = w / 2;
         double hh = h / 2;
@@ -58,28 +58,31 @@ public class CenterLinePrimitive implements MacroPrimitive {
         String fill = exp >= 1 ? options.getDarkColor() : options.getClearColor();
 
         if (options.isPolygonize()) {
-            String pathData = String.format(Locale.US,
-                "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
-                cornersX[0], cornersY[0], cornersX[1], cornersY[1],
-                cornersX[2], cornersY[2], cornersX[3], cornersY[3]);
+            StringBuilder pathData = new StringBuilder();
+            SvgNumbers.append(pathData, "M ", cornersX[0], cornersY[0]);
+            for (int i = 1; i < 4; i++) {
+                SvgNumbers.append(pathData, " L ", cornersX[i], cornersY[i]);
+            }
+            pathData.append(" Z");
             return String.format(Locale.US, "<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
         } else {
             StringBuilder points = new StringBuilder();
             for (int i = 0; i < 4; i++) {
                 if (i > 0) points.append(" ");
-                points.append(String.format(Locale.US, "%.6f,%.6f", cornersX[i], cornersY[i]));
+                SvgNumbers.append(points, cornersX[i]).append(',');
+                SvgNumbers.append(points, cornersY[i]);
             }
             return String.format(Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", points, fill);
         }
     }
 
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        double w = width.evaluate(variables) * unitFactor;
-        double h = height.evaluate(variables) * unitFactor;
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        double w = width.evaluate(registers) * unitFactor;
+        double h = height.evaluate(registers) * unitFactor;
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         double hw = w / 2;
         double hh = h / 2;
@@ -107,7 +110,7 @@ public class CenterLinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
-        return exposure.evaluate(variables) >= 1;
+    public boolean isExposed(double[] registers) {
+        return exposure.evaluate(registers) >= 1;
     }
 }
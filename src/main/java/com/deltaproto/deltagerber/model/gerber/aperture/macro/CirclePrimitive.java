@@ -1,10 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-import java.util.Locale;
-import java.util.Map;
 
 /**
  * Circle primitive (code 1).
@@ -27,12 +26,12 @@ public class CirclePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double exp = exposure.evaluate(variables);
-        double d = diameter.evaluate(variables) * unitFactor;
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double exp = exposure.evaluate(registers);
+        double d = diameter.evaluate(registers) * unitFactor;
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         // Apply rotation if specified
         if (rot != 0) {
@@ -52,16 +51,20 @@ public class CirclePrimitive implements MacroPrimitive {
             String pathData = SvgPathUtils.circlePath(cx, cy, r, options.getCircleSegments());
             return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
         } else {
-            return String.format(Locale.US, "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, r, fill);
+            StringBuilder svg = new StringBuilder("<circle cx=\"");
+            SvgNumbers.append(svg, cx);
+            SvgNumbers.append(svg.append("\" cy=\""), cy);
+            SvgNumbers.append(svg.append("\" r=\""), r);
+            return svg.append("\" fill=\"").append(fill).append("\"/>").toString();
         }
     }
 
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        double d = diameter.evaluate(variables) * unitFactor;
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        double d = diameter.evaluate(registers) * unitFactor;
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         if (rot != 0) {
             double radians = Math.toRadians(rot);
@@ -78,7 +81,7 @@ public class CirclePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
-        return exposure.evaluate(variables) >= 1;
+    public boolean isExposed(double[] registers) {
+        return exposure.evaluate(registers) >= 1;
     }
 }
@@ -1,141 +1,242 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
  * Evaluates arithmetic expressions in macro definitions.
  * Supports variables ($1, $2, etc.), operators (+, -, x, /), and parentheses.
+ *
+ * <p>The expression is compiled once into a postfix program. Variables are read from a
+ * register file in which index n holds $n; registers beyond the end of the array read
+ * as 0. Constant expressions and single variables are evaluated without running the
+ * program.</p>
  */
 public class MacroExpression {
 
+    // Instruction: opcode in the low bits, operand (constant index or variable number) above
+    private static final int OP_BITS = 3;
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+    private static final int CONST = 0;
+    private static final int VAR = 1;
+    private static final int ADD = 2;
+    private static final int SUB = 3;
+    private static final int MUL = 4;
+    private static final int DIV = 5;
+    private static final int NEG = 6;
+
     private final String expression;
 
+    private int[] code;
+    private double[] constants;
+    private int stackDepth;
+    private int maxVariable;
+    // Set when the expression does not compile; evaluation then throws
+    private String error;
+
     public MacroExpression(String expression) {
         this.expression = expression.trim();
+        compile();
     }
 
     /**
-     * Evaluate the expression with the given variable values.
+     * Evaluate the expression with the given register file, where {@code registers[n]}
+     * holds the value of $n.
      */
-    public double evaluate(Map<Integer, Double> variables) {
-        String expr = substituteVariables(expression, variables);
-        return parseExpression(expr);
+    public double evaluate(double[] registers) {
+        if (error != null) {
+            throw new NumberFormatException(error);
+        }
+        if (code.length == 1) {
+            int instruction = code[0];
+            return (instruction & OP_MASK) == CONST
+                ? constants[instruction >>> OP_BITS]
+                : register(registers, instruction >>> OP_BITS);
+        }
+
+        double[] stack = new double[stackDepth];
+        int top = -1;
+        for (int instruction : code) {
+            switch (instruction & OP_MASK) {
+                case CONST -> stack[++top] = constants[instruction >>> OP_BITS];
+                case VAR -> stack[++top] = register(registers, instruction >>> OP_BITS);
+                case ADD -> { top--; stack[top] = stack[top] + stack[top + 1]; }
+                case SUB -> { top--; stack[top] = stack[top] - stack[top + 1]; }
+                case MUL -> { top--; stack[top] = stack[top] * stack[top + 1]; }
+                case DIV -> { top--; stack[top] = stack[top] / stack[top + 1]; }
+                default -> stack[top] = -stack[top];
+            }
+        }
+        return stack[0];
     }
 
     /**
-     * Parse a constant expression (no variables).
+     * Evaluate a constant expression; variables read as 0.
      */
     public double evaluate() {
-        return parseExpression(expression);
+        return evaluate(new double[0]);
     }
 
-    private String substituteVariables(String expr, Map<Integer, Double> variables) {
-        Pattern varPattern = Pattern.compile("\\$(\\d+)");
-        Matcher matcher = varPattern.matcher(expr);
-        StringBuilder result = new StringBuilder();
-        while (matcher.find()) {
-            int varNum = Integer.parseInt(matcher.group(1));
-            Double value = variables.get(varNum);
-            if (value == null) {
-                value = 0.0;
+    /**
+     * The highest variable number used in the expression, or 0 if it uses none.
+     */
+    public int getMaxVariable() {
+        return maxVariable;
+    }
+
+    private static double register(double[] registers, int variable) {
+        return variable < registers.length ? registers[variable] : 0.0;
+    }
+
+    private void compile() {
+        Compiler compiler = new Compiler(expression);
+        try {
+            if (expression.isEmpty()) {
+                compiler.emitConstant(0);
+            } else {
+                compiler.parseAddSub();
+                if (compiler.pos < expression.length()) {
+                    throw compiler.error();
+                }
             }
-            matcher.appendReplacement(result, String.valueOf(value));
+        } catch (NumberFormatException e) {
+            error = e.getMessage();
         }
-        matcher.appendTail(result);
-        return result.toString();
+        code = Arrays.copyOf(compiler.code, compiler.codeLength);
+        constants = Arrays.copyOf(compiler.constants, compiler.constantCount);
+        stackDepth = Math.max(1, compiler.maxDepth);
+        maxVariable = compiler.maxVariable;
     }
 
-    private double parseExpression(String expr) {
-        expr = expr.trim();
-        if (expr.isEmpty()) {
-            return 0;
+    /**
+     * Recursive descent compiler: sums of products of signed factors, left to right.
+     */
+    private static final class Compiler {
+        private final String text;
+        private int pos;
+
+        private int[] code = new int[8];
+        private int codeLength;
+        private double[] constants = new double[4];
+        private int constantCount;
+        private int depth;
+        private int maxDepth;
+        private int maxVariable;
+
+        Compiler(String text) {
+            this.text = text;
         }
 
-        // Handle parentheses first
-        while (expr.contains("(")) {
-            int start = expr.lastIndexOf("(");
-            int end = expr.indexOf(")", start);
-            if (end == -1) {
-                throw new IllegalArgumentException("Mismatched parentheses: " + expr);
+        void parseAddSub() {
+            parseMulDiv();
+            while (true) {
+                char c = peek();
+                if (c == '+' || c == '-') {
+                    pos++;
+                    parseMulDiv();
+                    emit(c == '+' ? ADD : SUB, 0, -1);
+                } else {
+                    return;
+                }
             }
-            String inner = expr.substring(start + 1, end);
-            double innerResult = parseAddSub(inner);
-            expr = expr.substring(0, start) + innerResult + expr.substring(end + 1);
         }
 
-        return parseAddSub(expr);
-    }
-
-    private double parseAddSub(String expr) {
-        // Find the last + or - at the top level (not inside parentheses)
-        // We search from the end to ensure left-to-right associativity
-        int parenDepth = 0;
-        int lastAddSub = -1;
-        char lastOp = 0;
-
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') parenDepth++;
-            else if (c == '(') parenDepth--;
-            else if (parenDepth == 0 && (c == '+' || c == '-')) {
-                // Check if this is a sign vs operator
-                if (i > 0) {
-                    char prev = expr.charAt(i - 1);
-                    if (prev != 'x' && prev != 'X' && prev != '/' && prev != '+' && prev != '-') {
-                        lastAddSub = i;
-                        lastOp = c;
-                        break;
-                    }
+        private void parseMulDiv() {
+            parseUnary();
+            while (true) {
+                char c = peek();
+                if (c == 'x' || c == 'X' || c == '/') {
+                    pos++;
+                    parseUnary();
+                    emit(c == '/' ? DIV : MUL, 0, -1);
+                } else {
+                    return;
                 }
             }
         }
 
-        if (lastAddSub > 0) {
-            double left = parseAddSub(expr.substring(0, lastAddSub));
-            double right = parseMulDiv(expr.substring(lastAddSub + 1));
-            return lastOp == '+' ? left + right : left - right;
+        private void parseUnary() {
+            char c = peek();
+            if (c == '-') {
+                pos++;
+                parseUnary();
+                emit(NEG, 0, 0);
+            } else if (c == '+') {
+                pos++;
+                parseUnary();
+            } else if (c == '(') {
+                pos++;
+                parseAddSub();
+                if (peek() != ')') {
+                    throw new NumberFormatException("Mismatched parentheses: " + text);
+                }
+                pos++;
+            } else if (c == '$') {
+                int start = ++pos;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == start) {
+                    throw error();
+                }
+                int variable = Integer.parseInt(text.substring(start, pos));
+                maxVariable = Math.max(maxVariable, variable);
+                emit(VAR, variable, 1);
+            } else {
+                parseNumber();
+            }
         }
 
-        return parseMulDiv(expr);
-    }
-
-    private double parseMulDiv(String expr) {
-        // Find the last x or / at the top level
-        int parenDepth = 0;
-        int lastMulDiv = -1;
-        char lastOp = 0;
-
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') parenDepth++;
-            else if (c == '(') parenDepth--;
-            else if (parenDepth == 0 && (c == 'x' || c == 'X' || c == '/')) {
-                lastMulDiv = i;
-                lastOp = c;
-                break;
+        private void parseNumber() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                int exponent = pos + 1;
+                if (exponent < text.length() && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < text.length() && Character.isDigit(text.charAt(exponent))) {
+                    pos = exponent;
+                    while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                        pos++;
+                    }
+                }
+            }
+            if (pos == start) {
+                throw error();
             }
+            emitConstant(Double.parseDouble(text.substring(start, pos)));
         }
 
-        if (lastMulDiv > 0) {
-            double left = parseMulDiv(expr.substring(0, lastMulDiv));
-            double right = parseUnary(expr.substring(lastMulDiv + 1));
-            return (lastOp == 'x' || lastOp == 'X') ? left * right : left / right;
+        void emitConstant(double value) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount] = value;
+            emit(CONST, constantCount++, 1);
         }
 
-        return parseUnary(expr);
-    }
+        private void emit(int op, int operand, int stackEffect) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, codeLength * 2);
+            }
+            code[codeLength++] = op | (operand << OP_BITS);
+            depth += stackEffect;
+            maxDepth = Math.max(maxDepth, depth);
+        }
 
-    private double parseUnary(String expr) {
-        expr = expr.trim();
-        if (expr.startsWith("-")) {
-            return -parseUnary(expr.substring(1));
+        /** Next non-whitespace character, or 0 at the end. */
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
         }
-        if (expr.startsWith("+")) {
-            return parseUnary(expr.substring(1));
+
+        NumberFormatException error() {
+            return new NumberFormatException("Invalid macro expression at " + pos + ": " + text);
         }
-        return Double.parseDouble(expr);
     }
 
     @Override
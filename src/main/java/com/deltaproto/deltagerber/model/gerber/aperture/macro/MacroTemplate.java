@@ -1,9 +1,7 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,6 +14,8 @@ public class MacroTemplate {
     private final String name;
     private final List<MacroPrimitive> primitives;
     private final List<VariableAssignment> assignments;
+    private String body = "";
+    private int maxAssignedVariable;
 
     private static final Pattern VARIABLE_ASSIGN = Pattern.compile("\\$(\\d+)=(.+)");
 
@@ -33,11 +33,20 @@ public class MacroTemplate {
         return primitives;
     }
 
+    /**
+     * The macro body as passed to {@link #parse(String)}, from which the template can be
+     * rebuilt.
+     */
+    public String getBody() {
+        return body;
+    }
+
     /**
      * Parse a macro definition body.
      * Each statement is separated by '*' and can be either a variable assignment or a primitive.
      */
     public void parse(String body) {
+        this.body = this.body.isEmpty() ? body : this.body + "*" + body;
         // Split by '*' but handle multiline macros
         String[] statements = body.split("\\*");
 
@@ -51,6 +60,7 @@ public class MacroTemplate {
                 int varNum = Integer.parseInt(assignMatcher.group(1));
                 String expression = assignMatcher.group(2);
                 assignments.add(new VariableAssignment(varNum, new MacroExpression(expression)));
+                maxAssignedVariable = Math.max(maxAssignedVariable, varNum);
                 continue;
             }
 
@@ -99,22 +109,22 @@ public class MacroTemplate {
 
     /**
      * Evaluate all variable assignments given initial parameter values.
+     * Returns the register file for the primitives: index n holds $n, unset variables are 0.
      */
-    public Map<Integer, Double> evaluateVariables(List<Double> parameters) {
-        Map<Integer, Double> variables = new HashMap<>();
+    public double[] evaluateVariables(List<Double> parameters) {
+        double[] registers = new double[Math.max(parameters.size(), maxAssignedVariable) + 1];
 
         // Initialize with parameters ($1, $2, etc.)
         for (int i = 0; i < parameters.size(); i++) {
-            variables.put(i + 1, parameters.get(i));
+            registers[i + 1] = parameters.get(i);
         }
 
         // Apply assignments in order
         for (VariableAssignment assign : assignments) {
-            double value = assign.expression().evaluate(variables);
-            variables.put(assign.variableNumber(), value);
+            registers[assign.variableNumber()] = assign.expression().evaluate(registers);
         }
 
-        return variables;
+        return registers;
     }
 
     private record VariableAssignment(int variableNumber, MacroExpression expression) {}
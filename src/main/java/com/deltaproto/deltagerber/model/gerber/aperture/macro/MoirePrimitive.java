@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-import java.util.Map;
 
 /**
  * Moire primitive (code 6).
@@ -36,16 +36,16 @@ public class MoirePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double od = outerDiameter.evaluate(variables) * unitFactor;
-        double thick = ringThickness.evaluate(variables) * unitFactor;
-        double gap = ringGap.evaluate(variables) * unitFactor;
-        int rings = (int) maxRings.evaluate(variables);
-        double crossThick = crosshairThickness.evaluate(variables) * unitFactor;
-        double crossLen = crosshairLength.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double od = outerDiameter.evaluate(registers) * unitFactor;
+        double thick = ringThickness.evaluate(registers) * unitFactor;
+        double gap = ringGap.evaluate(registers) * unitFactor;
+        int rings = (int) maxRings.evaluate(registers);
+        double crossThick = crosshairThickness.evaluate(registers) * unitFactor;
+        double crossLen = crosshairLength.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         if (options.isPolygonize()) {
             StringBuilder pathData = new StringBuilder();
@@ -80,7 +80,8 @@ public class MoirePrimitive implements MacroPrimitive {
 
             StringBuilder svg = new StringBuilder();
             if (rot != 0) {
-                svg.append(String.format(java.util.Locale.US, "<g transform=\"rotate(%.6f %.6f %.6f)\">", rot, cx, cy));
+                SvgNumbers.append(svg.append("<g transform=\"rotate("), rot).append(' ');
+                SvgNumbers.append(svg, cx, cy).append(")\">");
                 svg.append(String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"black\" fill-rule=\"evenodd\"/>", pathData));
                 svg.append("</g>");
             } else {
@@ -91,7 +92,8 @@ public class MoirePrimitive implements MacroPrimitive {
             StringBuilder svg = new StringBuilder();
 
             if (rot != 0) {
-                svg.append(String.format(java.util.Locale.US, "<g transform=\"rotate(%.6f %.6f %.6f)\">", rot, cx, cy));
+                SvgNumbers.append(svg.append("<g transform=\"rotate("), rot).append(' ');
+                SvgNumbers.append(svg, cx, cy).append(")\">");
             }
 
             double outerRadius = od / 2;
@@ -101,13 +103,10 @@ public class MoirePrimitive implements MacroPrimitive {
                 double innerRadius = Math.max(0, outerRadius - thick);
 
                 if (innerRadius > 0) {
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"black\"/>", cx, cy, outerRadius));
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"white\"/>", cx, cy, innerRadius));
+                    appendCircle(svg, cx, cy, outerRadius, "black");
+                    appendCircle(svg, cx, cy, innerRadius, "white");
                 } else {
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"black\"/>", cx, cy, outerRadius));
+                    appendCircle(svg, cx, cy, outerRadius, "black");
                 }
 
                 outerRadius = outerRadius - pitch;
@@ -116,12 +115,8 @@ public class MoirePrimitive implements MacroPrimitive {
             if (crossThick > 0 && crossLen > 0) {
                 double hw = crossLen / 2;
                 double hh = crossThick / 2;
-                svg.append(String.format(java.util.Locale.US,
-                    "<rect x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\" fill=\"black\"/>",
-                    cx - hw, cy - hh, crossLen, crossThick));
-                svg.append(String.format(java.util.Locale.US,
-                    "<rect x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\" fill=\"black\"/>",
-                    cx - hh, cy - hw, crossThick, crossLen));
+                appendBlackRect(svg, cx - hw, cy - hh, crossLen, crossThick);
+                appendBlackRect(svg, cx - hh, cy - hw, crossThick, crossLen);
             }
 
             if (rot != 0) {
@@ -132,12 +127,25 @@ public class MoirePrimitive implements MacroPrimitive {
         }
     }
 
+    private static void appendCircle(StringBuilder svg, double cx, double cy, double r, String fill) {
+        SvgNumbers.append(svg.append("<circle cx=\""), cx);
+        SvgNumbers.append(svg.append("\" cy=\""), cy);
+        SvgNumbers.append(svg.append("\" r=\""), r).append("\" fill=\"").append(fill).append("\"/>");
+    }
+
+    private static void appendBlackRect(StringBuilder svg, double x, double y, double width, double height) {
+        SvgNumbers.append(svg.append("<rect x=\""), x);
+        SvgNumbers.append(svg.append("\" y=\""), y);
+        SvgNumbers.append(svg.append("\" width=\""), width);
+        SvgNumbers.append(svg.append("\" height=\""), height).append("\" fill=\"black\"/>");
+    }
+
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double od = outerDiameter.evaluate(variables) * unitFactor;
-        double crossLen = crosshairLength.evaluate(variables) * unitFactor;
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double od = outerDiameter.evaluate(registers) * unitFactor;
+        double crossLen = crosshairLength.evaluate(registers) * unitFactor;
 
         double maxExtent = Math.max(od, crossLen);
         double r = maxExtent / 2;
@@ -145,7 +153,7 @@ public class MoirePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
+    public boolean isExposed(double[] registers) {
         return true;
     }
 }
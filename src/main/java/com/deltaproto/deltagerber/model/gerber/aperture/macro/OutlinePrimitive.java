@@ -1,11 +1,11 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Outline primitive (code 4).
@@ -44,15 +44,15 @@ public class OutlinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double exp = exposure.evaluate(variables);
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double exp = exposure.evaluate(registers);
+        double rot = rotation.evaluate(registers);
 
         List<double[]> points = new ArrayList<>();
         int numPoints = Math.min(verticesX.size(), verticesY.size());
         for (int i = 0; i < numPoints; i++) {
-            double x = verticesX.get(i).evaluate(variables) * unitFactor;
-            double y = verticesY.get(i).evaluate(variables) * unitFactor;
+            double x = verticesX.get(i).evaluate(registers) * unitFactor;
+            double y = verticesY.get(i).evaluate(registers) * unitFactor;
             points.add(new double[]{x, y});
         }
 
@@ -77,21 +77,22 @@ public class OutlinePrimitive implements MacroPrimitive {
             StringBuilder pointsStr = new StringBuilder();
             for (int i = 0; i < points.size() - 1; i++) {
                 if (i > 0) pointsStr.append(" ");
-                pointsStr.append(String.format(java.util.Locale.US, "%.6f,%.6f", points.get(i)[0], points.get(i)[1]));
+                SvgNumbers.append(pointsStr, points.get(i)[0]).append(',');
+                SvgNumbers.append(pointsStr, points.get(i)[1]);
             }
             return String.format(java.util.Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", pointsStr, fill);
         }
     }
 
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        double rot = rotation.evaluate(variables);
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        double rot = rotation.evaluate(registers);
         BoundingBox bbox = new BoundingBox();
 
         int numPoints = Math.min(verticesX.size(), verticesY.size());
         for (int i = 0; i < numPoints; i++) {
-            double x = verticesX.get(i).evaluate(variables) * unitFactor;
-            double y = verticesY.get(i).evaluate(variables) * unitFactor;
+            double x = verticesX.get(i).evaluate(registers) * unitFactor;
+            double y = verticesY.get(i).evaluate(registers) * unitFactor;
 
             if (rot != 0) {
                 double radians = Math.toRadians(rot);
@@ -110,7 +111,7 @@ public class OutlinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
-        return exposure.evaluate(variables) >= 1;
+    public boolean isExposed(double[] registers) {
+        return exposure.evaluate(registers) >= 1;
     }
 }
@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-import java.util.Map;
 
 /**
  * Regular polygon primitive (code 5).
@@ -29,13 +29,13 @@ public class PolygonPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double exp = exposure.evaluate(variables);
-        int n = (int) vertexCount.evaluate(variables);
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double d = diameter.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double exp = exposure.evaluate(registers);
+        int n = (int) vertexCount.evaluate(registers);
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double d = diameter.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         String fill = exp >= 1 ? options.getDarkColor() : options.getClearColor();
 
@@ -51,19 +51,20 @@ public class PolygonPrimitive implements MacroPrimitive {
                 double x = cx + r * Math.cos(angle);
                 double y = cy + r * Math.sin(angle);
                 if (i > 0) points.append(" ");
-                points.append(String.format(java.util.Locale.US, "%.6f,%.6f", x, y));
+                SvgNumbers.append(points, x).append(',');
+                SvgNumbers.append(points, y);
             }
             return String.format(java.util.Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", points, fill);
         }
     }
 
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        int n = (int) vertexCount.evaluate(variables);
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double d = diameter.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        int n = (int) vertexCount.evaluate(registers);
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double d = diameter.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         double r = d / 2;
         double angleStep = 2 * Math.PI / n;
@@ -81,7 +82,7 @@ public class PolygonPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
-        return exposure.evaluate(variables) >= 1;
+    public boolean isExposed(double[] registers) {
+        return exposure.evaluate(registers) >= 1;
     }
 }
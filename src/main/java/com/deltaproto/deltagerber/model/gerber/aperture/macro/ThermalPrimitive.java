@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-import java.util.Map;
 
 /**
  * Thermal primitive (code 7).
@@ -30,13 +30,13 @@ public class ThermalPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double od = outerDiameter.evaluate(variables) * unitFactor;
-        double id = innerDiameter.evaluate(variables) * unitFactor;
-        double gap = gapWidth.evaluate(variables) * unitFactor;
-        double rot = rotation.evaluate(variables);
+    public String toSvg(double[] registers, SvgOptions options, double unitFactor) {
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double od = outerDiameter.evaluate(registers) * unitFactor;
+        double id = innerDiameter.evaluate(registers) * unitFactor;
+        double gap = gapWidth.evaluate(registers) * unitFactor;
+        double rot = rotation.evaluate(registers);
 
         if (options.isPolygonize()) {
             String pathData = SvgPathUtils.thermalPath(cx, cy, od, id, gap, rot, options.getCircleSegments());
@@ -51,16 +51,19 @@ public class ThermalPrimitive implements MacroPrimitive {
             String clipId = String.format(java.util.Locale.US, "thermal-clip-%.0f-%.0f", cx * 1000, cy * 1000);
 
             svg.append(String.format("<defs><clipPath id=\"%s\">", clipId));
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\"/>", cx, cy, or));
+            SvgNumbers.append(svg.append("<circle cx=\""), cx);
+            SvgNumbers.append(svg.append("\" cy=\""), cy);
+            SvgNumbers.append(svg.append("\" r=\""), or).append("\"/>");
             svg.append("</clipPath></defs>");
 
             svg.append(String.format("<g clip-path=\"url(#%s)\">", clipId));
 
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, or, options.getDarkColor()));
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, ir, options.getClearColor()));
+            SvgNumbers.append(svg.append("<circle cx=\""), cx);
+            SvgNumbers.append(svg.append("\" cy=\""), cy);
+            SvgNumbers.append(svg.append("\" r=\""), or).append("\" fill=\"").append(options.getDarkColor()).append("\"/>");
+            SvgNumbers.append(svg.append("<circle cx=\""), cx);
+            SvgNumbers.append(svg.append("\" cy=\""), cy);
+            SvgNumbers.append(svg.append("\" r=\""), ir).append("\" fill=\"").append(options.getClearColor()).append("\"/>");
 
             for (int i = 0; i < 4; i++) {
                 double angle = rotRad + (Math.PI / 2) * i;
@@ -81,10 +84,13 @@ public class ThermalPrimitive implements MacroPrimitive {
                     cornersY[j] = cy + corners[j][0] * sin + corners[j][1] * cos;
                 }
 
-                svg.append(String.format(java.util.Locale.US,
-                    "<polygon points=\"%.6f,%.6f %.6f,%.6f %.6f,%.6f %.6f,%.6f\" fill=\"%s\"/>",
-                    cornersX[0], cornersY[0], cornersX[1], cornersY[1],
-                    cornersX[2], cornersY[2], cornersX[3], cornersY[3], options.getClearColor()));
+                svg.append("<polygon points=\"");
+                for (int j = 0; j < 4; j++) {
+                    if (j > 0) svg.append(' ');
+                    SvgNumbers.append(svg, cornersX[j]).append(',');
+                    SvgNumbers.append(svg, cornersY[j]);
+                }
+                svg.append("\" fill=\"").append(options.getClearColor()).append("\"/>");
             }
 
             svg.append("</g>");
@@ -93,17 +99,17 @@ public class ThermalPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
-        double cx = centerX.evaluate(variables) * unitFactor;
-        double cy = centerY.evaluate(variables) * unitFactor;
-        double od = outerDiameter.evaluate(variables) * unitFactor;
+    public BoundingBox getBoundingBox(double[] registers, double unitFactor) {
+        double cx = centerX.evaluate(registers) * unitFactor;
+        double cy = centerY.evaluate(registers) * unitFactor;
+        double od = outerDiameter.evaluate(registers) * unitFactor;
 
         double r = od / 2;
         return new BoundingBox(cx - r, cy - r, cx + r, cy + r);
     }
 
     @Override
-    public boolean isExposed(Map<Integer, Double> variables) {
+    public boolean isExposed(double[] registers) {
         return true;
     }
 }
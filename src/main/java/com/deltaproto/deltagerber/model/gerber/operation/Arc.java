@@ -1,14 +1,15 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
 import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
-import java.util.Locale;
-
 /**
  * Arc operation (D01 with circular interpolation).
  */
@@ -50,6 +51,24 @@ public class Arc extends GraphicsObject {
         return Math.sqrt(dx * dx + dy * dy);
     }
 
+    /**
+     * Exact for circular apertures; other apertures count with half their largest extent.
+     */
+    @Override
+    public double distanceTo(double x, double y) {
+        return distanceTo(x, y, startX, startY, endX, endY, centerX, centerY, clockwise, aperture);
+    }
+
+    /**
+     * Distance from a point to an arc with the given coordinates, shared with {@link FixedArc}.
+     */
+    static double distanceTo(double x, double y, double startX, double startY, double endX, double endY,
+                             double centerX, double centerY, boolean clockwise, Aperture aperture) {
+        double halfWidth = aperture instanceof CircleAperture circle ? circle.getRadius() : Draw.margin(aperture);
+        double distance = Geometry.arcDistance(x, y, startX, startY, endX, endY, centerX, centerY, clockwise);
+        return Math.max(0, distance - halfWidth);
+    }
+
     @Override
     public BoundingBox getBoundingBox() {
         BoundingBox bounds = new BoundingBox();
@@ -59,15 +78,22 @@ public class Arc extends GraphicsObject {
         bounds.includePoint(centerX + r, centerY + r);
         // Expand by aperture size
         if (aperture != null) {
-            BoundingBox apBounds = aperture.getBoundingBox();
-            double margin = Math.max(apBounds.getWidth(), apBounds.getHeight()) / 2;
-            bounds.expand(margin);
+            bounds.expand(Draw.margin(aperture));
         }
         return bounds;
     }
 
     @Override
-    public String toSvg(SvgOptions options) {
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        appendSvg(svg, startX, startY, endX, endY, centerX, centerY, clockwise, aperture, polarity, options);
+    }
+
+    /**
+     * Append the SVG of an arc with the given coordinates, shared with {@link FixedArc}.
+     */
+    static void appendSvg(StringBuilder svg, double startX, double startY, double endX, double endY,
+                          double centerX, double centerY, boolean clockwise, Aperture aperture,
+                          Polarity polarity, SvgOptions options) {
         String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
         double strokeWidth = 0;
         if (aperture instanceof CircleAperture) {
@@ -76,79 +102,84 @@ public class Arc extends GraphicsObject {
 
         if (options.isPolygonize()) {
             // Polygonized mode: path-based stroked arc (filled polygon approximation)
-            String pathData = SvgPathUtils.strokedArcPath(
+            svg.append("<path d=\"");
+            SvgPathUtils.strokedArcPath(new PathData(svg, options),
                 startX, startY, endX, endY, centerX, centerY, clockwise, strokeWidth);
-            return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, color);
+            svg.append('"');
+            appendFill(svg, color, options);
+            svg.append("/>");
         } else {
             // Exact mode: use native SVG path with arc commands
-            double radius = getRadius();
-
-            // Check for full circle (start == end)
-            double dx = endX - startX;
-            double dy = endY - startY;
-            boolean isFullCircle = Math.sqrt(dx * dx + dy * dy) < 0.0001;
-
-            if (isFullCircle) {
-                // Full circle: SVG arc can't represent this in one arc, use two half-arcs
-                // Calculate the opposite point on the circle
-                double oppositeX = 2 * centerX - startX;
-                double oppositeY = 2 * centerY - startY;
-
-                // sweepFlag: 0=CCW, 1=CW in SVG coordinates
-                // With Y-flip, visual direction inverts, so:
-                // Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
-                int sweepFlag;
-                if (options.isFlipY()) {
-                    sweepFlag = clockwise ? 0 : 1;
-                } else {
-                    sweepFlag = clockwise ? 1 : 0;
-                }
-
-                // Two half-arcs
-                String pathData = String.format(Locale.US,
-                    "M %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f",
-                    startX, startY,
-                    radius, radius, sweepFlag, oppositeX, oppositeY,
-                    radius, radius, sweepFlag, startX, startY);
-
-                return String.format(Locale.US,
-                    "<path d=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                    pathData, color, strokeWidth);
-            }
-
-            // Calculate sweep angle to determine large-arc-flag
-            double startAngle = Math.atan2(startY - centerY, startX - centerX);
-            double endAngle = Math.atan2(endY - centerY, endX - centerX);
-            double sweep;
-            if (clockwise) {
-                sweep = startAngle - endAngle;
-                if (sweep <= 0) sweep += 2 * Math.PI;
-            } else {
-                sweep = endAngle - startAngle;
-                if (sweep <= 0) sweep += 2 * Math.PI;
-            }
-            int largeArcFlag = sweep > Math.PI ? 1 : 0;
-            // sweepFlag: 0=CCW, 1=CW in SVG coordinates
-            // With Y-flip transform, visual direction is inverted:
-            // - SVG CCW (sweep=0) appears CW after flip
-            // - SVG CW (sweep=1) appears CCW after flip
-            // So for flipY: Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
-            int sweepFlag;
-            if (options.isFlipY()) {
-                sweepFlag = clockwise ? 0 : 1;
-            } else {
-                sweepFlag = clockwise ? 1 : 0;
-            }
-
-            // SVG path with arc: M start, A radius radius x-axis-rotation large-arc-flag sweep-flag end
-            String pathData = String.format(Locale.US,
-                "M %.6f %.6f A %.6f %.6f 0 %d %d %.6f %.6f",
-                startX, startY, radius, radius, largeArcFlag, sweepFlag, endX, endY);
-
-            return String.format(Locale.US,
-                "<path d=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                pathData, color, strokeWidth);
+            PathData path = new PathData(svg.append("<path d=\""), options).moveTo(startX, startY);
+            appendArcTo(path, startX, startY, endX, endY, centerX, centerY, clockwise, options);
+            appendStrokeEnd(svg, color, strokeWidth, options);
+        }
+    }
+
+    /**
+     * Append the arc commands of this arc to a path whose current point is its start.
+     * A full circle takes two half arcs, since one SVG arc can't end where it starts.
+     */
+    public void appendArcTo(PathData path, SvgOptions options) {
+        appendArcTo(path, startX, startY, endX, endY, centerX, centerY, clockwise, options);
+    }
+
+    private static void appendArcTo(PathData path, double startX, double startY, double endX, double endY,
+                                    double centerX, double centerY, boolean clockwise, SvgOptions options) {
+        double rx = startX - centerX;
+        double ry = startY - centerY;
+        double radius = Math.sqrt(rx * rx + ry * ry);
+
+        // sweepFlag: 0=CCW, 1=CW in SVG coordinates
+        // With Y-flip transform, visual direction is inverted:
+        // - SVG CCW (sweep=0) appears CW after flip
+        // - SVG CW (sweep=1) appears CCW after flip
+        // So for flipY: Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
+        int sweepFlag;
+        if (options.isFlipY()) {
+            sweepFlag = clockwise ? 0 : 1;
+        } else {
+            sweepFlag = clockwise ? 1 : 0;
         }
+
+        // Check for full circle (start == end)
+        double dx = endX - startX;
+        double dy = endY - startY;
+        if (Math.sqrt(dx * dx + dy * dy) < 0.0001) {
+            // Two half-arcs via the opposite point on the circle
+            double oppositeX = 2 * centerX - startX;
+            double oppositeY = 2 * centerY - startY;
+            path.arcTo(radius, 0, sweepFlag, oppositeX, oppositeY)
+                .arcTo(radius, 0, sweepFlag, startX, startY);
+            return;
+        }
+
+        // Calculate sweep angle to determine large-arc-flag
+        double startAngle = Math.atan2(startY - centerY, startX - centerX);
+        double endAngle = Math.atan2(endY - centerY, endX - centerX);
+        double sweep;
+        if (clockwise) {
+            sweep = startAngle - endAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
+        } else {
+            sweep = endAngle - startAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
+        }
+        int largeArcFlag = sweep > Math.PI ? 1 : 0;
+
+        // A radius large-arc-flag sweep-flag end
+        path.arcTo(radius, largeArcFlag, sweepFlag, endX, endY);
+    }
+
+    /**
+     * Close the path element of an exact-mode arc with its stroke attributes. Compact
+     * output can inherit the stroke color and inherits the round line caps from the root.
+     */
+    private static void appendStrokeEnd(StringBuilder svg, String color, double strokeWidth, SvgOptions options) {
+        svg.append("\" fill=\"none\"");
+        appendStroke(svg, color, options);
+        SvgNumbers.append(svg.append(" stroke-width=\""), strokeWidth, options)
+            .append(options.isCompact() ? "\"/>" : "\" stroke-linecap=\"round\"/>");
     }
 
     @Override
@@ -0,0 +1,518 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Structure-of-arrays store for graphics objects.
+ *
+ * <p>Draws, arcs and untransformed flashes are kept as columns of primitive coordinates
+ * plus an aperture reference, with polarity in a bitset, instead of one heap object each.
+ * Region contours are packed into flat segment arrays. All other objects (transformed
+ * flashes, step-and-repeat blocks) are stored as is. {@link #get(int)} materializes a new
+ * {@link Draw}, {@link Arc}, {@link Flash} or {@link Region} on every
+ * call, so the list is a read-only view: changing a returned object does not change the
+ * store. Objects can only be appended.</p>
+ *
+ * <p>A fixed-point list (see {@link #ColumnarObjectList(boolean)}) stores and materializes
+ * {@link FixedDraw}, {@link FixedArc}, {@link FixedFlash} and {@link FixedRegion} instead,
+ * keeping their nanometres in the same {@code long} columns. A list in mm keeps the raw
+ * bits of its doubles there.</p>
+ */
+public class ColumnarObjectList extends AbstractList<GraphicsObject> implements RandomAccess {
+
+    private static final byte DRAW = 0;
+    private static final byte ARC = 1;
+    private static final byte FLASH = 2;
+    private static final byte REGION = 3;
+    private static final byte OTHER = 4;
+
+    // Shared with FixedContour, whose contours are built from these columns
+    private static final byte SEGMENT_LINE = 0;
+    private static final byte SEGMENT_ARC_CW = 1;
+    private static final byte SEGMENT_ARC_CCW = 2;
+
+    private final boolean fixedPoint;
+
+    // Per object: kind and index into the column of that kind
+    private byte[] kinds = new byte[16];
+    private int[] slots = new int[16];
+    private final BitSet clear = new BitSet();
+    private int size;
+
+    // Coordinates below are nanometres in a fixed-point list, else the bits of mm doubles
+
+    // Draws: startX, startY, endX, endY
+    private long[] drawCoords = new long[64];
+    private Aperture[] drawApertures = new Aperture[16];
+    private int drawCount;
+
+    // Arcs: startX, startY, endX, endY, centerX, centerY
+    private long[] arcCoords = new long[96];
+    private Aperture[] arcApertures = new Aperture[16];
+    private final BitSet arcClockwise = new BitSet();
+    private int arcCount;
+
+    // Flashes: x, y
+    private long[] flashCoords = new long[32];
+    private Aperture[] flashApertures = new Aperture[16];
+    private int flashCount;
+
+    // Regions: first contour of each region; contours: start x/y, first segment and its
+    // offset in segmentCoords; segments: kind, then x, y and for arcs centerX, centerY
+    private int[] regionFirstContour = new int[16];
+    private int regionCount;
+    private long[] contourStarts = new long[32];
+    private int[] contourFirstSegment = new int[16];
+    private int[] contourFirstCoord = new int[16];
+    private int contourCount;
+    private long[] segmentCoords = new long[256];
+    private byte[] segmentKinds = new byte[64];
+    private int segmentCount;
+    private int coordCount;
+
+    private GraphicsObject[] others = new GraphicsObject[16];
+    private int otherCount;
+
+    /**
+     * A list that stores draws, arcs, flashes and regions in mm.
+     */
+    public ColumnarObjectList() {
+        this(false);
+    }
+
+    /**
+     * A list that stores fixed-point objects ({@link FixedDraw} etc.) in its columns if
+     * {@code fixedPoint} is set, else objects in mm. Objects of the other model are stored
+     * as is.
+     */
+    public ColumnarObjectList(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    @Override
+    public boolean add(GraphicsObject obj) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, grow(size));
+            slots = Arrays.copyOf(slots, grow(size));
+        }
+        if (obj.getPolarity() == Polarity.CLEAR) {
+            clear.set(size);
+        }
+
+        Class<?> type = obj.getClass();
+        if (!fixedPoint && type == Draw.class) {
+            Draw draw = (Draw) obj;
+            addDraw(bits(draw.getStartX()), bits(draw.getStartY()), bits(draw.getEndX()), bits(draw.getEndY()),
+                draw.getAperture());
+        } else if (fixedPoint && type == FixedDraw.class) {
+            FixedDraw draw = (FixedDraw) obj;
+            addDraw(draw.getStartXNm(), draw.getStartYNm(), draw.getEndXNm(), draw.getEndYNm(), draw.getAperture());
+        } else if (!fixedPoint && type == Arc.class) {
+            Arc arc = (Arc) obj;
+            addArc(bits(arc.getStartX()), bits(arc.getStartY()), bits(arc.getEndX()), bits(arc.getEndY()),
+                bits(arc.getCenterX()), bits(arc.getCenterY()), arc.isClockwise(), arc.getAperture());
+        } else if (fixedPoint && type == FixedArc.class) {
+            FixedArc arc = (FixedArc) obj;
+            addArc(arc.getStartXNm(), arc.getStartYNm(), arc.getEndXNm(), arc.getEndYNm(),
+                arc.getCenterXNm(), arc.getCenterYNm(), arc.isClockwise(), arc.getAperture());
+        } else if (!fixedPoint && type == Flash.class && isUntransformed((Flash) obj)) {
+            Flash flash = (Flash) obj;
+            addFlash(bits(flash.getX()), bits(flash.getY()), flash.getAperture());
+        } else if (fixedPoint && type == FixedFlash.class && isUntransformed((FixedFlash) obj)) {
+            FixedFlash flash = (FixedFlash) obj;
+            addFlash(flash.getXNm(), flash.getYNm(), flash.getAperture());
+        } else if (!fixedPoint && type == Region.class) {
+            addRegion((Region) obj);
+        } else if (fixedPoint && type == FixedRegion.class) {
+            addRegion((FixedRegion) obj);
+        } else {
+            if (otherCount == others.length) {
+                others = Arrays.copyOf(others, grow(otherCount));
+            }
+            others[otherCount] = obj;
+            append(OTHER, otherCount++);
+        }
+        modCount++;
+        return true;
+    }
+
+    private void addDraw(long startX, long startY, long endX, long endY, Aperture aperture) {
+        if (drawCount == drawApertures.length) {
+            drawApertures = Arrays.copyOf(drawApertures, grow(drawCount));
+            drawCoords = Arrays.copyOf(drawCoords, grow(drawCount) * 4);
+        }
+        int c = drawCount * 4;
+        drawCoords[c] = startX;
+        drawCoords[c + 1] = startY;
+        drawCoords[c + 2] = endX;
+        drawCoords[c + 3] = endY;
+        drawApertures[drawCount] = aperture;
+        append(DRAW, drawCount++);
+    }
+
+    private void addArc(long startX, long startY, long endX, long endY, long centerX, long centerY,
+                        boolean clockwise, Aperture aperture) {
+        if (arcCount == arcApertures.length) {
+            arcApertures = Arrays.copyOf(arcApertures, grow(arcCount));
+            arcCoords = Arrays.copyOf(arcCoords, grow(arcCount) * 6);
+        }
+        int c = arcCount * 6;
+        arcCoords[c] = startX;
+        arcCoords[c + 1] = startY;
+        arcCoords[c + 2] = endX;
+        arcCoords[c + 3] = endY;
+        arcCoords[c + 4] = centerX;
+        arcCoords[c + 5] = centerY;
+        arcApertures[arcCount] = aperture;
+        if (clockwise) {
+            arcClockwise.set(arcCount);
+        }
+        append(ARC, arcCount++);
+    }
+
+    private void addFlash(long x, long y, Aperture aperture) {
+        if (flashCount == flashApertures.length) {
+            flashApertures = Arrays.copyOf(flashApertures, grow(flashCount));
+            flashCoords = Arrays.copyOf(flashCoords, grow(flashCount) * 2);
+        }
+        flashCoords[flashCount * 2] = x;
+        flashCoords[flashCount * 2 + 1] = y;
+        flashApertures[flashCount] = aperture;
+        append(FLASH, flashCount++);
+    }
+
+    private void addRegion(Region region) {
+        startRegion();
+        for (Contour contour : region.getContours()) {
+            startContour(bits(contour.getStartX()), bits(contour.getStartY()));
+            for (Contour.ContourSegment seg : contour.getSegments()) {
+                addSegment(!seg.isArc() ? SEGMENT_LINE : seg.isClockwise() ? SEGMENT_ARC_CW : SEGMENT_ARC_CCW,
+                    bits(seg.getX()), bits(seg.getY()), bits(seg.getCenterX()), bits(seg.getCenterY()));
+            }
+        }
+        append(REGION, regionCount++);
+    }
+
+    private void addRegion(FixedRegion region) {
+        startRegion();
+        for (FixedContour contour : region.getContours()) {
+            startContour(contour.getStartXNm(), contour.getStartYNm());
+            for (int i = 0; i < contour.getSegmentCount(); i++) {
+                addSegment(!contour.isArc(i) ? SEGMENT_LINE : contour.isClockwise(i) ? SEGMENT_ARC_CW : SEGMENT_ARC_CCW,
+                    contour.getXNm(i), contour.getYNm(i), contour.getCenterXNm(i), contour.getCenterYNm(i));
+            }
+        }
+        append(REGION, regionCount++);
+    }
+
+    private void startRegion() {
+        if (regionCount == regionFirstContour.length) {
+            regionFirstContour = Arrays.copyOf(regionFirstContour, grow(regionCount));
+        }
+        regionFirstContour[regionCount] = contourCount;
+    }
+
+    private void startContour(long startX, long startY) {
+        if (contourCount == contourFirstSegment.length) {
+            contourFirstSegment = Arrays.copyOf(contourFirstSegment, grow(contourCount));
+            contourFirstCoord = Arrays.copyOf(contourFirstCoord, grow(contourCount));
+            contourStarts = Arrays.copyOf(contourStarts, grow(contourCount) * 2);
+        }
+        contourStarts[contourCount * 2] = startX;
+        contourStarts[contourCount * 2 + 1] = startY;
+        contourFirstCoord[contourCount] = coordCount;
+        contourFirstSegment[contourCount++] = segmentCount;
+    }
+
+    private void addSegment(byte kind, long x, long y, long centerX, long centerY) {
+        if (segmentCount == segmentKinds.length) {
+            segmentKinds = Arrays.copyOf(segmentKinds, grow(segmentCount));
+        }
+        if (coordCount + 4 > segmentCoords.length) {
+            segmentCoords = Arrays.copyOf(segmentCoords, grow(segmentCoords.length));
+        }
+        segmentCoords[coordCount++] = x;
+        segmentCoords[coordCount++] = y;
+        if (kind != SEGMENT_LINE) {
+            segmentCoords[coordCount++] = centerX;
+            segmentCoords[coordCount++] = centerY;
+        }
+        segmentKinds[segmentCount++] = kind;
+    }
+
+    private int contourEnd(int region) {
+        return region + 1 < regionCount ? regionFirstContour[region + 1] : contourCount;
+    }
+
+    private int segmentEnd(int contour) {
+        return contour + 1 < contourCount ? contourFirstSegment[contour + 1] : segmentCount;
+    }
+
+    private Region materializeRegion(int region) {
+        Region result = new Region();
+        for (int k = regionFirstContour[region]; k < contourEnd(region); k++) {
+            Contour contour = new Contour(mm(contourStarts[k * 2]), mm(contourStarts[k * 2 + 1]));
+            int c = contourFirstCoord[k];
+            for (int n = contourFirstSegment[k]; n < segmentEnd(k); n++) {
+                if (segmentKinds[n] == SEGMENT_LINE) {
+                    contour.addLineTo(mm(segmentCoords[c]), mm(segmentCoords[c + 1]));
+                    c += 2;
+                } else {
+                    contour.addArcTo(mm(segmentCoords[c]), mm(segmentCoords[c + 1]),
+                        mm(segmentCoords[c + 2]), mm(segmentCoords[c + 3]), segmentKinds[n] == SEGMENT_ARC_CW);
+                    c += 4;
+                }
+            }
+            result.addContour(contour);
+        }
+        return result;
+    }
+
+    private FixedRegion materializeFixedRegion(int region) {
+        List<FixedContour> contours = new ArrayList<>(contourEnd(region) - regionFirstContour[region]);
+        for (int k = regionFirstContour[region]; k < contourEnd(region); k++) {
+            int first = contourFirstSegment[k];
+            long[] points = new long[(segmentEnd(k) - first) * 4];
+            byte[] kinds = new byte[segmentEnd(k) - first];
+            int c = contourFirstCoord[k];
+            for (int n = first; n < segmentEnd(k); n++) {
+                int p = (n - first) * 4;
+                points[p] = segmentCoords[c];
+                points[p + 1] = segmentCoords[c + 1];
+                if (segmentKinds[n] == SEGMENT_LINE) {
+                    c += 2;
+                } else {
+                    points[p + 2] = segmentCoords[c + 2];
+                    points[p + 3] = segmentCoords[c + 3];
+                    c += 4;
+                }
+                kinds[n - first] = segmentKinds[n];
+            }
+            contours.add(new FixedContour(contourStarts[k * 2], contourStarts[k * 2 + 1], points, kinds));
+        }
+        return new FixedRegion(contours);
+    }
+
+    private static long bits(double mm) {
+        return Double.doubleToRawLongBits(mm);
+    }
+
+    /**
+     * A stored coordinate in mm.
+     */
+    private double mm(long stored) {
+        return fixedPoint ? FixedPoint.toMm(stored) : Double.longBitsToDouble(stored);
+    }
+
+    /**
+     * A stored coordinate in its own unit, nanometres or mm, for bounds that are computed
+     * like the objects' own.
+     */
+    private double value(long stored) {
+        return fixedPoint ? stored : Double.longBitsToDouble(stored);
+    }
+
+    /**
+     * A value in the stored unit converted to mm.
+     */
+    private double toMm(double value) {
+        return fixedPoint ? FixedPoint.toMm(value) : value;
+    }
+
+    private static int grow(int length) {
+        return Math.max(16, length * 2);
+    }
+
+    private void append(byte kind, int slot) {
+        kinds[size] = kind;
+        slots[size] = slot;
+        size++;
+    }
+
+    private static boolean isUntransformed(Flash flash) {
+        return flash.getRotation() == 0 && flash.getScale() == 1.0 && !flash.isMirrorX() && !flash.isMirrorY();
+    }
+
+    private static boolean isUntransformed(FixedFlash flash) {
+        return flash.getRotation() == 0 && flash.getScale() == 1.0 && !flash.isMirrorX() && !flash.isMirrorY();
+    }
+
+    /**
+     * Shrink the columns to their used length, releasing the slack left by growth.
+     */
+    public void trimToSize() {
+        kinds = Arrays.copyOf(kinds, size);
+        slots = Arrays.copyOf(slots, size);
+        drawCoords = Arrays.copyOf(drawCoords, drawCount * 4);
+        drawApertures = Arrays.copyOf(drawApertures, drawCount);
+        arcCoords = Arrays.copyOf(arcCoords, arcCount * 6);
+        arcApertures = Arrays.copyOf(arcApertures, arcCount);
+        flashCoords = Arrays.copyOf(flashCoords, flashCount * 2);
+        flashApertures = Arrays.copyOf(flashApertures, flashCount);
+        regionFirstContour = Arrays.copyOf(regionFirstContour, regionCount);
+        contourStarts = Arrays.copyOf(contourStarts, contourCount * 2);
+        contourFirstSegment = Arrays.copyOf(contourFirstSegment, contourCount);
+        contourFirstCoord = Arrays.copyOf(contourFirstCoord, contourCount);
+        segmentCoords = Arrays.copyOf(segmentCoords, coordCount);
+        segmentKinds = Arrays.copyOf(segmentKinds, segmentCount);
+        others = Arrays.copyOf(others, otherCount);
+    }
+
+    @Override
+    public GraphicsObject get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int slot = slots[index];
+        GraphicsObject obj;
+        switch (kinds[index]) {
+            case DRAW -> {
+                int c = slot * 4;
+                obj = fixedPoint
+                    ? new FixedDraw(drawCoords[c], drawCoords[c + 1], drawCoords[c + 2], drawCoords[c + 3],
+                        drawApertures[slot])
+                    : new Draw(mm(drawCoords[c]), mm(drawCoords[c + 1]), mm(drawCoords[c + 2]), mm(drawCoords[c + 3]),
+                        drawApertures[slot]);
+            }
+            case ARC -> {
+                int c = slot * 6;
+                obj = fixedPoint
+                    ? new FixedArc(arcCoords[c], arcCoords[c + 1], arcCoords[c + 2], arcCoords[c + 3],
+                        arcCoords[c + 4], arcCoords[c + 5], arcClockwise.get(slot), arcApertures[slot])
+                    : new Arc(mm(arcCoords[c]), mm(arcCoords[c + 1]), mm(arcCoords[c + 2]), mm(arcCoords[c + 3]),
+                        mm(arcCoords[c + 4]), mm(arcCoords[c + 5]), arcClockwise.get(slot), arcApertures[slot]);
+            }
+            case FLASH -> obj = fixedPoint
+                ? new FixedFlash(flashCoords[slot * 2], flashCoords[slot * 2 + 1], flashApertures[slot])
+                : new Flash(mm(flashCoords[slot * 2]), mm(flashCoords[slot * 2 + 1]), flashApertures[slot]);
+            case REGION -> obj = fixedPoint ? materializeFixedRegion(slot) : materializeRegion(slot);
+            default -> {
+                return others[slot];
+            }
+        }
+        obj.setPolarity(clear.get(index) ? Polarity.CLEAR : Polarity.DARK);
+        return obj;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bounding box of all objects, computed straight from the columns without a
+     * {@link BoundingBox} per object. Gives the same result as including every
+     * object's {@link GraphicsObject#getBoundingBox()}.
+     */
+    public BoundingBox calculateBoundingBox() {
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        // Consecutive objects mostly share an aperture, so remember the last one's bounds
+        Aperture lastAperture = null;
+        BoundingBox apBounds = null;
+
+        for (int i = 0; i < size; i++) {
+            int slot = slots[i];
+            switch (kinds[i]) {
+                case DRAW -> {
+                    Aperture aperture = drawApertures[slot];
+                    if (aperture != lastAperture) {
+                        lastAperture = aperture;
+                        apBounds = aperture.getSharedBoundingBox();
+                    }
+                    double margin = Math.max(apBounds.getWidth(), apBounds.getHeight()) / 2;
+                    int c = slot * 4;
+                    include(box,
+                        toMm(Math.min(value(drawCoords[c]), value(drawCoords[c + 2]))) - margin,
+                        toMm(Math.min(value(drawCoords[c + 1]), value(drawCoords[c + 3]))) - margin,
+                        toMm(Math.max(value(drawCoords[c]), value(drawCoords[c + 2]))) + margin,
+                        toMm(Math.max(value(drawCoords[c + 1]), value(drawCoords[c + 3]))) + margin);
+                }
+                case ARC -> {
+                    int c = slot * 6;
+                    double centerX = value(arcCoords[c + 4]);
+                    double centerY = value(arcCoords[c + 5]);
+                    double dx = value(arcCoords[c]) - centerX;
+                    double dy = value(arcCoords[c + 1]) - centerY;
+                    double r = Math.sqrt(dx * dx + dy * dy);
+                    double margin = 0;
+                    Aperture aperture = arcApertures[slot];
+                    if (aperture != null) {
+                        if (aperture != lastAperture) {
+                            lastAperture = aperture;
+                            apBounds = aperture.getSharedBoundingBox();
+                        }
+                        margin = Math.max(apBounds.getWidth(), apBounds.getHeight()) / 2;
+                    }
+                    include(box,
+                        toMm(centerX - r) - margin, toMm(centerY - r) - margin,
+                        toMm(centerX + r) + margin, toMm(centerY + r) + margin);
+                }
+                case FLASH -> {
+                    Aperture aperture = flashApertures[slot];
+                    if (aperture != lastAperture) {
+                        lastAperture = aperture;
+                        apBounds = aperture.getSharedBoundingBox();
+                    }
+                    double x = mm(flashCoords[slot * 2]);
+                    double y = mm(flashCoords[slot * 2 + 1]);
+                    include(box, x + apBounds.getMinX(), y + apBounds.getMinY(),
+                        x + apBounds.getMaxX(), y + apBounds.getMaxY());
+                }
+                case REGION -> {
+                    for (int k = regionFirstContour[slot]; k < contourEnd(slot); k++) {
+                        double startX = mm(contourStarts[k * 2]);
+                        double startY = mm(contourStarts[k * 2 + 1]);
+                        include(box, startX, startY, startX, startY);
+                        int c = contourFirstCoord[k];
+                        for (int n = contourFirstSegment[k]; n < segmentEnd(k); n++) {
+                            double x = mm(segmentCoords[c]);
+                            double y = mm(segmentCoords[c + 1]);
+                            include(box, x, y, x, y);
+                            if (segmentKinds[n] != SEGMENT_LINE) {
+                                double centerX = value(segmentCoords[c + 2]);
+                                double centerY = value(segmentCoords[c + 3]);
+                                double dx = value(segmentCoords[c]) - centerX;
+                                double dy = value(segmentCoords[c + 1]) - centerY;
+                                double r = Math.sqrt(dx * dx + dy * dy);
+                                include(box, toMm(centerX - r), toMm(centerY - r),
+                                    toMm(centerX + r), toMm(centerY + r));
+                                c += 4;
+                            } else {
+                                c += 2;
+                            }
+                        }
+                    }
+                }
+                default -> {
+                    BoundingBox b = others[slot].getBoundingBox();
+                    if (b.isValid()) {
+                        include(box, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+                    }
+                }
+            }
+        }
+        return new BoundingBox(box[0], box[1], box[2], box[3]);
+    }
+
+    private static void include(double[] box, double minX, double minY, double maxX, double maxY) {
+        box[0] = Math.min(box[0], minX);
+        box[1] = Math.min(box[1], minY);
+        box[2] = Math.max(box[2], maxX);
+        box[3] = Math.max(box[3], maxY);
+    }
+}
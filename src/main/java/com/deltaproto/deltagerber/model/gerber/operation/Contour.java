@@ -1,17 +1,13 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
-import com.deltaproto.deltagerber.model.gerber.BoundingBox;
-import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
-
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * A contour is a closed path of segments (lines and arcs).
  * Used within regions.
  */
-public class Contour {
+public class Contour extends ContourGeometry {
 
     private final List<ContourSegment> segments = new ArrayList<>();
     private double startX;
@@ -42,100 +38,49 @@ public class Contour {
         return startY;
     }
 
-    public BoundingBox getBoundingBox() {
-        BoundingBox bounds = new BoundingBox();
-        bounds.includePoint(startX, startY);
-        for (ContourSegment seg : segments) {
-            bounds.includePoint(seg.getX(), seg.getY());
-            if (seg.isArc()) {
-                // Include arc center +/- radius for approximation
-                double dx = seg.getX() - seg.getCenterX();
-                double dy = seg.getY() - seg.getCenterY();
-                double r = Math.sqrt(dx * dx + dy * dy);
-                bounds.includePoint(seg.getCenterX() - r, seg.getCenterY() - r);
-                bounds.includePoint(seg.getCenterX() + r, seg.getCenterY() + r);
-            }
-        }
-        return bounds;
+    @Override
+    double startX() {
+        return startX;
     }
 
-    /**
-     * Generate SVG path with default (exact) options.
-     */
-    public String toSvgPath() {
-        return toSvgPath(SvgOptions.exact());
+    @Override
+    double startY() {
+        return startY;
     }
 
-    /**
-     * Generate SVG path with specified options.
-     */
-    public String toSvgPath(SvgOptions options) {
-        StringBuilder path = new StringBuilder();
-        path.append(String.format(Locale.US, "M %.6f %.6f", startX, startY));
+    @Override
+    int segmentCount() {
+        return segments.size();
+    }
 
-        double currentX = startX;
-        double currentY = startY;
+    @Override
+    double x(int segment) {
+        return segments.get(segment).getX();
+    }
 
-        for (ContourSegment seg : segments) {
-            if (seg.isArc()) {
-                double dx = currentX - seg.getCenterX();
-                double dy = currentY - seg.getCenterY();
-                double r = Math.sqrt(dx * dx + dy * dy);
-
-                double startAngle = Math.atan2(dy, dx);
-                double endDx = seg.getX() - seg.getCenterX();
-                double endDy = seg.getY() - seg.getCenterY();
-                double endAngle = Math.atan2(endDy, endDx);
-
-                // Calculate sweep angle
-                double sweep;
-                if (seg.isClockwise()) {
-                    sweep = startAngle - endAngle;
-                    if (sweep <= 0) sweep += 2 * Math.PI;
-                } else {
-                    sweep = endAngle - startAngle;
-                    if (sweep <= 0) sweep += 2 * Math.PI;
-                }
-
-                if (options.isPolygonize()) {
-                    // Polygonized mode: approximate arc with line segments
-                    int arcSegments = Math.max(8, (int) (sweep * r * 10));
-                    for (int i = 1; i <= arcSegments; i++) {
-                        double t = (double) i / arcSegments;
-                        double angle;
-                        if (seg.isClockwise()) {
-                            angle = startAngle - sweep * t;
-                        } else {
-                            angle = startAngle + sweep * t;
-                        }
-                        double x = seg.getCenterX() + r * Math.cos(angle);
-                        double y = seg.getCenterY() + r * Math.sin(angle);
-                        path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-                    }
-                } else {
-                    // Exact mode: use SVG arc command
-                    int largeArcFlag = sweep > Math.PI ? 1 : 0;
-                    // sweepFlag: 0=CCW, 1=CW in SVG coordinates
-                    // With Y-flip, visual direction inverts, so:
-                    // Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
-                    int sweepFlag;
-                    if (options.isFlipY()) {
-                        sweepFlag = seg.isClockwise() ? 0 : 1;
-                    } else {
-                        sweepFlag = seg.isClockwise() ? 1 : 0;
-                    }
-                    path.append(String.format(Locale.US, " A %.6f %.6f 0 %d %d %.6f %.6f",
-                        r, r, largeArcFlag, sweepFlag, seg.getX(), seg.getY()));
-                }
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", seg.getX(), seg.getY()));
-            }
-            currentX = seg.getX();
-            currentY = seg.getY();
-        }
+    @Override
+    double y(int segment) {
+        return segments.get(segment).getY();
+    }
+
+    @Override
+    double centerX(int segment) {
+        return segments.get(segment).getCenterX();
+    }
+
+    @Override
+    double centerY(int segment) {
+        return segments.get(segment).getCenterY();
+    }
+
+    @Override
+    boolean isArc(int segment) {
+        return segments.get(segment).isArc();
+    }
 
-        path.append(" Z");
-        return path.toString();
+    @Override
+    boolean isClockwise(int segment) {
+        return segments.get(segment).isClockwise();
     }
 
     public Contour translate(double offsetX, double offsetY) {
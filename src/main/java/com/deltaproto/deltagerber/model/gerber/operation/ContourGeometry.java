@@ -0,0 +1,246 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+import com.deltaproto.deltagerber.renderer.svg.LevelOfDetail;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.Arrays;
+
+/**
+ * Bounds, outline and SVG path of a closed contour, read through its vertices in mm.
+ * Shared by {@link Contour} and {@link FixedContour}, so a fixed-point contour is written
+ * without first building a copy in mm.
+ */
+abstract class ContourGeometry {
+
+    abstract double startX();
+
+    abstract double startY();
+
+    abstract int segmentCount();
+
+    /** End point of a segment, in mm. */
+    abstract double x(int segment);
+
+    abstract double y(int segment);
+
+    /** Arc centre of a segment, in mm; only meaningful for arcs. */
+    abstract double centerX(int segment);
+
+    abstract double centerY(int segment);
+
+    abstract boolean isArc(int segment);
+
+    abstract boolean isClockwise(int segment);
+
+    public BoundingBox getBoundingBox() {
+        BoundingBox bounds = new BoundingBox();
+        bounds.includePoint(startX(), startY());
+        for (int s = 0; s < segmentCount(); s++) {
+            bounds.includePoint(x(s), y(s));
+            if (isArc(s)) {
+                // Include arc center +/- radius for approximation
+                double dx = x(s) - centerX(s);
+                double dy = y(s) - centerY(s);
+                double r = Math.sqrt(dx * dx + dy * dy);
+                bounds.includePoint(centerX(s) - r, centerY(s) - r);
+                bounds.includePoint(centerX(s) + r, centerY(s) + r);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * The outline as the x/y pairs of a closed polygon, with arcs flattened to chords of
+     * at most two degrees.
+     */
+    public double[] toRing() {
+        int values = 2;
+        double x = startX();
+        double y = startY();
+        for (int s = 0; s < segmentCount(); s++) {
+            values += 2 * arcSteps(s, x, y);
+            x = x(s);
+            y = y(s);
+        }
+        double[] ring = new double[values];
+        ring[0] = startX();
+        ring[1] = startY();
+        int n = 2;
+        x = startX();
+        y = startY();
+        for (int s = 0; s < segmentCount(); s++) {
+            int steps = arcSteps(s, x, y);
+            if (steps > 1) {
+                double sweep = Geometry.arcSweep(x, y, x(s), y(s), centerX(s), centerY(s), isClockwise(s));
+                double r = Math.hypot(x - centerX(s), y - centerY(s));
+                double startAngle = Math.atan2(y - centerY(s), x - centerX(s));
+                for (int i = 1; i < steps; i++) {
+                    double angle = startAngle + (isClockwise(s) ? -sweep : sweep) * i / steps;
+                    ring[n++] = centerX(s) + r * Math.cos(angle);
+                    ring[n++] = centerY(s) + r * Math.sin(angle);
+                }
+            }
+            ring[n++] = x(s);
+            ring[n++] = y(s);
+            x = x(s);
+            y = y(s);
+        }
+        return ring;
+    }
+
+    private int arcSteps(int segment, double fromX, double fromY) {
+        if (!isArc(segment)) {
+            return 1;
+        }
+        double sweep = Geometry.arcSweep(fromX, fromY, x(segment), y(segment),
+            centerX(segment), centerY(segment), isClockwise(segment));
+        return (int) Math.ceil(sweep / Math.toRadians(2));
+    }
+
+    /**
+     * Generate SVG path with default (exact) options.
+     */
+    public String toSvgPath() {
+        return toSvgPath(SvgOptions.exact());
+    }
+
+    /**
+     * Generate SVG path with specified options. With a level-of-detail resolution set
+     * (see {@link SvgOptions#getMmPerPixel()}), line vertices within
+     * {@link LevelOfDetail#SIMPLIFY_TOLERANCE_PX} of the edge that skips them are left out.
+     */
+    public String toSvgPath(SvgOptions options) {
+        StringBuilder path = new StringBuilder();
+        appendSvgPath(path, options);
+        return path.toString();
+    }
+
+    /**
+     * Append the SVG path data of {@link #toSvgPath(SvgOptions)} to {@code path}.
+     */
+    public void appendSvgPath(StringBuilder path, SvgOptions options) {
+        appendSvgPath(new PathData(path, options), options);
+    }
+
+    /**
+     * Write the SVG path data of {@link #toSvgPath(SvgOptions)} to {@code path}, e.g. as
+     * one of several subpaths of a region.
+     */
+    public void appendSvgPath(PathData path, SvgOptions options) {
+        path.moveTo(startX(), startY());
+
+        double currentX = startX();
+        double currentY = startY();
+        boolean[] kept = keptVertices(options.getMmPerPixel() * LevelOfDetail.SIMPLIFY_TOLERANCE_PX);
+
+        for (int s = 0; s < segmentCount(); s++) {
+            if (!kept[s]) {
+                continue;
+            }
+            double segX = x(s);
+            double segY = y(s);
+            if (isArc(s)) {
+                double segCenterX = centerX(s);
+                double segCenterY = centerY(s);
+                double dx = currentX - segCenterX;
+                double dy = currentY - segCenterY;
+                double r = Math.sqrt(dx * dx + dy * dy);
+
+                double startAngle = Math.atan2(dy, dx);
+                double endDx = segX - segCenterX;
+                double endDy = segY - segCenterY;
+                double endAngle = Math.atan2(endDy, endDx);
+
+                // Calculate sweep angle
+                double sweep;
+                if (isClockwise(s)) {
+                    sweep = startAngle - endAngle;
+                    if (sweep <= 0) sweep += 2 * Math.PI;
+                } else {
+                    sweep = endAngle - startAngle;
+                    if (sweep <= 0) sweep += 2 * Math.PI;
+                }
+
+                if (options.isPolygonize()) {
+                    // Polygonized mode: approximate arc with line segments
+                    int arcSegments = Math.max(8, (int) (sweep * r * 10));
+                    for (int i = 1; i <= arcSegments; i++) {
+                        double t = (double) i / arcSegments;
+                        double angle;
+                        if (isClockwise(s)) {
+                            angle = startAngle - sweep * t;
+                        } else {
+                            angle = startAngle + sweep * t;
+                        }
+                        double x = segCenterX + r * Math.cos(angle);
+                        double y = segCenterY + r * Math.sin(angle);
+                        path.lineTo(x, y);
+                    }
+                } else {
+                    // Exact mode: use SVG arc command
+                    int largeArcFlag = sweep > Math.PI ? 1 : 0;
+                    // sweepFlag: 0=CCW, 1=CW in SVG coordinates
+                    // With Y-flip, visual direction inverts, so:
+                    // Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
+                    int sweepFlag;
+                    if (options.isFlipY()) {
+                        sweepFlag = isClockwise(s) ? 0 : 1;
+                    } else {
+                        sweepFlag = isClockwise(s) ? 1 : 0;
+                    }
+                    path.arcTo(r, largeArcFlag, sweepFlag, segX, segY);
+                }
+            } else {
+                path.lineTo(segX, segY);
+            }
+            currentX = segX;
+            currentY = segY;
+        }
+
+        path.close();
+    }
+
+    // Longest run of vertices dropped in a row, which bounds the work per vertex
+    private static final int MAX_DROPPED_RUN = 64;
+
+    /**
+     * Which segments keep their end vertex when straight runs are simplified to within a
+     * tolerance: a line vertex is dropped when it and the vertices dropped before it lie
+     * within the tolerance of the edge from the last kept vertex to the next one. Arc
+     * segments and their end points are always kept.
+     */
+    private boolean[] keptVertices(double tolerance) {
+        int n = segmentCount();
+        boolean[] kept = new boolean[n];
+        Arrays.fill(kept, true);
+        if (tolerance <= 0) {
+            return kept;
+        }
+        double keptX = startX();
+        double keptY = startY();
+        int firstDropped = -1;
+        for (int i = 0; i < n; i++) {
+            boolean droppable = !isArc(i) && i + 1 < n && !isArc(i + 1)
+                && (firstDropped < 0 || i - firstDropped < MAX_DROPPED_RUN);
+            if (droppable) {
+                double nextX = x(i + 1);
+                double nextY = y(i + 1);
+                for (int j = firstDropped < 0 ? i : firstDropped; j <= i && droppable; j++) {
+                    droppable = Geometry.segmentDistance(x(j), y(j), keptX, keptY, nextX, nextY) <= tolerance;
+                }
+            }
+            if (droppable) {
+                kept[i] = false;
+                if (firstDropped < 0) firstDropped = i;
+            } else {
+                keptX = x(i);
+                keptY = y(i);
+                firstDropped = -1;
+            }
+        }
+        return kept;
+    }
+}
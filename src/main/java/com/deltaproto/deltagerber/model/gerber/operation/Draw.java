@@ -1,15 +1,16 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
 import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
 import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
-import java.util.Locale;
-
 /**
  * Draw operation (D01 with linear interpolation) - draws a line with aperture.
  */
@@ -55,14 +56,54 @@ public class Draw extends GraphicsObject {
         bounds.includePoint(startX, startY);
         bounds.includePoint(endX, endY);
         // Expand by aperture size
-        BoundingBox apBounds = aperture.getBoundingBox();
-        double margin = Math.max(apBounds.getWidth(), apBounds.getHeight()) / 2;
-        bounds.expand(margin);
+        bounds.expand(margin(aperture));
         return bounds;
     }
 
+    /**
+     * Half the largest extent of an aperture, by which a stroke reaches past its centre line.
+     */
+    static double margin(Aperture aperture) {
+        BoundingBox apBounds = aperture.getSharedBoundingBox();
+        return Math.max(apBounds.getWidth(), apBounds.getHeight()) / 2;
+    }
+
+    /**
+     * Exact for circular and rectangular apertures; other apertures sweep their bounding box.
+     */
     @Override
-    public String toSvg(SvgOptions options) {
+    public double distanceTo(double x, double y) {
+        return distanceTo(x, y, startX, startY, endX, endY, aperture);
+    }
+
+    /**
+     * Distance from a point to a draw with the given coordinates, shared with {@link FixedDraw}.
+     */
+    static double distanceTo(double x, double y, double startX, double startY, double endX, double endY,
+                             Aperture aperture) {
+        if (aperture instanceof CircleAperture circle) {
+            return Math.max(0, Geometry.segmentDistance(x, y, startX, startY, endX, endY) - circle.getRadius());
+        }
+        // The area swept by a convex aperture is the hull of its outline at both ends
+        BoundingBox ap = aperture.getSharedBoundingBox();
+        double[] corners = {
+            startX + ap.getMinX(), startY + ap.getMinY(), startX + ap.getMaxX(), startY + ap.getMinY(),
+            startX + ap.getMaxX(), startY + ap.getMaxY(), startX + ap.getMinX(), startY + ap.getMaxY(),
+            endX + ap.getMinX(), endY + ap.getMinY(), endX + ap.getMaxX(), endY + ap.getMinY(),
+            endX + ap.getMaxX(), endY + ap.getMaxY(), endX + ap.getMinX(), endY + ap.getMaxY()};
+        return Geometry.convexHullDistance(x, y, corners);
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        appendSvg(svg, startX, startY, endX, endY, aperture, polarity, options);
+    }
+
+    /**
+     * Append the SVG of a draw with the given coordinates, shared with {@link FixedDraw}.
+     */
+    static void appendSvg(StringBuilder svg, double startX, double startY, double endX, double endY,
+                          Aperture aperture, Polarity polarity, SvgOptions options) {
         String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
         double strokeWidth = 0;
         if (aperture instanceof CircleAperture) {
@@ -75,14 +116,26 @@ public class Draw extends GraphicsObject {
 
         if (options.isPolygonize()) {
             // Polygonized mode: path-based stroked line (rectangle with round caps)
-            String pathData = SvgPathUtils.strokedLinePath(startX, startY, endX, endY, strokeWidth);
-            return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, color);
+            svg.append("<path d=\"");
+            SvgPathUtils.strokedLinePath(new PathData(svg, options), startX, startY, endX, endY, strokeWidth);
+            svg.append('"');
+            appendFill(svg, color, options);
+            svg.append("/>");
+        } else if (options.isCompact()) {
+            // Compact exact mode: a relative path is shorter than a line's four coordinates
+            svg.append("<path d=\"");
+            new PathData(svg, options).moveTo(startX, startY).lineTo(endX, endY);
+            svg.append('"');
+            appendStroke(svg, color, options);
+            SvgNumbers.append(svg.append(" stroke-width=\""), strokeWidth, options).append("\"/>");
         } else {
             // Exact mode: use native SVG line with stroke
-            return String.format(Locale.US,
-                "<line x1=\"%.6f\" y1=\"%.6f\" x2=\"%.6f\" y2=\"%.6f\" " +
-                "stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                startX, startY, endX, endY, color, strokeWidth);
+            SvgNumbers.append(svg.append("<line x1=\""), startX);
+            SvgNumbers.append(svg.append("\" y1=\""), startY);
+            SvgNumbers.append(svg.append("\" x2=\""), endX);
+            SvgNumbers.append(svg.append("\" y2=\""), endY);
+            svg.append("\" stroke=\"").append(color).append("\" stroke-width=\"");
+            SvgNumbers.append(svg, strokeWidth).append("\" stroke-linecap=\"round\"/>");
         }
     }
 
@@ -0,0 +1,138 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link Arc} with coordinates in nanometres.
+ */
+public class FixedArc extends GraphicsObject {
+
+    private final long startX;
+    private final long startY;
+    private final long endX;
+    private final long endY;
+    private final long centerX;
+    private final long centerY;
+    private final boolean clockwise;
+    private final Aperture aperture;
+
+    public FixedArc(long startX, long startY, long endX, long endY,
+                    long centerX, long centerY, boolean clockwise, Aperture aperture) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.clockwise = clockwise;
+        this.aperture = aperture;
+    }
+
+    public long getStartXNm() { return startX; }
+    public long getStartYNm() { return startY; }
+    public long getEndXNm() { return endX; }
+    public long getEndYNm() { return endY; }
+    public long getCenterXNm() { return centerX; }
+    public long getCenterYNm() { return centerY; }
+    public boolean isClockwise() { return clockwise; }
+    public Aperture getAperture() { return aperture; }
+
+    public FixedPoint.Point getStartPoint() {
+        return new FixedPoint.Point(startX, startY);
+    }
+
+    public FixedPoint.Point getEndPoint() {
+        return new FixedPoint.Point(endX, endY);
+    }
+
+    /**
+     * Radius in mm, as {@link Arc#getRadius()} gives it for the arc in mm.
+     */
+    public double getRadius() {
+        double dx = FixedPoint.toMm(startX) - FixedPoint.toMm(centerX);
+        double dy = FixedPoint.toMm(startY) - FixedPoint.toMm(centerY);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public Arc toMm() {
+        Arc arc = new Arc(
+            FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY),
+            FixedPoint.toMm(centerX), FixedPoint.toMm(centerY),
+            clockwise, aperture);
+        arc.setPolarity(polarity);
+        return arc;
+    }
+
+    /**
+     * Bounds computed in nanometres, converting only the result.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        double dx = startX - centerX;
+        double dy = startY - centerY;
+        double r = Math.sqrt(dx * dx + dy * dy);
+        double margin = aperture != null ? Draw.margin(aperture) : 0;
+        return new BoundingBox(
+            FixedPoint.toMm(centerX - r) - margin, FixedPoint.toMm(centerY - r) - margin,
+            FixedPoint.toMm(centerX + r) + margin, FixedPoint.toMm(centerY + r) + margin);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Arc.distanceTo(x, y, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY),
+            FixedPoint.toMm(centerX), FixedPoint.toMm(centerY), clockwise, aperture);
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        Arc.appendSvg(svg, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY),
+            FixedPoint.toMm(centerX), FixedPoint.toMm(centerY), clockwise, aperture, polarity, options);
+    }
+
+    @Override
+    public GraphicsObject translate(double offsetX, double offsetY) {
+        long dx = FixedPoint.toNm(offsetX);
+        long dy = FixedPoint.toNm(offsetY);
+        FixedArc translated = new FixedArc(
+            startX + dx, startY + dy,
+            endX + dx, endY + dy,
+            centerX + dx, centerY + dy,
+            clockwise, aperture);
+        translated.setPolarity(this.polarity);
+        return translated;
+    }
+
+    /**
+     * Equal when the nanometre coordinates, direction, aperture and polarity are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedArc other = (FixedArc) o;
+        return startX == other.startX && startY == other.startY && endX == other.endX && endY == other.endY
+            && centerX == other.centerX && centerY == other.centerY && clockwise == other.clockwise
+            && aperture == other.aperture && polarity == other.polarity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startX, startY, endX, endY, centerX, centerY, clockwise, aperture, polarity);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedArc[%d,%d -> %d,%d, center=%d,%d nm, %s]",
+            startX, startY, endX, endY, centerX, centerY,
+            clockwise ? "CW" : "CCW");
+    }
+}
@@ -0,0 +1,219 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-point {@link Contour} with coordinates in nanometres.
+ * Segments are packed into flat arrays instead of one object per segment.
+ */
+public class FixedContour extends ContourGeometry {
+
+    private static final byte LINE = 0;
+    private static final byte ARC_CW = 1;
+    private static final byte ARC_CCW = 2;
+
+    private final long startX;
+    private final long startY;
+    // Per segment: x, y, centerX, centerY (centre is 0 for lines)
+    private final long[] points;
+    private final byte[] kinds;
+
+    // Segment kinds are those of ColumnarObjectList, which builds contours from its columns
+    FixedContour(long startX, long startY, long[] points, byte[] kinds) {
+        this.startX = startX;
+        this.startY = startY;
+        this.points = points;
+        this.kinds = kinds;
+    }
+
+    /**
+     * Round a contour to nanometres.
+     */
+    public static FixedContour from(Contour contour) {
+        int count = contour.getSegments().size();
+        long[] points = new long[count * 4];
+        byte[] kinds = new byte[count];
+        for (int i = 0; i < count; i++) {
+            Contour.ContourSegment seg = contour.getSegments().get(i);
+            points[i * 4] = FixedPoint.toNm(seg.getX());
+            points[i * 4 + 1] = FixedPoint.toNm(seg.getY());
+            if (seg.isArc()) {
+                points[i * 4 + 2] = FixedPoint.toNm(seg.getCenterX());
+                points[i * 4 + 3] = FixedPoint.toNm(seg.getCenterY());
+                kinds[i] = seg.isClockwise() ? ARC_CW : ARC_CCW;
+            }
+        }
+        return new FixedContour(FixedPoint.toNm(contour.getStartX()), FixedPoint.toNm(contour.getStartY()),
+            points, kinds);
+    }
+
+    /**
+     * Builds a contour from nanometre coordinates, e.g. as a parser reads them, without
+     * going through millimetres.
+     */
+    public static class Builder {
+        private final long startX;
+        private final long startY;
+        private long[] points = new long[16];
+        private byte[] kinds = new byte[4];
+        private int count;
+
+        public Builder(long startX, long startY) {
+            this.startX = startX;
+            this.startY = startY;
+        }
+
+        public Builder addLineTo(long x, long y) {
+            return add(x, y, 0, 0, LINE);
+        }
+
+        public Builder addArcTo(long x, long y, long centerX, long centerY, boolean clockwise) {
+            return add(x, y, centerX, centerY, clockwise ? ARC_CW : ARC_CCW);
+        }
+
+        private Builder add(long x, long y, long centerX, long centerY, byte kind) {
+            if (count == kinds.length) {
+                points = Arrays.copyOf(points, count * 8);
+                kinds = Arrays.copyOf(kinds, count * 2);
+            }
+            points[count * 4] = x;
+            points[count * 4 + 1] = y;
+            points[count * 4 + 2] = centerX;
+            points[count * 4 + 3] = centerY;
+            kinds[count++] = kind;
+            return this;
+        }
+
+        public FixedContour build() {
+            return new FixedContour(startX, startY, Arrays.copyOf(points, count * 4), Arrays.copyOf(kinds, count));
+        }
+    }
+
+    public long getStartXNm() { return startX; }
+    public long getStartYNm() { return startY; }
+    public int getSegmentCount() { return kinds.length; }
+    public long getXNm(int segment) { return points[segment * 4]; }
+    public long getYNm(int segment) { return points[segment * 4 + 1]; }
+    public long getCenterXNm(int segment) { return points[segment * 4 + 2]; }
+    public long getCenterYNm(int segment) { return points[segment * 4 + 3]; }
+    public boolean isArc(int segment) { return kinds[segment] != LINE; }
+    public boolean isClockwise(int segment) { return kinds[segment] == ARC_CW; }
+
+    @Override
+    double startX() {
+        return FixedPoint.toMm(startX);
+    }
+
+    @Override
+    double startY() {
+        return FixedPoint.toMm(startY);
+    }
+
+    @Override
+    int segmentCount() {
+        return kinds.length;
+    }
+
+    @Override
+    double x(int segment) {
+        return FixedPoint.toMm(points[segment * 4]);
+    }
+
+    @Override
+    double y(int segment) {
+        return FixedPoint.toMm(points[segment * 4 + 1]);
+    }
+
+    @Override
+    double centerX(int segment) {
+        return FixedPoint.toMm(points[segment * 4 + 2]);
+    }
+
+    @Override
+    double centerY(int segment) {
+        return FixedPoint.toMm(points[segment * 4 + 3]);
+    }
+
+    /**
+     * Bounds computed in nanometres, converting only the result.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        double minX = startX;
+        double minY = startY;
+        double maxX = startX;
+        double maxY = startY;
+        for (int i = 0; i < kinds.length; i++) {
+            long x = points[i * 4];
+            long y = points[i * 4 + 1];
+            double r = 0;
+            long cx = x;
+            long cy = y;
+            if (kinds[i] != LINE) {
+                // Include arc center +/- radius for approximation
+                cx = points[i * 4 + 2];
+                cy = points[i * 4 + 3];
+                double dx = x - cx;
+                double dy = y - cy;
+                r = Math.sqrt(dx * dx + dy * dy);
+            }
+            minX = Math.min(minX, Math.min(x, cx - r));
+            minY = Math.min(minY, Math.min(y, cy - r));
+            maxX = Math.max(maxX, Math.max(x, cx + r));
+            maxY = Math.max(maxY, Math.max(y, cy + r));
+        }
+        return new BoundingBox(FixedPoint.toMm(minX), FixedPoint.toMm(minY),
+            FixedPoint.toMm(maxX), FixedPoint.toMm(maxY));
+    }
+
+    /**
+     * Convert to a contour in millimetres.
+     */
+    public Contour toMm() {
+        Contour contour = new Contour(FixedPoint.toMm(startX), FixedPoint.toMm(startY));
+        for (int i = 0; i < kinds.length; i++) {
+            double x = FixedPoint.toMm(getXNm(i));
+            double y = FixedPoint.toMm(getYNm(i));
+            if (isArc(i)) {
+                contour.addArcTo(x, y, FixedPoint.toMm(getCenterXNm(i)), FixedPoint.toMm(getCenterYNm(i)),
+                    isClockwise(i));
+            } else {
+                contour.addLineTo(x, y);
+            }
+        }
+        return contour;
+    }
+
+    /**
+     * Equal when the start and every segment are, to the nanometre.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedContour other = (FixedContour) o;
+        return startX == other.startX && startY == other.startY
+            && Arrays.equals(points, other.points) && Arrays.equals(kinds, other.kinds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(startX) + Long.hashCode(startY)) + Arrays.hashCode(points);
+    }
+
+    public FixedContour translate(long offsetX, long offsetY) {
+        long[] translated = points.clone();
+        for (int i = 0; i < kinds.length; i++) {
+            translated[i * 4] += offsetX;
+            translated[i * 4 + 1] += offsetY;
+            if (kinds[i] != LINE) {
+                translated[i * 4 + 2] += offsetX;
+                translated[i * 4 + 3] += offsetY;
+            }
+        }
+        return new FixedContour(startX + offsetX, startY + offsetY, translated, kinds);
+    }
+}
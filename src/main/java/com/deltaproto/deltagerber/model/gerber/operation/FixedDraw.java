@@ -0,0 +1,107 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link Draw} with coordinates in nanometres.
+ */
+public class FixedDraw extends GraphicsObject {
+
+    private final long startX;
+    private final long startY;
+    private final long endX;
+    private final long endY;
+    private final Aperture aperture;
+
+    public FixedDraw(long startX, long startY, long endX, long endY, Aperture aperture) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.aperture = aperture;
+    }
+
+    public long getStartXNm() { return startX; }
+    public long getStartYNm() { return startY; }
+    public long getEndXNm() { return endX; }
+    public long getEndYNm() { return endY; }
+    public Aperture getAperture() { return aperture; }
+
+    public FixedPoint.Point getStartPoint() {
+        return new FixedPoint.Point(startX, startY);
+    }
+
+    public FixedPoint.Point getEndPoint() {
+        return new FixedPoint.Point(endX, endY);
+    }
+
+    @Override
+    public Draw toMm() {
+        Draw draw = new Draw(
+            FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY),
+            aperture);
+        draw.setPolarity(polarity);
+        return draw;
+    }
+
+    /**
+     * Bounds computed in nanometres, converting only the result.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        double margin = Draw.margin(aperture);
+        return new BoundingBox(
+            FixedPoint.toMm(Math.min(startX, endX)) - margin, FixedPoint.toMm(Math.min(startY, endY)) - margin,
+            FixedPoint.toMm(Math.max(startX, endX)) + margin, FixedPoint.toMm(Math.max(startY, endY)) + margin);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Draw.distanceTo(x, y, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY), aperture);
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        Draw.appendSvg(svg, FixedPoint.toMm(startX), FixedPoint.toMm(startY),
+            FixedPoint.toMm(endX), FixedPoint.toMm(endY), aperture, polarity, options);
+    }
+
+    @Override
+    public GraphicsObject translate(double offsetX, double offsetY) {
+        long dx = FixedPoint.toNm(offsetX);
+        long dy = FixedPoint.toNm(offsetY);
+        FixedDraw translated = new FixedDraw(startX + dx, startY + dy, endX + dx, endY + dy, aperture);
+        translated.setPolarity(this.polarity);
+        return translated;
+    }
+
+    /**
+     * Equal when the nanometre coordinates, aperture and polarity are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedDraw other = (FixedDraw) o;
+        return startX == other.startX && startY == other.startY && endX == other.endX && endY == other.endY
+            && aperture == other.aperture && polarity == other.polarity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startX, startY, endX, endY, aperture, polarity);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedDraw[%d,%d -> %d,%d nm D%d]",
+            startX, startY, endX, endY, aperture.getDCode());
+    }
+}
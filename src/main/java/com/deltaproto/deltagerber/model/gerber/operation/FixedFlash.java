@@ -0,0 +1,128 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link Flash} with its position in nanometres.
+ */
+public class FixedFlash extends GraphicsObject {
+
+    private final long x;
+    private final long y;
+    private final Aperture aperture;
+
+    // Aperture transforms (from LR, LS, LM commands)
+    private final double rotation;
+    private final double scale;
+    private final boolean mirrorX;
+    private final boolean mirrorY;
+
+    public FixedFlash(long x, long y, Aperture aperture) {
+        this(x, y, aperture, 0, 1.0, false, false);
+    }
+
+    public FixedFlash(long x, long y, Aperture aperture, double rotation, double scale,
+                      boolean mirrorX, boolean mirrorY) {
+        this.x = x;
+        this.y = y;
+        this.aperture = aperture;
+        this.rotation = rotation;
+        this.scale = scale;
+        this.mirrorX = mirrorX;
+        this.mirrorY = mirrorY;
+    }
+
+    public long getXNm() {
+        return x;
+    }
+
+    public long getYNm() {
+        return y;
+    }
+
+    public Aperture getAperture() {
+        return aperture;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public boolean isMirrorX() {
+        return mirrorX;
+    }
+
+    public boolean isMirrorY() {
+        return mirrorY;
+    }
+
+    @Override
+    public Flash toMm() {
+        Flash flash = new Flash(FixedPoint.toMm(x), FixedPoint.toMm(y), aperture,
+            rotation, scale, mirrorX, mirrorY);
+        flash.setPolarity(polarity);
+        return flash;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox apBounds = aperture.getSharedBoundingBox();
+        double mmX = FixedPoint.toMm(x);
+        double mmY = FixedPoint.toMm(y);
+        return new BoundingBox(mmX + apBounds.getMinX(), mmY + apBounds.getMinY(),
+            mmX + apBounds.getMaxX(), mmY + apBounds.getMaxY());
+    }
+
+    @Override
+    public double distanceTo(double px, double py) {
+        return Flash.distanceTo(px, py, FixedPoint.toMm(x), FixedPoint.toMm(y), aperture,
+            rotation, scale, mirrorX, mirrorY);
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        Flash.appendSvg(svg, FixedPoint.toMm(x), FixedPoint.toMm(y), aperture,
+            rotation, scale, mirrorX, mirrorY, polarity, options);
+    }
+
+    @Override
+    public GraphicsObject translate(double offsetX, double offsetY) {
+        FixedFlash translated = new FixedFlash(
+            x + FixedPoint.toNm(offsetX), y + FixedPoint.toNm(offsetY),
+            aperture, rotation, scale, mirrorX, mirrorY);
+        translated.setPolarity(this.polarity);
+        return translated;
+    }
+
+    /**
+     * Equal when the nanometre position, aperture, transforms and polarity are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedFlash other = (FixedFlash) o;
+        return x == other.x && y == other.y && aperture == other.aperture
+            && Double.compare(rotation, other.rotation) == 0 && Double.compare(scale, other.scale) == 0
+            && mirrorX == other.mirrorX && mirrorY == other.mirrorY && polarity == other.polarity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(x, y, aperture, rotation, scale, mirrorX, mirrorY, polarity);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedFlash[%d,%d nm D%d]", x, y, aperture.getDCode());
+    }
+}
@@ -0,0 +1,97 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fixed-point {@link Region} whose contours have coordinates in nanometres.
+ */
+public class FixedRegion extends GraphicsObject {
+
+    private final List<FixedContour> contours;
+
+    public FixedRegion(List<FixedContour> contours) {
+        this.contours = contours;
+    }
+
+    /**
+     * Round a region to nanometres.
+     */
+    public static FixedRegion from(Region region) {
+        List<FixedContour> contours = new ArrayList<>(region.getContours().size());
+        for (Contour contour : region.getContours()) {
+            contours.add(FixedContour.from(contour));
+        }
+        FixedRegion fixed = new FixedRegion(contours);
+        fixed.setPolarity(region.getPolarity());
+        return fixed;
+    }
+
+    public List<FixedContour> getContours() {
+        return contours;
+    }
+
+    @Override
+    public Region toMm() {
+        Region region = new Region();
+        region.setPolarity(polarity);
+        for (FixedContour contour : contours) {
+            region.addContour(contour.toMm());
+        }
+        return region;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return Region.getBoundingBox(contours);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Region.distanceTo(x, y, contours);
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        Region.appendSvg(svg, contours, polarity, options);
+    }
+
+    @Override
+    public GraphicsObject translate(double offsetX, double offsetY) {
+        long dx = FixedPoint.toNm(offsetX);
+        long dy = FixedPoint.toNm(offsetY);
+        List<FixedContour> translated = new ArrayList<>(contours.size());
+        for (FixedContour contour : contours) {
+            translated.add(contour.translate(dx, dy));
+        }
+        FixedRegion region = new FixedRegion(translated);
+        region.setPolarity(this.polarity);
+        return region;
+    }
+
+    /**
+     * Equal when the contours and polarity are.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedRegion other = (FixedRegion) o;
+        return contours.equals(other.contours) && polarity == other.polarity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contours, polarity);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedRegion[%d contours]", contours.size());
+    }
+}
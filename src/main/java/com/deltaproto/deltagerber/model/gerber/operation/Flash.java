@@ -3,10 +3,10 @@ package com.deltaproto.deltagerber.model.gerber.operation;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.renderer.svg.ApertureDefinitions;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 
-import java.util.Locale;
-
 /**
  * Flash operation (D03) - places aperture at a point.
  */
@@ -50,9 +50,25 @@ public class Flash extends GraphicsObject {
         return aperture;
     }
 
+    public double getRotation() {
+        return rotation;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public boolean isMirrorX() {
+        return mirrorX;
+    }
+
+    public boolean isMirrorY() {
+        return mirrorY;
+    }
+
     @Override
     public BoundingBox getBoundingBox() {
-        BoundingBox apBounds = aperture.getBoundingBox();
+        BoundingBox apBounds = aperture.getSharedBoundingBox();
         return new BoundingBox(
             x + apBounds.getMinX(),
             y + apBounds.getMinY(),
@@ -61,49 +77,96 @@ public class Flash extends GraphicsObject {
         );
     }
 
+    /**
+     * Exact for standard apertures: the point is taken into the aperture's frame by
+     * undoing the flash's translation, mirroring, rotation and scaling.
+     */
     @Override
-    public String toSvg(SvgOptions options) {
+    public double distanceTo(double px, double py) {
+        return distanceTo(px, py, x, y, aperture, rotation, scale, mirrorX, mirrorY);
+    }
+
+    /**
+     * Distance from a point to a flash with the given position and transforms, shared with
+     * {@link FixedFlash}.
+     */
+    static double distanceTo(double px, double py, double x, double y, Aperture aperture,
+                             double rotation, double scale, boolean mirrorX, boolean mirrorY) {
+        double dx = px - x;
+        double dy = py - y;
+        if (mirrorX) dx = -dx;
+        if (mirrorY) dy = -dy;
+        if (rotation != 0) {
+            double rad = Math.toRadians(-rotation);
+            double cos = Math.cos(rad);
+            double sin = Math.sin(rad);
+            double rx = dx * cos - dy * sin;
+            dy = dx * sin + dy * cos;
+            dx = rx;
+        }
+        return aperture.distanceTo(dx / scale, dy / scale) * scale;
+    }
+
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        appendSvg(svg, x, y, aperture, rotation, scale, mirrorX, mirrorY, polarity, options);
+    }
+
+    /**
+     * Append the SVG of a flash with the given position and transforms, shared with
+     * {@link FixedFlash}.
+     */
+    static void appendSvg(StringBuilder svg, double x, double y, Aperture aperture, double rotation, double scale,
+                          boolean mirrorX, boolean mirrorY, Polarity polarity, SvgOptions options) {
         // Flash uses <use> elements referencing aperture definitions.
         // Fill color is set on the <use> element based on polarity, so it
         // inherits into the aperture def shapes (which have no explicit fill).
+        // Compact options leave it out when the <use> inherits it in turn.
         String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
 
-        // Build transform string for rotation, scaling, mirroring
-        StringBuilder transform = new StringBuilder();
-
-        // Translate to position first
-        transform.append(String.format(Locale.US, "translate(%.6f,%.6f)", x, y));
-
-        // Apply mirroring (before rotation)
-        if (mirrorX || mirrorY) {
-            double scaleX = mirrorX ? -1 : 1;
-            double scaleY = mirrorY ? -1 : 1;
-            transform.append(String.format(Locale.US, " scale(%.1f,%.1f)", scaleX, scaleY));
-        }
-
-        // Apply rotation
-        if (rotation != 0) {
-            transform.append(String.format(Locale.US, " rotate(%.6f)", rotation));
-        }
-
-        // Apply scaling
-        if (scale != 1.0) {
-            transform.append(String.format(Locale.US, " scale(%.6f)", scale));
+        // Get aperture ID prefix from options (allows multi-layer SVGs with unique IDs),
+        // unless the aperture shares another layer's definition
+        ApertureDefinitions definitions = options.getApertureDefinitions();
+        String id = definitions != null ? definitions.getId(aperture) : null;
+        svg.append("<use href=\"#");
+        if (id != null) {
+            svg.append(id);
+        } else {
+            svg.append(options.getApertureIdPrefix()).append(aperture.getDCode());
         }
 
-        // Get aperture ID prefix from options (allows multi-layer SVGs with unique IDs)
-        String prefix = options.getApertureIdPrefix();
-
         // If we have transforms other than position, use transform attribute
         if (rotation != 0 || scale != 1.0 || mirrorX || mirrorY) {
-            return String.format(Locale.US,
-                "<use href=\"#%s%d\" fill=\"%s\" transform=\"%s\"/>",
-                prefix, aperture.getDCode(), color, transform.toString());
+            svg.append('"');
+            appendFill(svg, color, options);
+            svg.append(" transform=\"");
+
+            // Translate to position first
+            SvgNumbers.append(svg.append("translate("), x, options).append(',');
+            SvgNumbers.append(svg, y, options).append(')');
+
+            // Apply mirroring (before rotation)
+            if (mirrorX || mirrorY) {
+                svg.append(" scale(").append(mirrorX ? "-1.0" : "1.0").append(',')
+                    .append(mirrorY ? "-1.0" : "1.0").append(')');
+            }
+
+            // Apply rotation
+            if (rotation != 0) {
+                SvgNumbers.append(svg.append(" rotate("), rotation, options).append(')');
+            }
+
+            // Apply scaling
+            if (scale != 1.0) {
+                SvgNumbers.append(svg.append(" scale("), scale, options).append(')');
+            }
+            svg.append("\"/>");
         } else {
             // Simple case: just position
-            return String.format(Locale.US,
-                "<use href=\"#%s%d\" x=\"%.6f\" y=\"%.6f\" fill=\"%s\"/>",
-                prefix, aperture.getDCode(), x, y, color);
+            SvgNumbers.append(svg.append("\" x=\""), x, options);
+            SvgNumbers.append(svg.append("\" y=\""), y, options).append('"');
+            appendFill(svg, color, options);
+            svg.append("/>");
         }
     }
 
@@ -24,6 +24,15 @@ public abstract class GraphicsObject {
      */
     public abstract BoundingBox getBoundingBox();
 
+    /**
+     * Distance from a point to the area this object covers: 0 for a point on the object.
+     * Objects without an exact test use their bounding box.
+     */
+    public double distanceTo(double x, double y) {
+        GraphicsObject mm = toMm();
+        return mm != this ? mm.distanceTo(x, y) : getBoundingBox().distanceTo(x, y);
+    }
+
     /**
      * Generate SVG representation with default (exact) options.
      */
@@ -34,7 +43,45 @@ public abstract class GraphicsObject {
     /**
      * Generate SVG representation with specified options.
      */
-    public abstract String toSvg(SvgOptions options);
+    public String toSvg(SvgOptions options) {
+        StringBuilder svg = new StringBuilder();
+        appendSvg(svg, options);
+        return svg.toString();
+    }
+
+    /**
+     * Append the SVG representation with specified options to {@code svg}, e.g. the
+     * shared output buffer of a render. Objects that draw nothing append nothing.
+     */
+    public abstract void appendSvg(StringBuilder svg, SvgOptions options);
+
+    /**
+     * Append a {@code fill} attribute for {@code color}, unless compact options let the
+     * element inherit it from its parent (see {@link SvgOptions#getInheritedColor()}).
+     */
+    protected static void appendFill(StringBuilder svg, String color, SvgOptions options) {
+        if (options.needsColor(color)) {
+            svg.append(" fill=\"").append(color).append('"');
+        }
+    }
+
+    /**
+     * Append a {@code stroke} attribute for {@code color}, unless compact options let the
+     * element inherit it from its parent.
+     */
+    protected static void appendStroke(StringBuilder svg, String color, SvgOptions options) {
+        if (options.needsColor(color)) {
+            svg.append(" stroke=\"").append(color).append('"');
+        }
+    }
+
+    /**
+     * This object with double millimetre coordinates. Fixed-point objects such as
+     * {@link FixedDraw} convert themselves; all others are returned as is.
+     */
+    public GraphicsObject toMm() {
+        return this;
+    }
 
     /**
      * Create a translated copy of this object.
@@ -1,7 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 
 import java.util.ArrayList;
@@ -27,29 +29,63 @@ public class Region extends GraphicsObject {
 
     @Override
     public BoundingBox getBoundingBox() {
+        return getBoundingBox(contours);
+    }
+
+    /**
+     * Bounds of a region with the given contours, shared with {@link FixedRegion}.
+     */
+    static BoundingBox getBoundingBox(List<? extends ContourGeometry> contours) {
         BoundingBox bounds = new BoundingBox();
-        for (Contour contour : contours) {
+        for (ContourGeometry contour : contours) {
             bounds.include(contour.getBoundingBox());
         }
         return bounds;
     }
 
+    /**
+     * Even-odd over all contours, as the region is drawn; arcs are flattened to chords of
+     * at most two degrees.
+     */
     @Override
-    public String toSvg(SvgOptions options) {
-        if (contours.isEmpty()) {
-            return "";
+    public double distanceTo(double x, double y) {
+        return distanceTo(x, y, contours);
+    }
+
+    static double distanceTo(double x, double y, List<? extends ContourGeometry> contours) {
+        boolean inside = false;
+        double distance = Double.POSITIVE_INFINITY;
+        for (ContourGeometry contour : contours) {
+            double[] ring = contour.toRing();
+            if (Geometry.crossesOddly(x, y, ring, ring.length)) inside = !inside;
+            distance = Math.min(distance, Geometry.ringDistance(x, y, ring, ring.length));
         }
+        return inside ? 0 : distance;
+    }
 
-        StringBuilder path = new StringBuilder();
-        for (Contour contour : contours) {
-            path.append(contour.toSvgPath(options));
-            path.append(" ");
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        appendSvg(svg, contours, polarity, options);
+    }
+
+    /**
+     * Append the SVG of a region with the given contours, shared with {@link FixedRegion}.
+     */
+    static void appendSvg(StringBuilder svg, List<? extends ContourGeometry> contours, Polarity polarity,
+                          SvgOptions options) {
+        if (contours.isEmpty()) {
+            return;
         }
 
         String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
-        return String.format(
-            "<path d=\"%s\" fill=\"%s\" fill-rule=\"evenodd\"/>",
-            path.toString().trim(), color);
+        svg.append("<path d=\"");
+        PathData path = new PathData(svg, options);
+        for (ContourGeometry contour : contours) {
+            contour.appendSvgPath(path, options);
+        }
+        svg.append('"');
+        appendFill(svg, color, options);
+        svg.append(" fill-rule=\"evenodd\"/>");
     }
 
     @Override
@@ -0,0 +1,257 @@
+package com.deltaproto.deltagerber.model.gerber.operation;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.renderer.svg.BlockDefinitions;
+import com.deltaproto.deltagerber.renderer.svg.StrokeJoiner;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Step-and-repeat block (SR) - the block's objects stored once and repeated
+ * on an X by Y grid of instances.
+ *
+ * <p>Instance (ix, iy) is the block translated by (ix * stepX, iy * stepY). Use
+ * {@link #instances()} or {@link #flatten(Iterable)} to get every instance as
+ * individual objects, in the order the parser would otherwise have emitted them.</p>
+ *
+ * <p>Blocks only hold dark objects: a clear object erases earlier instances as well,
+ * which a shared definition cannot express.</p>
+ */
+public class StepRepeatBlock extends GraphicsObject {
+
+    private final List<GraphicsObject> objects;
+    private final int repeatX;
+    private final int repeatY;
+    private final double stepX;
+    private final double stepY;
+
+    public StepRepeatBlock(List<GraphicsObject> objects, int repeatX, int repeatY, double stepX, double stepY) {
+        if (repeatX < 1 || repeatY < 1) {
+            throw new IllegalArgumentException("Repeat counts must be positive: " + repeatX + "x" + repeatY);
+        }
+        for (GraphicsObject obj : objects) {
+            if (obj.getPolarity() != Polarity.DARK || obj instanceof StepRepeatBlock) {
+                throw new IllegalArgumentException("Step-and-repeat blocks only hold dark objects: " + obj);
+            }
+        }
+        this.objects = Collections.unmodifiableList(new ArrayList<>(objects));
+        this.repeatX = repeatX;
+        this.repeatY = repeatY;
+        this.stepX = stepX;
+        this.stepY = stepY;
+    }
+
+    /**
+     * The objects of a single instance, at the position of instance (0, 0).
+     */
+    public List<GraphicsObject> getObjects() {
+        return objects;
+    }
+
+    public int getRepeatX() {
+        return repeatX;
+    }
+
+    public int getRepeatY() {
+        return repeatY;
+    }
+
+    public double getStepX() {
+        return stepX;
+    }
+
+    public double getStepY() {
+        return stepY;
+    }
+
+    public int getInstanceCount() {
+        return repeatX * repeatY;
+    }
+
+    @Override
+    public void setPolarity(Polarity polarity) {
+        if (polarity != Polarity.DARK) {
+            throw new IllegalArgumentException("Step-and-repeat blocks are always dark");
+        }
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox block = new BoundingBox();
+        for (GraphicsObject obj : objects) {
+            block.include(obj.getBoundingBox());
+        }
+        if (!block.isValid()) {
+            return block;
+        }
+        double spanX = (repeatX - 1) * stepX;
+        double spanY = (repeatY - 1) * stepY;
+        return new BoundingBox(
+            block.getMinX() + Math.min(0, spanX),
+            block.getMinY() + Math.min(0, spanY),
+            block.getMaxX() + Math.max(0, spanX),
+            block.getMaxY() + Math.max(0, spanY)
+        );
+    }
+
+    /**
+     * Distance to the nearest object of any instance.
+     */
+    @Override
+    public double distanceTo(double x, double y) {
+        double distance = Double.POSITIVE_INFINITY;
+        for (int iy = 0; iy < repeatY; iy++) {
+            for (int ix = 0; ix < repeatX; ix++) {
+                for (GraphicsObject obj : objects) {
+                    distance = Math.min(distance, obj.distanceTo(x - ix * stepX, y - iy * stepY));
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Renders the block once as a shared definition and one {@code <use>} per instance
+     * when the options carry {@link BlockDefinitions}; otherwise every instance is written
+     * out as a translated group.
+     */
+    @Override
+    public void appendSvg(StringBuilder svg, SvgOptions options) {
+        BlockDefinitions definitions = options.getBlockDefinitions();
+        if (definitions != null) {
+            String id = definitions.define(this, options);
+            for (int iy = 0; iy < repeatY; iy++) {
+                for (int ix = 0; ix < repeatX; ix++) {
+                    if (ix > 0 || iy > 0) svg.append('\n');
+                    SvgNumbers.append(svg.append("<use href=\"#").append(id).append("\" x=\""), ix * stepX, options);
+                    SvgNumbers.append(svg.append("\" y=\""), iy * stepY, options).append("\"/>");
+                }
+            }
+            return;
+        }
+
+        String content = renderObjects(options);
+        for (int iy = 0; iy < repeatY; iy++) {
+            for (int ix = 0; ix < repeatX; ix++) {
+                if (ix > 0 || iy > 0) svg.append('\n');
+                SvgNumbers.append(svg.append("<g transform=\"translate("), ix * stepX, options).append(',');
+                SvgNumbers.append(svg, iy * stepY, options).append(")\">");
+                svg.append(content).append("</g>");
+            }
+        }
+    }
+
+    /**
+     * The SVG of a single instance's objects, one per line.
+     */
+    public String renderObjects(SvgOptions options) {
+        StringBuilder svg = new StringBuilder();
+        for (int i = 0; i < objects.size(); ) {
+            i = StrokeJoiner.appendLine(svg, "", objects, i, options);
+        }
+        return svg.toString();
+    }
+
+    @Override
+    public GraphicsObject toMm() {
+        List<GraphicsObject> converted = new ArrayList<>(objects.size());
+        boolean changed = false;
+        for (GraphicsObject obj : objects) {
+            GraphicsObject mm = obj.toMm();
+            changed |= mm != obj;
+            converted.add(mm);
+        }
+        return changed ? new StepRepeatBlock(converted, repeatX, repeatY, stepX, stepY) : this;
+    }
+
+    @Override
+    public GraphicsObject translate(double offsetX, double offsetY) {
+        List<GraphicsObject> translated = new ArrayList<>(objects.size());
+        for (GraphicsObject obj : objects) {
+            translated.add(obj.translate(offsetX, offsetY));
+        }
+        return new StepRepeatBlock(translated, repeatX, repeatY, stepX, stepY);
+    }
+
+    /**
+     * Every instance's objects: instance (0, 0) as stored, then the translated copies row
+     * by row. The copies are created as the iteration reaches them.
+     */
+    public Iterable<GraphicsObject> instances() {
+        return () -> new Iterator<>() {
+            private int instance;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return !objects.isEmpty() && instance < getInstanceCount();
+            }
+
+            @Override
+            public GraphicsObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                GraphicsObject obj = objects.get(index);
+                if (instance > 0) {
+                    obj = obj.translate((instance % repeatX) * stepX, (instance / repeatX) * stepY);
+                }
+                if (++index == objects.size()) {
+                    index = 0;
+                    instance++;
+                }
+                return obj;
+            }
+        };
+    }
+
+    /**
+     * The given objects with every step-and-repeat block replaced by its instances.
+     */
+    public static Iterable<GraphicsObject> flatten(Iterable<? extends GraphicsObject> objects) {
+        return () -> new Iterator<>() {
+            private final Iterator<? extends GraphicsObject> outer = objects.iterator();
+            private Iterator<GraphicsObject> block = Collections.emptyIterator();
+            private GraphicsObject pending;
+
+            @Override
+            public boolean hasNext() {
+                while (pending == null && !block.hasNext() && outer.hasNext()) {
+                    GraphicsObject obj = outer.next();
+                    if (obj instanceof StepRepeatBlock stepRepeat) {
+                        block = stepRepeat.instances().iterator();
+                    } else {
+                        pending = obj;
+                    }
+                }
+                return pending != null || block.hasNext();
+            }
+
+            @Override
+            public GraphicsObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (pending != null) {
+                    GraphicsObject obj = pending;
+                    pending = null;
+                    return obj;
+                }
+                return block.next();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StepRepeatBlock[%d objects, %dx%d, step %.4f,%.4f]",
+            objects.size(), repeatX, repeatY, stepX, stepY);
+    }
+}
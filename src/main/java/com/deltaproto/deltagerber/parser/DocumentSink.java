@@ -0,0 +1,70 @@
+package com.deltaproto.deltagerber.parser;
+
+import com.deltaproto.deltagerber.model.gerber.ComponentPlacement;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.SourceMap;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+import com.deltaproto.deltagerber.model.gerber.operation.ColumnarObjectList;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+
+/**
+ * Sink that collects everything into a {@link GerberDocument}.
+ */
+class DocumentSink implements GerberSink {
+
+    private final GerberDocument document;
+
+    DocumentSink(GerberDocument document) {
+        this.document = document;
+    }
+
+    GerberDocument getDocument() {
+        if (document.getObjects() instanceof ColumnarObjectList columnar) {
+            columnar.trimToSize();
+        }
+        return document;
+    }
+
+    @Override
+    public void onObject(GraphicsObject object) {
+        document.addObject(object);
+    }
+
+    @Override
+    public void onCoordinateFormat(CoordinateFormat format) {
+        document.setCoordinateFormat(format);
+    }
+
+    @Override
+    public void onAperture(Aperture aperture) {
+        document.addAperture(aperture);
+    }
+
+    @Override
+    public void onMacroTemplate(MacroTemplate template) {
+        document.addMacroTemplate(template);
+    }
+
+    @Override
+    public void onFileAttribute(FileAttribute attribute) {
+        document.addFileAttribute(attribute);
+    }
+
+    @Override
+    public void onComponent(ComponentPlacement component) {
+        document.addComponent(component);
+    }
+
+    @Override
+    public void onWarning(String warning) {
+        document.addWarning(warning);
+    }
+
+    @Override
+    public void onSourceMap(SourceMap sourceMap) {
+        document.setSourceMap(sourceMap);
+    }
+}
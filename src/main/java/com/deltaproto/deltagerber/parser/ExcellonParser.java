@@ -1,24 +1,59 @@
 package com.deltaproto.deltagerber.parser;
 
+import com.deltaproto.deltagerber.lexer.MappedFileScanner;
 import com.deltaproto.deltagerber.model.drill.*;
+import com.deltaproto.deltagerber.model.gerber.DecimalDigits;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
 import com.deltaproto.deltagerber.model.gerber.Unit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Parser for Excellon NC drill files.
+ *
+ * <p>The default {@link Mode#STREAMING} mode walks the input line by line without
+ * splitting it into a lines array. Drill hits ({@code X...Y...}) and tool selections,
+ * which make up nearly all of a drill file, are decoded straight from the input
+ * characters; the remaining lines go through the regular expressions.
+ * {@link Mode#REGEX} selects the original line-splitting parser, which produces the
+ * same documents.</p>
  */
 public class ExcellonParser {
 
     private static final Logger log = LoggerFactory.getLogger(ExcellonParser.class);
 
+    /** Bumped whenever the documents this parser produces change, e.g. to invalidate caches. */
+    public static final int VERSION = 1;
+
+    /**
+     * Parsing strategy.
+     */
+    public enum Mode {
+        /** Line scanning with allocation-free hit and tool-select lines (default). */
+        STREAMING,
+        /** Original implementation: split into lines, then try the regular expressions on each. */
+        REGEX
+    }
+
+    private final Mode mode;
+
+    // Reader input is read in chunks of this many characters
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
     private DrillDocument document;
     private Tool currentTool;
+    // Positions are in mm, or in fixed point in whole nanometres, which a double holds
+    // exactly (up to 2^53 nm), so incremental and repeated offsets add up without error
     private double currentX = 0;
     private double currentY = 0;
     private boolean inHeader = true;
@@ -73,6 +108,35 @@ public class ExcellonParser {
     // FILE_FORMAT comment (e.g. ;FILE_FORMAT=4:4) - used by Altium and others
     private static final Pattern FILE_FORMAT_COMMENT = Pattern.compile("FILE_FORMAT\\s*=\\s*(\\d):(\\d)");
 
+    // Emit FixedDrillHit/FixedDrillSlot with nanometre coordinates instead of double millimetres
+    private boolean fixedPoint = false;
+
+    /**
+     * Select the fixed-point coordinate model: hits and slots are emitted as
+     * {@link FixedDrillHit} and {@link FixedDrillSlot} with {@code long} nanometre
+     * coordinates. Off by default.
+     */
+    public ExcellonParser setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        return this;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    public ExcellonParser() {
+        this(Mode.STREAMING);
+    }
+
+    public ExcellonParser(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     public DrillDocument parse(String content) {
         long startTime = System.currentTimeMillis();
         log.trace("Starting Excellon parse, content length: {} chars", content.length());
@@ -82,6 +146,188 @@ public class ExcellonParser {
             content = content.substring(1);
         }
 
+        begin();
+
+        if (mode == Mode.REGEX) {
+            String[] lines = content.split("\n");
+            log.trace("Processing {} lines", lines.length);
+
+            for (String line : lines) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                parseLine(line);
+            }
+        } else {
+            scanLines(content, 0, content.length(), true);
+        }
+
+        finish();
+
+        log.trace("Excellon parse complete in {}ms: {} operations, {} tools",
+            System.currentTimeMillis() - startTime, document.getOperations().size(), document.getTools().size());
+
+        return document;
+    }
+
+    /**
+     * Parse an Excellon file, reading lines straight from a memory mapping of its bytes
+     * instead of decoding the whole file to a String first.
+     */
+    public DrillDocument parse(Path file) throws IOException {
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting mapped Excellon parse of {}", file);
+
+        begin();
+        MappedFileScanner.scan(file, MappedFileScanner.DEFAULT_WINDOW_SIZE,
+            (window, last) -> scanLines(window, 0, window.length(), last));
+        finish();
+
+        log.trace("Mapped Excellon parse complete in {}ms: {} operations, {} tools",
+            System.currentTimeMillis() - startTime, document.getOperations().size(), document.getTools().size());
+
+        return document;
+    }
+
+    /**
+     * Parse Excellon content from a reader, which is read in fixed-size chunks and not
+     * closed. A leading byte order mark is skipped.
+     */
+    public DrillDocument parse(Reader reader) throws IOException {
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting streaming Excellon parse");
+
+        begin();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length = 0;
+        boolean first = true;
+        boolean last = false;
+        while (!last) {
+            while (length < buffer.length) {
+                int n = reader.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    last = true;
+                    break;
+                }
+                length += n;
+            }
+            int from = 0;
+            if (first && length > 0) {
+                first = false;
+                if (buffer[0] == '\uFEFF') from = 1;
+            }
+            int stop = scanLines(CharBuffer.wrap(buffer, 0, length), from, length, last);
+            if (stop == 0 && length == buffer.length) {
+                // A single line fills the whole buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                // Lines are parsed as they are found, so the buffer can be reused
+                System.arraycopy(buffer, stop, buffer, 0, length - stop);
+                length -= stop;
+            }
+        }
+        finish();
+
+        log.trace("Streaming Excellon parse complete in {}ms: {} operations, {} tools",
+            System.currentTimeMillis() - startTime, document.getOperations().size(), document.getTools().size());
+
+        return document;
+    }
+
+    /**
+     * Parse the complete lines in [from, to) of the source; with {@code last} set, the
+     * text after the final line break is a line as well.
+     *
+     * @return position of the first character not consumed: the start of the unfinished
+     *         last line, or {@code to}
+     */
+    private int scanLines(CharSequence src, int from, int to, boolean last) {
+        int lineStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to && !last) break;
+            if (i == to || src.charAt(i) == '\n') {
+                // Same trimming as String.trim()
+                int start = lineStart;
+                int end = i;
+                while (start < end && src.charAt(start) <= ' ') start++;
+                while (end > start && src.charAt(end - 1) <= ' ') end--;
+                if (start < end) {
+                    parseLine(src, start, end);
+                }
+                lineStart = i + 1;
+            }
+        }
+        return last ? to : lineStart;
+    }
+
+    /**
+     * Parse the trimmed, non-empty line [start, end) of the source. Hit and tool-select
+     * lines are handled in place; everything else is parsed as a String.
+     */
+    private void parseLine(CharSequence src, int start, int end) {
+        if (mode == Mode.STREAMING) {
+            char first = src.charAt(start);
+            if ((first == 'X' || first == 'Y') && parseHitLine(src, start, end)) {
+                return;
+            }
+            if (first == 'T' && end - start > 1 && isDigits(src, start + 1, end)) {
+                currentTool = document.getTool(Integer.parseInt(src, start + 1, end, 10));
+                return;
+            }
+        }
+        parseLine(src.subSequence(start, end).toString());
+    }
+
+    /**
+     * Handle a line that matches {@link #COORDINATE} without a regex; such a line cannot
+     * match any of the patterns tried before it. Returns false for any other line.
+     */
+    private boolean parseHitLine(CharSequence src, int start, int end) {
+        int pos = start;
+        int xStart = -1, xEnd = -1, yStart = -1, yEnd = -1;
+        if (src.charAt(pos) == 'X') {
+            xStart = pos + 1;
+            xEnd = numberEnd(src, xStart, end);
+            if (xEnd < 0) return false;
+            pos = xEnd;
+        }
+        if (pos < end && src.charAt(pos) == 'Y') {
+            yStart = pos + 1;
+            yEnd = numberEnd(src, yStart, end);
+            if (yEnd < 0) return false;
+            pos = yEnd;
+        }
+        if (pos != end) {
+            return false;
+        }
+        handleCoordinate(src, xStart, xEnd, yStart, yEnd);
+        return true;
+    }
+
+    /**
+     * End of {@code [+-]?[\d.]+} at {@code start}, or -1 if there is no such number.
+     */
+    private static int numberEnd(CharSequence src, int start, int end) {
+        int pos = start;
+        if (pos < end && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+        int digitsStart = pos;
+        while (pos < end && (isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) pos++;
+        return pos > digitsStart ? pos : -1;
+    }
+
+    private static boolean isDigits(CharSequence src, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(src.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // ASCII digits only, like \d in the patterns
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void begin() {
         document = new DrillDocument();
         currentTool = null;
         currentX = 0;
@@ -95,24 +341,11 @@ public class ExcellonParser {
         holesizeTools.clear();
         holesizeToolIndex = 0;
         holesizeMetric = false;
+    }
 
-        String[] lines = content.split("\n");
-        log.trace("Processing {} lines", lines.length);
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-
-            parseLine(line);
-        }
-
+    private void finish() {
         // All coordinates and tool diameters have been normalized to mm during parsing
         document.setUnit(Unit.MM);
-
-        log.trace("Excellon parse complete in {}ms: {} operations, {} tools",
-            System.currentTimeMillis() - startTime, document.getOperations().size(), document.getTools().size());
-
-        return document;
     }
 
     private void parseLine(String line) {
@@ -220,7 +453,8 @@ public class ExcellonParser {
         // Handle coordinate (drill hit)
         Matcher coordMatcher = COORDINATE.matcher(line);
         if (coordMatcher.matches()) {
-            handleCoordinate(coordMatcher);
+            handleCoordinate(line, coordMatcher.start(1), coordMatcher.end(1),
+                coordMatcher.start(2), coordMatcher.end(2));
             return;
         }
     }
@@ -388,8 +622,7 @@ public class ExcellonParser {
             // If in routing mode and linear interpolation, this is a slot
             if (inRoutingMode && interpolationMode == InterpolationMode.LINEAR && currentTool != null) {
                 // Create slot from route start to this position
-                DrillSlot slot = new DrillSlot(currentTool, routeStartX, routeStartY, x, y);
-                document.addOperation(slot);
+                addSlot(routeStartX, routeStartY, x, y);
                 routeStartX = x;
                 routeStartY = y;
             }
@@ -399,16 +632,17 @@ public class ExcellonParser {
         }
     }
 
-    private void handleCoordinate(Matcher matcher) {
+    /**
+     * Drill hit or route move to the X and Y values at [xStart, xEnd) and [yStart, yEnd)
+     * of the source; a start of -1 means the axis is absent.
+     */
+    private void handleCoordinate(CharSequence src, int xStart, int xEnd, int yStart, int yEnd) {
         if (currentTool == null) {
             return; // No tool selected
         }
 
-        String xStr = matcher.group(1);
-        String yStr = matcher.group(2);
-
-        double x = xStr != null ? parseCoordinate(xStr) : currentX;
-        double y = yStr != null ? parseCoordinate(yStr) : currentY;
+        double x = xStart >= 0 ? parseCoordinate(src, xStart, xEnd) : currentX;
+        double y = yStart >= 0 ? parseCoordinate(src, yStart, yEnd) : currentY;
 
         if (document.getCoordinateMode() == CoordinateMode.INCREMENTAL) {
             x = currentX + x;
@@ -417,15 +651,13 @@ public class ExcellonParser {
 
         // If in routing mode with linear interpolation, create a slot
         if (inRoutingMode && interpolationMode == InterpolationMode.LINEAR) {
-            DrillSlot slot = new DrillSlot(currentTool, routeStartX, routeStartY, x, y);
-            document.addOperation(slot);
+            addSlot(routeStartX, routeStartY, x, y);
             routeStartX = x;
             routeStartY = y;
         } else if (!inRoutingMode || interpolationMode == InterpolationMode.RAPID) {
             // Either not in routing mode (drill hit) or rapid move (position update only)
             if (!inRoutingMode) {
-                DrillHit hit = new DrillHit(currentTool, x, y);
-                document.addOperation(hit);
+                addHit(x, y);
             }
         }
 
@@ -455,8 +687,7 @@ public class ExcellonParser {
             endY = startY + (endYStr != null ? parseCoordinate(endYStr) : 0);
         }
 
-        DrillSlot slot = new DrillSlot(currentTool, startX, startY, endX, endY);
-        document.addOperation(slot);
+        addSlot(startX, startY, endX, endY);
 
         currentX = endX;
         currentY = endY;
@@ -477,26 +708,75 @@ public class ExcellonParser {
         for (int i = 0; i < count; i++) {
             currentX += xOffset;
             currentY += yOffset;
-            DrillHit hit = new DrillHit(currentTool, currentX, currentY);
-            document.addOperation(hit);
+            addHit(currentX, currentY);
         }
     }
 
+    private void addHit(double x, double y) {
+        document.addOperation(fixedPoint
+            ? new FixedDrillHit(currentTool, (long) x, (long) y)
+            : new DrillHit(currentTool, x, y));
+    }
+
+    private void addSlot(double startX, double startY, double endX, double endY) {
+        document.addOperation(fixedPoint
+            ? new FixedDrillSlot(currentTool, (long) startX, (long) startY, (long) endX, (long) endY)
+            : new DrillSlot(currentTool, startX, startY, endX, endY));
+    }
+
     private double parseCoordinate(String value) {
         if (value == null || value.isEmpty()) {
             return 0;
         }
+        return parseCoordinate(value, 0, value.length());
+    }
 
+    private double parseCoordinate(CharSequence src, int start, int end) {
+        if (fixedPoint) {
+            return parseCoordinateNm(src, start, end);
+        }
         double parsed;
         // If the value contains a decimal point, parse directly
-        if (value.contains(".")) {
-            parsed = Double.parseDouble(value);
+        if (indexOf(src, '.', start, end) >= 0) {
+            parsed = Double.parseDouble(src.subSequence(start, end).toString());
         } else {
             // Otherwise, use the document's format settings
-            parsed = document.parseCoordinate(value);
+            parsed = document.parseCoordinate(src, start, end);
         }
 
         // Normalize to mm
         return document.getUnit().toMm(parsed);
     }
+
+    /**
+     * Nanometre counterpart of {@link #parseCoordinate(CharSequence, int, int)}, decoded
+     * from the digits in integer arithmetic.
+     */
+    private long parseCoordinateNm(CharSequence src, int start, int end) {
+        int dot = indexOf(src, '.', start, end);
+        if (dot < 0) {
+            return document.parseCoordinateNm(src, start, end);
+        }
+        int pos = start;
+        boolean negative = pos < end && src.charAt(pos) == '-';
+        if (pos < end && (src.charAt(pos) == '-' || src.charAt(pos) == '+')) pos++;
+        int decimals = end - dot - 1;
+        long mantissa = DecimalDigits.appendZeros(dot > pos ? DecimalDigits.mantissa(src, pos, dot) : 0,
+            dot - pos, decimals);
+        long fraction = decimals > 0 ? DecimalDigits.mantissa(src, dot + 1, end) : 0;
+        long nm = mantissa < 0 || fraction < 0 ? -1
+            : DecimalDigits.scaleRounded(mantissa + fraction, decimals, document.getUnit().getNmFactor());
+        if (nm < 0) {
+            // Not plain digits, or too many for a long
+            return FixedPoint.toNm(document.getUnit().toMm(Double.parseDouble(src.subSequence(start, end).toString())));
+        }
+        return negative ? -nm : nm;
+    }
+
+    private static int indexOf(CharSequence src, char ch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (src.charAt(i) == ch) return i;
+        }
+        return -1;
+    }
 }
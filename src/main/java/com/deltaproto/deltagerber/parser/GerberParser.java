@@ -12,18 +12,41 @@ import com.deltaproto.deltagerber.model.gerber.operation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Parser for Gerber files.
+ *
+ * <p>{@link #parse(String)} builds a complete {@link GerberDocument}. For large files,
+ * {@link #parse(Reader, GerberSink)} streams the input and hands each graphics object to
+ * a {@link GerberSink} as soon as it is complete, so memory use is bounded by the largest
+ * region or step-and-repeat block rather than by the file size. {@link #parse(Path)} lexes
+ * directly from a memory mapping of the file. Very large layers can be lexed and parsed
+ * in parallel chunks, see {@link #setParallelThreshold(int)}.</p>
  */
 public class GerberParser {
 
     private static final Logger log = LoggerFactory.getLogger(GerberParser.class);
 
-    private GerberDocument document;
+    /** Bumped whenever the documents this parser produces change, e.g. to invalidate caches. */
+    public static final int VERSION = 1;
+
+    // Definitions seen so far (apertures, macros, file attributes) for lookups during the
+    // parse; graphics objects, components and warnings only go to the sink
+    private GerberDocument definitions;
+    private GerberSink sink;
+    private int objectCount;
     private CoordinateFormat coordFormat;
     private Unit unit = Unit.MM;
 
@@ -38,6 +61,11 @@ public class GerberParser {
     private boolean inRegion = false;
     private Region currentRegion;
     private Contour currentContour;
+    // Fixed point: the same positions in nanometres, decoded from the digits, and the
+    // region being built from them
+    private long currentXNm, currentYNm;
+    private List<FixedContour> fixedContours;
+    private FixedContour.Builder fixedContour;
 
     // Aperture transformation state (LR, LS, LM)
     private double loadRotation = 0;       // Rotation in degrees
@@ -59,25 +87,166 @@ public class GerberParser {
     // D-code reuses the last active D-code (D01, D02, or D03).
     private TokenType lastDCode = null;
 
-    private static final Pattern COORD_X = Pattern.compile("X([+-]?\\d+)");
-    private static final Pattern COORD_Y = Pattern.compile("Y([+-]?\\d+)");
-    private static final Pattern COORD_I = Pattern.compile("I([+-]?\\d+)");
-    private static final Pattern COORD_J = Pattern.compile("J([+-]?\\d+)");
+    // Emit Fixed* objects with nanometre coordinates instead of double millimetres
+    private boolean fixedPoint = false;
+
+    /**
+     * Select the fixed-point coordinate model: graphics objects are emitted as
+     * {@link FixedDraw}, {@link FixedArc}, {@link FixedFlash} and {@link FixedRegion}
+     * with {@code long} nanometre coordinates, decoded from the coordinate digits in
+     * integer arithmetic. Off by default.
+     *
+     * <p>This is about exactness, not memory: a fixed-point object takes as much heap as
+     * its double counterpart. Combine it with {@link #setColumnarStore(boolean)} to keep
+     * the nanometres in primitive columns.</p>
+     */
+    public GerberParser setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        return this;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    // Keep document objects in a ColumnarObjectList instead of an ArrayList
+    private boolean columnarStore = false;
+
+    /**
+     * Store the objects of parsed documents column-wise in a {@link ColumnarObjectList},
+     * which takes far less heap for large layers. The document's object list then becomes
+     * a read-only view whose elements are created on access. With
+     * {@link #setFixedPoint(boolean) fixed point} the columns hold the nanometres and the
+     * view creates fixed-point objects. Off by default; only affects the parse methods that
+     * return a {@link GerberDocument}.
+     */
+    public GerberParser setColumnarStore(boolean columnarStore) {
+        this.columnarStore = columnarStore;
+        return this;
+    }
+
+    public boolean isColumnarStore() {
+        return columnarStore;
+    }
+
+    // Emit step-and-repeat blocks as a single StepRepeatBlock instead of translated copies
+    private boolean lazyStepRepeat = false;
+
+    /**
+     * Emit each step-and-repeat block as one {@link StepRepeatBlock} that holds the block's
+     * objects once, instead of a translated copy of every object per instance. Blocks that
+     * contain clear objects are still expanded. Off by default; consumers that need every
+     * instance can use {@link StepRepeatBlock#flatten(Iterable)}.
+     */
+    public GerberParser setLazyStepRepeat(boolean lazyStepRepeat) {
+        this.lazyStepRepeat = lazyStepRepeat;
+        return this;
+    }
+
+    public boolean isLazyStepRepeat() {
+        return lazyStepRepeat;
+    }
+
+    // Record the source offset of every graphics object
+    private boolean sourceMap = false;
+
+    /**
+     * Record where in the input each graphics object came from: the parsed document gets
+     * a {@link SourceMap} with one offset per object and a table of line breaks for
+     * turning offsets into lines and columns; a {@link GerberSink} receives it through
+     * {@link GerberSink#onSourceMap}. The offsets are collected while lexing, without
+     * another pass over the input. Off by default, in which case nothing is recorded.
+     * Parses with a source map are never run in parallel.
+     */
+    public GerberParser setSourceMap(boolean sourceMap) {
+        this.sourceMap = sourceMap;
+        return this;
+    }
+
+    public boolean isSourceMap() {
+        return sourceMap;
+    }
+
+    // Source map of the current parse, or null when not recording one
+    private SourceMap currentSourceMap;
+    // Offsets of the current token, of the first coordinate of the pending statement,
+    // of the open region's G36 and of the open step-and-repeat block's %SR%
+    private int tokenOffset;
+    private int statementOffset;
+    private int regionOffset;
+    private int srOffset;
+
+    // Contents of at least this many characters are parsed in parallel chunks; 0 = never
+    private int parallelThreshold = 0;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Parse contents of at least this many characters in parallel: the content is split
+     * into chunks at line breaks outside %...% blocks, the chunks are lexed and parsed on
+     * the executor, and a sequential pass over the tokens handles definitions and tracks
+     * the modal state each chunk starts in. The document is the same as a sequential
+     * parse. 0 (the default) never parses in parallel. Applies to {@link #parse(String)}
+     * and {@link #parse(Path)}.
+     */
+    public GerberParser setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Number of threads a parallel parse is planned for. Defaults to the number of
+     * available processors.
+     */
+    public GerberParser setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Executor for the chunks of a parallel parse. Defaults to the common fork-join pool.
+     * The parsing thread waits for the chunks, so it must not be the executor's only thread.
+     */
+    public GerberParser setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    private boolean isParallel(long length) {
+        return parallelThreshold > 0 && length >= parallelThreshold && parallelism > 1
+            && length <= Integer.MAX_VALUE && !sourceMap;
+    }
+
+    private GerberDocument newDocument() {
+        return columnarStore ? new GerberDocument(new ColumnarObjectList(fixedPoint)) : new GerberDocument();
+    }
 
     private void resetState() {
         coordFormat = null;
         unit = Unit.MM;
         currentX = 0; currentY = 0;
+        currentXNm = 0; currentYNm = 0;
         currentAperture = null;
         currentPolarity = Polarity.DARK;
         linearMode = true; clockwise = true; multiQuadrant = true;
         inRegion = false; currentRegion = null; currentContour = null;
+        fixedContours = null; fixedContour = null;
         loadRotation = 0; loadScaling = 1.0; loadMirrorX = false; loadMirrorY = false;
         toRefdes = null; toValue = null; toFootprint = null; toMountType = null;
         toRotation = 0; inComponentContext = false; hasPinAttribute = false; centroidRecorded = false;
         lastDCode = null;
         pendingX = Double.NaN; pendingY = Double.NaN; pendingI = Double.NaN; pendingJ = Double.NaN;
-        srStartIndex = -1; srRepeatX = 1; srRepeatY = 1; srStepX = 0; srStepY = 0;
+        srObjects = null; srOffsets = null; srRepeatX = 1; srRepeatY = 1; srStepX = 0; srStepY = 0;
+        objectCount = 0;
+        tokenOffset = 0; statementOffset = 0; regionOffset = 0; srOffset = 0;
     }
 
     public GerberDocument parse(String content) {
@@ -89,36 +258,137 @@ public class GerberParser {
             content = content.substring(1);
         }
 
+        DocumentSink documentSink = new DocumentSink(newDocument());
+        if (isParallel(content.length())) {
+            parseParallel(content, documentSink);
+        } else {
+            begin(documentSink);
+            lexer().tokenizePositioned(content, this::processToken);
+            finish();
+        }
+
+        GerberDocument document = documentSink.getDocument();
+        log.trace("Gerber parse complete in {}ms: {} objects, {} apertures",
+            System.currentTimeMillis() - startTime, document.getObjects().size(), document.getApertures().size());
+
+        return document;
+    }
+
+    /**
+     * Parse Gerber content from a reader, streaming the results to a sink.
+     * The reader is consumed incrementally and is not closed.
+     */
+    public void parse(Reader reader, GerberSink sink) throws IOException {
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting streaming Gerber parse");
+
+        begin(sink);
+        lexer().tokenizePositioned(reader, this::processToken);
+        finish();
+
+        log.trace("Streaming Gerber parse complete in {}ms: {} objects",
+            System.currentTimeMillis() - startTime, objectCount);
+    }
+
+    /**
+     * Parse a Gerber file, lexing straight from a memory mapping of its bytes.
+     */
+    public GerberDocument parse(Path file) throws IOException {
+        DocumentSink documentSink = new DocumentSink(newDocument());
+        parse(file, documentSink);
+        return documentSink.getDocument();
+    }
+
+    /**
+     * Parse a Gerber file from a memory mapping of its bytes, streaming the results to a sink.
+     */
+    public void parse(Path file, GerberSink sink) throws IOException {
+        long startTime = System.currentTimeMillis();
+        log.trace("Starting mapped Gerber parse of {}", file);
+
+        if (isParallel(Files.size(file))) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            parseParallel(content.startsWith("\uFEFF") ? content.substring(1) : content, sink);
+        } else {
+            begin(sink);
+            lexer().tokenizePositioned(file, this::processToken);
+            finish();
+        }
+
+        log.trace("Mapped Gerber parse complete in {}ms: {} objects",
+            System.currentTimeMillis() - startTime, objectCount);
+    }
+
+    private void begin(GerberSink sink) {
         resetState();
-        document = new GerberDocument();
-        GerberLexer lexer = new GerberLexer();
+        this.sink = sink;
+        definitions = new GerberDocument();
+        currentSourceMap = sourceMap ? new SourceMap() : null;
+    }
 
-        long lexStart = System.currentTimeMillis();
-        List<Token> tokens = lexer.tokenize(content);
-        log.trace("Lexer produced {} tokens in {}ms", tokens.size(), System.currentTimeMillis() - lexStart);
+    private void finish() {
+        // An unterminated step-and-repeat block keeps its objects without repeating them
+        flushStepRepeat();
+        if (currentSourceMap != null) {
+            currentSourceMap.trimToSize();
+            sink.onSourceMap(currentSourceMap);
+            currentSourceMap = null;
+        }
+    }
 
-        long parseStart = System.currentTimeMillis();
-        for (Token token : tokens) {
-            processToken(token);
+    private GerberLexer lexer() {
+        GerberLexer lexer = new GerberLexer();
+        if (currentSourceMap != null) {
+            lexer.setNewlineListener(currentSourceMap::addNewline);
         }
-        log.trace("Token processing took {}ms", System.currentTimeMillis() - parseStart);
+        return lexer;
+    }
 
-        // All coordinates and dimensions have been normalized to mm during parsing.
-        // Set the document unit to MM so downstream code knows the data is in mm.
-        document.setUnit(Unit.MM);
+    private void emit(GraphicsObject obj) {
+        if (currentSourceMap == null) {
+            emit(obj, 0);
+        } else {
+            emit(obj, hasPendingCoordinates() ? statementOffset : tokenOffset);
+        }
+    }
 
-        log.trace("Gerber parse complete in {}ms: {} objects, {} apertures",
-            System.currentTimeMillis() - startTime, document.getObjects().size(), document.getApertures().size());
+    private void emit(GraphicsObject obj, int offset) {
+        if (srObjects != null) {
+            if (srOffsets != null) {
+                if (srObjects.size() == srOffsets.length) {
+                    srOffsets = Arrays.copyOf(srOffsets, srOffsets.length * 2);
+                }
+                srOffsets[srObjects.size()] = offset;
+            }
+            srObjects.add(obj);
+        } else {
+            sink.onObject(obj);
+            if (currentSourceMap != null) {
+                currentSourceMap.addObject(offset);
+            }
+            objectCount++;
+        }
+    }
 
-        return document;
+    private void warn(String warning) {
+        sink.onWarning(warning);
+    }
+
+    private void processToken(Token token, int offset) {
+        tokenOffset = offset;
+        processToken(token);
     }
 
     private void processToken(Token token) {
         switch (token.getType()) {
             case FORMAT_SPEC -> parseFormatSpec(token);
             case UNIT -> parseUnit(token);
-            case APERTURE_DEFINE -> parseApertureDefine(token);
-            case APERTURE_MACRO -> parseApertureMacro(token);
+            case APERTURE_DEFINE -> {
+                if (chunkDefinitions != null) reuseDefinition(token); else parseApertureDefine(token);
+            }
+            case APERTURE_MACRO -> {
+                if (chunkDefinitions != null) reuseDefinition(token); else parseApertureMacro(token);
+            }
             case APERTURE_SELECT -> parseApertureSelect(token);
             case FILE_ATTRIBUTE -> parseFileAttribute(token);
             case OBJECT_ATTRIBUTE -> parseObjectAttribute(token);
@@ -137,7 +407,10 @@ public class GerberParser {
                 if (hasPendingCoordinates() && lastDCode != null) {
                     executeModalDCode();
                 }
-                parseCoordinate(token);
+                if (currentSourceMap != null && !hasPendingCoordinates()) {
+                    statementOffset = tokenOffset;
+                }
+                if (symbolic) markCoordinate(token); else parseCoordinate(token);
             }
             case D01 -> { lastDCode = TokenType.D01; executeD01(); }
             case D02 -> { lastDCode = TokenType.D02; executeD02(); }
@@ -184,15 +457,16 @@ public class GerberParser {
             int intDigits = Integer.parseInt(matcher.group(3));
             int decDigits = Integer.parseInt(matcher.group(4));
             coordFormat = new CoordinateFormat(intDigits, decDigits, leadingZeroOmitted, absolute);
-            document.setCoordinateFormat(coordFormat);
+            definitions.setCoordinateFormat(coordFormat);
+            sink.onCoordinateFormat(coordFormat);
             if (ltFlag.isEmpty() || aiFlag.isEmpty()) {
-                document.addWarning("Non-standard FS spec '" + content
+                warn("Non-standard FS spec '" + content
                     + "' — missing " + (ltFlag.isEmpty() ? "zero-suppression" : "")
                     + (ltFlag.isEmpty() && aiFlag.isEmpty() ? "/" : "")
                     + (aiFlag.isEmpty() ? "notation" : "") + " flag, assuming L/A");
             }
         } else {
-            document.addWarning("Failed to parse FS spec: " + content);
+            warn("Failed to parse FS spec: " + content);
         }
     }
 
@@ -203,7 +477,6 @@ public class GerberParser {
         } else if (content.contains("IN")) {
             unit = Unit.INCH;
         }
-        document.setUnit(unit);
     }
 
     private void parseApertureMacro(Token token) {
@@ -219,8 +492,7 @@ public class GerberParser {
         if (starIndex == -1) {
             // Simple macro with no body yet (rare but possible)
             String name = content;
-            MacroTemplate template = new MacroTemplate(name);
-            document.addMacroTemplate(template);
+            defineMacroTemplate(new MacroTemplate(name));
             return;
         }
 
@@ -229,7 +501,32 @@ public class GerberParser {
 
         MacroTemplate template = new MacroTemplate(name);
         template.parse(body);
-        document.addMacroTemplate(template);
+        defineMacroTemplate(template);
+    }
+
+    private void defineMacroTemplate(MacroTemplate template) {
+        definitions.addMacroTemplate(template);
+        sink.onMacroTemplate(template);
+        if (symbolic) definedByToken.put(currentToken, template);
+    }
+
+    private void defineAperture(Aperture aperture) {
+        definitions.addAperture(aperture);
+        sink.onAperture(aperture);
+        if (symbolic) definedByToken.put(currentToken, aperture);
+    }
+
+    /**
+     * Chunk parsers use the aperture or macro the sequential pass created for the token,
+     * so that every object refers to the document's instances.
+     */
+    private void reuseDefinition(Token token) {
+        Object definition = chunkDefinitions.get(token);
+        if (definition instanceof Aperture aperture) {
+            definitions.addAperture(aperture);
+        } else if (definition instanceof MacroTemplate template) {
+            definitions.addMacroTemplate(template);
+        }
     }
 
     private void parseApertureDefine(Token token) {
@@ -246,7 +543,7 @@ public class GerberParser {
 
             Aperture aperture = createAperture(dCode, template, params);
             if (aperture != null) {
-                document.addAperture(aperture);
+                defineAperture(aperture);
             }
             return;
         }
@@ -262,7 +559,7 @@ public class GerberParser {
             // EAGLE octagons have a flat edge at the top, so rotate by half a vertex angle
             double rotation = 180.0 / numVertices;
             Aperture aperture = new PolygonAperture(dCode, diameter, numVertices, rotation);
-            document.addAperture(aperture);
+            defineAperture(aperture);
             return;
         }
 
@@ -274,11 +571,11 @@ public class GerberParser {
             String macroName = macroMatcher.group(2);
             String params = macroMatcher.group(3) != null ? macroMatcher.group(3) : "";
 
-            MacroTemplate template = document.getMacroTemplate(macroName);
+            MacroTemplate template = definitions.getMacroTemplate(macroName);
             if (template != null) {
                 List<Double> paramValues = parseApertureParams(params);
                 Aperture aperture = new MacroAperture(dCode, template, paramValues, unit.toMm(1.0));
-                document.addAperture(aperture);
+                defineAperture(aperture);
             }
         }
     }
@@ -331,9 +628,9 @@ public class GerberParser {
     }
 
     private void parseApertureSelect(Token token) {
-        String content = token.getContent();
-        int dCode = Integer.parseInt(content.substring(1));
-        currentAperture = document.getAperture(dCode);
+        // Dnn: the D-code straight from the token's source range
+        int dCode = Integer.parseInt(token.getSource(), token.getStart() + 1, token.getEnd(), 10);
+        currentAperture = definitions.getAperture(dCode);
     }
 
     private void parseFileAttribute(Token token) {
@@ -353,7 +650,9 @@ public class GerberParser {
             List<String> values = parts.length > 1 ?
                 Arrays.asList(Arrays.copyOfRange(parts, 1, parts.length)) :
                 Collections.emptyList();
-            document.addFileAttribute(new FileAttribute("." + name, values));
+            FileAttribute attribute = new FileAttribute("." + name, values);
+            definitions.addFileAttribute(attribute);
+            sink.onFileAttribute(attribute);
         }
     }
 
@@ -439,8 +738,10 @@ public class GerberParser {
         }
     }
 
-    // Step and Repeat state
-    private int srStartIndex = -1;
+    // Step and Repeat state: objects of the open block, or null outside a block, and
+    // their source offsets when recording a source map
+    private List<GraphicsObject> srObjects;
+    private int[] srOffsets;
     private int srRepeatX = 1, srRepeatY = 1;
     private double srStepX = 0, srStepY = 0;
 
@@ -449,7 +750,7 @@ public class GerberParser {
         // %IPPOS*% or %IPNEG*%
         // NEG inverts all polarities
         if (content.contains("NEG")) {
-            document.addWarning("Image polarity NEG detected — polarity inversion not fully supported");
+            warn("Image polarity NEG detected — polarity inversion not fully supported");
         }
         // POS is the default, no action needed
     }
@@ -464,7 +765,7 @@ public class GerberParser {
             double offsetA = Double.parseDouble(matcher.group(1));
             double offsetB = Double.parseDouble(matcher.group(2));
             if (offsetA != 0 || offsetB != 0) {
-                document.addWarning("Non-zero image offset detected: A=" + offsetA + " B=" + offsetB);
+                warn("Non-zero image offset detected: A=" + offsetA + " B=" + offsetB);
             }
         }
     }
@@ -473,21 +774,28 @@ public class GerberParser {
         String content = token.getContent();
         // Close: "SR" with no parameters
         if (content.equals("SR") || !content.contains("X")) {
-            if (srStartIndex >= 0) {
-                List<GraphicsObject> allObjects = document.getObjects();
-                List<GraphicsObject> srObjects = new ArrayList<>(
-                    allObjects.subList(srStartIndex, allObjects.size()));
+            if (srObjects != null && lazyStepRepeat && srRepeatX * srRepeatY > 1 && isAllDark(srObjects)) {
+                List<GraphicsObject> blockObjects = srObjects;
+                srObjects = null;
+                srOffsets = null;
+                if (!blockObjects.isEmpty()) {
+                    emit(new StepRepeatBlock(blockObjects, srRepeatX, srRepeatY, srStepX, srStepY), srOffset);
+                }
+            } else if (srObjects != null) {
+                List<GraphicsObject> blockObjects = srObjects;
+                int[] blockOffsets = srOffsets;
+                flushStepRepeat();
                 for (int iy = 0; iy < srRepeatY; iy++) {
                     for (int ix = 0; ix < srRepeatX; ix++) {
                         if (ix == 0 && iy == 0) continue;
                         double offsetX = ix * srStepX;
                         double offsetY = iy * srStepY;
-                        for (GraphicsObject obj : srObjects) {
-                            document.addObject(obj.translate(offsetX, offsetY));
+                        for (int i = 0; i < blockObjects.size(); i++) {
+                            emit(blockObjects.get(i).translate(offsetX, offsetY),
+                                blockOffsets != null ? blockOffsets[i] : 0);
                         }
                     }
                 }
-                srStartIndex = -1;
             }
             return;
         }
@@ -500,14 +808,42 @@ public class GerberParser {
             double f = unit.toMm(1.0);
             srStepX = Double.parseDouble(matcher.group(3)) * f;
             srStepY = Double.parseDouble(matcher.group(4)) * f;
-            srStartIndex = document.getObjects().size();
+            // A new block implicitly ends an unclosed one, whose objects are kept as-is
+            flushStepRepeat();
+            srObjects = new ArrayList<>();
+            srOffsets = currentSourceMap != null ? new int[16] : null;
+            srOffset = tokenOffset;
+        }
+    }
+
+    private static boolean isAllDark(List<GraphicsObject> objects) {
+        for (GraphicsObject obj : objects) {
+            if (obj.getPolarity() != Polarity.DARK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Emit the objects of the open step-and-repeat block once and leave block mode.
+     */
+    private void flushStepRepeat() {
+        if (srObjects != null) {
+            List<GraphicsObject> blockObjects = srObjects;
+            int[] blockOffsets = srOffsets;
+            srObjects = null;
+            srOffsets = null;
+            for (int i = 0; i < blockObjects.size(); i++) {
+                emit(blockObjects.get(i), blockOffsets != null ? blockOffsets[i] : 0);
+            }
         }
     }
 
     private void parseBlockAperture(Token token) {
         String content = token.getContent();
         if (content.length() > 2 && content.contains("D")) {
-            document.addWarning("Block aperture (AB) not fully supported: " + content);
+            warn("Block aperture (AB) not fully supported: " + content);
         }
         // AB close (just "AB") is silently ignored
     }
@@ -516,37 +852,80 @@ public class GerberParser {
     private double pendingY = Double.NaN;
     private double pendingI = Double.NaN;
     private double pendingJ = Double.NaN;
+    // Only meaningful in fixed point, where they are set alongside the values above
+    private long pendingXNm, pendingYNm, pendingINm, pendingJNm;
 
     private void parseCoordinate(Token token) {
-        String content = token.getContent();
+        // Decode straight from the token's source range: X, Y, I and J each followed by
+        // an optional sign and digits. Only the first value per axis counts.
+        CharSequence src = token.getSource();
+        int end = token.getEnd();
         double f = unit.toMm(1.0);
-
-        Matcher xm = COORD_X.matcher(content);
-        if (xm.find()) {
-            pendingX = coordFormat.parseCoordinate(xm.group(1)) * f;
-        }
-
-        Matcher ym = COORD_Y.matcher(content);
-        if (ym.find()) {
-            pendingY = coordFormat.parseCoordinate(ym.group(1)) * f;
-        }
-
-        Matcher im = COORD_I.matcher(content);
-        if (im.find()) {
-            pendingI = coordFormat.parseCoordinate(im.group(1)) * f;
-        }
-
-        Matcher jm = COORD_J.matcher(content);
-        if (jm.find()) {
-            pendingJ = coordFormat.parseCoordinate(jm.group(1)) * f;
+        boolean seenX = false, seenY = false, seenI = false, seenJ = false;
+
+        int pos = token.getStart();
+        while (pos < end) {
+            char axis = src.charAt(pos++);
+            int valueStart = pos;
+            if (pos < end && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+            int digitsStart = pos;
+            while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
+            if (pos == digitsStart) continue;
+
+            switch (axis) {
+                case 'X' -> {
+                    if (!seenX) {
+                        pendingX = coordFormat.parseCoordinate(src, valueStart, pos) * f;
+                        if (fixedPoint) pendingXNm = coordFormat.parseCoordinateNm(src, valueStart, pos, unit);
+                    }
+                    seenX = true;
+                }
+                case 'Y' -> {
+                    if (!seenY) {
+                        pendingY = coordFormat.parseCoordinate(src, valueStart, pos) * f;
+                        if (fixedPoint) pendingYNm = coordFormat.parseCoordinateNm(src, valueStart, pos, unit);
+                    }
+                    seenY = true;
+                }
+                case 'I' -> {
+                    if (!seenI) {
+                        pendingI = coordFormat.parseCoordinate(src, valueStart, pos) * f;
+                        if (fixedPoint) pendingINm = coordFormat.parseCoordinateNm(src, valueStart, pos, unit);
+                    }
+                    seenI = true;
+                }
+                case 'J' -> {
+                    if (!seenJ) {
+                        pendingJ = coordFormat.parseCoordinate(src, valueStart, pos) * f;
+                        if (fixedPoint) pendingJNm = coordFormat.parseCoordinateNm(src, valueStart, pos, unit);
+                    }
+                    seenJ = true;
+                }
+                default -> { /* Not an axis letter */ }
+            }
         }
     }
 
     private void executeD01() {
         double newX = Double.isNaN(pendingX) ? currentX : pendingX;
         double newY = Double.isNaN(pendingY) ? currentY : pendingY;
-
-        if (inRegion) {
+        long newXNm = Double.isNaN(pendingX) ? currentXNm : pendingXNm;
+        long newYNm = Double.isNaN(pendingY) ? currentYNm : pendingYNm;
+        long centerXNm = currentXNm + (Double.isNaN(pendingI) ? 0 : pendingINm);
+        long centerYNm = currentYNm + (Double.isNaN(pendingJ) ? 0 : pendingJNm);
+
+        if (symbolic) {
+            advanceSymbolic();
+        } else if (inRegion && fixedPoint) {
+            if (fixedContour == null) {
+                fixedContour = new FixedContour.Builder(currentXNm, currentYNm);
+            }
+            if (linearMode) {
+                fixedContour.addLineTo(newXNm, newYNm);
+            } else {
+                fixedContour.addArcTo(newXNm, newYNm, centerXNm, centerYNm, clockwise);
+            }
+        } else if (inRegion) {
             if (currentContour == null) {
                 currentContour = new Contour(currentX, currentY);
             }
@@ -560,55 +939,82 @@ public class GerberParser {
         } else if (currentAperture != null) {
             GraphicsObject obj;
             if (linearMode) {
-                obj = new Draw(currentX, currentY, newX, newY, currentAperture);
+                obj = fixedPoint
+                    ? new FixedDraw(currentXNm, currentYNm, newXNm, newYNm, currentAperture)
+                    : new Draw(currentX, currentY, newX, newY, currentAperture);
             } else {
                 double centerX = currentX + (Double.isNaN(pendingI) ? 0 : pendingI);
                 double centerY = currentY + (Double.isNaN(pendingJ) ? 0 : pendingJ);
-                obj = new Arc(currentX, currentY, newX, newY, centerX, centerY, clockwise, currentAperture);
+                obj = fixedPoint
+                    ? new FixedArc(currentXNm, currentYNm, newXNm, newYNm, centerXNm, centerYNm,
+                        clockwise, currentAperture)
+                    : new Arc(currentX, currentY, newX, newY, centerX, centerY, clockwise, currentAperture);
             }
             obj.setPolarity(currentPolarity);
-            document.addObject(obj);
+            emit(obj);
         }
 
         currentX = newX;
         currentY = newY;
+        currentXNm = newXNm;
+        currentYNm = newYNm;
         clearPending();
     }
 
     private void executeD02() {
         double newX = Double.isNaN(pendingX) ? currentX : pendingX;
         double newY = Double.isNaN(pendingY) ? currentY : pendingY;
+        long newXNm = Double.isNaN(pendingX) ? currentXNm : pendingXNm;
+        long newYNm = Double.isNaN(pendingY) ? currentYNm : pendingYNm;
 
+        if (inRegion && fixedContour != null) {
+            fixedContours.add(fixedContour.build());
+            fixedContour = new FixedContour.Builder(newXNm, newYNm);
+        }
         if (inRegion && currentContour != null) {
             currentRegion.addContour(currentContour);
             currentContour = new Contour(newX, newY);
         }
+        if (symbolic) advanceSymbolic();
 
         currentX = newX;
         currentY = newY;
+        currentXNm = newXNm;
+        currentYNm = newYNm;
         clearPending();
     }
 
     private void executeD03() {
         double newX = Double.isNaN(pendingX) ? currentX : pendingX;
         double newY = Double.isNaN(pendingY) ? currentY : pendingY;
-
-        if (currentAperture != null && !inRegion) {
-            Flash flash = new Flash(newX, newY, currentAperture, loadRotation, loadScaling, loadMirrorX, loadMirrorY);
+        long newXNm = Double.isNaN(pendingX) ? currentXNm : pendingXNm;
+        long newYNm = Double.isNaN(pendingY) ? currentYNm : pendingYNm;
+
+        if (symbolic) {
+            advanceSymbolic();
+        } else if (currentAperture != null && !inRegion) {
+            GraphicsObject flash = fixedPoint
+                ? new FixedFlash(newXNm, newYNm, currentAperture,
+                    loadRotation, loadScaling, loadMirrorX, loadMirrorY)
+                : new Flash(newX, newY, currentAperture, loadRotation, loadScaling, loadMirrorX, loadMirrorY);
             flash.setPolarity(currentPolarity);
-            document.addObject(flash);
+            emit(flash);
         }
 
         // First D03 per component (before any %TO.P%) is the centroid.
         if (inComponentContext && !hasPinAttribute && !centroidRecorded && toRefdes != null) {
-            document.addComponent(new ComponentPlacement(
-                toRefdes, toValue, toFootprint, toMountType,
-                newX, newY, toRotation, document.getComponentSide()));
+            if (!symbolic) {
+                sink.onComponent(new ComponentPlacement(
+                    toRefdes, toValue, toFootprint, toMountType,
+                    newX, newY, toRotation, definitions.getComponentSide()));
+            }
             centroidRecorded = true;
         }
 
         currentX = newX;
         currentY = newY;
+        currentXNm = newXNm;
+        currentYNm = newYNm;
         clearPending();
     }
 
@@ -621,20 +1027,290 @@ public class GerberParser {
 
     private void startRegion() {
         inRegion = true;
+        regionOffset = tokenOffset;
         currentRegion = new Region();
         currentRegion.setPolarity(currentPolarity);
         currentContour = null;
+        fixedContours = fixedPoint ? new ArrayList<>() : null;
+        fixedContour = null;
     }
 
     private void endRegion() {
         if (currentContour != null) {
             currentRegion.addContour(currentContour);
         }
-        if (currentRegion != null && !currentRegion.getContours().isEmpty()) {
-            document.addObject(currentRegion);
+        if (fixedContour != null) {
+            fixedContours.add(fixedContour.build());
+        }
+        if (fixedContours != null && !fixedContours.isEmpty()) {
+            FixedRegion region = new FixedRegion(fixedContours);
+            region.setPolarity(currentRegion.getPolarity());
+            emit(region, regionOffset);
+        } else if (currentRegion != null && !currentRegion.getContours().isEmpty()) {
+            emit(currentRegion, regionOffset);
         }
         inRegion = false;
         currentRegion = null;
         currentContour = null;
+        fixedContours = null;
+        fixedContour = null;
+    }
+
+    // Parallel parsing. The sequential pass runs in symbolic mode: it handles definitions,
+    // attributes and warnings, tracks all modal state, and records coordinates as the
+    // tokens they come from instead of decoding them. Graphics objects and components are
+    // produced by chunk parsers, each starting from the state the sequential pass had
+    // at the chunk's first token.
+    private boolean symbolic;
+    private Token currentToken;
+    private CoordinateRef currentXRef, currentYRef;
+    private CoordinateRef pendingXRef, pendingYRef, pendingIRef, pendingJRef;
+    // Sequential pass: apertures and macros created for the tokens of the current chunk
+    private Map<Token, Object> definedByToken;
+    // Chunk parser: the apertures and macros of its chunk, by defining token
+    private Map<Token, Object> chunkDefinitions;
+
+    /**
+     * A coordinate value as the token it was read from, with the format and unit
+     * in effect at that token.
+     */
+    private record CoordinateRef(Token token, CoordinateFormat format, Unit unit) {
+
+        double decode(char axis) {
+            int start = find(axis);
+            return format.parseCoordinate(token.getSource(), start, valueEnd(start)) * unit.toMm(1.0);
+        }
+
+        long decodeNm(char axis) {
+            int start = find(axis);
+            return format.parseCoordinateNm(token.getSource(), start, valueEnd(start), unit);
+        }
+
+        // The value at start is an optional sign and at least one digit
+        private int valueEnd(int start) {
+            CharSequence src = token.getSource();
+            int pos = start + 1;
+            while (pos < token.getEnd() && Character.isDigit(src.charAt(pos))) pos++;
+            return pos;
+        }
+
+        /** Start of the axis's value in the token source. */
+        private int find(char axis) {
+            CharSequence src = token.getSource();
+            int end = token.getEnd();
+            int pos = token.getStart();
+            while (pos < end) {
+                char c = src.charAt(pos++);
+                int valueStart = pos;
+                if (pos < end && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+                int digitsStart = pos;
+                while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
+                if (pos > digitsStart && c == axis) {
+                    return valueStart;
+                }
+            }
+            throw new IllegalStateException("No " + axis + " value in " + token);
+        }
+    }
+
+    /**
+     * Symbolic counterpart of {@link #parseCoordinate}: marks the axes the token sets as
+     * pending and remembers the token.
+     */
+    private void markCoordinate(Token token) {
+        CoordinateRef ref = new CoordinateRef(token, coordFormat, unit);
+        CharSequence src = token.getSource();
+        int end = token.getEnd();
+        int pos = token.getStart();
+        while (pos < end) {
+            char axis = src.charAt(pos++);
+            if (pos < end && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+            int digitsStart = pos;
+            while (pos < end && Character.isDigit(src.charAt(pos))) pos++;
+            if (pos == digitsStart) continue;
+
+            switch (axis) {
+                case 'X' -> { pendingX = 0; pendingXRef = ref; }
+                case 'Y' -> { pendingY = 0; pendingYRef = ref; }
+                case 'I' -> { pendingI = 0; pendingIRef = ref; }
+                case 'J' -> { pendingJ = 0; pendingJRef = ref; }
+                default -> { /* Not an axis letter */ }
+            }
+        }
+    }
+
+    /**
+     * Symbolic counterpart of moving to the pending point.
+     */
+    private void advanceSymbolic() {
+        if (!Double.isNaN(pendingX)) currentXRef = pendingXRef;
+        if (!Double.isNaN(pendingY)) currentYRef = pendingYRef;
+    }
+
+    /**
+     * Receives the output of one chunk parser.
+     */
+    private static final class ChunkSink implements GerberSink {
+        private final List<GraphicsObject> objects = new ArrayList<>();
+        private final List<ComponentPlacement> components = new ArrayList<>();
+
+        @Override
+        public void onObject(GraphicsObject object) {
+            objects.add(object);
+        }
+
+        @Override
+        public void onComponent(ComponentPlacement component) {
+            components.add(component);
+        }
+    }
+
+    private void parseParallel(String content, GerberSink sink) {
+        List<GerberLexer.Range> ranges = GerberLexer.split(content, parallelism * CHUNKS_PER_THREAD);
+        List<CompletableFuture<List<Token>>> lexed = new ArrayList<>(ranges.size());
+        for (GerberLexer.Range range : ranges) {
+            lexed.add(CompletableFuture.supplyAsync(() -> {
+                List<Token> tokens = new ArrayList<>(Math.max(16, (range.end() - range.start()) / 12));
+                new GerberLexer().tokenize(content, range.start(), range.end(), range.line(), tokens::add);
+                return tokens;
+            }, executor));
+        }
+
+        begin(sink);
+        symbolic = true;
+        List<CompletableFuture<ChunkSink>> chunks = new ArrayList<>();
+        try {
+            GerberParser chunkParser = null;
+            // Token lists of the current chunk: the rest of the range it starts in, then
+            // any further ranges while a region or block stays open
+            List<List<Token>> chunkTokens = null;
+            for (CompletableFuture<List<Token>> range : lexed) {
+                List<Token> tokens = join(range);
+                int chunkStart = -1;
+                for (int i = 0; i < tokens.size(); i++) {
+                    // Chunks start where no region or step-and-repeat block is open
+                    if (chunkStart < 0 && !inRegion && srObjects == null) {
+                        if (chunkParser != null) {
+                            chunkTokens.add(tokens.subList(0, i));
+                            chunks.add(submitChunk(chunkParser, chunkTokens, false));
+                        }
+                        chunkParser = chunkParser();
+                        chunkTokens = new ArrayList<>();
+                        chunkStart = i;
+                    }
+                    Token token = tokens.get(i);
+                    currentToken = token;
+                    processToken(token);
+                }
+                if (chunkTokens != null) {
+                    chunkTokens.add(chunkStart < 0 ? tokens : tokens.subList(chunkStart, tokens.size()));
+                }
+            }
+            if (chunkParser != null) {
+                chunks.add(submitChunk(chunkParser, chunkTokens, true));
+            }
+        } finally {
+            symbolic = false;
+            currentToken = null;
+            definedByToken = null;
+            currentXRef = null; currentYRef = null;
+            pendingXRef = null; pendingYRef = null; pendingIRef = null; pendingJRef = null;
+        }
+
+        for (CompletableFuture<ChunkSink> chunk : chunks) {
+            ChunkSink output = join(chunk);
+            for (GraphicsObject obj : output.objects) {
+                sink.onObject(obj);
+            }
+            output.components.forEach(sink::onComponent);
+            objectCount += output.objects.size();
+        }
+        log.trace("Parsed {} chunks of {} lexed ranges in parallel", chunks.size(), ranges.size());
+    }
+
+    // Chunks per thread of a parallel parse, to even out chunks that take longer
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * A parser for the chunk starting at the current token of the sequential pass, in the
+     * same state as this parser with the coordinates decoded.
+     */
+    private GerberParser chunkParser() {
+        GerberParser p = new GerberParser();
+        p.fixedPoint = fixedPoint;
+        p.lazyStepRepeat = lazyStepRepeat;
+        p.definitions = new GerberDocument();
+        p.definitions.setCoordinateFormat(definitions.getCoordinateFormat());
+        definitions.getFileAttributes().values().forEach(p.definitions::addFileAttribute);
+        definitions.getMacroTemplates().values().forEach(p.definitions::addMacroTemplate);
+        definitions.getApertures().values().forEach(p.definitions::addAperture);
+        definedByToken = new IdentityHashMap<>();
+        p.chunkDefinitions = definedByToken;
+
+        p.coordFormat = coordFormat;
+        p.unit = unit;
+        p.currentX = currentXRef != null ? currentXRef.decode('X') : 0;
+        p.currentY = currentYRef != null ? currentYRef.decode('Y') : 0;
+        p.pendingX = Double.isNaN(pendingX) ? Double.NaN : pendingXRef.decode('X');
+        p.pendingY = Double.isNaN(pendingY) ? Double.NaN : pendingYRef.decode('Y');
+        p.pendingI = Double.isNaN(pendingI) ? Double.NaN : pendingIRef.decode('I');
+        p.pendingJ = Double.isNaN(pendingJ) ? Double.NaN : pendingJRef.decode('J');
+        if (fixedPoint) {
+            p.currentXNm = currentXRef != null ? currentXRef.decodeNm('X') : 0;
+            p.currentYNm = currentYRef != null ? currentYRef.decodeNm('Y') : 0;
+            if (!Double.isNaN(pendingX)) p.pendingXNm = pendingXRef.decodeNm('X');
+            if (!Double.isNaN(pendingY)) p.pendingYNm = pendingYRef.decodeNm('Y');
+            if (!Double.isNaN(pendingI)) p.pendingINm = pendingIRef.decodeNm('I');
+            if (!Double.isNaN(pendingJ)) p.pendingJNm = pendingJRef.decodeNm('J');
+        }
+        p.currentAperture = currentAperture;
+        p.currentPolarity = currentPolarity;
+        p.linearMode = linearMode;
+        p.clockwise = clockwise;
+        p.multiQuadrant = multiQuadrant;
+        p.loadRotation = loadRotation;
+        p.loadScaling = loadScaling;
+        p.loadMirrorX = loadMirrorX;
+        p.loadMirrorY = loadMirrorY;
+        p.toRefdes = toRefdes;
+        p.toValue = toValue;
+        p.toFootprint = toFootprint;
+        p.toMountType = toMountType;
+        p.toRotation = toRotation;
+        p.inComponentContext = inComponentContext;
+        p.hasPinAttribute = hasPinAttribute;
+        p.centroidRecorded = centroidRecorded;
+        p.lastDCode = lastDCode;
+        p.srRepeatX = srRepeatX;
+        p.srRepeatY = srRepeatY;
+        p.srStepX = srStepX;
+        p.srStepY = srStepY;
+        return p;
+    }
+
+    private CompletableFuture<ChunkSink> submitChunk(GerberParser parser, List<List<Token>> tokens, boolean last) {
+        return CompletableFuture.supplyAsync(() -> {
+            ChunkSink output = new ChunkSink();
+            parser.sink = output;
+            for (List<Token> part : tokens) {
+                for (Token token : part) {
+                    parser.processToken(token);
+                }
+            }
+            if (last) {
+                parser.finish();
+            }
+            return output;
+        }, executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
     }
 }
@@ -0,0 +1,57 @@
+package com.deltaproto.deltagerber.parser;
+
+import com.deltaproto.deltagerber.model.gerber.ComponentPlacement;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.SourceMap;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
+
+/**
+ * Receives the results of a streaming Gerber parse as they are produced.
+ *
+ * <p>Each Draw, Arc and Flash is delivered as soon as its D-code executes, and each
+ * Region when its G37 closes it. Objects inside a step-and-repeat block are held
+ * back until the %SR% that closes the block, and are then delivered followed by their
+ * copies. With {@link GerberParser#setLazyStepRepeat(boolean) lazy step-and-repeat}, a
+ * repeated block whose objects are all dark is instead delivered as a single
+ * {@link StepRepeatBlock} when the block closes, while blocks with clear objects still
+ * arrive as objects and copies. A sink that needs every instance as its own object can
+ * expand blocks with {@link StepRepeatBlock#flatten(Iterable)}. Coordinates are in mm, except that a parser set to
+ * {@link GerberParser#setFixedPoint(boolean) fixed point} delivers FixedDraw, FixedArc,
+ * FixedFlash and FixedRegion objects with coordinates in nanometres; use
+ * {@link GraphicsObject#toMm()} to get an object in mm either way.</p>
+ *
+ * <p>Only {@link #onObject} must be implemented; the other callbacks default to no-ops.</p>
+ */
+public interface GerberSink {
+
+    void onObject(GraphicsObject object);
+
+    default void onCoordinateFormat(CoordinateFormat format) {
+    }
+
+    default void onAperture(Aperture aperture) {
+    }
+
+    default void onMacroTemplate(MacroTemplate template) {
+    }
+
+    default void onFileAttribute(FileAttribute attribute) {
+    }
+
+    default void onComponent(ComponentPlacement component) {
+    }
+
+    default void onWarning(String warning) {
+    }
+
+    /**
+     * Called once at the end of a parse that records a source map, with the offsets of
+     * the objects in the order they were delivered.
+     */
+    default void onSourceMap(SourceMap sourceMap) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shares aperture definitions between the layers of one render.
+ *
+ * <p>Layers often use the same aperture shapes, e.g. the pads of a copper layer and the
+ * openings of its solder mask. The first aperture of each shape is defined under the ID
+ * its layer gives it; a later aperture with an identical definition gets no definition of
+ * its own, and flashes of it refer to the first one. Renderers set this on their options
+ * for the duration of a render; copies share the same instance.</p>
+ */
+public class ApertureDefinitions {
+
+    private final Map<String, String> idsByDef = new HashMap<>();
+    private final Map<Aperture, String> ids = new IdentityHashMap<>();
+
+    /**
+     * Append the definition of an aperture under {@code id}, followed by a newline, unless
+     * an identical one is already defined, which the aperture then shares.
+     *
+     * @return whether a definition was appended
+     */
+    public boolean define(StringBuilder svg, String indent, Aperture aperture, String id, SvgOptions options) {
+        String shared = idsByDef.putIfAbsent(aperture.getSvgDefBody(options), id);
+        if (shared != null) {
+            ids.put(aperture, shared);
+            return false;
+        }
+        ids.put(aperture, id);
+        svg.append(indent).append(aperture.toSvgDef(id, options)).append('\n');
+        return true;
+    }
+
+    /**
+     * The ID of the definition an aperture uses, or null if it was not defined here.
+     */
+    public String getId(Aperture aperture) {
+        return ids.get(aperture);
+    }
+}
@@ -0,0 +1,69 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Collects the shared {@code <g>} definitions of step-and-repeat blocks during one render.
+ *
+ * <p>A block is defined once per set of options it is rendered with (colors, aperture
+ * prefix, polygonize, compact mode and stroke joining), so the same block can be
+ * referenced from layer content and from mask content. Masks define their blocks as they
+ * are written; the renderer defines the blocks of the body up front (see
+ * {@code PolarityMaskHelper.defineBlocks}) and then writes {@link #toSvg()} at the end of
+ * its {@code <defs>}, before the body.</p>
+ */
+public class BlockDefinitions {
+
+    private final String idPrefix;
+    private final Map<StepRepeatBlock, Map<String, String>> ids = new IdentityHashMap<>();
+    private final StringBuilder defs = new StringBuilder();
+    private int count;
+
+    /**
+     * @param idPrefix prefix for the generated IDs, e.g. "sr" gives "sr0", "sr1", ...
+     */
+    public BlockDefinitions(String idPrefix) {
+        this.idPrefix = idPrefix;
+    }
+
+    /**
+     * The ID of the definition of a block rendered with the given options, adding the
+     * definition on first use.
+     */
+    public String define(StepRepeatBlock block, SvgOptions options) {
+        String variant = options.isPolygonize() + "|" + options.getCircleSegments() + "|"
+            + options.isFlipY() + "|" + options.getDarkColor() + "|" + options.getClearColor() + "|"
+            + options.getApertureIdPrefix() + "|" + options.getMmPerPixel() + "|"
+            + options.isCompact() + "|" + options.getDecimals() + "|" + options.getInheritedColor() + "|"
+            + options.isJoinStrokes();
+        Map<String, String> variants = ids.computeIfAbsent(block, b -> new HashMap<>());
+        String id = variants.get(variant);
+        if (id == null) {
+            id = idPrefix + count++;
+            variants.put(variant, id);
+            defs.append("  <g id=\"").append(id).append("\">\n");
+            for (String line : block.renderObjects(options).split("\n")) {
+                if (!line.isEmpty()) {
+                    defs.append("    ").append(line).append("\n");
+                }
+            }
+            defs.append("  </g>\n");
+        }
+        return id;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * All definitions added so far, ready to be placed inside {@code <defs>}.
+     */
+    public String toSvg() {
+        return defs.toString();
+    }
+}
@@ -1,8 +1,7 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
-import com.deltaproto.deltagerber.model.drill.DrillOperation;
-import com.deltaproto.deltagerber.model.drill.Tool;
+import com.deltaproto.deltagerber.model.drill.HoleTable;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 
 /**
@@ -70,12 +69,10 @@ public class DrillSVGRenderer {
         svg.append(String.format("  .slot { stroke: %s; fill: none; }\n", slotColor));
         svg.append("</style>\n");
 
-        // Tool definitions (for reference)
+        // One circle per tool, referenced by every hit of that tool
+        HoleTable holeTable = doc.getHoleTable();
         svg.append("<defs>\n");
-        for (Tool tool : doc.getTools().values()) {
-            String def = tool.toSvgDef("tool" + tool.getNumber());
-            svg.append("  ").append(def).append("\n");
-        }
+        holeTable.appendSvgDefs(svg, "  ", "tool");
         svg.append("</defs>\n");
 
         // Apply Y flip if needed
@@ -92,13 +89,10 @@ public class DrillSVGRenderer {
                 minX, minY, width, height, backgroundColor));
         }
 
-        // Render all operations
-        for (DrillOperation op : doc.getOperations()) {
-            String opSvg = op.toSvg();
-            if (opSvg != null && !opSvg.isEmpty()) {
-                svg.append("  ").append(opSvg).append("\n");
-            }
-        }
+        // Render all holes, tool by tool
+        svg.append("<g fill=\"currentColor\">\n");
+        holeTable.appendSvg(svg, "  ", "tool");
+        svg.append("</g>\n");
 
         if (flipY) {
             svg.append("</g>\n");
@@ -0,0 +1,127 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedFlash;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+
+/**
+ * Level-of-detail rules for rendering at a known resolution, set with
+ * {@link SvgOptions#setMmPerPixel(double)}.
+ *
+ * <p>A flash whose bounding box is under half a pixel on both sides can cover at most a
+ * quarter of a pixel and is left out. A plain circle or axis-aligned rectangle flash under
+ * two pixels is drawn as a {@code <circle>} or {@code <rect>} in place instead of a
+ * {@code <use>} of its aperture; other shapes keep their aperture, since a box would
+ * visibly grow them. Draws and arcs are kept however short, since chains of them make up
+ * strokes and text. Contours drop vertices within a tenth of a pixel of the straight edge
+ * that replaces them; at half a pixel the eroded curves of region pads already show (see
+ * {@link com.deltaproto.deltagerber.model.gerber.operation.Contour#toSvgPath(SvgOptions)}).</p>
+ */
+public final class LevelOfDetail {
+
+    /** Flashes smaller than this many pixels on both sides are left out. */
+    public static final double MIN_EXTENT_PX = 0.5;
+
+    /** Flashes smaller than this many pixels on both sides are drawn as dots. */
+    public static final double DOT_EXTENT_PX = 2;
+
+    /** Contour vertices closer than this many pixels to the simplified outline are dropped. */
+    public static final double SIMPLIFY_TOLERANCE_PX = 0.1;
+
+    private LevelOfDetail() {
+    }
+
+    /**
+     * The SVG of an object under the options' level of detail: empty for a flash too
+     * small to show, a dot for a tiny flash, and {@link GraphicsObject#toSvg} otherwise.
+     */
+    public static String toSvg(GraphicsObject obj, SvgOptions options) {
+        StringBuilder svg = new StringBuilder();
+        appendSvg(svg, obj, options);
+        return svg.toString();
+    }
+
+    /**
+     * Append the SVG of {@link #toSvg(GraphicsObject, SvgOptions)} to {@code svg}.
+     */
+    public static void appendSvg(StringBuilder svg, GraphicsObject obj, SvgOptions options) {
+        double mmPerPixel = options.getMmPerPixel();
+        if (mmPerPixel <= 0 || !(obj instanceof Flash || obj instanceof FixedFlash)) {
+            obj.appendSvg(svg, options);
+            return;
+        }
+        BoundingBox box = obj.getBoundingBox();
+        double extent = Math.max(box.getWidth(), box.getHeight());
+        if (extent < MIN_EXTENT_PX * mmPerPixel) {
+            return;
+        }
+        if (extent < DOT_EXTENT_PX * mmPerPixel) {
+            if (appendDot(svg, (Flash) obj.toMm(), options)) {
+                return;
+            }
+        }
+        obj.appendSvg(svg, options);
+    }
+
+    /**
+     * Append an object as one indented line, or nothing if it draws nothing at this level
+     * of detail.
+     */
+    public static void appendLine(StringBuilder svg, String indent, GraphicsObject obj, SvgOptions options) {
+        int start = svg.length();
+        svg.append(indent);
+        int content = svg.length();
+        appendSvg(svg, obj, options);
+        if (svg.length() == content) {
+            svg.setLength(start);
+        } else {
+            svg.append('\n');
+        }
+    }
+
+    /**
+     * Append a flash as a plain circle or rectangle, or nothing when its aperture is not one.
+     *
+     * @return whether the dot was appended
+     */
+    private static boolean appendDot(StringBuilder svg, Flash flash, SvgOptions options) {
+        String color = flash.getPolarity() == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
+        double scale = flash.getScale();
+        if (flash.getAperture() instanceof CircleAperture circle && !circle.hasHole()) {
+            SvgNumbers.append(svg.append("<circle cx=\""), flash.getX(), options);
+            SvgNumbers.append(svg.append("\" cy=\""), flash.getY(), options);
+            SvgNumbers.append(svg.append("\" r=\""), circle.getDiameter() / 2 * scale, options);
+            appendFill(svg, color, options);
+            return true;
+        }
+        if (!(flash.getAperture() instanceof RectangleAperture rect) || rect.hasHole()
+                || flash.getRotation() % 90 != 0) {
+            return false;
+        }
+        // A quarter or three-quarter turn swaps the sides
+        boolean turned = flash.getRotation() % 180 != 0;
+        double width = (turned ? rect.getHeight() : rect.getWidth()) * scale;
+        double height = (turned ? rect.getWidth() : rect.getHeight()) * scale;
+        SvgNumbers.append(svg.append("<rect x=\""), flash.getX() - width / 2, options);
+        SvgNumbers.append(svg.append("\" y=\""), flash.getY() - height / 2, options);
+        SvgNumbers.append(svg.append("\" width=\""), width, options);
+        SvgNumbers.append(svg.append("\" height=\""), height, options);
+        appendFill(svg, color, options);
+        return true;
+    }
+
+    /**
+     * Close a dot element with its fill, unless compact options let it inherit the fill.
+     */
+    private static void appendFill(StringBuilder svg, String color, SvgOptions options) {
+        svg.append('"');
+        if (options.needsColor(color)) {
+            svg.append(" fill=\"").append(color).append('"');
+        }
+        svg.append("/>");
+    }
+}
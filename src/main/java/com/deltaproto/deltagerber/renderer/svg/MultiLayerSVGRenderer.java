@@ -1,23 +1,34 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
-import com.deltaproto.deltagerber.model.drill.DrillOperation;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.FixedPoint;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
 import com.deltaproto.deltagerber.model.gerber.operation.Arc;
 import com.deltaproto.deltagerber.model.gerber.operation.Contour;
 import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedArc;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedContour;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedDraw;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedRegion;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.transcoder.image.PNGTranscoder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -47,6 +58,7 @@ public class MultiLayerSVGRenderer {
     private double margin = 0.5;
     private boolean flipY = true;
     private SvgOptions svgOptions = SvgOptions.exact();
+    private BoundingBox viewport = null;
 
     /**
      * A layer to be rendered, containing either a Gerber or Drill document.
@@ -131,12 +143,70 @@ public class MultiLayerSVGRenderer {
         return this;
     }
 
+    /**
+     * Restricts {@link #render} and {@link #renderRealistic} to a window of the layers,
+     * e.g. the part a zoomed-in view shows. The viewport becomes the viewBox instead of
+     * the layer bounds plus margin, and only the objects and holes reaching into it and
+     * the apertures they flash are written. The board outline is always kept whole.
+     * @param viewport the window in layer coordinates (mm), or null to render everything
+     */
+    public MultiLayerSVGRenderer setViewport(BoundingBox viewport) {
+        this.viewport = viewport;
+        return this;
+    }
+
+    /**
+     * The objects of a Gerber layer that the current viewport needs, in paint order.
+     */
+    private List<GraphicsObject> visibleObjects(Layer layer) {
+        return ViewportFilter.objects(layer.getGerberDoc(), viewport);
+    }
+
+    /**
+     * Write objects one line each, draining the output as it goes.
+     */
+    private static void appendObjects(SvgWriter out, String indent, List<GraphicsObject> objects,
+                                      SvgOptions options) throws IOException {
+        for (int i = 0; i < objects.size(); ) {
+            i = StrokeJoiner.appendLine(out.svg(), indent, objects, i, options);
+            out.drain();
+        }
+    }
+
     /**
      * Render multiple layers into a single SVG document.
      */
     public String render(List<Layer> layers) {
+        SvgWriter out = new SvgWriter();
+        try {
+            render(layers, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Not thrown without a writer
+        }
+        return out.toString();
+    }
+
+    /**
+     * Render multiple layers straight to a writer, element by element, so memory use does
+     * not grow with the size of the SVG. The writer is flushed but not closed.
+     */
+    public void render(List<Layer> layers, Writer writer) throws IOException {
+        render(layers, new SvgWriter(writer));
+    }
+
+    /**
+     * Render multiple layers straight to a stream as UTF-8; see {@link #render(List, Writer)}.
+     */
+    public void render(List<Layer> layers, OutputStream out) throws IOException {
+        render(layers, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private void render(List<Layer> layers, SvgWriter out) throws IOException {
+        StringBuilder svg = out.svg();
         if (layers == null || layers.isEmpty()) {
-            return createEmptySvg();
+            svg.append(createEmptySvg());
+            out.finish();
+            return;
         }
 
         // Calculate global bounding box across all layers
@@ -148,17 +218,17 @@ public class MultiLayerSVGRenderer {
             }
         }
 
-        if (!globalBounds.isValid()) {
-            return createEmptySvg();
+        if (!globalBounds.isValid() || (viewport != null && !viewport.isValid())) {
+            svg.append(createEmptySvg());
+            out.finish();
+            return;
         }
 
-        // Add margin
-        double minX = globalBounds.getMinX() - margin;
-        double minY = globalBounds.getMinY() - margin;
-        double width = globalBounds.getWidth() + 2 * margin;
-        double height = globalBounds.getHeight() + 2 * margin;
-
-        StringBuilder svg = new StringBuilder();
+        // Add margin, unless a viewport replaces the bounds
+        double minX = viewport != null ? viewport.getMinX() : globalBounds.getMinX() - margin;
+        double minY = viewport != null ? viewport.getMinY() : globalBounds.getMinY() - margin;
+        double width = viewport != null ? viewport.getWidth() : globalBounds.getWidth() + 2 * margin;
+        double height = viewport != null ? viewport.getHeight() : globalBounds.getHeight() + 2 * margin;
 
         // SVG header with shared viewBox
         svg.append(String.format(Locale.US,
@@ -169,9 +239,11 @@ public class MultiLayerSVGRenderer {
             "fill-rule=\"nonzero\">\n",
             minX, minY, width, height));
 
-        // Collect all apertures from all Gerber layers with unique prefixes
+        // Collect all apertures from all Gerber layers with unique prefixes, defining each shape once
         // Use "currentColor" so apertures pick up the layer group's color property
         svg.append("<defs>\n");
+        BlockDefinitions blocks = new BlockDefinitions("sr");
+        svgOptions.setBlockDefinitions(blocks).setApertureDefinitions(new ApertureDefinitions());
 
         // Mask base rect for clear polarity masks
         String maskRect = PolarityMaskHelper.createMaskRect(minX, minY, width, height, 1);
@@ -185,27 +257,40 @@ public class MultiLayerSVGRenderer {
                 String aperturePrefix = "L" + layerIndex + "_ap";
                 // Aperture defs don't include fill — fill is set on <use> elements
                 svgOptions.setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-                for (Aperture aperture : layer.getGerberDoc().getApertures().values()) {
-                    String def = aperture.toSvgDef(aperturePrefix + aperture.getDCode(), svgOptions);
-                    svg.append("  ").append(def).append("\n");
+                List<GraphicsObject> objects = visibleObjects(layer);
+                for (Aperture aperture : ViewportFilter.apertures(layer.getGerberDoc(), objects, viewport, svgOptions)) {
+                    svgOptions.getApertureDefinitions()
+                        .define(svg, "  ", aperture, aperturePrefix + aperture.getDCode(), svgOptions);
+                    out.drain();
                 }
 
                 // Group objects by polarity and generate mask defs
                 List<PolarityMaskHelper.PolarityGroup> groups =
-                    PolarityMaskHelper.groupByPolarity(layer.getGerberDoc().getObjects());
+                    PolarityMaskHelper.groupByPolarity(objects);
                 allLayerGroups.add(groups);
 
                 // Generate masks for clear polarity groups (black = hidden in mask)
                 String maskPrefix = "L" + layerIndex + "_cm";
                 SvgOptions maskOptions = svgOptions.copy();
                 maskOptions.setApertureIdPrefix(aperturePrefix);
-                maskOptions.setDarkColor("black").setClearColor("black");
-                PolarityMaskHelper.generateMaskDefs(svg, groups, maskPrefix, maskRect, maskOptions);
+                maskOptions.setDarkColor("black").setClearColor("black")
+                    .setInheritedColor(svgOptions.isCompact() ? "black" : null);
+                PolarityMaskHelper.generateMaskDefs(out, groups, maskPrefix, maskRect, maskOptions);
             } else {
+                if (layer.isDrill() && layer.getDrillDoc() != null) {
+                    layer.getDrillDoc().getHoleTable().appendSvgDefs(svg, "  ", "L" + layerIndex + "_T");
+                }
                 allLayerGroups.add(Collections.emptyList());
             }
             layerIndex++;
         }
+        // Define the layers' step-and-repeat blocks now, so they can go into <defs>
+        for (int i = 0; i < layers.size(); i++) {
+            if (layers.get(i).isGerber()) {
+                PolarityMaskHelper.defineBlocks(allLayerGroups.get(i), layerOptions("L" + i + "_ap"));
+            }
+        }
+        svg.append(blocks.toSvg());
         svg.append("</defs>\n");
 
         // Viewport group with Y-flip transform and stroke-width="0" to prevent inherited strokes
@@ -224,10 +309,12 @@ public class MultiLayerSVGRenderer {
             String display = layer.isVisible() ? "inline" : "none";
             String fillColor = layer.getColor() != null ? layer.getColor() : "#000000";
 
+            // Compact content inherits its stroke color too; the zero width keeps it unused
+            // by the elements without their own stroke width
             svg.append(String.format(Locale.US,
                 "  <g class=\"layer\" id=\"%s\" display=\"%s\" " +
-                "color=\"%s\" fill=\"currentColor\" stroke=\"none\" stroke-width=\"0\" opacity=\"%.2f\">\n",
-                layerId, display, fillColor, layer.getOpacity()));
+                "color=\"%s\" fill=\"currentColor\" stroke=\"%s\" stroke-width=\"0\" opacity=\"%.2f\">\n",
+                layerId, display, fillColor, svgOptions.isCompact() ? "currentColor" : "none", layer.getOpacity()));
 
             // Render layer content
             if (layer.isGerber()) {
@@ -235,13 +322,10 @@ public class MultiLayerSVGRenderer {
                 String maskPrefix = "L" + layerIndex + "_cm";
                 List<PolarityMaskHelper.PolarityGroup> groups = allLayerGroups.get(layerIndex);
 
-                SvgOptions layerOptions = svgOptions.copy();
-                layerOptions.setApertureIdPrefix(aperturePrefix);
-                layerOptions.setDarkColor("currentColor").setClearColor("currentColor");
-
-                PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+                PolarityMaskHelper.renderWithMasks(out, groups, maskPrefix, layerOptions(aperturePrefix));
             } else if (layer.isDrill()) {
-                renderDrillContent(svg, layer.getDrillDoc());
+                renderDrillContent(svg, layer.getDrillDoc(), "L" + layerIndex + "_T");
+                out.drain();
             }
 
             svg.append("  </g>\n");
@@ -250,8 +334,20 @@ public class MultiLayerSVGRenderer {
 
         svg.append("</g>\n");
         svg.append("</svg>");
+        svgOptions.setBlockDefinitions(null).setApertureDefinitions(null);
+        out.finish();
+    }
 
-        return svg.toString();
+    /**
+     * Options for the content of a layer in {@link #render}: its aperture prefix, with the
+     * layer group's color, which compact output inherits from the group.
+     */
+    private SvgOptions layerOptions(String aperturePrefix) {
+        SvgOptions layerOptions = svgOptions.copy();
+        layerOptions.setApertureIdPrefix(aperturePrefix);
+        layerOptions.setDarkColor("currentColor").setClearColor("currentColor")
+            .setInheritedColor(svgOptions.isCompact() ? "currentColor" : null);
+        return layerOptions;
     }
 
     // Outline-chain tolerance (mm). Altium/other EDA tools sometimes emit
@@ -293,8 +389,40 @@ public class MultiLayerSVGRenderer {
      * @throws IllegalArgumentException if no OUTLINE layer is provided
      */
     public String renderRealistic(List<Layer> layers) {
+        SvgWriter out = new SvgWriter();
+        try {
+            renderRealistic(layers, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Not thrown without a writer
+        }
+        return out.toString();
+    }
+
+    /**
+     * Render a realistic PCB view straight to a writer, element by element, so memory use
+     * does not grow with the size of the SVG. The writer is flushed but not closed.
+     *
+     * @throws IllegalArgumentException if no OUTLINE layer is provided, before anything is written
+     * @see #renderRealistic(List)
+     */
+    public void renderRealistic(List<Layer> layers, Writer writer) throws IOException {
+        renderRealistic(layers, new SvgWriter(writer));
+    }
+
+    /**
+     * Render a realistic PCB view straight to a stream as UTF-8; see
+     * {@link #renderRealistic(List, Writer)}.
+     */
+    public void renderRealistic(List<Layer> layers, OutputStream out) throws IOException {
+        renderRealistic(layers, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private void renderRealistic(List<Layer> layers, SvgWriter out) throws IOException {
+        StringBuilder svg = out.svg();
         if (layers == null || layers.isEmpty()) {
-            return createEmptySvg();
+            svg.append(createEmptySvg());
+            out.finish();
+            return;
         }
 
         // Categorize layers by type
@@ -348,16 +476,22 @@ public class MultiLayerSVGRenderer {
                 }
             }
         }
-        if (!globalBounds.isValid()) {
-            return createEmptySvg();
+        // A viewport replaces the bounds and their margin
+        double pad = margin;
+        if (!globalBounds.isValid() || (viewport != null && !viewport.isValid())) {
+            svg.append(createEmptySvg());
+            out.finish();
+            return;
+        }
+        if (viewport != null) {
+            globalBounds = viewport;
+            pad = 0;
         }
 
-        double minX = globalBounds.getMinX() - margin;
-        double minY = globalBounds.getMinY() - margin;
-        double width = globalBounds.getWidth() + 2 * margin;
-        double height = globalBounds.getHeight() + 2 * margin;
-
-        StringBuilder svg = new StringBuilder();
+        double minX = globalBounds.getMinX() - pad;
+        double minY = globalBounds.getMinY() - pad;
+        double width = globalBounds.getWidth() + 2 * pad;
+        double height = globalBounds.getHeight() + 2 * pad;
 
         // SVG header
         svg.append(String.format(Locale.US,
@@ -369,6 +503,8 @@ public class MultiLayerSVGRenderer {
             minX, minY, width, height));
 
         svg.append("<defs>\n");
+        BlockDefinitions blocks = new BlockDefinitions("sr");
+        svgOptions.setBlockDefinitions(blocks).setApertureDefinitions(new ApertureDefinitions());
 
         // Extract board outline path for clipPath and soldermask mask base
         SvgOptions outlineOptions = svgOptions.copy().setFlipY(flipY);
@@ -416,14 +552,15 @@ public class MultiLayerSVGRenderer {
             // Aperture definitions
             SvgOptions apOptions = svgOptions.copy()
                 .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            for (Aperture aperture : layer.getGerberDoc().getApertures().values()) {
-                String def = aperture.toSvgDef(apPrefix + aperture.getDCode(), apOptions);
-                svg.append("  ").append(def).append("\n");
+            List<GraphicsObject> objects = visibleObjects(layer);
+            for (Aperture aperture : ViewportFilter.apertures(layer.getGerberDoc(), objects, viewport, apOptions)) {
+                apOptions.getApertureDefinitions().define(svg, "  ", aperture, apPrefix + aperture.getDCode(), apOptions);
+                out.drain();
             }
 
             // Polarity groups
             List<PolarityMaskHelper.PolarityGroup> groups =
-                PolarityMaskHelper.groupByPolarity(layer.getGerberDoc().getObjects());
+                PolarityMaskHelper.groupByPolarity(objects);
             polarityGroups.put(layer, groups);
 
             layerIndex++;
@@ -431,11 +568,11 @@ public class MultiLayerSVGRenderer {
 
         // Polarity mask definitions for copper and silkscreen layers
         for (Layer layer : copperLayers) {
-            generatePolarityMaskDefs(svg, layer, aperturePrefixes, layerIndexMap,
+            generatePolarityMaskDefs(out, layer, aperturePrefixes, layerIndexMap,
                 polarityGroups, maskRect);
         }
         for (Layer layer : silkscreenLayers) {
-            generatePolarityMaskDefs(svg, layer, aperturePrefixes, layerIndexMap,
+            generatePolarityMaskDefs(out, layer, aperturePrefixes, layerIndexMap,
                 polarityGroups, maskRect);
         }
 
@@ -460,24 +597,14 @@ public class MultiLayerSVGRenderer {
                 svg.append(String.format("    <rect %s fill=\"white\"/>\n", fullRectAttrs));
             }
             smMaskOptions.setDarkColor("black").setClearColor("white");
-            for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                String objSvg = obj.toSvg(smMaskOptions);
-                if (objSvg != null && !objSvg.isEmpty()) {
-                    svg.append("    ").append(objSvg).append("\n");
-                }
-            }
+            appendObjects(out, "    ", visibleObjects(layer), smMaskOptions);
             svg.append("  </mask>\n");
 
             // cf-mask: black background, soldermask objects white = where pads are EXPOSED
             svg.append(String.format("  <mask id=\"%s\">\n", cfMaskId));
             svg.append(String.format("    <rect %s fill=\"black\"/>\n", fullRectAttrs));
             smMaskOptions.setDarkColor("white").setClearColor("black");
-            for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                String objSvg = obj.toSvg(smMaskOptions);
-                if (objSvg != null && !objSvg.isEmpty()) {
-                    svg.append("    ").append(objSvg).append("\n");
-                }
-            }
+            appendObjects(out, "    ", visibleObjects(layer), smMaskOptions);
             svg.append("  </mask>\n");
         }
 
@@ -486,13 +613,21 @@ public class MultiLayerSVGRenderer {
         // stroke-width="0" prevents the default 1-unit stroke from enlarging the holes
         boolean hasDrills = !drillLayers.isEmpty();
         if (hasDrills) {
+            for (int i = 0; i < drillLayers.size(); i++) {
+                Layer layer = drillLayers.get(i);
+                if (layer.isDrill() && layer.getDrillDoc() != null) {
+                    layer.getDrillDoc().getHoleTable().appendSvgDefs(svg, "  ", "D" + i + "_T");
+                }
+            }
             svg.append("  <mask id=\"mech-mask\">\n");
             svg.append(String.format("    <rect %s fill=\"white\"/>\n", fullRectAttrs));
-            for (Layer layer : drillLayers) {
+            for (int i = 0; i < drillLayers.size(); i++) {
+                Layer layer = drillLayers.get(i);
                 if (layer.isDrill()) {
                     svg.append("    <g fill=\"black\" color=\"black\" stroke=\"none\" stroke-width=\"0\">\n");
-                    renderDrillContent(svg, layer.getDrillDoc());
+                    renderDrillContent(svg, layer.getDrillDoc(), "D" + i + "_T");
                     svg.append("    </g>\n");
+                    out.drain();
                 } else if (layer.isGerber()) {
                     // Gerber X2 drill layer — render its flashes as solid black into the mask.
                     svg.append("    <g fill=\"black\" color=\"black\" stroke=\"none\" stroke-width=\"0\">\n");
@@ -501,18 +636,28 @@ public class MultiLayerSVGRenderer {
                         .setApertureIdPrefix(apPrefix)
                         .setDarkColor("black").setClearColor("black")
                         .setFlipY(flipY);
-                    for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                        String objSvg = obj.toSvg(maskOpt);
-                        if (objSvg != null && !objSvg.isEmpty()) {
-                            svg.append("      ").append(objSvg).append("\n");
-                        }
-                    }
+                    appendObjects(out, "      ", visibleObjects(layer), maskOpt);
                     svg.append("    </g>\n");
                 }
             }
             svg.append("  </mask>\n");
         }
 
+        // Define the step-and-repeat blocks of the layer stack below now, so they can go
+        // into <defs>: copper (its finish uses the same options), then silkscreen
+        for (Layer layer : copperLayers) {
+            PolarityMaskHelper.defineBlocks(polarityGroups.get(layer),
+                stackOptions(aperturePrefixes.get(layer), "currentColor"));
+        }
+        for (Layer smLayer : soldermaskLayers) {
+            for (Layer ssLayer : silkscreenLayers) {
+                if (isTopSide(ssLayer) == isTopSide(smLayer)) {
+                    PolarityMaskHelper.defineBlocks(polarityGroups.get(ssLayer),
+                        stackOptions(aperturePrefixes.get(ssLayer), SILKSCREEN_WHITE));
+                }
+            }
+        }
+        svg.append(blocks.toSvg());
         svg.append("</defs>\n");
 
         // Viewport with Y-flip
@@ -549,10 +694,7 @@ public class MultiLayerSVGRenderer {
                 "    <g fill=\"%s\" color=\"%s\" stroke=\"none\" stroke-width=\"0\">\n",
                 copperColor, copperColor));
 
-            SvgOptions layerOptions = svgOptions.copy()
-                .setApertureIdPrefix(apPrefix)
-                .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+            PolarityMaskHelper.renderWithMasks(out, groups, maskPrefix, stackOptions(apPrefix, "currentColor"));
 
             svg.append("    </g>\n");
         }
@@ -579,10 +721,7 @@ public class MultiLayerSVGRenderer {
                 "mask=\"url(#%s)\">\n",
                 COPPER_FINISH_COLOR, COPPER_FINISH_COLOR, cfMaskId));
 
-            SvgOptions layerOptions = svgOptions.copy()
-                .setApertureIdPrefix(apPrefix)
-                .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+            PolarityMaskHelper.renderWithMasks(out, groups, maskPrefix, stackOptions(apPrefix, "currentColor"));
 
             svg.append("    </g>\n");
         }
@@ -619,10 +758,7 @@ public class MultiLayerSVGRenderer {
                     "      <g fill=\"%s\" color=\"%s\" stroke=\"none\" stroke-width=\"0\">\n",
                     ssColor, ssColor));
 
-                SvgOptions layerOptions = svgOptions.copy()
-                    .setApertureIdPrefix(apPrefix)
-                    .setDarkColor(ssColor).setClearColor(ssColor).setFlipY(flipY);
-                PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+                PolarityMaskHelper.renderWithMasks(out, groups, maskPrefix, stackOptions(apPrefix, ssColor));
 
                 svg.append("      </g>\n");
             }
@@ -634,17 +770,31 @@ public class MultiLayerSVGRenderer {
 
         svg.append("</g>\n");
         svg.append("</svg>");
+        svgOptions.setBlockDefinitions(null).setApertureDefinitions(null);
+        out.finish();
+    }
+
+    /**
+     * Options for the content of a layer in the {@link #renderRealistic} layer stack: its
+     * aperture prefix, drawn in one color.
+     */
+    private SvgOptions stackOptions(String aperturePrefix, String color) {
+        return svgOptions.copy()
+            .setApertureIdPrefix(aperturePrefix)
+            .setDarkColor(color).setClearColor(color).setFlipY(flipY);
+    }
 
-        return svg.toString();
+    private static boolean isTopSide(Layer layer) {
+        return layer.getLayerType() == LayerType.SOLDERMASK_TOP || layer.getLayerType() == LayerType.SILKSCREEN_TOP;
     }
 
     /**
      * Generate polarity mask definitions for a layer using PolarityMaskHelper.
      */
-    private void generatePolarityMaskDefs(StringBuilder svg, Layer layer,
+    private void generatePolarityMaskDefs(SvgWriter out, Layer layer,
             Map<Layer, String> aperturePrefixes, Map<Layer, Integer> layerIndexMap,
             Map<Layer, List<PolarityMaskHelper.PolarityGroup>> polarityGroups,
-            String maskRect) {
+            String maskRect) throws IOException {
         if (!layer.isGerber()) return;
         String apPrefix = aperturePrefixes.get(layer);
         String maskPrefix = "L" + layerIndexMap.get(layer) + "_cm";
@@ -653,7 +803,7 @@ public class MultiLayerSVGRenderer {
         SvgOptions maskOptions = svgOptions.copy()
             .setApertureIdPrefix(apPrefix)
             .setDarkColor("black").setClearColor("black").setFlipY(flipY);
-        PolarityMaskHelper.generateMaskDefs(svg, groups, maskPrefix, maskRect, maskOptions);
+        PolarityMaskHelper.generateMaskDefs(out, groups, maskPrefix, maskRect, maskOptions);
     }
 
     /**
@@ -672,20 +822,30 @@ public class MultiLayerSVGRenderer {
      * — Altium sometimes emits straight-edge endpoints that don't exactly meet
      * the tangent point of the adjacent corner arc (observed gaps up to ~50 µm).
      * The tolerance is well below typical PCB feature sizes so it can't fuse
-     * distinct outline features together.
+     * distinct outline features together. A fixed-point outline is first matched
+     * on exact nanometre end points, which needs no search; the tolerance only
+     * bridges the gaps.
      */
     private String extractOutlinePath(GerberDocument outlineDoc, SvgOptions options) {
-        List<GraphicsObject> objects = outlineDoc.getObjects();
+        // Step-and-repeat blocks are matched by type below, so expand them first
+        List<GraphicsObject> objects = new ArrayList<>(outlineDoc.getObjects().size());
+        for (GraphicsObject obj : StepRepeatBlock.flatten(outlineDoc.getObjects())) {
+            objects.add(obj);
+        }
 
         // Prefer regions — they're already filled closed paths
         StringBuilder regionPaths = new StringBuilder();
         for (GraphicsObject obj : objects) {
-            if (obj instanceof Region) {
-                Region region = (Region) obj;
+            if (obj instanceof Region region) {
                 for (Contour contour : region.getContours()) {
                     if (regionPaths.length() > 0) regionPaths.append(" ");
                     regionPaths.append(contour.toSvgPath(options));
                 }
+            } else if (obj instanceof FixedRegion region) {
+                for (FixedContour contour : region.getContours()) {
+                    if (regionPaths.length() > 0) regionPaths.append(" ");
+                    regionPaths.append(contour.toSvgPath(options));
+                }
             }
         }
         if (regionPaths.length() > 0) {
@@ -694,18 +854,27 @@ public class MultiLayerSVGRenderer {
 
         List<Segment> segments = new ArrayList<>();
         for (GraphicsObject obj : objects) {
-            if (obj instanceof Draw) {
-                Draw d = (Draw) obj;
+            if (obj instanceof Draw d) {
                 segments.add(Segment.draw(d.getStartX(), d.getStartY(),
                     d.getEndX(), d.getEndY()));
-            } else if (obj instanceof Arc) {
-                Arc a = (Arc) obj;
+            } else if (obj instanceof Arc a) {
                 segments.add(Segment.arc(a.getStartX(), a.getStartY(),
                     a.getEndX(), a.getEndY(), a.getCenterX(), a.getCenterY(),
                     a.getRadius(), a.isClockwise()));
+            } else if (obj instanceof FixedDraw d) {
+                segments.add(Segment.draw(FixedPoint.toMm(d.getStartXNm()), FixedPoint.toMm(d.getStartYNm()),
+                    FixedPoint.toMm(d.getEndXNm()), FixedPoint.toMm(d.getEndYNm()))
+                    .withKeys(d.getStartPoint(), d.getEndPoint()));
+            } else if (obj instanceof FixedArc a) {
+                segments.add(Segment.arc(FixedPoint.toMm(a.getStartXNm()), FixedPoint.toMm(a.getStartYNm()),
+                    FixedPoint.toMm(a.getEndXNm()), FixedPoint.toMm(a.getEndYNm()),
+                    FixedPoint.toMm(a.getCenterXNm()), FixedPoint.toMm(a.getCenterYNm()),
+                    a.getRadius(), a.isClockwise())
+                    .withKeys(a.getStartPoint(), a.getEndPoint()));
             }
         }
         if (segments.isEmpty()) return "";
+        EndpointIndex exact = new EndpointIndex(segments);
 
         // Overall bounding box of all segments — used below to identify the outer
         // panel frame rectangle. Panels (e.g. flex-PCB production panels) include an
@@ -739,10 +908,11 @@ public class MultiLayerSVGRenderer {
             StringBuilder subpath = new StringBuilder();
             double loopStartX = seed.startX;
             double loopStartY = seed.startY;
-            subpath.append(String.format(Locale.US, "M %.6f %.6f", loopStartX, loopStartY));
+            SvgNumbers.append(subpath, "M ", loopStartX, loopStartY);
             appendSegment(subpath, seed, false, options);
             double headX = seed.endX;
             double headY = seed.endY;
+            FixedPoint.Point headKey = seed.endKey;
 
             double spMinX = Math.min(seed.startX, seed.endX);
             double spMinY = Math.min(seed.startY, seed.endY);
@@ -763,10 +933,12 @@ public class MultiLayerSVGRenderer {
             //      at least as well as snapping back to the start would.
             boolean leftToleranceBall = false;
             while (true) {
-                Segment next = null;
-                boolean reverse = false;
-                double bestSq = toleranceSq;
-                for (Segment s : segments) {
+                // An exact match is as close as a segment gets, so it needs no search
+                Segment next = exact.next(headKey);
+                boolean reverse = next != null && !headKey.equals(next.startKey);
+                double bestSq = next != null ? 0 : toleranceSq;
+                for (int i = 0; bestSq > 0 && i < segments.size(); i++) {
+                    Segment s = segments.get(i);
                     if (s.used) continue;
                     double d1 = distSq(s.startX, s.startY, headX, headY);
                     if (d1 < bestSq) {
@@ -805,11 +977,16 @@ public class MultiLayerSVGRenderer {
                             farX = tSeg.endX;   farY = tSeg.endY;
                             nearX = tSeg.startX; nearY = tSeg.startY;
                         }
+                        FixedPoint.Point farKey = d1sq > d2sq ? tSeg.startKey : tSeg.endKey;
+                        FixedPoint.Point nearKey = d1sq > d2sq ? tSeg.endKey : tSeg.startKey;
                         // Return the near half to the pool so it can be picked up later.
-                        segments.add(Segment.draw(headX, headY, nearX, nearY));
-                        subpath.append(String.format(Locale.US, " L %.6f %.6f", farX, farY));
+                        Segment nearHalf = Segment.draw(headX, headY, nearX, nearY).withKeys(headKey, nearKey);
+                        segments.add(nearHalf);
+                        exact.add(nearHalf);
+                        SvgNumbers.append(subpath, " L ", farX, farY);
                         headX = farX;
                         headY = farY;
+                        headKey = farKey;
                         spMinX = Math.min(spMinX, headX); spMinY = Math.min(spMinY, headY);
                         spMaxX = Math.max(spMaxX, headX); spMaxY = Math.max(spMaxY, headY);
                         if (!leftToleranceBall
@@ -824,6 +1001,7 @@ public class MultiLayerSVGRenderer {
                 appendSegment(subpath, next, reverse, options);
                 headX = reverse ? next.startX : next.endX;
                 headY = reverse ? next.startY : next.endY;
+                headKey = reverse ? next.startKey : next.endKey;
                 spMinX = Math.min(spMinX, headX); spMinY = Math.min(spMinY, headY);
                 spMaxX = Math.max(spMaxX, headX); spMaxY = Math.max(spMaxY, headY);
                 if (next.isArc) spHasArc = true;
@@ -898,7 +1076,7 @@ public class MultiLayerSVGRenderer {
         double ex = reverse ? s.startX : s.endX;
         double ey = reverse ? s.startY : s.endY;
         if (!s.isArc) {
-            path.append(String.format(Locale.US, " L %.6f %.6f", ex, ey));
+            SvgNumbers.append(path, " L ", ex, ey);
             return;
         }
 
@@ -922,8 +1100,9 @@ public class MultiLayerSVGRenderer {
         } else {
             sweepFlag = cw ? 1 : 0;
         }
-        path.append(String.format(Locale.US, " A %.6f %.6f 0 %d %d %.6f %.6f",
-            s.radius, s.radius, largeArcFlag, sweepFlag, ex, ey));
+        SvgNumbers.append(path, " A ", s.radius, s.radius)
+            .append(" 0 ").append(largeArcFlag).append(' ').append(sweepFlag);
+        SvgNumbers.append(path, " ", ex, ey);
     }
 
     private static final class Segment {
@@ -931,6 +1110,8 @@ public class MultiLayerSVGRenderer {
         final double startX, startY, endX, endY;
         final double centerX, centerY, radius;
         final boolean clockwise;
+        // Exact end points of a fixed-point segment, else null
+        FixedPoint.Point startKey, endKey;
         boolean used;
 
         private Segment(boolean isArc, double sx, double sy, double ex, double ey,
@@ -951,19 +1132,55 @@ public class MultiLayerSVGRenderer {
                            double cx, double cy, double r, boolean cw) {
             return new Segment(true, sx, sy, ex, ey, cx, cy, r, cw);
         }
+
+        Segment withKeys(FixedPoint.Point start, FixedPoint.Point end) {
+            this.startKey = start;
+            this.endKey = end;
+            return this;
+        }
     }
 
-    private void renderDrillContent(StringBuilder svg, DrillDocument doc) {
-        if (doc == null) return;
+    /**
+     * Outline segments by their exact end points, for fixed-point outlines. Gives the
+     * first unused segment with an end point at the head, in the order a scan of the
+     * segments would meet it: by segment, its start before its end.
+     */
+    private static final class EndpointIndex {
+        private final Map<FixedPoint.Point, List<Segment>> byPoint = new HashMap<>();
+
+        EndpointIndex(List<Segment> segments) {
+            for (Segment s : segments) {
+                add(s);
+            }
+        }
+
+        void add(Segment s) {
+            if (s.startKey != null && s.endKey != null) {
+                byPoint.computeIfAbsent(s.startKey, k -> new ArrayList<>()).add(s);
+                byPoint.computeIfAbsent(s.endKey, k -> new ArrayList<>()).add(s);
+            }
+        }
 
-        for (DrillOperation op : doc.getOperations()) {
-            String opSvg = op.toSvg();
-            if (opSvg != null && !opSvg.isEmpty()) {
-                svg.append("    ").append(opSvg).append("\n");
+        Segment next(FixedPoint.Point head) {
+            List<Segment> candidates = head != null ? byPoint.get(head) : null;
+            if (candidates != null) {
+                for (Segment s : candidates) {
+                    if (!s.used) return s;
+                }
             }
+            return null;
         }
     }
 
+    /**
+     * Render a drill document's holes as {@code <use>}s of the per-tool circles that were
+     * written into the defs with the same ID prefix.
+     */
+    private void renderDrillContent(StringBuilder svg, DrillDocument doc, String toolPrefix) {
+        if (doc == null) return;
+        doc.getHoleTable().appendSvg(svg, "    ", toolPrefix, viewport, svgOptions);
+    }
+
     /**
      * Render a single-side realistic SVG — the input layer list is automatically
      * filtered to the outline, drills, and the layers matching the requested side.
@@ -1081,11 +1298,17 @@ public class MultiLayerSVGRenderer {
         // boards both get visible breathing room around the outline.
         double prevMargin = this.margin;
         this.margin = computeThumbnailMargin(layers);
+        // Nothing smaller than the pixels is worth drawing; keep an explicit level of detail
+        double prevMmPerPixel = svgOptions.getMmPerPixel();
+        if (prevMmPerPixel <= 0) {
+            svgOptions.setMmPerPixel(computeThumbnailMmPerPixel(layers, margin, widthPx, heightPx));
+        }
         String svg;
         try {
             svg = renderRealisticSide(layers, side, mirrorBottom);
         } finally {
             this.margin = prevMargin;
+            svgOptions.setMmPerPixel(prevMmPerPixel);
         }
         if (svg == null) return null;
 
@@ -1104,6 +1327,26 @@ public class MultiLayerSVGRenderer {
         return rasterizeSvgToPng(svg, widthPx, heightPx);
     }
 
+    /**
+     * Resolution of a thumbnail of the outline plus margin fitted into the given pixel
+     * size, or 0 if the outline has no bounds.
+     */
+    private static double computeThumbnailMmPerPixel(List<Layer> layers, double margin,
+                                                     int widthPx, int heightPx) {
+        BoundingBox bb = null;
+        for (Layer l : layers) {
+            if (l.getLayerType() == LayerType.OUTLINE) {
+                bb = l.getBoundingBox();
+                break;
+            }
+        }
+        if (bb == null || !bb.isValid()) return 0;
+        double mmPerPixel = 0;
+        if (widthPx > 0)  mmPerPixel = Math.max(mmPerPixel, (bb.getWidth() + 2 * margin) / widthPx);
+        if (heightPx > 0) mmPerPixel = Math.max(mmPerPixel, (bb.getHeight() + 2 * margin) / heightPx);
+        return mmPerPixel;
+    }
+
     /** 3% of the max outline dimension, floored at 1.5 mm. */
     private static double computeThumbnailMargin(List<Layer> layers) {
         BoundingBox bb = null;
@@ -0,0 +1,158 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+/**
+ * Writes the commands of an SVG path's {@code d} attribute.
+ *
+ * <p>By default commands are absolute and spelled out, separated by spaces, e.g.
+ * {@code M 0.000000 0.000000 L 1.000000 0.000000 Z}. With {@link SvgOptions#isCompact()
+ * compact} options, lines and arcs are relative to the current point, horizontal and
+ * vertical lines use {@code h} and {@code v}, a command repeated from the one before it
+ * is left implied and numbers are only separated where they have to be, e.g.
+ * {@code M0 0h1.5v.5.25z}. Relative steps are taken between rounded points, so rounding
+ * errors do not add up along a path.</p>
+ */
+public final class PathData {
+
+    private final StringBuilder svg;
+    private final boolean compact;
+    private final int decimals;
+
+    // Compact only: current point and subpath start, in units of 10^-decimals
+    private long x;
+    private long y;
+    private long startX;
+    private long startY;
+    private char lastCommand;
+    private boolean lastHasPoint;  // Whether the last number written has a decimal point
+
+    /**
+     * Path data in the default layout, appended to {@code svg}.
+     */
+    public PathData(StringBuilder svg) {
+        this.svg = svg;
+        this.compact = false;
+        this.decimals = 6;
+    }
+
+    /**
+     * Path data laid out according to {@code options}, appended to {@code svg}.
+     */
+    public PathData(StringBuilder svg, SvgOptions options) {
+        this.svg = svg;
+        this.compact = options.isCompact();
+        this.decimals = options.getDecimals();
+    }
+
+    public PathData moveTo(double px, double py) {
+        if (!compact) {
+            SvgNumbers.append(separate(), "M ", px, py);
+            return this;
+        }
+        x = startX = SvgNumbers.toUnits(px, decimals);
+        y = startY = SvgNumbers.toUnits(py, decimals);
+        command('M');
+        appendUnits(x);
+        appendUnits(y);
+        return this;
+    }
+
+    public PathData lineTo(double px, double py) {
+        if (!compact) {
+            SvgNumbers.append(separate(), "L ", px, py);
+            return this;
+        }
+        long ux = SvgNumbers.toUnits(px, decimals);
+        long uy = SvgNumbers.toUnits(py, decimals);
+        if (uy == y) {
+            command('h');
+            appendUnits(ux - x);
+        } else if (ux == x) {
+            command('v');
+            appendUnits(uy - y);
+        } else {
+            command('l');
+            appendUnits(ux - x);
+            appendUnits(uy - y);
+        }
+        x = ux;
+        y = uy;
+        return this;
+    }
+
+    /**
+     * An elliptical arc with equal radii to (px, py); see the SVG {@code A} command.
+     */
+    public PathData arcTo(double radius, int largeArc, int sweep, double px, double py) {
+        if (!compact) {
+            SvgNumbers.append(separate(), "A ", radius, radius)
+                .append(" 0 ").append(largeArc).append(' ').append(sweep);
+            SvgNumbers.append(svg, " ", px, py);
+            return this;
+        }
+        long ux = SvgNumbers.toUnits(px, decimals);
+        long uy = SvgNumbers.toUnits(py, decimals);
+        long r = SvgNumbers.toUnits(radius, decimals);
+        command('a');
+        appendUnits(r);
+        appendUnits(r);
+        svg.append(" 0 ").append(largeArc).append(' ').append(sweep);
+        lastHasPoint = false;
+        appendUnits(ux - x);
+        appendUnits(uy - y);
+        x = ux;
+        y = uy;
+        return this;
+    }
+
+    public PathData close() {
+        if (!compact) {
+            separate().append('Z');
+            return this;
+        }
+        svg.append('z');
+        lastCommand = 'z';
+        x = startX;
+        y = startY;
+        return this;
+    }
+
+    /**
+     * Start a command in the default layout: a space unless at the start of the data.
+     */
+    private StringBuilder separate() {
+        int length = svg.length();
+        if (length > 0) {
+            char last = svg.charAt(length - 1);
+            if (last != ' ' && last != '"') {
+                svg.append(' ');
+            }
+        }
+        return svg;
+    }
+
+    /**
+     * Start a compact command, leaving out its letter if it repeats the previous one.
+     */
+    private void command(char command) {
+        if (command != lastCommand || command == 'M') {
+            svg.append(command);
+            lastCommand = command;
+        }
+    }
+
+    /**
+     * Append a compact number, with a space before it unless it follows a command letter,
+     * starts with a minus sign or starts with a decimal point after a number that already
+     * has one.
+     */
+    private void appendUnits(long units) {
+        char last = svg.charAt(svg.length() - 1);
+        boolean fraction = units % SvgNumbers.unitsPerOne(decimals) != 0;
+        boolean leadingPoint = fraction && Math.abs(units) < SvgNumbers.unitsPerOne(decimals);
+        if (units >= 0 && !Character.isLetter(last) && !(leadingPoint && lastHasPoint)) {
+            svg.append(' ');
+        }
+        SvgNumbers.appendUnits(svg, units, decimals);
+        lastHasPoint = fraction;
+    }
+}
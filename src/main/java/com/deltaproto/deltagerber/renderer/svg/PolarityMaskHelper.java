@@ -2,7 +2,9 @@ package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -56,24 +58,30 @@ class PolarityMaskHelper {
     /**
      * Generates SVG mask definitions for clear polarity groups.
      *
-     * @param svg        target builder
+     * @param out        target output
      * @param groups     polarity groups from {@link #groupByPolarity}
      * @param maskPrefix ID prefix for mask elements (e.g., "cm" or "L0_cm")
      * @param maskRect   the white background rect for the mask (covers the viewbox)
-     * @param maskOptions SvgOptions with dark/clear colors set to "black" for mask rendering
+     * @param maskOptions SvgOptions with dark/clear colors set to "black" for mask rendering;
+     *                    their inherited color, if any, is set on the mask elements
      */
-    static void generateMaskDefs(StringBuilder svg, List<PolarityGroup> groups,
-                                  String maskPrefix, String maskRect, SvgOptions maskOptions) {
+    static void generateMaskDefs(SvgWriter out, List<PolarityGroup> groups,
+                                  String maskPrefix, String maskRect, SvgOptions maskOptions) throws IOException {
+        StringBuilder svg = out.svg();
         int maskId = 0;
         for (PolarityGroup group : groups) {
             if (group.polarity == Polarity.CLEAR) {
-                svg.append(String.format("  <mask id=\"%s%d\">\n", maskPrefix, maskId));
+                svg.append("  <mask id=\"").append(maskPrefix).append(maskId).append('"');
+                String color = maskOptions.getInheritedColor();
+                if (color != null) {
+                    svg.append(" fill=\"").append(color).append("\" stroke=\"").append(color)
+                        .append("\" stroke-width=\"0\"");
+                }
+                svg.append(">\n");
                 svg.append("    ").append(maskRect).append("\n");
-                for (GraphicsObject obj : group.objects) {
-                    String objSvg = obj.toSvg(maskOptions);
-                    if (objSvg != null && !objSvg.isEmpty()) {
-                        svg.append("    ").append(objSvg).append("\n");
-                    }
+                for (int i = 0; i < group.objects.size(); ) {
+                    i = StrokeJoiner.appendLine(svg, "    ", group.objects, i, maskOptions);
+                    out.drain();
                 }
                 svg.append("  </mask>\n");
                 maskId++;
@@ -94,16 +102,17 @@ class PolarityMaskHelper {
      *   &lt;/g&gt;
      * </pre>
      *
-     * @param svg        target builder
+     * @param out        target output
      * @param groups     polarity groups from {@link #groupByPolarity}
      * @param maskPrefix ID prefix matching the one used in {@link #generateMaskDefs}
      * @param options    SvgOptions for rendering dark objects
      */
-    static void renderWithMasks(StringBuilder svg, List<PolarityGroup> groups,
-                                 String maskPrefix, SvgOptions options) {
+    static void renderWithMasks(SvgWriter out, List<PolarityGroup> groups,
+                                 String maskPrefix, SvgOptions options) throws IOException {
         if (groups.isEmpty()) {
             return;
         }
+        StringBuilder svg = out.svg();
 
         // Check if there are any clear groups
         boolean hasClear = false;
@@ -117,7 +126,7 @@ class PolarityMaskHelper {
         if (!hasClear) {
             // No clear groups — render all objects directly
             for (PolarityGroup group : groups) {
-                renderGroup(svg, group, options);
+                renderGroup(out, group, options);
             }
             return;
         }
@@ -141,7 +150,7 @@ class PolarityMaskHelper {
         // Render dark groups and close masks at clear group positions
         for (PolarityGroup group : groups) {
             if (group.polarity == Polarity.DARK) {
-                renderGroup(svg, group, options);
+                renderGroup(out, group, options);
             } else {
                 // Clear group — close the innermost open mask group
                 svg.append("  </g>\n");
@@ -166,12 +175,29 @@ class PolarityMaskHelper {
             width + 2 * extraMargin, height + 2 * extraMargin);
     }
 
-    private static void renderGroup(StringBuilder svg, PolarityGroup group, SvgOptions options) {
-        for (GraphicsObject obj : group.objects) {
-            String objSvg = obj.toSvg(options);
-            if (objSvg != null && !objSvg.isEmpty()) {
-                svg.append("  ").append(objSvg).append("\n");
+    /**
+     * Defines up front the step-and-repeat blocks that {@link #renderWithMasks} will
+     * reference with these options, so their definitions can be written into
+     * {@code <defs>} before the body is streamed out.
+     */
+    static void defineBlocks(List<PolarityGroup> groups, SvgOptions options) {
+        BlockDefinitions blocks = options.getBlockDefinitions();
+        for (PolarityGroup group : groups) {
+            if (group.polarity != Polarity.DARK) {
+                continue;
             }
+            for (GraphicsObject obj : group.objects) {
+                if (obj instanceof StepRepeatBlock block) {
+                    blocks.define(block, options);
+                }
+            }
+        }
+    }
+
+    private static void renderGroup(SvgWriter out, PolarityGroup group, SvgOptions options) throws IOException {
+        for (int i = 0; i < group.objects.size(); ) {
+            i = StrokeJoiner.appendLine(out.svg(), "  ", group.objects, i, options);
+            out.drain();
         }
     }
 }
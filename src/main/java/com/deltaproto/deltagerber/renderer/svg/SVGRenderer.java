@@ -3,7 +3,14 @@ package com.deltaproto.deltagerber.renderer.svg;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
-
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Locale;
 
@@ -18,6 +25,7 @@ public class SVGRenderer {
     private boolean flipY = true;
     private double margin = 0;
     private Double fixedViewBoxSize = null;  // If set, use a fixed square viewBox centered on content
+    private BoundingBox viewport = null;  // If set, render only this window of the document
     private SvgOptions svgOptions = SvgOptions.exact();  // Default to exact mode
 
     public SVGRenderer() {
@@ -95,15 +103,59 @@ public class SVGRenderer {
         return this;
     }
 
+    /**
+     * Restricts renders to a window of the document, e.g. the part a zoomed-in view shows.
+     * The viewport becomes the viewBox, overriding the margin and fixed viewBox size, and
+     * only the objects reaching into it and the apertures they flash are written.
+     * @param viewport the window in document coordinates (mm), or null to render everything
+     */
+    public SVGRenderer setViewport(BoundingBox viewport) {
+        this.viewport = viewport;
+        return this;
+    }
+
     public String render(GerberDocument doc) {
+        SvgWriter out = new SvgWriter();
+        try {
+            render(doc, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Not thrown without a writer
+        }
+        return out.toString();
+    }
+
+    /**
+     * Render straight to a writer, element by element, so memory use does not grow with
+     * the size of the SVG. The writer is flushed but not closed.
+     */
+    public void render(GerberDocument doc, Writer writer) throws IOException {
+        render(doc, new SvgWriter(writer));
+    }
+
+    /**
+     * Render straight to a stream as UTF-8; see {@link #render(GerberDocument, Writer)}.
+     */
+    public void render(GerberDocument doc, OutputStream out) throws IOException {
+        render(doc, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private void render(GerberDocument doc, SvgWriter out) throws IOException {
+        StringBuilder svg = out.svg();
         BoundingBox bounds = doc.getBoundingBox();
-        if (!bounds.isValid()) {
-            return createEmptySvg();
+        if (!bounds.isValid() || (viewport != null && !viewport.isValid())) {
+            svg.append(createEmptySvg());
+            out.finish();
+            return;
         }
 
         double minX, minY, width, height;
 
-        if (fixedViewBoxSize != null) {
+        if (viewport != null) {
+            minX = viewport.getMinX();
+            minY = viewport.getMinY();
+            width = viewport.getWidth();
+            height = viewport.getHeight();
+        } else if (fixedViewBoxSize != null) {
             // Use fixed viewBox centered on content
             double centerX = (bounds.getMinX() + bounds.getMaxX()) / 2;
             double centerY = (bounds.getMinY() + bounds.getMaxY()) / 2;
@@ -120,32 +172,44 @@ public class SVGRenderer {
             height = bounds.getHeight() + 2 * margin;
         }
 
-        StringBuilder svg = new StringBuilder();
-
         // SVG header
         svg.append(String.format(Locale.US,
             "<svg xmlns=\"http://www.w3.org/2000/svg\" " +
             "viewBox=\"%.6f %.6f %.6f %.6f\" " +
-            "preserveAspectRatio=\"xMidYMid meet\">\n",
+            "preserveAspectRatio=\"xMidYMid meet\"",
             minX, minY, width, height));
+        boolean compact = svgOptions.isCompact();
+        if (compact) {
+            // Dark objects inherit their color and all strokes their caps from the root;
+            // only objects with their own stroke width are stroked
+            svg.append(" fill=\"").append(darkColor).append("\" stroke=\"").append(darkColor)
+                .append("\" stroke-width=\"0\" stroke-linecap=\"round\"");
+        }
+        svg.append(">\n");
 
         // Set colors and flipY in svgOptions for direct fill attributes and arc direction
-        svgOptions.setDarkColor(darkColor).setClearColor(clearColor).setFlipY(flipY);
+        svgOptions.setDarkColor(darkColor).setClearColor(clearColor).setFlipY(flipY)
+            .setInheritedColor(compact ? darkColor : null);
+        BlockDefinitions blocks = new BlockDefinitions("sr");
+        svgOptions.setBlockDefinitions(blocks);
 
         // Aperture definitions
+        List<GraphicsObject> objects = ViewportFilter.objects(doc, viewport);
         svg.append("<defs>\n");
-        for (Aperture aperture : doc.getApertures().values()) {
-            String def = aperture.toSvgDef("ap" + aperture.getDCode(), svgOptions);
-            svg.append("  ").append(def).append("\n");
+        for (Aperture aperture : ViewportFilter.apertures(doc, objects, viewport, svgOptions)) {
+            svg.append("  ").append(aperture.toSvgDef("ap" + aperture.getDCode(), svgOptions)).append("\n");
+            out.drain();
         }
 
         // Group objects by polarity transitions and generate masks for clear groups
         List<PolarityMaskHelper.PolarityGroup> groups =
-            PolarityMaskHelper.groupByPolarity(doc.getObjects());
+            PolarityMaskHelper.groupByPolarity(objects);
         SvgOptions maskOptions = svgOptions.copy();
-        maskOptions.setDarkColor("black").setClearColor("black");
+        maskOptions.setDarkColor("black").setClearColor("black").setInheritedColor(compact ? "black" : null);
         String maskRect = PolarityMaskHelper.createMaskRect(minX, minY, width, height, 1);
-        PolarityMaskHelper.generateMaskDefs(svg, groups, "cm", maskRect, maskOptions);
+        PolarityMaskHelper.generateMaskDefs(out, groups, "cm", maskRect, maskOptions);
+        PolarityMaskHelper.defineBlocks(groups, svgOptions);
+        svg.append(blocks.toSvg());
         svg.append("</defs>\n");
 
         // Apply Y flip if needed
@@ -163,14 +227,15 @@ public class SVGRenderer {
         }
 
         // Render objects with mask wrapping for clear polarity groups
-        PolarityMaskHelper.renderWithMasks(svg, groups, "cm", svgOptions);
+        PolarityMaskHelper.renderWithMasks(out, groups, "cm", svgOptions);
 
         if (flipY) {
             svg.append("</g>\n");
         }
 
         svg.append("</svg>");
-        return svg.toString();
+        svgOptions.setBlockDefinitions(null);
+        out.finish();
     }
 
     private String createEmptySvg() {
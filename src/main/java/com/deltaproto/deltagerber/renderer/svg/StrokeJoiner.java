@@ -0,0 +1,118 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joins consecutive strokes into one path, set with {@link SvgOptions#setJoinStrokes(boolean)}.
+ *
+ * <p>A draw or arc with a circular aperture covers the points within the aperture's radius
+ * of its centre line, which is exactly what a stroke of the aperture's diameter with round
+ * caps covers. Where one stroke ends at the start of the next, the two together are the
+ * same as one path through both stroked with round caps and round joins; where it doesn't,
+ * the next starts a new subpath of the same path, which is stroked on its own. So a run
+ * of consecutive draws and arcs with the same aperture diameter and polarity is written as
+ * a single {@code <path>}, its connected strokes as one polyline. Anything else, including
+ * a run of one, is written by {@link LevelOfDetail} as before.</p>
+ *
+ * <p>CAD tools often write the segments of a trace or a silkscreen glyph out of order, so
+ * joining only connected strokes would leave most of them as separate elements.</p>
+ */
+public final class StrokeJoiner {
+
+    private StrokeJoiner() {
+    }
+
+    /**
+     * Append the object at {@code from} as one indented line, joined with the strokes that
+     * follow it if the options join strokes; see {@link LevelOfDetail#appendLine}.
+     *
+     * @return the index of the first object not yet written
+     */
+    public static int appendLine(StringBuilder svg, String indent, List<GraphicsObject> objects, int from,
+                                 SvgOptions options) {
+        GraphicsObject first = objects.get(from);
+        if (!options.isJoinStrokes() || options.isPolygonize()) {
+            LevelOfDetail.appendLine(svg, indent, first, options);
+            return from + 1;
+        }
+        List<GraphicsObject> run = new ArrayList<>();
+        run.add(first.toMm());
+        double diameter = diameter(run.get(0));
+        if (diameter < 0) {
+            LevelOfDetail.appendLine(svg, indent, first, options);
+            return from + 1;
+        }
+
+        int next = from + 1;
+        while (next < objects.size()) {
+            GraphicsObject candidate = objects.get(next).toMm();
+            if (diameter(candidate) != diameter || candidate.getPolarity() != first.getPolarity()) {
+                break;
+            }
+            run.add(candidate);
+            next++;
+        }
+        if (run.size() == 1) {
+            LevelOfDetail.appendLine(svg, indent, first, options);
+            return next;
+        }
+
+        svg.append(indent).append("<path d=\"");
+        PathData path = new PathData(svg, options);
+        GraphicsObject previous = null;
+        for (GraphicsObject obj : run) {
+            if (previous == null || !connects(previous, obj)) {
+                path.moveTo(startX(obj), startY(obj));
+            }
+            previous = obj;
+            if (obj instanceof Draw draw) {
+                path.lineTo(draw.getEndX(), draw.getEndY());
+            } else {
+                ((Arc) obj).appendArcTo(path, options);
+            }
+        }
+        String color = first.getPolarity() == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
+        svg.append("\" fill=\"none\"");
+        if (options.needsColor(color)) {
+            svg.append(" stroke=\"").append(color).append('"');
+        }
+        SvgNumbers.append(svg.append(" stroke-width=\""), diameter, options).append('"');
+        // Compact output inherits round caps from the root
+        svg.append(options.isCompact() ? "" : " stroke-linecap=\"round\"").append(" stroke-linejoin=\"round\"/>\n");
+        return next;
+    }
+
+    /**
+     * The stroke width of a draw or arc with a circular aperture, or -1 for any other object.
+     */
+    private static double diameter(GraphicsObject obj) {
+        if (obj instanceof Draw draw && draw.getAperture() instanceof CircleAperture circle) {
+            return circle.getDiameter();
+        }
+        if (obj instanceof Arc arc && arc.getAperture() instanceof CircleAperture circle) {
+            return circle.getDiameter();
+        }
+        return -1;
+    }
+
+    private static boolean connects(GraphicsObject previous, GraphicsObject next) {
+        double endX = previous instanceof Draw draw ? draw.getEndX() : ((Arc) previous).getEndX();
+        double endY = previous instanceof Draw draw ? draw.getEndY() : ((Arc) previous).getEndY();
+        return startX(next) == endX && startY(next) == endY;
+    }
+
+    private static double startX(GraphicsObject obj) {
+        return obj instanceof Draw draw ? draw.getStartX() : ((Arc) obj).getStartX();
+    }
+
+    private static double startY(GraphicsObject obj) {
+        return obj instanceof Draw draw ? draw.getStartY() : ((Arc) obj).getStartY();
+    }
+}
@@ -0,0 +1,157 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import java.util.Locale;
+
+/**
+ * Appends numbers to SVG output without going through {@link java.util.Formatter}.
+ *
+ * <p>{@link #append(StringBuilder, double)} writes exactly what
+ * {@code String.format(Locale.US, "%.6f", value)} would, but without parsing a format
+ * string or allocating. Formatter rounds the shortest decimal representation of the
+ * value half-up; that only differs from rounding the value itself when it lies right on
+ * a rounding tie, so those rare values (and huge, infinite or NaN values) are still
+ * handed to Formatter.</p>
+ *
+ * <p>The overloads taking {@link SvgOptions} write compact numbers instead when the
+ * options are {@link SvgOptions#isCompact() compact}: rounded to the options' decimal
+ * places, without trailing zeros or a leading zero, e.g. {@code .5} and {@code -12.25}.</p>
+ */
+public final class SvgNumbers {
+
+    private static final double SCALE = 1e6;
+    private static final int UNITS_PER_ONE = 1_000_000;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    /**
+     * Above this the scaled value loses the precision needed to round it directly.
+     */
+    private static final double MAX_DIRECT = 1e9;
+
+    private SvgNumbers() {
+        // Utility class
+    }
+
+    /**
+     * Append {@code value} with six decimals, as {@code %.6f} in {@link Locale#US}.
+     *
+     * @return {@code svg}, for chaining
+     */
+    public static StringBuilder append(StringBuilder svg, double value) {
+        double abs = Math.abs(value);
+        if (!(abs < MAX_DIRECT)) {
+            return svg.append(String.format(Locale.US, "%.6f", value));
+        }
+        double scaled = abs * SCALE;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        // The scaled value and the decimal Formatter rounds are both within two ulps of
+        // the exact one, so anything further than that from a tie rounds the same way
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+            return svg.append(String.format(Locale.US, "%.6f", value));
+        }
+        long units = (long) whole + (fraction > 0.5 ? 1 : 0);
+        // Formatter keeps the sign of negative zero and of values that round to zero
+        if (Double.doubleToRawLongBits(value) < 0) {
+            svg.append('-');
+        }
+        svg.append(units / UNITS_PER_ONE).append('.');
+        int decimals = (int) (units % UNITS_PER_ONE);
+        for (int digit = UNITS_PER_ONE / 10; digit > decimals && digit > 1; digit /= 10) {
+            svg.append('0');
+        }
+        return svg.append(decimals);
+    }
+
+    /**
+     * Append {@code x} and {@code y} separated by a space.
+     *
+     * @return {@code svg}, for chaining
+     */
+    public static StringBuilder append(StringBuilder svg, double x, double y) {
+        append(svg, x).append(' ');
+        return append(svg, y);
+    }
+
+    /**
+     * Append a path command followed by a point, e.g. {@code " L 1.000000 2.000000"}
+     * for a command of {@code " L "}.
+     *
+     * @return {@code svg}, for chaining
+     */
+    public static StringBuilder append(StringBuilder svg, String command, double x, double y) {
+        return append(svg.append(command), x, y);
+    }
+
+    /**
+     * Append {@code value} as {@link #append(StringBuilder, double)} does, or as a compact
+     * number if the options are compact.
+     *
+     * @return {@code svg}, for chaining
+     */
+    public static StringBuilder append(StringBuilder svg, double value, SvgOptions options) {
+        if (!options.isCompact()) {
+            return append(svg, value);
+        }
+        int decimals = options.getDecimals();
+        return appendUnits(svg, toUnits(value, decimals), decimals);
+    }
+
+    /**
+     * Append {@code x} and {@code y} separated by a space, as compact numbers if the
+     * options are compact.
+     *
+     * @return {@code svg}, for chaining
+     */
+    public static StringBuilder append(StringBuilder svg, double x, double y, SvgOptions options) {
+        append(svg, x, options).append(' ');
+        return append(svg, y, options);
+    }
+
+    /**
+     * {@code value} rounded to a whole number of units of {@code 10^-decimals}.
+     */
+    static long toUnits(double value, int decimals) {
+        // Half away from zero, so mirrored coordinates round to mirrored units
+        double scaled = value * POWERS_OF_TEN[decimals];
+        return scaled < 0 ? -Math.round(-scaled) : Math.round(scaled);
+    }
+
+    /**
+     * The number of units of {@code 10^-decimals} in one.
+     */
+    static long unitsPerOne(int decimals) {
+        return POWERS_OF_TEN[decimals];
+    }
+
+    /**
+     * Append a number of units of {@code 10^-decimals} as a compact decimal: no trailing
+     * zeros, no leading zero before the point and no sign on zero.
+     *
+     * @return {@code svg}, for chaining
+     */
+    static StringBuilder appendUnits(StringBuilder svg, long units, int decimals) {
+        if (units < 0) {
+            svg.append('-');
+            units = -units;
+        }
+        long one = POWERS_OF_TEN[decimals];
+        long whole = units / one;
+        long fraction = units % one;
+        if (whole != 0 || fraction == 0) {
+            svg.append(whole);
+        }
+        if (fraction != 0) {
+            svg.append('.');
+            int digits = decimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (long digit = POWERS_OF_TEN[digits - 1]; digit > fraction; digit /= 10) {
+                svg.append('0');
+            }
+            svg.append(fraction);
+        }
+        return svg;
+    }
+}
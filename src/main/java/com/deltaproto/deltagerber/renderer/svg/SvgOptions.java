@@ -11,6 +11,13 @@ public class SvgOptions {
     private String clearColor = "#ffffff";
     private boolean flipY = true;  // Whether Y-axis is flipped (Gerber Y-up to SVG Y-down)
     private String apertureIdPrefix = "ap";  // Prefix for aperture IDs (allows multiple layers)
+    private BlockDefinitions blockDefinitions = null;  // Shared step-and-repeat defs, set by renderers
+    private ApertureDefinitions apertureDefinitions = null;  // Shared aperture defs, set by renderers
+    private double mmPerPixel = 0;  // Target resolution for level of detail, 0 = full detail
+    private boolean compact = false;
+    private int decimals = 3;  // Decimal places of numbers in compact output
+    private String inheritedColor = null;  // Fill and stroke of the enclosing group, set by renderers
+    private boolean joinStrokes = false;
 
     public SvgOptions() {
     }
@@ -94,6 +101,121 @@ public class SvgOptions {
         return this;
     }
 
+    /**
+     * Where step-and-repeat blocks register their shared definitions, or null to write
+     * every instance out in full. Renderers set this for the duration of a render; copies
+     * share the same instance.
+     */
+    public BlockDefinitions getBlockDefinitions() {
+        return blockDefinitions;
+    }
+
+    public SvgOptions setBlockDefinitions(BlockDefinitions blockDefinitions) {
+        this.blockDefinitions = blockDefinitions;
+        return this;
+    }
+
+    /**
+     * Where the aperture definitions shared between layers were registered, or null if
+     * every aperture is defined under its own ID, {@link #getApertureIdPrefix()} followed
+     * by its D-code. Renderers set this for the duration of a render; copies share the
+     * same instance.
+     */
+    public ApertureDefinitions getApertureDefinitions() {
+        return apertureDefinitions;
+    }
+
+    public SvgOptions setApertureDefinitions(ApertureDefinitions apertureDefinitions) {
+        this.apertureDefinitions = apertureDefinitions;
+        return this;
+    }
+
+    /**
+     * Target resolution in mm per pixel for level-of-detail rendering, or 0 (default) for
+     * full detail. When set, objects much smaller than a pixel are left out, tiny flashes
+     * become simple dots and contour vertices within a tenth of a pixel of a straight edge are
+     * dropped; see {@link LevelOfDetail}. Meant for rasterizing at a known size, e.g.
+     * thumbnails.
+     */
+    public double getMmPerPixel() {
+        return mmPerPixel;
+    }
+
+    public SvgOptions setMmPerPixel(double mmPerPixel) {
+        this.mmPerPixel = mmPerPixel;
+        return this;
+    }
+
+    /**
+     * If true, output is written as small as possible rather than in the fixed layout of
+     * the default output: numbers are rounded to {@link #getDecimals()} places without
+     * trailing zeros, path data uses relative and implicitly repeated commands, elements
+     * leave out a color their group already sets (see {@link #getInheritedColor()}) and
+     * round line caps, which the renderers set on the root, and only the apertures that
+     * are flashed get a definition. Default: false.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public SvgOptions setCompact(boolean compact) {
+        this.compact = compact;
+        return this;
+    }
+
+    /**
+     * Decimal places of the numbers in compact output, from 0 to 6. Coordinates are in
+     * mm, so the default of 3 rounds to the micrometre. The default output always has 6.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public SvgOptions setDecimals(int decimals) {
+        if (decimals < 0 || decimals > 6) {
+            throw new IllegalArgumentException("Decimals must be between 0 and 6: " + decimals);
+        }
+        this.decimals = decimals;
+        return this;
+    }
+
+    /**
+     * The color that the group enclosing the rendered objects already sets as its fill
+     * and stroke, with a stroke width of 0 so that only elements with their own stroke
+     * width are stroked, or null if unknown. Renderers set this for compact output, so
+     * objects of that color can leave their fill or stroke attribute out.
+     */
+    public String getInheritedColor() {
+        return inheritedColor;
+    }
+
+    public SvgOptions setInheritedColor(String inheritedColor) {
+        this.inheritedColor = inheritedColor;
+        return this;
+    }
+
+    /**
+     * If true, runs of connected draws and arcs with the same circular aperture and
+     * polarity are written as one stroked path with round joins instead of an element
+     * each; see {@link StrokeJoiner}. The shapes drawn are the same, with far fewer
+     * elements for traces and silkscreen text. Ignored when polygonizing. Default: false.
+     */
+    public boolean isJoinStrokes() {
+        return joinStrokes;
+    }
+
+    public SvgOptions setJoinStrokes(boolean joinStrokes) {
+        this.joinStrokes = joinStrokes;
+        return this;
+    }
+
+    /**
+     * Whether an element of the given color needs its own fill or stroke attribute.
+     */
+    public boolean needsColor(String color) {
+        return !compact || !color.equals(inheritedColor);
+    }
+
     /**
      * Create a copy of these options.
      */
@@ -105,6 +227,13 @@ public class SvgOptions {
         copy.clearColor = this.clearColor;
         copy.flipY = this.flipY;
         copy.apertureIdPrefix = this.apertureIdPrefix;
+        copy.blockDefinitions = this.blockDefinitions;
+        copy.apertureDefinitions = this.apertureDefinitions;
+        copy.mmPerPixel = this.mmPerPixel;
+        copy.compact = this.compact;
+        copy.decimals = this.decimals;
+        copy.inheritedColor = this.inheritedColor;
+        copy.joinStrokes = this.joinStrokes;
         return copy;
     }
 
@@ -115,6 +244,21 @@ public class SvgOptions {
         return new SvgOptions().setPolygonize(false);
     }
 
+    /**
+     * Compact options: exact native SVG elements, written as small as possible with
+     * numbers rounded to the micrometre; see {@link #isCompact()}.
+     */
+    public static SvgOptions compact() {
+        return compact(3);
+    }
+
+    /**
+     * Compact options with numbers rounded to the given number of decimal places.
+     */
+    public static SvgOptions compact(int decimals) {
+        return new SvgOptions().setCompact(true).setDecimals(decimals);
+    }
+
     /**
      * Polygonized options: all shapes as path approximations.
      */
@@ -2,7 +2,6 @@ package com.deltaproto.deltagerber.renderer.svg;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Utility class for generating SVG path data from geometric shapes.
@@ -33,18 +32,25 @@ public class SvgPathUtils {
      */
     public static String circlePath(double cx, double cy, double radius, int segments) {
         StringBuilder path = new StringBuilder();
+        circlePath(new PathData(path), cx, cy, radius, segments);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #circlePath(double, double, double, int)} to {@code path}.
+     */
+    public static void circlePath(PathData path, double cx, double cy, double radius, int segments) {
         for (int i = 0; i < segments; i++) {
             double angle = 2 * Math.PI * i / segments;
             double x = cx + radius * Math.cos(angle);
             double y = cy + radius * Math.sin(angle);
             if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
+                path.moveTo(x, y);
             } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
         }
-        path.append(" Z");
-        return path.toString();
+        path.close();
     }
 
     /**
@@ -60,48 +66,72 @@ public class SvgPathUtils {
      */
     public static String annulusPath(double cx, double cy, double outerRadius, double innerRadius, int segments) {
         StringBuilder path = new StringBuilder();
+        annulusPath(new PathData(path), cx, cy, outerRadius, innerRadius, segments);
+        return path.toString();
+    }
 
+    /**
+     * Write {@link #annulusPath(double, double, double, double, int)} to {@code path}.
+     */
+    public static void annulusPath(PathData path, double cx, double cy, double outerRadius, double innerRadius,
+                                   int segments) {
         // Outer circle (clockwise)
-        for (int i = 0; i < segments; i++) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + outerRadius * Math.cos(angle);
-            double y = cy + outerRadius * Math.sin(angle);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
-        path.append(" Z");
+        circlePath(path, cx, cy, outerRadius, segments);
 
         // Inner circle (counter-clockwise for hole)
+        reverseCirclePath(path, cx, cy, innerRadius, segments);
+    }
+
+    /**
+     * Write a circle approximated as a polygon, counter-clockwise, e.g. to cut a hole.
+     */
+    public static void reverseCirclePath(PathData path, double cx, double cy, double radius, int segments) {
         for (int i = segments - 1; i >= 0; i--) {
             double angle = 2 * Math.PI * i / segments;
-            double x = cx + innerRadius * Math.cos(angle);
-            double y = cy + innerRadius * Math.sin(angle);
+            double x = cx + radius * Math.cos(angle);
+            double y = cy + radius * Math.sin(angle);
             if (i == segments - 1) {
-                path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
+                path.moveTo(x, y);
             } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
         }
-        path.append(" Z");
-
-        return path.toString();
+        path.close();
     }
 
     /**
      * Generate a rectangle path.
      */
     public static String rectanglePath(double cx, double cy, double width, double height) {
+        StringBuilder path = new StringBuilder();
+        rectanglePath(new PathData(path), cx, cy, width, height);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #rectanglePath(double, double, double, double)} to {@code path}.
+     */
+    public static void rectanglePath(PathData path, double cx, double cy, double width, double height) {
         double hw = width / 2;
         double hh = height / 2;
-        return String.format(Locale.US,
-            "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
-            cx - hw, cy - hh,  // bottom-left
-            cx + hw, cy - hh,  // bottom-right
-            cx + hw, cy + hh,  // top-right
-            cx - hw, cy + hh); // top-left
+        path.moveTo(cx - hw, cy - hh)   // bottom-left
+            .lineTo(cx + hw, cy - hh)   // bottom-right
+            .lineTo(cx + hw, cy + hh)   // top-right
+            .lineTo(cx - hw, cy + hh)   // top-left
+            .close();
+    }
+
+
+
+    /**
+     * Write a circle around the origin as two exact half-arcs, e.g. to cut a hole into
+     * an aperture: {@code sweepFlag} 1 draws it clockwise, 0 counter-clockwise.
+     */
+    public static void arcCirclePath(PathData path, double radius, int sweepFlag) {
+        path.moveTo(radius, 0)
+            .arcTo(radius, 1, sweepFlag, -radius, 0)
+            .arcTo(radius, 1, sweepFlag, radius, 0)
+            .close();
     }
 
     /**
@@ -109,45 +139,40 @@ public class SvgPathUtils {
      */
     public static String rectangleWithHolePath(double cx, double cy, double width, double height, double holeDiameter) {
         StringBuilder path = new StringBuilder();
+        rectangleWithHolePath(new PathData(path), cx, cy, width, height, holeDiameter);
+        return path.toString();
+    }
 
+    /**
+     * Write {@link #rectangleWithHolePath(double, double, double, double, double)} to {@code path}.
+     */
+    public static void rectangleWithHolePath(PathData path, double cx, double cy, double width, double height,
+                                             double holeDiameter) {
         // Rectangle
-        double hw = width / 2;
-        double hh = height / 2;
-        path.append(String.format(Locale.US,
-            "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
-            cx - hw, cy - hh,
-            cx + hw, cy - hh,
-            cx + hw, cy + hh,
-            cx - hw, cy + hh));
+        rectanglePath(path, cx, cy, width, height);
 
         // Inner hole (counter-clockwise)
-        double hr = holeDiameter / 2;
-        for (int i = CIRCLE_SEGMENTS - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / CIRCLE_SEGMENTS;
-            double x = cx + hr * Math.cos(angle);
-            double y = cy + hr * Math.sin(angle);
-            if (i == CIRCLE_SEGMENTS - 1) {
-                path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
-        path.append(" Z");
-
-        return path.toString();
+        reverseCirclePath(path, cx, cy, holeDiameter / 2, CIRCLE_SEGMENTS);
     }
 
     /**
      * Generate an obround (stadium/pill shape) path.
      */
     public static String obroundPath(double cx, double cy, double width, double height) {
+        StringBuilder path = new StringBuilder();
+        obroundPath(new PathData(path), cx, cy, width, height);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #obroundPath(double, double, double, double)} to {@code path}.
+     */
+    public static void obroundPath(PathData path, double cx, double cy, double width, double height) {
         int semiSegments = CIRCLE_SEGMENTS / 2;
 
         double hw = width / 2;
         double hh = height / 2;
 
-        StringBuilder path = new StringBuilder();
-
         if (width >= height) {
             // Horizontal obround: semicircles on left and right
             double radius = height / 2;
@@ -156,29 +181,29 @@ public class SvgPathUtils {
             double rightCenter = cx + flatLength / 2;
 
             // Start at bottom of right semicircle
-            path.append(String.format(Locale.US, "M %.6f %.6f", rightCenter, cy - radius));
+            path.moveTo(rightCenter, cy - radius);
 
             // Right semicircle (bottom to top, clockwise)
             for (int i = 1; i <= semiSegments; i++) {
                 double angle = -Math.PI / 2 + Math.PI * i / semiSegments;
                 double x = rightCenter + radius * Math.cos(angle);
                 double y = cy + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
 
             // Top flat edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", leftCenter, cy + radius));
+            path.lineTo(leftCenter, cy + radius);
 
             // Left semicircle (top to bottom, clockwise)
             for (int i = 1; i <= semiSegments; i++) {
                 double angle = Math.PI / 2 + Math.PI * i / semiSegments;
                 double x = leftCenter + radius * Math.cos(angle);
                 double y = cy + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
 
             // Bottom flat edge (implicit closure)
-            path.append(" Z");
+            path.close();
         } else {
             // Vertical obround: semicircles on top and bottom
             double radius = width / 2;
@@ -187,34 +212,32 @@ public class SvgPathUtils {
             double topCenter = cy + flatLength / 2;
 
             // Start at right of bottom semicircle
-            path.append(String.format(Locale.US, "M %.6f %.6f", cx + radius, bottomCenter));
+            path.moveTo(cx + radius, bottomCenter);
 
             // Right edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", cx + radius, topCenter));
+            path.lineTo(cx + radius, topCenter);
 
             // Top semicircle (right to left)
             for (int i = 1; i <= semiSegments; i++) {
                 double angle = 0 + Math.PI * i / semiSegments;
                 double x = cx + radius * Math.cos(angle);
                 double y = topCenter + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
 
             // Left edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", cx - radius, bottomCenter));
+            path.lineTo(cx - radius, bottomCenter);
 
             // Bottom semicircle (left to right)
             for (int i = 1; i <= semiSegments; i++) {
                 double angle = Math.PI + Math.PI * i / semiSegments;
                 double x = cx + radius * Math.cos(angle);
                 double y = bottomCenter + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
 
-            path.append(" Z");
+            path.close();
         }
-
-        return path.toString();
     }
 
     /**
@@ -228,23 +251,30 @@ public class SvgPathUtils {
      */
     public static String polygonPath(double cx, double cy, double outerDiameter,
                                      int vertices, double rotationDegrees) {
+        StringBuilder path = new StringBuilder();
+        polygonPath(new PathData(path), cx, cy, outerDiameter, vertices, rotationDegrees);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #polygonPath(double, double, double, int, double)} to {@code path}.
+     */
+    public static void polygonPath(PathData path, double cx, double cy, double outerDiameter,
+                                   int vertices, double rotationDegrees) {
         double radius = outerDiameter / 2;
         double rotationRad = Math.toRadians(rotationDegrees);
 
-        StringBuilder path = new StringBuilder();
         for (int i = 0; i < vertices; i++) {
             double angle = rotationRad + 2 * Math.PI * i / vertices;
             double x = cx + radius * Math.cos(angle);
             double y = cy + radius * Math.sin(angle);
             if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
+                path.moveTo(x, y);
             } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
         }
-        path.append(" Z");
-
-        return path.toString();
+        path.close();
     }
 
     /**
@@ -262,9 +292,9 @@ public class SvgPathUtils {
         for (int i = 0; i < points.size(); i++) {
             double[] pt = points.get(i);
             if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", pt[0], pt[1]));
+                SvgNumbers.append(path, "M ", pt[0], pt[1]);
             } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", pt[0], pt[1]));
+                SvgNumbers.append(path, " L ", pt[0], pt[1]);
             }
         }
         if (close) {
@@ -310,7 +340,7 @@ public class SvgPathUtils {
         int segments = Math.max(8, (int) (sweep * radius * 10));
 
         StringBuilder path = new StringBuilder();
-        path.append(String.format(Locale.US, "M %.6f %.6f", startX, startY));
+        SvgNumbers.append(path, "M ", startX, startY);
 
         for (int i = 1; i <= segments; i++) {
             double t = (double) i / segments;
@@ -322,7 +352,7 @@ public class SvgPathUtils {
             }
             double x = centerX + radius * Math.cos(angle);
             double y = centerY + radius * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            SvgNumbers.append(path, " L ", x, y);
         }
 
         return path.toString();
@@ -332,21 +362,34 @@ public class SvgPathUtils {
      * Generate a line path (just a simple line between two points).
      */
     public static String linePath(double x1, double y1, double x2, double y2) {
-        return String.format(Locale.US, "M %.6f %.6f L %.6f %.6f", x1, y1, x2, y2);
+        StringBuilder path = new StringBuilder();
+        SvgNumbers.append(path, "M ", x1, y1);
+        SvgNumbers.append(path, " L ", x2, y2);
+        return path.toString();
     }
 
     /**
      * Generate a stroked line as a rectangle path (with round caps approximated).
      */
     public static String strokedLinePath(double x1, double y1, double x2, double y2, double strokeWidth) {
+        StringBuilder path = new StringBuilder();
+        strokedLinePath(new PathData(path), x1, y1, x2, y2, strokeWidth);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #strokedLinePath(double, double, double, double, double)} to {@code path}.
+     */
+    public static void strokedLinePath(PathData path, double x1, double y1, double x2, double y2, double strokeWidth) {
         double hw = strokeWidth / 2;
         double dx = x2 - x1;
         double dy = y2 - y1;
         double len = Math.sqrt(dx * dx + dy * dy);
 
         if (len == 0) {
-            // Degenerate line - return a circle
-            return circlePath((x1 + x2) / 2, (y1 + y2) / 2, hw);
+            // Degenerate line - a circle
+            circlePath(path, (x1 + x2) / 2, (y1 + y2) / 2, hw, CIRCLE_SEGMENTS);
+            return;
         }
 
         // Unit perpendicular vector
@@ -360,39 +403,35 @@ public class SvgPathUtils {
         double dx2 = x1 - px, dy2 = y1 - py;
 
         // Add rounded end caps (semicircles)
-        StringBuilder path = new StringBuilder();
-
         // Start cap (semicircle at x1,y1)
         int semiSegments = CIRCLE_SEGMENTS / 2;
         double startAngle = Math.atan2(py, px);
 
-        path.append(String.format(Locale.US, "M %.6f %.6f", ax, ay));
+        path.moveTo(ax, ay);
 
         // Line to end of first edge
-        path.append(String.format(Locale.US, " L %.6f %.6f", bx, by));
+        path.lineTo(bx, by);
 
         // End cap semicircle
         for (int i = 1; i <= semiSegments; i++) {
             double angle = startAngle - Math.PI * i / semiSegments;
             double x = x2 + hw * Math.cos(angle);
             double y = y2 + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            path.lineTo(x, y);
         }
 
         // Line to start of last edge
-        path.append(String.format(Locale.US, " L %.6f %.6f", dx2, dy2));
+        path.lineTo(dx2, dy2);
 
         // Start cap semicircle
         for (int i = 1; i <= semiSegments; i++) {
             double angle = startAngle + Math.PI + Math.PI * i / semiSegments;
             double x = x1 + hw * Math.cos(angle);
             double y = y1 + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            path.lineTo(x, y);
         }
 
-        path.append(" Z");
-
-        return path.toString();
+        path.close();
     }
 
     /**
@@ -402,6 +441,19 @@ public class SvgPathUtils {
                                         double endX, double endY,
                                         double centerX, double centerY,
                                         boolean clockwise, double strokeWidth) {
+        StringBuilder path = new StringBuilder();
+        strokedArcPath(new PathData(path), startX, startY, endX, endY, centerX, centerY, clockwise, strokeWidth);
+        return path.toString();
+    }
+
+    /**
+     * Write {@link #strokedArcPath(double, double, double, double, double, double, boolean, double)}
+     * to {@code path}.
+     */
+    public static void strokedArcPath(PathData path, double startX, double startY,
+                                      double endX, double endY,
+                                      double centerX, double centerY,
+                                      boolean clockwise, double strokeWidth) {
         double hw = strokeWidth / 2;
 
         double startRadius = Math.sqrt(Math.pow(startX - centerX, 2) + Math.pow(startY - centerY, 2));
@@ -427,8 +479,6 @@ public class SvgPathUtils {
         // Number of segments based on arc length
         int segments = Math.max(8, (int) (sweep * radius * 10));
 
-        StringBuilder path = new StringBuilder();
-
         // Outer arc
         for (int i = 0; i <= segments; i++) {
             double t = (double) i / segments;
@@ -441,9 +491,9 @@ public class SvgPathUtils {
             double x = centerX + outerR * Math.cos(angle);
             double y = centerY + outerR * Math.sin(angle);
             if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
+                path.moveTo(x, y);
             } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                path.lineTo(x, y);
             }
         }
 
@@ -459,7 +509,7 @@ public class SvgPathUtils {
             }
             double x = endX + hw * Math.cos(angle);
             double y = endY + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            path.lineTo(x, y);
         }
 
         // Inner arc (reverse direction)
@@ -473,7 +523,7 @@ public class SvgPathUtils {
             }
             double x = centerX + innerR * Math.cos(angle);
             double y = centerY + innerR * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            path.lineTo(x, y);
         }
 
         // Start cap semicircle
@@ -486,11 +536,10 @@ public class SvgPathUtils {
             }
             double x = startX + hw * Math.cos(angle);
             double y = startY + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+            path.lineTo(x, y);
         }
 
-        path.append(" Z");
-        return path.toString();
+        path.close();
     }
 
     /**
@@ -528,25 +577,24 @@ public class SvgPathUtils {
                 double x = cx + outerR * Math.cos(angle);
                 double y = cy + outerR * Math.sin(angle);
                 if (i == 0 && quadrant == 0) {
-                    path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
+                    SvgNumbers.append(path, "M ", x, y);
                 } else if (i == 0) {
-                    path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
+                    SvgNumbers.append(path, " M ", x, y);
                 } else {
-                    path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                    SvgNumbers.append(path, " L ", x, y);
                 }
             }
 
             // Line to inner arc
             double endAngle = baseAngle + arcAngle;
-            path.append(String.format(Locale.US, " L %.6f %.6f",
-                cx + innerR * Math.cos(endAngle), cy + innerR * Math.sin(endAngle)));
+            SvgNumbers.append(path, " L ", cx + innerR * Math.cos(endAngle), cy + innerR * Math.sin(endAngle));
 
             // Inner arc (reverse direction)
             for (int i = segments - 1; i >= 0; i--) {
                 double angle = baseAngle + arcAngle * i / segments;
                 double x = cx + innerR * Math.cos(angle);
                 double y = cy + innerR * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
+                SvgNumbers.append(path, " L ", x, y);
             }
 
             path.append(" Z");
@@ -0,0 +1,78 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The output of one render. Renderers, helpers and graphics objects all append to the
+ * same {@link #svg() buffer}; when writing to a {@link Writer}, the buffer is drained
+ * whenever it grows past a chunk, so a render holds about one chunk of output at a time
+ * however large the document is. Without a writer the whole document is kept for
+ * {@link #toString()}.
+ */
+final class SvgWriter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder svg = new StringBuilder();
+    private char[] chunk;
+
+    /**
+     * An output that keeps the whole document.
+     */
+    SvgWriter() {
+        this(null);
+    }
+
+    /**
+     * An output that streams to {@code writer}.
+     */
+    SvgWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * The buffer to append to.
+     */
+    StringBuilder svg() {
+        return svg;
+    }
+
+    /**
+     * Write the buffer out if it has grown past a chunk. Call between elements.
+     */
+    void drain() throws IOException {
+        if (writer != null && svg.length() >= CHUNK_SIZE) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Write out the rest of the document and flush the writer.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writeBuffer();
+            writer.flush();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        int length = svg.length();
+        if (chunk == null || chunk.length < length) {
+            chunk = new char[Math.max(length, CHUNK_SIZE * 2)];
+        }
+        svg.getChars(0, length, chunk, 0);
+        writer.write(chunk, 0, length);
+        svg.setLength(0);
+    }
+
+    /**
+     * The document, if it was not streamed to a writer.
+     */
+    @Override
+    public String toString() {
+        return svg.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.FixedFlash;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.StepRepeatBlock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects what a render limited to a viewport has to emit.
+ *
+ * <p>Objects are picked with the document's {@link GerberDocument#getSpatialIndex()
+ * spatial index} and keep their paint order, so clear objects that reach into the
+ * viewport still erase the dark objects painted before them. Clear objects entirely
+ * outside the viewport cannot change what it shows and are dropped with the rest.</p>
+ */
+final class ViewportFilter {
+
+    private ViewportFilter() {
+    }
+
+    /**
+     * The objects whose bounding box intersects the viewport, in paint order, or all
+     * objects if the viewport is null.
+     */
+    static List<GraphicsObject> objects(GerberDocument doc, BoundingBox viewport) {
+        if (viewport == null) {
+            return doc.getObjects();
+        }
+        return doc.getSpatialIndex().query(viewport);
+    }
+
+    /**
+     * The apertures that need a definition: all of the document's apertures if the
+     * viewport is null, otherwise only the ones flashed by the given objects. Compact
+     * options always get only the flashed ones.
+     */
+    static Collection<Aperture> apertures(GerberDocument doc, List<GraphicsObject> objects, BoundingBox viewport,
+                                          SvgOptions options) {
+        if (viewport == null && !options.isCompact()) {
+            return doc.getApertures().values();
+        }
+        Set<Integer> flashed = new HashSet<>();
+        collectFlashed(objects, flashed);
+        List<Aperture> apertures = new ArrayList<>();
+        for (Aperture aperture : doc.getApertures().values()) {
+            if (flashed.contains(aperture.getDCode())) {
+                apertures.add(aperture);
+            }
+        }
+        return apertures;
+    }
+
+    private static void collectFlashed(List<GraphicsObject> objects, Set<Integer> flashed) {
+        for (GraphicsObject obj : objects) {
+            if (obj instanceof Flash flash) {
+                flashed.add(flash.getAperture().getDCode());
+            } else if (obj instanceof FixedFlash flash) {
+                flashed.add(flash.getAperture().getDCode());
+            } else if (obj instanceof StepRepeatBlock block) {
+                collectFlashed(block.getObjects(), flashed);
+            }
+        }
+    }
+}
@@ -3,11 +3,10 @@ package com.deltaproto.deltagerber.web;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.cache.DocumentCache;
+import com.deltaproto.deltagerber.loader.BoardLoader;
+import com.deltaproto.deltagerber.loader.LayerScanner;
 import com.deltaproto.deltagerber.model.gerber.ComponentPlacement;
-import com.deltaproto.deltagerber.model.gerber.GerberDocument;
-import com.deltaproto.deltagerber.parser.ExcellonParser;
-import com.deltaproto.deltagerber.parser.GerberParser;
 import com.deltaproto.deltagerber.renderer.svg.LayerType;
 import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
 import org.slf4j.Logger;
@@ -23,16 +22,25 @@ import java.util.*;
  * Simple HTTP server for the Gerber viewer web application.
  *
  * The server is stateless — the browser owns the file data (stored in IndexedDB)
- * and sends it to the server for parsing and rendering.
+ * and sends it to the server for parsing and rendering. Parsed documents are kept in a
+ * {@link DocumentCache} keyed by file content, so re-sending the same files skips parsing,
+ * and the files of a request are parsed concurrently by a {@link BoardLoader}.
  *
  * Endpoints:
  * - GET /           — serves the HTML viewer app
  * - POST /api/gerber/render — receives files with metadata, returns multi-layer + realistic SVGs
+ * - POST /api/gerber/scan   — receives files, returns the layer type and header of each without parsing
  */
 public class GerberViewerServer {
 
     private static final Logger log = LoggerFactory.getLogger(GerberViewerServer.class);
 
+    /** Parsed documents shared by all handlers, bounded by their estimated heap size. */
+    static final DocumentCache DOCUMENT_CACHE = new DocumentCache(256L * 1024 * 1024);
+
+    /** Parses the layers of a request concurrently, through the document cache. */
+    static final BoardLoader BOARD_LOADER = new BoardLoader().setDocumentCache(DOCUMENT_CACHE);
+
     private final int port;
     private HttpServer server;
 
@@ -45,6 +53,7 @@ public class GerberViewerServer {
         server.createContext("/", new StaticHandler());
         server.createContext("/api/gerber/render", new RenderHandler());
         server.createContext("/api/gerber/thumbnail", new ThumbnailHandler());
+        server.createContext("/api/gerber/scan", new ScanHandler());
         server.setExecutor(null);
         server.start();
         log.info("Gerber Viewer Server started at http://localhost:{}", port);
@@ -98,9 +107,6 @@ public class GerberViewerServer {
     static class RenderHandler implements HttpHandler {
         private static final Logger log = LoggerFactory.getLogger(RenderHandler.class);
 
-        private final GerberParser gerberParser = new GerberParser();
-        private final ExcellonParser drillParser = new ExcellonParser();
-
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if (!"POST".equals(exchange.getRequestMethod())) {
@@ -110,121 +116,96 @@ public class GerberViewerServer {
 
             long startTime = System.currentTimeMillis();
             log.info("Received render request");
+            boolean streaming = false;
 
             try {
                 byte[] body = exchange.getRequestBody().readAllBytes();
                 log.info("Request body: {} bytes", body.length);
 
-                List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+                List<MultiLayerSVGRenderer.Layer> layers = BOARD_LOADER.load(readFileProtocol(body)).getLayers();
                 List<LayerMeta> layerMetas = new ArrayList<>();
                 List<ComponentPlacement> allComponents = new ArrayList<>();
 
-                // Parse the length-prefixed file protocol
-                int pos = 0;
-                while (pos < body.length) {
-                    // Find header line end
-                    int lineEnd = indexOf(body, (byte) '\n', pos);
-                    if (lineEnd < 0) break;
-                    String header = new String(body, pos, lineEnd - pos, StandardCharsets.UTF_8);
-                    if (!header.startsWith("FILE\t")) break;
-
-                    String[] parts = header.substring(5).split("\t");
-                    if (parts.length < 4) break;
-                    String name = parts[0];
-                    String fileType = parts[1];
-                    String layerTypeStr = parts[2];
-                    int contentLength = Integer.parseInt(parts[3]);
-
-                    pos = lineEnd + 1;
-                    String content = new String(body, pos, contentLength, StandardCharsets.UTF_8);
-                    pos += contentLength;
-                    // Skip optional trailing newline
-                    if (pos < body.length && body[pos] == '\n') pos++;
-
-                    log.debug("File: {} type={} layerType={} size={}", name, fileType, layerTypeStr, contentLength);
-
-                    try {
-                        MultiLayerSVGRenderer.Layer layer = null;
-                        LayerType layerType = LayerType.valueOf(layerTypeStr);
-
-                        if ("drill".equals(fileType)) {
-                            DrillDocument doc = drillParser.parse(content);
-                            layer = new MultiLayerSVGRenderer.Layer(name, doc);
-                        } else if ("gerber".equals(fileType)) {
-                            GerberDocument doc = gerberParser.parse(content);
-                            allComponents.addAll(doc.getComponents());
-                            layer = new MultiLayerSVGRenderer.Layer(name, doc);
-                        }
-
-                        if (layer != null) {
-                            String color = getLayerColor(name);
-                            double opacity = (layerType == LayerType.PNP_TOP || layerType == LayerType.PNP_BOTTOM)
-                                ? 0.45 : 0.85;
-                            layer.setColor(color).setOpacity(opacity).setLayerType(layerType);
-                            layers.add(layer);
-
-                            String id = name.replaceAll("[^a-zA-Z0-9._-]", "_");
-                            layerMetas.add(new LayerMeta(name, id, color, fileType, layerTypeStr));
-                        }
-                    } catch (Exception e) {
-                        log.warn("Failed to parse {}: {}", name, e.getMessage());
+                for (MultiLayerSVGRenderer.Layer layer : layers) {
+                    String name = layer.getName();
+                    LayerType layerType = layer.getLayerType();
+                    if (layer.isGerber()) {
+                        allComponents.addAll(layer.getGerberDoc().getComponents());
                     }
+                    String color = getLayerColor(name);
+                    double opacity = (layerType == LayerType.PNP_TOP || layerType == LayerType.PNP_BOTTOM)
+                        ? 0.45 : 0.85;
+                    layer.setColor(color).setOpacity(opacity);
+
+                    String id = name.replaceAll("[^a-zA-Z0-9._-]", "_");
+                    layerMetas.add(new LayerMeta(name, id, color, layer.isDrill() ? "drill" : "gerber",
+                        layerType.name()));
                 }
 
-                // Render all SVGs
+                // Select the realistic views' layers while an error can still be reported
+                List<MultiLayerSVGRenderer.Layer> topLayers = realisticSideLayers(layers, true);
+                List<MultiLayerSVGRenderer.Layer> bottomLayers = realisticSideLayers(layers, false);
+
+                // Stream the response: the overlay SVG is rendered straight into the JSON, so
+                // no copy of it is held in memory
                 log.info("Rendering {} layers...", layers.size());
-                MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer();
-                String svg = renderer.render(layers);
-                String realisticTop = renderRealisticSide(layers, true);
-                String realisticBottom = renderRealisticSide(layers, false);
-
-                // Build JSON response
-                StringBuilder json = new StringBuilder();
-                json.append("{\"layers\":[");
-                boolean first = true;
-                for (LayerMeta m : layerMetas) {
-                    if (!first) json.append(",");
-                    first = false;
-                    json.append("{\"name\":").append(escapeJson(m.name));
-                    json.append(",\"id\":").append(escapeJson(m.id));
-                    json.append(",\"color\":").append(escapeJson(m.color));
-                    json.append(",\"type\":").append(escapeJson(m.type));
-                    json.append(",\"layerType\":").append(escapeJson(m.layerType));
-                    json.append("}");
-                }
-                json.append("],\"svg\":").append(escapeJson(svg));
-                json.append(",\"realisticTopSvg\":");
-                json.append(realisticTop != null ? escapeJson(realisticTop) : "null");
-                json.append(",\"realisticBottomSvg\":");
-                json.append(realisticBottom != null ? escapeJson(realisticBottom) : "null");
-
-                // Component placement data from PnP files
-                json.append(",\"components\":[");
-                boolean firstComp = true;
-                for (ComponentPlacement c : allComponents) {
-                    if (!firstComp) json.append(",");
-                    firstComp = false;
-                    json.append("{\"refdes\":").append(escapeJson(c.getRefdes()));
-                    json.append(",\"value\":").append(escapeJson(c.getValue()));
-                    json.append(",\"footprint\":").append(escapeJson(c.getFootprint()));
-                    json.append(",\"mountType\":").append(escapeJson(c.getMountType()));
-                    json.append(",\"x\":").append(String.format(java.util.Locale.US, "%.4f", c.getX()));
-                    json.append(",\"y\":").append(String.format(java.util.Locale.US, "%.4f", c.getY()));
-                    json.append(",\"rotation\":").append(String.format(java.util.Locale.US, "%.2f", c.getRotation()));
-                    json.append(",\"side\":").append(escapeJson(c.getSide()));
-                    json.append("}");
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.sendResponseHeaders(200, 0);
+                streaming = true;
+                try (Writer json = new BufferedWriter(
+                        new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+                    json.append("{\"layers\":[");
+                    boolean first = true;
+                    for (LayerMeta m : layerMetas) {
+                        if (!first) json.append(",");
+                        first = false;
+                        json.append("{\"name\":").append(escapeJson(m.name));
+                        json.append(",\"id\":").append(escapeJson(m.id));
+                        json.append(",\"color\":").append(escapeJson(m.color));
+                        json.append(",\"type\":").append(escapeJson(m.type));
+                        json.append(",\"layerType\":").append(escapeJson(m.layerType));
+                        json.append("}");
+                    }
+                    json.append("],\"svg\":\"");
+                    new MultiLayerSVGRenderer().render(layers, new JsonStringWriter(json));
+                    json.append("\",\"realisticTopSvg\":");
+                    appendRealisticSide(json, topLayers, true);
+                    json.append(",\"realisticBottomSvg\":");
+                    appendRealisticSide(json, bottomLayers, false);
+
+                    // Component placement data from PnP files
+                    json.append(",\"components\":[");
+                    boolean firstComp = true;
+                    for (ComponentPlacement c : allComponents) {
+                        if (!firstComp) json.append(",");
+                        firstComp = false;
+                        json.append("{\"refdes\":").append(escapeJson(c.getRefdes()));
+                        json.append(",\"value\":").append(escapeJson(c.getValue()));
+                        json.append(",\"footprint\":").append(escapeJson(c.getFootprint()));
+                        json.append(",\"mountType\":").append(escapeJson(c.getMountType()));
+                        json.append(",\"x\":").append(String.format(java.util.Locale.US, "%.4f", c.getX()));
+                        json.append(",\"y\":").append(String.format(java.util.Locale.US, "%.4f", c.getY()));
+                        json.append(",\"rotation\":").append(String.format(java.util.Locale.US, "%.2f", c.getRotation()));
+                        json.append(",\"side\":").append(escapeJson(c.getSide()));
+                        json.append("}");
+                    }
+                    json.append("]}");
                 }
-                json.append("]}");
-
 
                 long elapsed = System.currentTimeMillis() - startTime;
-                log.info("Render complete: {} layers in {}ms", layerMetas.size(), elapsed);
-
-                sendResponse(exchange, 200, "application/json", json.toString());
+                DocumentCache.Stats stats = DOCUMENT_CACHE.getStats();
+                log.info("Render complete: {} layers in {}ms (document cache: {} hits, {} misses, {} entries, ~{} KB)",
+                    layerMetas.size(), elapsed, stats.hits(), stats.misses(), stats.entries(), stats.weightBytes() / 1024);
             } catch (Exception e) {
                 log.error("Error rendering", e);
-                sendResponse(exchange, 500, "application/json",
-                    "{\"error\":" + escapeJson(e.getMessage()) + "}");
+                if (streaming) {
+                    // The status is already sent; the client sees a truncated response
+                    exchange.close();
+                } else {
+                    sendResponse(exchange, 500, "application/json",
+                        "{\"error\":" + escapeJson(e.getMessage()) + "}");
+                }
             }
         }
 
@@ -286,6 +267,57 @@ public class GerberViewerServer {
         }
     }
 
+    /**
+     * Classifies files from their headers only, so the UI can assign layer types before
+     * anything is parsed. Accepts the same request body as {@link RenderHandler}, with
+     * "auto" allowed as file type and layer type.
+     */
+    static class ScanHandler implements HttpHandler {
+        private static final Logger log = LoggerFactory.getLogger(ScanHandler.class);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+
+            try {
+                long start = System.nanoTime();
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                List<BoardLoader.Source> sources = readFileProtocol(body);
+                List<LayerScanner.Header> headers = BoardLoader.scan(sources);
+
+                StringBuilder json = new StringBuilder("{\"files\":[");
+                for (int i = 0; i < sources.size(); i++) {
+                    LayerScanner.Header h = headers.get(i);
+                    if (i > 0) json.append(",");
+                    json.append("{\"name\":").append(escapeJson(sources.get(i).getName()));
+                    json.append(",\"type\":").append(h.format() == null ? "null"
+                        : escapeJson(h.format() == BoardLoader.Format.EXCELLON ? "drill" : "gerber"));
+                    json.append(",\"layerType\":").append(h.layerType() == null ? "null" : escapeJson(h.layerType().name()));
+                    json.append(",\"fileFunction\":").append(escapeJson(String.join(",", h.fileFunction())));
+                    json.append(",\"filePolarity\":").append(h.filePolarity() == null ? "null" : escapeJson(h.filePolarity()));
+                    json.append(",\"generationSoftware\":")
+                        .append(h.generationSoftware() == null ? "null" : escapeJson(h.generationSoftware()));
+                    json.append(",\"unit\":").append(h.unit() == null ? "null" : escapeJson(h.unit().name()));
+                    json.append(",\"format\":")
+                        .append(h.coordinateFormat() == null ? "null" : escapeJson(
+                            h.coordinateFormat().getIntegerDigits() + "." + h.coordinateFormat().getDecimalDigits()));
+                    json.append("}");
+                }
+                json.append("]}");
+                log.info("Scanned {} files in {}ms", sources.size(), (System.nanoTime() - start) / 1_000_000);
+
+                sendResponse(exchange, 200, "application/json", json.toString());
+            } catch (Exception e) {
+                log.error("Error scanning", e);
+                sendResponse(exchange, 500, "application/json",
+                    "{\"error\":" + escapeJson(e.getMessage()) + "}");
+            }
+        }
+    }
+
     private static int indexOf(byte[] data, byte target, int from) {
         for (int i = from; i < data.length; i++) {
             if (data[i] == target) return i;
@@ -294,14 +326,26 @@ public class GerberViewerServer {
     }
 
     /**
-     * Parse the length-prefixed file protocol shared by /render and /thumbnail.
-     * Silently drops files that fail to parse (per-file try/catch) so a single
-     * bad layer can't take down the whole request.
+     * Parse the layers of a request body in the file protocol shared by /render and
+     * /thumbnail. Files that fail to parse are logged and left out so a single bad layer
+     * can't take down the whole request.
      */
     static List<MultiLayerSVGRenderer.Layer> parseLayerBody(byte[] body) {
-        GerberParser gerberParser = new GerberParser();
-        ExcellonParser drillParser = new ExcellonParser();
-        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        List<MultiLayerSVGRenderer.Layer> layers = BOARD_LOADER.load(readFileProtocol(body)).getLayers();
+        for (MultiLayerSVGRenderer.Layer layer : layers) {
+            layer.setColor(getLayerColor(layer.getName())).setOpacity(0.85);
+        }
+        return layers;
+    }
+
+    /**
+     * Split a request body in the length-prefixed file protocol into loader sources.
+     * The file contents are not copied. A file type or layer type of "auto" is left to
+     * the loader to determine from the file's header; files of an unknown file type or
+     * layer type are skipped.
+     */
+    static List<BoardLoader.Source> readFileProtocol(byte[] body) {
+        List<BoardLoader.Source> sources = new ArrayList<>();
 
         int pos = 0;
         while (pos < body.length) {
@@ -316,27 +360,31 @@ public class GerberViewerServer {
             String layerTypeStr = parts[2];
             int contentLength = Integer.parseInt(parts[3]);
             pos = lineEnd + 1;
-            String content = new String(body, pos, contentLength, StandardCharsets.UTF_8);
+            int contentStart = pos;
             pos += contentLength;
+            // Skip optional trailing newline
             if (pos < body.length && body[pos] == '\n') pos++;
+
+            log.debug("File: {} type={} layerType={} size={}", name, fileType, layerTypeStr, contentLength);
+            BoardLoader.Format format;
+            if ("drill".equals(fileType)) {
+                format = BoardLoader.Format.EXCELLON;
+            } else if ("gerber".equals(fileType)) {
+                format = BoardLoader.Format.GERBER;
+            } else if ("auto".equalsIgnoreCase(fileType)) {
+                format = null;
+            } else {
+                continue;
+            }
             try {
-                MultiLayerSVGRenderer.Layer layer = null;
-                LayerType layerType = LayerType.valueOf(layerTypeStr);
-                if ("drill".equals(fileType)) {
-                    layer = new MultiLayerSVGRenderer.Layer(name, drillParser.parse(content));
-                } else if ("gerber".equals(fileType)) {
-                    layer = new MultiLayerSVGRenderer.Layer(name, gerberParser.parse(content));
-                }
-                if (layer != null) {
-                    layer.setColor(getLayerColor(name)).setOpacity(0.85).setLayerType(layerType);
-                    layers.add(layer);
-                }
-            } catch (Exception e) {
-                LoggerFactory.getLogger(GerberViewerServer.class)
-                    .warn("Failed to parse {}: {}", name, e.getMessage());
+                sources.add(BoardLoader.Source.of(name, body, contentStart, contentLength)
+                    .setFormat(format)
+                    .setLayerType("auto".equalsIgnoreCase(layerTypeStr) ? null : LayerType.valueOf(layerTypeStr)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping {}: unknown layer type {}", name, layerTypeStr);
             }
         }
-        return layers;
+        return sources;
     }
 
     private static Map<String, String> parseQuery(String raw) {
@@ -390,24 +438,8 @@ public class GerberViewerServer {
 
     public static String renderRealisticSide(List<MultiLayerSVGRenderer.Layer> allLayers, boolean topSide) {
         try {
-            List<MultiLayerSVGRenderer.Layer> sideLayers = new ArrayList<>();
-            for (MultiLayerSVGRenderer.Layer layer : allLayers) {
-                LayerType lt = layer.getLayerType();
-                if (lt == LayerType.OUTLINE) {
-                    sideLayers.add(layer);
-                } else if (topSide && (lt == LayerType.COPPER_TOP || lt == LayerType.SOLDERMASK_TOP
-                        || lt == LayerType.SILKSCREEN_TOP)) {
-                    sideLayers.add(layer);
-                } else if (!topSide && (lt == LayerType.COPPER_BOTTOM || lt == LayerType.SOLDERMASK_BOTTOM
-                        || lt == LayerType.SILKSCREEN_BOTTOM)) {
-                    sideLayers.add(layer);
-                } else if (lt == LayerType.DRILL || lt == LayerType.DRILL_PLATED
-                        || lt == LayerType.DRILL_NON_PLATED) {
-                    sideLayers.add(layer);
-                }
-            }
-            boolean hasOutline = sideLayers.stream().anyMatch(l -> l.getLayerType() == LayerType.OUTLINE);
-            if (!hasOutline || sideLayers.size() < 2) return null;
+            List<MultiLayerSVGRenderer.Layer> sideLayers = realisticSideLayers(allLayers, topSide);
+            if (sideLayers == null) return null;
             return new MultiLayerSVGRenderer().renderRealistic(sideLayers);
         } catch (Exception e) {
             LoggerFactory.getLogger(GerberViewerServer.class)
@@ -416,6 +448,58 @@ public class GerberViewerServer {
         }
     }
 
+    /**
+     * Write the realistic view of one side into a JSON response as a string, or null if
+     * there are no layers for it (see {@link #realisticSideLayers}) or rendering fails.
+     * The view is rendered into a buffer first, so a failure leaves the response intact.
+     */
+    static void appendRealisticSide(Writer json, List<MultiLayerSVGRenderer.Layer> sideLayers, boolean topSide)
+            throws IOException {
+        if (sideLayers == null) {
+            json.append("null");
+            return;
+        }
+        StringWriter svg = new StringWriter();
+        try {
+            new MultiLayerSVGRenderer().renderRealistic(sideLayers, new JsonStringWriter(svg));
+        } catch (Exception e) {
+            LoggerFactory.getLogger(GerberViewerServer.class)
+                .warn("Failed to render realistic {} side: {}", topSide ? "top" : "bottom", e.getMessage());
+            json.append("null");
+            return;
+        }
+        json.append('"').append(svg.getBuffer()).append('"');
+    }
+
+    /**
+     * The layers of a realistic view of one side, or null without a Gerber outline and at
+     * least one other layer to show.
+     */
+    private static List<MultiLayerSVGRenderer.Layer> realisticSideLayers(
+            List<MultiLayerSVGRenderer.Layer> allLayers, boolean topSide) {
+        List<MultiLayerSVGRenderer.Layer> sideLayers = new ArrayList<>();
+        MultiLayerSVGRenderer.Layer outline = null;
+        for (MultiLayerSVGRenderer.Layer layer : allLayers) {
+            LayerType lt = layer.getLayerType();
+            if (lt == LayerType.OUTLINE) {
+                sideLayers.add(layer);
+                outline = layer;
+            } else if (topSide && (lt == LayerType.COPPER_TOP || lt == LayerType.SOLDERMASK_TOP
+                    || lt == LayerType.SILKSCREEN_TOP)) {
+                sideLayers.add(layer);
+            } else if (!topSide && (lt == LayerType.COPPER_BOTTOM || lt == LayerType.SOLDERMASK_BOTTOM
+                    || lt == LayerType.SILKSCREEN_BOTTOM)) {
+                sideLayers.add(layer);
+            } else if (lt == LayerType.DRILL || lt == LayerType.DRILL_PLATED
+                    || lt == LayerType.DRILL_NON_PLATED) {
+                sideLayers.add(layer);
+            }
+        }
+        // renderRealistic uses the last outline layer and needs it to be a Gerber
+        if (outline == null || !outline.isGerber() || sideLayers.size() < 2) return null;
+        return sideLayers;
+    }
+
     static void sendResponse(HttpExchange exchange, int status, String contentType, String body)
             throws IOException {
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
@@ -0,0 +1,54 @@
+package com.deltaproto.deltagerber.web;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the characters written to it JSON-escaped, as the contents of a JSON string,
+ * so a renderer can stream an SVG straight into a JSON response. Escapes the same way
+ * as {@link GerberViewerServer#escapeJson(String)}; the surrounding quotes are up to the
+ * caller. Closing this writer does not close the underlying one.
+ */
+class JsonStringWriter extends Writer {
+
+    private final Writer out;
+
+    JsonStringWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        int plain = off;  // Start of the run of characters that need no escaping
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c >= 32 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.write(cbuf, plain, i - plain);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\b' -> out.write("\\b");
+                case '\f' -> out.write("\\f");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> out.write(String.format("\\u%04x", (int) c));
+            }
+            plain = i + 1;
+        }
+        out.write(cbuf, plain, end - plain);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
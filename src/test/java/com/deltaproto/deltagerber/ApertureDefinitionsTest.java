@@ -0,0 +1,122 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ApertureDefinitions and the aperture caches.
+ */
+public class ApertureDefinitionsTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+    private static final Pattern APERTURE_DEF = Pattern.compile("<\\w+ id=\"(L\\d+_ap\\d+)\"");
+    private static final Pattern APERTURE_USE = Pattern.compile("href=\"#(L\\d+_ap\\d+)\"");
+
+    private final GerberParser parser = new GerberParser();
+
+    @Test
+    void testBoundsAndDefinitionsAreCached() {
+        GerberDocument doc = parser.parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %AMROUNDRECT*
+            21,1,$1,$2,0,0,0*
+            1,1,$3,$1/2-$3/2,0*
+            1,1,$3,-$1/2+$3/2,0*
+            %
+            %ADD10ROUNDRECT,2.0X1.0X0.25*%
+            D10*
+            X1000000Y1000000D03*
+            M02*
+            """);
+        Aperture macro = doc.getAperture(10);
+
+        assertSame(macro.getSharedBoundingBox(), macro.getSharedBoundingBox());
+        assertEquals(2.0, macro.getBoundingBox().getWidth(), 1e-9);
+        macro.getBoundingBox().expand(1);
+        assertEquals(2.0, macro.getSharedBoundingBox().getWidth(), 1e-9, "Callers get a copy");
+        assertSame(macro.getSvgDefBody(SvgOptions.exact()), macro.getSvgDefBody(SvgOptions.exact()));
+        assertTrue(macro.getSvgDefBody(SvgOptions.exact()).startsWith("<g id=\"\">"));
+        assertEquals(macro.toSvgDef("a", SvgOptions.exact()), macro.toSvgDef("a", SvgOptions.exact()));
+        assertTrue(macro.toSvgDef("b", SvgOptions.exact()).startsWith("<g id=\"b\">"));
+        assertEquals(macro.getSvgDefBody(SvgOptions.exact()).replaceFirst("id=\"\"", "id=\"b\""),
+            macro.toSvgDef("b", SvgOptions.exact()));
+        assertNotEquals(macro.toSvgDef("a", SvgOptions.exact()), macro.toSvgDef("a", SvgOptions.polygonized()));
+        assertNotEquals(macro.toSvgDef("a", SvgOptions.polygonized()),
+            macro.toSvgDef("a", SvgOptions.polygonized(8)));
+    }
+
+    @Test
+    void testLayersShareIdenticalDefinitions() {
+        GerberDocument copper = parser.parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.5*%
+            %ADD11R,1.0X0.5*%
+            D10*
+            X0Y0D03*
+            D11*
+            X2000000Y0D03*
+            M02*
+            """);
+        GerberDocument silk = parser.parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD20C,0.5*%
+            %ADD21C,0.3*%
+            D20*
+            X0Y1000000D03*
+            D21*
+            X2000000Y1000000D03*
+            M02*
+            """);
+        String svg = new MultiLayerSVGRenderer().render(List.of(
+            new MultiLayerSVGRenderer.Layer("copper", copper).setLayerType(LayerType.COPPER_TOP),
+            new MultiLayerSVGRenderer.Layer("silk", silk).setLayerType(LayerType.SILKSCREEN_TOP)));
+
+        assertEquals(Set.of("L0_ap10", "L0_ap11", "L1_ap21"), matches(APERTURE_DEF, svg));
+        assertEquals(Set.of("L0_ap10", "L0_ap11", "L1_ap21"), matches(APERTURE_USE, svg));
+    }
+
+    @Test
+    void testBoardDefinesEachShapeOnce() throws IOException {
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("copper", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL")))
+                .setLayerType(LayerType.COPPER_TOP),
+            new MultiLayerSVGRenderer.Layer("mask", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTS")))
+                .setLayerType(LayerType.SOLDERMASK_TOP));
+        String svg = new MultiLayerSVGRenderer().render(layers);
+
+        Set<String> defined = matches(APERTURE_DEF, svg);
+        assertTrue(defined.containsAll(matches(APERTURE_USE, svg)), "Every flash refers to a definition");
+        Set<String> shapes = new HashSet<>();
+        Matcher def = Pattern.compile("<(\\w+) id=\"L\\d+_ap\\d+\"(.*)").matcher(svg);
+        while (def.find()) {
+            assertTrue(shapes.add(def.group(1) + def.group(2)), "Defined twice: " + def.group());
+        }
+    }
+
+    private static Set<String> matches(Pattern pattern, String svg) {
+        Set<String> ids = new HashSet<>();
+        Matcher m = pattern.matcher(svg);
+        while (m.find()) {
+            ids.add(m.group(1));
+        }
+        return ids;
+    }
+}
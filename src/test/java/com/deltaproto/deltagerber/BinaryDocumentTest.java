@@ -0,0 +1,143 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.io.BinaryDocumentReader;
+import com.deltaproto.deltagerber.io.BinaryDocumentWriter;
+import com.deltaproto.deltagerber.io.ContentHash;
+import com.deltaproto.deltagerber.io.StaleDocumentException;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BinaryDocumentWriter and BinaryDocumentReader.
+ */
+public class BinaryDocumentTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGerberRoundTripOnTestFiles() throws IOException {
+        Path binary = tempDir.resolve("layer.bin");
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            GerberDocument expected = new GerberParser().parse(file);
+            byte[] hash = ContentHash.of(file);
+            BinaryDocumentWriter.writeGerber(expected, hash, binary);
+            GerberDocument actual = BinaryDocumentReader.readGerber(binary, hash);
+
+            assertSameGerber(expected, actual, file.toString());
+        }
+    }
+
+    @Test
+    void testFixedPointDocumentIsStoredInMillimetres() throws IOException {
+        Path file = Paths.get("testdata/arduino-uno/arduino-uno.cmp");
+        GerberDocument expected = new GerberParser().parse(file);
+        GerberDocument fixed = new GerberParser().setFixedPoint(true).parse(file);
+        Path binary = tempDir.resolve("fixed.bin");
+        BinaryDocumentWriter.writeGerber(fixed, ContentHash.of(file), binary);
+
+        assertSameGerber(expected, BinaryDocumentReader.readGerber(binary), file.toString());
+    }
+
+    @Test
+    void testDrillRoundTrip() throws IOException {
+        Path binary = tempDir.resolve("drill.bin");
+        for (String name : ExcellonParserTest.DRILL_FILES) {
+            Path file = Paths.get(name);
+            DrillDocument expected = new ExcellonParser().parse(file);
+            byte[] hash = ContentHash.of(file);
+            BinaryDocumentWriter.writeDrill(expected, hash, binary);
+            DrillDocument actual = BinaryDocumentReader.readDrill(binary, hash);
+
+            assertEquals(expected.getUnit(), actual.getUnit());
+            assertEquals(expected.getComments(), actual.getComments());
+            assertEquals(expected.getTools().keySet(), actual.getTools().keySet());
+            expected.getTools().forEach((number, tool) ->
+                assertEquals(tool.toString(), actual.getTools().get(number).toString()));
+            List<DrillOperation> operations = actual.getOperations();
+            assertEquals(expected.getOperations().size(), operations.size(), "Operation count differs for " + name);
+            for (int i = 0; i < operations.size(); i++) {
+                assertEquals(expected.getOperations().get(i).toSvg(), operations.get(i).toSvg(),
+                    "Operation " + i + " differs for " + name);
+            }
+            assertEquals(expected.calculateBoundingBox().toString(), actual.calculateBoundingBox().toString());
+        }
+    }
+
+    @Test
+    void testStaleSourceIsRejected() throws IOException {
+        String gerber = "%FSLAX26Y26*%%MOMM*%%ADD10C,0.1*%D10*X0Y0D02*X1000000Y0D01*M02*";
+        byte[] hash = ContentHash.of(gerber.getBytes());
+        Path binary = tempDir.resolve("stale.bin");
+        BinaryDocumentWriter.writeGerber(new GerberParser().parse(gerber), hash, binary);
+
+        assertArrayEquals(hash, BinaryDocumentReader.readSourceHash(binary));
+        assertEquals(1, BinaryDocumentReader.readGerber(binary, hash).getObjects().size());
+        byte[] changed = ContentHash.of((gerber + "\n").getBytes());
+        assertThrows(StaleDocumentException.class, () -> BinaryDocumentReader.readGerber(binary, changed));
+        // A Gerber document is not a drill document
+        assertThrows(IOException.class, () -> BinaryDocumentReader.readDrill(binary));
+    }
+
+    @Test
+    void testUnknownVersionIsRejected() throws IOException {
+        String gerber = "%FSLAX26Y26*%%MOMM*%%ADD10C,0.1*%D10*X0Y0D03*M02*";
+        Path binary = tempDir.resolve("version.bin");
+        BinaryDocumentWriter.writeGerber(new GerberParser().parse(gerber), ContentHash.of(gerber.getBytes()), binary);
+
+        byte[] bytes = Files.readAllBytes(binary);
+        ByteBuffer.wrap(bytes).putInt(4, 9999);
+        Files.write(binary, bytes);
+        IOException e = assertThrows(IOException.class, () -> BinaryDocumentReader.readGerber(binary));
+        assertTrue(e.getMessage().contains("version 9999"), e.getMessage());
+
+        Files.write(binary, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> BinaryDocumentReader.readGerber(binary));
+    }
+
+    private static void assertSameGerber(GerberDocument expected, GerberDocument actual, String source) {
+        assertEquals(expected.getUnit(), actual.getUnit(), source);
+        assertEquals(String.valueOf(expected.getCoordinateFormat()), String.valueOf(actual.getCoordinateFormat()));
+        assertEquals(expected.getFileAttributes().keySet(), actual.getFileAttributes().keySet(), source);
+        expected.getFileAttributes().forEach((name, attribute) ->
+            assertEquals(attribute.getValues(), actual.getFileAttributes().get(name).getValues(), source));
+        assertEquals(expected.getWarnings(), actual.getWarnings(), source);
+        assertEquals(expected.getComponents().size(), actual.getComponents().size(), source);
+        assertEquals(expected.getMacroTemplates().keySet(), actual.getMacroTemplates().keySet(), source);
+
+        assertEquals(expected.getApertures().keySet(), actual.getApertures().keySet(), source);
+        for (Aperture aperture : expected.getApertures().values()) {
+            assertEquals(aperture.toSvgDef("a", SvgOptions.exact()),
+                actual.getAperture(aperture.getDCode()).toSvgDef("a", SvgOptions.exact()),
+                "Aperture D" + aperture.getDCode() + " differs for " + source);
+        }
+
+        List<GraphicsObject> objects = actual.getObjects();
+        assertEquals(expected.getObjects().size(), objects.size(), "Object count differs for " + source);
+        for (int i = 0; i < objects.size(); i++) {
+            GraphicsObject e = expected.getObjects().get(i).toMm();
+            GraphicsObject a = objects.get(i);
+            assertEquals(e.getClass(), a.getClass(), "Object " + i + " type differs for " + source);
+            assertEquals(e.getPolarity(), a.getPolarity(), "Object " + i + " polarity differs for " + source);
+            assertEquals(e.toSvg(), a.toSvg(), "Object " + i + " differs for " + source);
+        }
+        assertEquals(expected.calculateBoundingBox().toString(), actual.calculateBoundingBox().toString(), source);
+    }
+}
@@ -0,0 +1,99 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.loader.BoardLoader;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BoardLoader.
+ */
+public class BoardLoaderTest {
+
+    private static final Path DEPR_DIR = Paths.get("testdata/DEPR PR31 GBDR V04");
+
+    @Test
+    void testLoadsJobAndReportsFailures() throws IOException {
+        List<BoardLoader.Source> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(DEPR_DIR)) {
+            files.sorted().forEach(file -> sources.add(BoardLoader.Source.of(file)));
+        }
+        sources.add(BoardLoader.Source.of(DEPR_DIR.resolve("missing.GTL")));
+
+        BoardLoader.Result result = new BoardLoader().load(sources);
+
+        // Three reports are neither Gerber nor Excellon, and one file does not exist
+        assertEquals(sources.size() - 4, result.getLayers().size());
+        assertEquals(4, result.getFailures().size());
+        assertFalse(result.isComplete());
+        assertInstanceOf(NoSuchFileException.class, result.getFailures().get(3).error());
+        assertTrue(result.getFailures().get(0).name().endsWith(".rpt"));
+
+        for (MultiLayerSVGRenderer.Layer layer : result.getLayers()) {
+            boolean drill = layer.getName().endsWith(".TXT");
+            assertEquals(drill, layer.isDrill(), layer.getName());
+            assertEquals(drill ? LayerType.DRILL : LayerType.OTHER, layer.getLayerType(), layer.getName());
+        }
+    }
+
+    @Test
+    void testZipSourcesKeepOrder() throws IOException {
+        List<BoardLoader.Source> sources = BoardLoader.zipSources(Paths.get("testdata/DEPR PR31 GBDR V04.zip"));
+        sources.removeIf(source -> source.getName().endsWith(".rpt"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        BoardLoader.Result result;
+        try {
+            result = new BoardLoader(executor).load(sources);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(result.isComplete(), () -> result.getFailures().toString());
+        assertEquals(sources.size(), result.getLayers().size());
+        for (int i = 0; i < sources.size(); i++) {
+            MultiLayerSVGRenderer.Layer layer = result.getLayers().get(i);
+            assertEquals(sources.get(i).getName(), layer.getName());
+            if (layer.isGerber()) {
+                int expected = new com.deltaproto.deltagerber.parser.GerberParser()
+                    .parse(DEPR_DIR.resolve(layer.getName())).getObjects().size();
+                assertEquals(expected, layer.getGerberDoc().getObjects().size(), layer.getName());
+            }
+        }
+    }
+
+    @Test
+    void testFormatAndLayerTypeOverrideClassification() {
+        byte[] drill = "M48\nMETRIC\nT1C0.8\n%\nT1\nX1.0Y1.0\nM30\n".getBytes(StandardCharsets.UTF_8);
+        byte[] gerber = "%FSLAX26Y26*%%MOMM*%%ADD10C,0.1*%D10*X0Y0D03*M02*".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(BoardLoader.Format.EXCELLON, BoardLoader.classify(drill, 0, drill.length));
+        assertEquals(BoardLoader.Format.GERBER, BoardLoader.classify(gerber, 0, gerber.length));
+        assertNull(BoardLoader.classify(gerber, 5, 10));
+
+        BoardLoader.Result result = new BoardLoader().load(List.of(
+            BoardLoader.Source.of("holes", drill),
+            BoardLoader.Source.of("pads", gerber).setLayerType(LayerType.COPPER_TOP),
+            BoardLoader.Source.of("forced", gerber, 0, gerber.length).setFormat(BoardLoader.Format.EXCELLON)));
+
+        assertTrue(result.isComplete());
+        assertTrue(result.getLayers().get(0).isDrill());
+        assertEquals(1, result.getLayers().get(0).getDrillDoc().getOperations().size());
+        assertEquals(LayerType.COPPER_TOP, result.getLayers().get(1).getLayerType());
+        assertTrue(result.getLayers().get(2).isDrill());
+    }
+}
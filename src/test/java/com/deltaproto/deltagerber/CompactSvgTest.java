@@ -0,0 +1,142 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.PathData;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the compact SVG output profile.
+ */
+public class CompactSvgTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+    private static final Pattern APERTURE_DEF = Pattern.compile("id=\"(ap\\d+)\"");
+    private static final Pattern APERTURE_USE = Pattern.compile("href=\"#(ap\\d+)\"");
+    private static final Pattern NUMBER = Pattern.compile("-?\\d*\\.?\\d+");
+
+    @Test
+    void testCompactNumbers() {
+        SvgOptions options = SvgOptions.compact();
+        assertEquals(".5", SvgNumbers.append(new StringBuilder(), 0.5, options).toString());
+        assertEquals("-12.25", SvgNumbers.append(new StringBuilder(), -12.25, options).toString());
+        assertEquals("1", SvgNumbers.append(new StringBuilder(), 1.0004, options).toString());
+        assertEquals("0", SvgNumbers.append(new StringBuilder(), -0.0004, options).toString());
+        assertEquals("-.007 20", SvgNumbers.append(new StringBuilder(), -0.0065, 20, options).toString());
+        assertEquals("3.1416", SvgNumbers.append(new StringBuilder(), Math.PI, SvgOptions.compact(4)).toString());
+        assertEquals("1.500000", SvgNumbers.append(new StringBuilder(), 1.5, SvgOptions.exact()).toString());
+        assertThrows(IllegalArgumentException.class, () -> SvgOptions.compact(7));
+    }
+
+    @Test
+    void testCompactPathData() {
+        StringBuilder compact = new StringBuilder();
+        new PathData(compact, SvgOptions.compact())
+            .moveTo(1, 2).lineTo(1.5, 2).lineTo(1.5, 1).close()
+            .moveTo(-0.25, 0).arcTo(0.25, 0, 1, 0.25, 0).lineTo(0.25, 0.1001)
+            .lineTo(0.35, 0).lineTo(0.5, 0.1);
+        assertEquals("M1 2h.5v-1zM-.25 0a.25.25 0 0 1 .5 0v.1l.1-.1.15.1", compact.toString());
+
+        StringBuilder exact = new StringBuilder();
+        new PathData(exact).moveTo(1, 2).lineTo(1.5, 2).close();
+        assertEquals("M 1.000000 2.000000 L 1.500000 2.000000 Z", exact.toString());
+    }
+
+    @Test
+    void testRelativeStepsDoNotDrift() {
+        // A thousand steps of a third of a micrometre must still end where they should
+        StringBuilder path = new StringBuilder();
+        PathData data = new PathData(path, SvgOptions.compact());
+        data.moveTo(0, 0);
+        for (int i = 1; i <= 1000; i++) {
+            data.lineTo(i / 3000.0, 0);
+        }
+        double x = 0;
+        Matcher step = NUMBER.matcher(path.substring(path.indexOf("h") + 1));
+        while (step.find()) {
+            x += Double.parseDouble(step.group());
+        }
+        assertEquals(0.333, x, 1e-9);
+    }
+
+    @Test
+    void testCompactRenderIsLessThanHalfTheSizeAndDrawsTheSame() throws IOException {
+        GerberParser parser = new GerberParser();
+        GerberDocument outline = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GKO"));
+        GerberDocument copper = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL"));
+        GerberDocument mask = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTS"));
+        GerberDocument silk = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTO"));
+        DrillDocument drill = new ExcellonParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04-RoundHoles.TXT"));
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("outline", outline).setLayerType(LayerType.OUTLINE),
+            new MultiLayerSVGRenderer.Layer("copper", copper).setLayerType(LayerType.COPPER_TOP).setColor("#b87333"),
+            new MultiLayerSVGRenderer.Layer("mask", mask).setLayerType(LayerType.SOLDERMASK_TOP).setOpacity(0.5),
+            new MultiLayerSVGRenderer.Layer("silk", silk).setLayerType(LayerType.SILKSCREEN_TOP).setColor("#2040c0"),
+            new MultiLayerSVGRenderer.Layer("drill", drill).setLayerType(LayerType.DRILL));
+
+        String full = new MultiLayerSVGRenderer().render(layers);
+        String compact = new MultiLayerSVGRenderer().setSvgOptions(SvgOptions.compact()).render(layers);
+        assertTrue(compact.length() * 2 < full.length(), compact.length() + " vs " + full.length() + " chars");
+        assertSamePixels(full, new MultiLayerSVGRenderer().setSvgOptions(SvgOptions.compact(6)).render(layers), 0.001);
+        assertSamePixels(full, compact, 0.01);
+
+        String realistic = new MultiLayerSVGRenderer().renderRealistic(layers);
+        String compactRealistic = new MultiLayerSVGRenderer().setSvgOptions(SvgOptions.compact(6)).renderRealistic(layers);
+        assertTrue(compactRealistic.length() < realistic.length());
+        assertSamePixels(realistic, compactRealistic, 0.001);
+
+        String single = new SVGRenderer().render(copper);
+        String compactSingle = new SVGRenderer().setSvgOptions(SvgOptions.compact()).render(copper);
+        assertTrue(compactSingle.length() * 2 < single.length(), compactSingle.length() + " vs " + single.length());
+        assertSamePixels(single, new SVGRenderer().setSvgOptions(SvgOptions.compact(6)).render(copper), 0.001);
+        assertSamePixels(single, compactSingle, 0.01);
+    }
+
+    @Test
+    void testCompactRenderDefinesOnlyFlashedApertures() throws IOException {
+        GerberDocument doc = new GerberParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTO"));
+        String full = new SVGRenderer().render(doc);
+        String compact = new SVGRenderer().setSvgOptions(SvgOptions.compact()).render(doc);
+
+        Set<String> used = matches(APERTURE_USE, compact);
+        assertEquals(used, matches(APERTURE_DEF, compact));
+        assertEquals(used, matches(APERTURE_USE, full));
+        assertTrue(matches(APERTURE_DEF, full).size() > used.size());
+    }
+
+    private static Set<String> matches(Pattern pattern, String svg) {
+        Set<String> ids = new HashSet<>();
+        Matcher m = pattern.matcher(svg);
+        while (m.find()) {
+            ids.add(m.group(1));
+        }
+        return ids;
+    }
+
+    /**
+     * Compare two renders rasterized at 800x600. Rounding to fewer decimals moves lines that
+     * lie right on a pixel boundary to the other side of it, so those differ in more pixels.
+     */
+    private static void assertSamePixels(String expected, String actual, double maxDifferingFraction)
+            throws IOException {
+        PngComparer.ComparisonResult result = new PngComparer().compareSvg(expected, actual, 800, 600);
+        assertTrue(result.getDifferingFraction() <= maxDifferingFraction, result.toString());
+    }
+}
@@ -0,0 +1,165 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the coordinate decoding in CoordinateFormat and DrillDocument.
+ * Compares the allocation-free decoders bit for bit against the original string-based ones.
+ */
+public class CoordinateDecodingTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void testGerberDecodingMatchesStringDecoding() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            int integerDigits = 1 + random.nextInt(6);
+            int decimalDigits = 1 + random.nextInt(7);
+            boolean leadingZeroOmitted = random.nextBoolean();
+            CoordinateFormat format = new CoordinateFormat(integerDigits, decimalDigits, leadingZeroOmitted, true);
+            String value = randomCoordinate(random, integerDigits + decimalDigits + 3);
+
+            double expected = legacyGerberDecode(value, integerDigits, decimalDigits, leadingZeroOmitted);
+            assertSameBits(expected, format.parseCoordinate(value), value + " in " + format);
+
+            // Decoding from a range of a larger text must give the same value
+            String text = "X" + value + "Y";
+            assertSameBits(expected, format.parseCoordinate(text, 1, text.length() - 1), value + " in " + format);
+        }
+    }
+
+    @Test
+    void testDrillDecodingMatchesStringDecoding() {
+        Random random = new Random(7);
+        DrillDocument document = new DrillDocument();
+        for (int i = 0; i < SAMPLES; i++) {
+            int integerDigits = 1 + random.nextInt(4);
+            int decimalDigits = 1 + random.nextInt(5);
+            boolean leadingZeros = random.nextBoolean();
+            document.setIntegerDigits(integerDigits);
+            document.setDecimalDigits(decimalDigits);
+            document.setLeadingZeros(leadingZeros);
+            String value = randomCoordinate(random, integerDigits + decimalDigits + 3);
+
+            double expected = legacyDrillDecode(value, integerDigits, decimalDigits, leadingZeros);
+            String context = value + " in " + integerDigits + "." + decimalDigits + (leadingZeros ? " LZ" : " TZ");
+            assertSameBits(expected, document.parseCoordinate(value), context);
+
+            String text = "X" + value + "Y";
+            assertSameBits(expected, document.parseCoordinate(text, 1, text.length() - 1), context);
+        }
+    }
+
+    @Test
+    void testEdgeCases() {
+        CoordinateFormat format = new CoordinateFormat(2, 6, true, true);
+        assertEquals(0.0, format.parseCoordinate(""));
+        assertSameBits(-0.0, format.parseCoordinate("-0"), "-0");
+        assertSameBits(-0.0, format.parseCoordinate("-"), "-");
+        assertEquals(1.5, format.parseCoordinate("+1500000"));
+        assertEquals(-0.000001, format.parseCoordinate("-1"));
+
+        // Too many digits for a long mantissa falls back to string decoding
+        String huge = "12345678901234567890123";
+        assertSameBits(legacyGerberDecode(huge, 2, 6, true), format.parseCoordinate(huge), huge);
+
+        DrillDocument document = new DrillDocument();
+        assertTrue(Double.isNaN(document.parseCoordinate("")));
+        assertEquals(1.25, document.parseCoordinate("0125"));
+        assertSameBits(legacyDrillDecode(huge, 2, 4, true), document.parseCoordinate(huge), huge);
+    }
+
+    private static String randomCoordinate(Random random, int maxDigits) {
+        StringBuilder sb = new StringBuilder();
+        int sign = random.nextInt(4);
+        if (sign == 0) {
+            sb.append('-');
+        } else if (sign == 1) {
+            sb.append('+');
+        }
+        int digits = 1 + random.nextInt(maxDigits);
+        for (int i = 0; i < digits; i++) {
+            // Favour zeros so that omitted-zero cases come up often
+            sb.append(random.nextInt(3) == 0 ? '0' : (char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameBits(double expected, double actual, String context) {
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+            "Decoded " + actual + " instead of " + expected + " for " + context);
+    }
+
+    /**
+     * Original string-based CoordinateFormat.parseCoordinate, kept as the reference.
+     */
+    static double legacyGerberDecode(String coordStr, int integerDigits, int decimalDigits,
+                                     boolean leadingZeroOmitted) {
+        if (coordStr == null || coordStr.isEmpty()) {
+            return 0.0;
+        }
+
+        boolean negative = coordStr.startsWith("-");
+        if (negative || coordStr.startsWith("+")) {
+            coordStr = coordStr.substring(1);
+        }
+
+        int totalDigits = integerDigits + decimalDigits;
+
+        if (leadingZeroOmitted) {
+            while (coordStr.length() < totalDigits) {
+                coordStr = "0" + coordStr;
+            }
+        } else {
+            while (coordStr.length() < totalDigits) {
+                coordStr = coordStr + "0";
+            }
+        }
+
+        String intPart = coordStr.substring(0, coordStr.length() - decimalDigits);
+        String decPart = coordStr.substring(coordStr.length() - decimalDigits);
+
+        double value = Double.parseDouble(intPart + "." + decPart);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Original string-based DrillDocument.parseCoordinate, kept as the reference.
+     */
+    static double legacyDrillDecode(String value, int integerDigits, int decimalDigits, boolean leadingZeros) {
+        if (value == null || value.isEmpty()) {
+            return Double.NaN;
+        }
+
+        boolean negative = value.startsWith("-");
+        if (negative || value.startsWith("+")) {
+            value = value.substring(1);
+        }
+
+        double parsed;
+        if (leadingZeros) {
+            while (value.length() < integerDigits + decimalDigits) {
+                value = value + "0";
+            }
+            String intPart = value.substring(0, value.length() - decimalDigits);
+            String decPart = value.substring(value.length() - decimalDigits);
+            parsed = Double.parseDouble(intPart + "." + decPart);
+        } else {
+            while (value.length() < integerDigits + decimalDigits) {
+                value = "0" + value;
+            }
+            String intPart = value.substring(0, integerDigits);
+            String decPart = value.substring(integerDigits);
+            parsed = Double.parseDouble(intPart + "." + decPart);
+        }
+
+        return negative ? -parsed : parsed;
+    }
+}
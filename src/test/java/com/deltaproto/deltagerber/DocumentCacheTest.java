@@ -0,0 +1,108 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.cache.DocumentCache;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DocumentCache.
+ */
+public class DocumentCacheTest {
+
+    private static final String GERBER = "%FSLAX26Y26*%%MOMM*%%ADD10C,0.1*%D10*X0Y0D02*X1000000Y0D01*M02*";
+
+    @Test
+    void testRepeatedContentIsParsedOnce() {
+        DocumentCache cache = new DocumentCache(1 << 20);
+        GerberDocument first = cache.getGerber(GERBER.getBytes(StandardCharsets.UTF_8));
+        GerberDocument second = cache.getGerber(GERBER.getBytes(StandardCharsets.UTF_8));
+
+        assertSame(first, second);
+        assertEquals(1, first.getObjects().size());
+        DocumentCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.entries());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void testKeyIsContentNotArray() {
+        DocumentCache cache = new DocumentCache(1 << 20);
+        byte[] gerber = GERBER.getBytes(StandardCharsets.UTF_8);
+        byte[] framed = ("FILE\n" + GERBER + "\n").getBytes(StandardCharsets.UTF_8);
+
+        GerberDocument whole = cache.getGerber(gerber);
+        assertSame(whole, cache.getGerber(framed, 5, gerber.length));
+        assertNotSame(whole, cache.getGerber((GERBER + "\n").getBytes(StandardCharsets.UTF_8)));
+
+        // The same bytes as a drill file are a different entry
+        DrillDocument drill = cache.getDrill(gerber);
+        assertNotNull(drill);
+        assertEquals(3, cache.getStats().entries());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByWeight() throws IOException {
+        byte[] large = Files.readAllBytes(Paths.get("testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04.GTL"));
+        byte[] small = GERBER.getBytes(StandardCharsets.UTF_8);
+        byte[] other = (GERBER + "\n").getBytes(StandardCharsets.UTF_8);
+        DocumentCache cache = new DocumentCache(64 * 1024);
+
+        // Too large for the cache: returned but not kept
+        GerberDocument document = cache.getGerber(large);
+        assertFalse(document.getObjects().isEmpty());
+        assertEquals(0, cache.getStats().entries());
+        assertNotSame(document, cache.getGerber(large));
+
+        DocumentCache tight = new DocumentCache(4000);
+        GerberDocument a = tight.getGerber(small);
+        GerberDocument b = tight.getGerber(other);
+        assertEquals(1, tight.getStats().entries(), "Two small documents should exceed 4000 bytes");
+        assertEquals(1, tight.getStats().evictions());
+        assertSame(b, tight.getGerber(other));
+        assertNotSame(a, tight.getGerber(small));
+        assertTrue(tight.getStats().weightBytes() <= tight.getMaxBytes());
+    }
+
+    @Test
+    void testConcurrentRequestsParseOnce() throws Exception {
+        byte[] large = Files.readAllBytes(Paths.get("testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04.GTL"));
+        DocumentCache cache = new DocumentCache(256L << 20);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<GerberDocument>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getGerber(large);
+                }));
+            }
+            start.countDown();
+            GerberDocument first = results.get(0).get();
+            for (Future<GerberDocument> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, cache.getStats().misses());
+        assertEquals(threads - 1, cache.getStats().hits());
+    }
+}
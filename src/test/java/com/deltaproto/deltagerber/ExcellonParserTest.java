@@ -8,6 +8,14 @@ import com.deltaproto.deltagerber.renderer.svg.DrillSVGRenderer;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -15,6 +23,13 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class ExcellonParserTest {
 
+    static final String[] DRILL_FILES = {
+        "testdata/arduino-uno/arduino-uno.drd",
+        "testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-RoundHoles.TXT",
+        "testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-SlotHoles.TXT",
+        "test-gerber-suite/drill/01_drill_basic.drl",
+        "test-gerber-suite/drill/02_drill_slots.drl"};
+
     private final ExcellonParser parser = new ExcellonParser();
 
     @Test
@@ -432,4 +447,188 @@ public class ExcellonParserTest {
         assertEquals(15.0, hit.getX(), 0.1);
         assertEquals(25.0, hit.getY(), 0.1);
     }
+
+    @Test
+    void testMappedParseMatchesStringParse() throws IOException {
+        for (String name : DRILL_FILES) {
+            Path file = Paths.get(name);
+            DrillDocument expected = new ExcellonParser().parse(Files.readString(file));
+            DrillDocument actual = new ExcellonParser().parse(file);
+
+            assertEquals(expected.getTools().size(), actual.getTools().size(), "Tool count differs for " + name);
+            assertEquals(expected.getOperations().size(), actual.getOperations().size(),
+                "Operation count differs for " + name);
+            for (int i = 0; i < expected.getOperations().size(); i++) {
+                assertEquals(expected.getOperations().get(i).getBoundingBox().toString(),
+                    actual.getOperations().get(i).getBoundingBox().toString(),
+                    "Operation " + i + " differs for " + name);
+            }
+        }
+    }
+
+    @Test
+    void testFixedPointParseMatchesDoubleParse() throws IOException {
+        for (String name : DRILL_FILES) {
+            String content = Files.readString(Paths.get(name));
+            DrillDocument expected = new ExcellonParser().parse(content);
+            DrillDocument actual = new ExcellonParser().setFixedPoint(true).parse(content);
+
+            assertEquals(expected.getOperations().size(), actual.getOperations().size(),
+                "Operation count differs for " + name);
+            for (int i = 0; i < expected.getOperations().size(); i++) {
+                DrillOperation e = expected.getOperations().get(i);
+                DrillOperation a = actual.getOperations().get(i);
+                assertTrue(a instanceof FixedDrillHit || a instanceof FixedDrillSlot, "Operation " + i + " in " + name);
+                assertEquals(e.getClass(), a.toMm().getClass(), "Operation " + i + " differs for " + name);
+                assertEquals(e.getBoundingBox().getMinX(), a.getBoundingBox().getMinX(), 1e-6, name);
+                assertEquals(e.getBoundingBox().getMaxY(), a.getBoundingBox().getMaxY(), 1e-6, name);
+            }
+        }
+    }
+
+    @Test
+    void testFixedPointDecodesDigitsExactly() {
+        DrillDocument doc = new ExcellonParser().setFixedPoint(true).parse("""
+            M48
+            INCH,TZ
+            T01C0.0200
+            %
+            T01
+            X0.6028275Y-0.0001
+            G91
+            X0.6028275Y-0.0001
+            M30
+            """);
+
+        // 0.6028275 inch is exactly 15311818.5 nm, which the double product misses by a hair
+        FixedDrillHit first = (FixedDrillHit) doc.getOperations().get(0);
+        assertEquals(15_311_819L, first.getXNm());
+        assertEquals(-2_540L, first.getYNm());
+        FixedDrillHit second = (FixedDrillHit) doc.getOperations().get(1);
+        assertEquals(2 * 15_311_819L, second.getXNm());
+        assertEquals(-5_080L, second.getYNm());
+    }
+
+    @Test
+    void testStreamingParseMatchesRegexParse() throws IOException {
+        String inline = """
+            M48
+            ;FILE_FORMAT=2:4
+            INCH,TZ
+            T01C0.0200
+            T2F200S500C0.035
+            %
+            G90
+            T01
+            X1.5Y-0.25
+            X012Y+34
+            Y0.5
+            T2
+            X0100Y0200G85X0300Y0200
+            R3X0010Y0010
+            M15
+            G01X0500Y0500
+            M16
+            T02C9
+            XY
+            X1Y2Z3
+            M30
+            """;
+        for (String name : DRILL_FILES) {
+            String content = Files.readString(Paths.get(name));
+            assertSameDrill(new ExcellonParser(ExcellonParser.Mode.REGEX).parse(content),
+                new ExcellonParser().parse(content), name);
+            assertSameDrill(new ExcellonParser(ExcellonParser.Mode.REGEX).parse(content),
+                new ExcellonParser().parse(GerberLexerTest.tricklingReader(content)), name + " (reader)");
+        }
+        DrillDocument expected = new ExcellonParser(ExcellonParser.Mode.REGEX).parse(inline);
+        assertSameDrill(expected, new ExcellonParser().parse(inline), "inline");
+        assertSameDrill(expected, new ExcellonParser().parse(new StringReader("\uFEFF" + inline)), "inline (reader)");
+        assertEquals(8, expected.getOperations().size());
+    }
+
+    @Test
+    void testHoleTableMatchesOperations() throws IOException {
+        for (String name : DRILL_FILES) {
+            String content = Files.readString(Paths.get(name));
+            for (DrillDocument doc : new DrillDocument[] {
+                new ExcellonParser().parse(content),
+                new ExcellonParser().setFixedPoint(true).parse(content)}) {
+                HoleTable table = doc.getHoleTable();
+                BoundingBox bbox = new BoundingBox();
+                int hits = 0;
+                double minDiameter = Double.MAX_VALUE;
+                double maxDiameter = 0;
+                for (DrillOperation op : doc.getOperations()) {
+                    bbox.include(op.getBoundingBox());
+                    if (op.toMm() instanceof DrillHit) hits++;
+                    minDiameter = Math.min(minDiameter, op.getTool().getDiameter());
+                    maxDiameter = Math.max(maxDiameter, op.getTool().getDiameter());
+                }
+                assertEquals(doc.getOperations().size(), table.getOperationCount(), name);
+                assertEquals(hits, table.getHitCount(), name);
+                assertEquals(doc.getOperations().size() - hits, table.getSlotCount(), name);
+                assertEquals(minDiameter, table.getMinDiameter(), name);
+                assertEquals(maxDiameter, table.getMaxDiameter(), name);
+                assertEquals(bbox.toString(), table.getBoundingBox().toString(), name);
+                assertEquals(bbox.toString(), doc.getBoundingBox().toString(), name);
+
+                int perTool = 0;
+                for (HoleTable.ToolHoles holes : table.getTools()) {
+                    perTool += holes.getHitCount() + holes.getSlotCount();
+                }
+                assertEquals(table.getOperationCount(), perTool, name);
+            }
+        }
+    }
+
+    @Test
+    void testHoleTableOfSuppliedOperations() {
+        Tool small = new Tool(1, 0.5);
+        Tool large = new Tool(2, 2.0);
+        List<DrillOperation> operations = new ArrayList<>(List.of(
+            new DrillHit(small, 1, 1),
+            new DrillSlot(large, 2, 2, 6, 2),
+            new DrillHit(small, 3, -1)));
+        DrillDocument doc = new DrillDocument(operations);
+
+        HoleTable table = doc.getHoleTable();
+        assertEquals(3, table.getOperationCount());
+        assertEquals(2, table.getTools().size());
+        HoleTable.ToolHoles holes = table.getHoles(small);
+        assertEquals(2, holes.getHitCount());
+        assertEquals(3.0, holes.getHitX(1));
+        assertEquals(-1.0, holes.getHitY(1));
+        assertEquals(6.0, table.getHoles(large).getSlotEndX(0));
+        assertEquals(0.75, table.getBoundingBox().getMinX(), 1e-9);
+        assertEquals(-1.25, table.getBoundingBox().getMinY(), 1e-9);
+        assertEquals(7.0, table.getBoundingBox().getMaxX(), 1e-9);
+
+        operations.add(new DrillHit(large, 10, 10));
+        assertEquals(4, doc.getHoleTable().getOperationCount());
+        assertEquals(3, table.getOperationCount(), "A table already handed out is not rebuilt");
+        assertEquals(11.0, doc.getHoleTable().getBoundingBox().getMaxY(), 1e-9);
+
+        // One circle per tool with hits, one <use> per hit, one path per tool with slots
+        String svg = new DrillSVGRenderer().render(doc);
+        assertEquals(2, svg.split("<circle", -1).length - 1);
+        assertEquals(3, svg.split("<use href=\"#tool", -1).length - 1);
+        assertEquals(1, svg.split("stroke-linecap", -1).length - 1);
+        assertTrue(svg.contains("<use href=\"#tool1\" x=\"10.000000\" y=\"10.000000\"/>"), svg);
+    }
+
+    private static void assertSameDrill(DrillDocument expected, DrillDocument actual, String source) {
+        assertEquals(expected.getTools().keySet(), actual.getTools().keySet(), "Tools differ for " + source);
+        assertEquals(expected.getComments(), actual.getComments(), "Comments differ for " + source);
+        assertEquals(expected.getOperations().size(), actual.getOperations().size(),
+            "Operation count differs for " + source);
+        for (int i = 0; i < expected.getOperations().size(); i++) {
+            DrillOperation e = expected.getOperations().get(i);
+            DrillOperation a = actual.getOperations().get(i);
+            assertEquals(e.getClass(), a.getClass(), "Operation " + i + " differs for " + source);
+            assertEquals(e.getTool().getNumber(), a.getTool().getNumber(), "Operation " + i + " differs for " + source);
+            assertEquals(e.getBoundingBox().toString(), a.getBoundingBox().toString(),
+                "Operation " + i + " differs for " + source);
+        }
+    }
 }
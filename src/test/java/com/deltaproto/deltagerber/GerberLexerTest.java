@@ -0,0 +1,247 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.lexer.GerberLexer;
+import com.deltaproto.deltagerber.lexer.Token;
+import com.deltaproto.deltagerber.lexer.TokenType;
+import com.deltaproto.deltagerber.model.gerber.SourceMap;
+import com.deltaproto.deltagerber.parser.ParserException;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GerberLexer.
+ * Compares the single-pass lexer against the original regex lexer on all Gerber test files.
+ */
+public class GerberLexerTest {
+
+    private static final Set<String> GERBER_EXTENSIONS = Set.of(
+        "gbr", "gtl", "gbl", "gts", "gbs", "gto", "gbo", "gtp", "gbp", "gko", "gm1", "g1", "g2",
+        "cmp", "sol", "stc", "sts", "plc");
+
+    static List<Path> gerberTestFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String dir : new String[]{"testdata", "test-gerber-suite"}) {
+            try (Stream<Path> stream = Files.walk(Paths.get(dir))) {
+                stream.filter(Files::isRegularFile)
+                    .filter(p -> {
+                        String name = p.getFileName().toString().toLowerCase();
+                        int dot = name.lastIndexOf('.');
+                        return dot >= 0 && GERBER_EXTENSIONS.contains(name.substring(dot + 1));
+                    })
+                    .sorted()
+                    .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    @Test
+    void testSinglePassMatchesRegexLexerOnTestFiles() throws IOException {
+        List<Path> files = gerberTestFiles();
+        assertTrue(files.size() > 50, "Expected the Gerber test corpus, found " + files.size() + " files");
+
+        GerberLexer singlePass = new GerberLexer();
+        GerberLexer regex = new GerberLexer(GerberLexer.Mode.REGEX);
+
+        for (Path file : files) {
+            String content = Files.readString(file);
+            assertSameTokens(regex.tokenize(content), singlePass.tokenize(content), file.toString());
+        }
+    }
+
+    @Test
+    void testReaderInputMatchesStringInput() throws IOException {
+        GerberLexer lexer = new GerberLexer();
+        for (Path file : gerberTestFiles()) {
+            String content = Files.readString(file);
+            List<Token> expected = lexer.tokenize(content);
+            List<Token> actual = new ArrayList<>();
+            lexer.tokenize(tricklingReader(content), actual::add);
+
+            assertSameTokens(expected, actual, file.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getLine(), actual.get(i).getLine(),
+                    "Token " + i + " line differs for " + file);
+            }
+        }
+    }
+
+    @Test
+    void testMappedInputMatchesStringInput() throws IOException {
+        // Small windows force commands across window boundaries and window growth for macros
+        GerberLexer lexer = new GerberLexer().setMapWindowSize(64);
+        for (Path file : gerberTestFiles()) {
+            String content = Files.readString(file);
+            List<Token> expected = lexer.tokenize(content);
+            List<Token> actual = new ArrayList<>();
+            lexer.tokenize(file, actual::add);
+
+            assertSameTokens(expected, actual, file.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getLine(), actual.get(i).getLine(),
+                    "Token " + i + " line differs for " + file);
+            }
+        }
+    }
+
+    @Test
+    void testSplitRangesMatchWholeInput() throws IOException {
+        GerberLexer lexer = new GerberLexer();
+        int split = 0;
+        for (Path file : gerberTestFiles()) {
+            String content = Files.readString(file);
+            List<Token> expected = lexer.tokenize(content);
+            List<GerberLexer.Range> ranges = GerberLexer.split(content, 13);
+            List<Token> actual = new ArrayList<>();
+            int end = 0;
+            for (GerberLexer.Range range : ranges) {
+                assertEquals(end, range.start(), "Ranges must be contiguous for " + file);
+                lexer.tokenize(content, range.start(), range.end(), range.line(), actual::add);
+                end = range.end();
+            }
+            assertEquals(content.length(), end);
+            assertTrue(ranges.size() <= 13);
+            split += ranges.size() > 1 ? 1 : 0;
+
+            assertSameTokens(expected, actual, file.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getLine(), actual.get(i).getLine(),
+                    "Token " + i + " line differs for " + file);
+            }
+        }
+        assertTrue(split > 50, "Only " + split + " files were split");
+    }
+
+    @Test
+    void testTokenPositionsMatchAcrossInputs() throws IOException {
+        GerberLexer lexer = new GerberLexer().setMapWindowSize(64);
+        int checked = 0;
+        for (Path file : gerberTestFiles()) {
+            String content = Files.readString(file);
+            if (content.startsWith("\uFEFF")) content = content.substring(1);
+            if (!content.chars().allMatch(c -> c < 128)) continue; // Byte and char offsets differ
+
+            SourceMap lines = new SourceMap();
+            List<Token> tokens = new ArrayList<>();
+            List<Integer> expected = new ArrayList<>();
+            lexer.setNewlineListener(lines::addNewline)
+                .tokenizePositioned(content, (token, position) -> {
+                    tokens.add(token);
+                    expected.add(position);
+                });
+            lexer.setNewlineListener(null);
+
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                int position = expected.get(i);
+                char c = content.charAt(position);
+                assertTrue(c == '%' || c == 'G' || c == token.getContent().charAt(0),
+                    "Token " + i + " of " + file + " at '" + c + "': " + token);
+                assertEquals(token.getLine(), lines.lineOf(position), "Token " + i + " line of " + file);
+            }
+            assertEquals(content.split("\n", -1).length, lines.getLineCount(), file.toString());
+
+            List<Integer> fromReader = new ArrayList<>();
+            lexer.tokenizePositioned(tricklingReader(content), (token, position) -> fromReader.add(position));
+            assertEquals(expected, fromReader, file.toString());
+            List<Integer> fromFile = new ArrayList<>();
+            lexer.tokenizePositioned(file, (token, position) -> fromFile.add(position));
+            assertEquals(expected, fromFile, file.toString());
+            checked++;
+        }
+        assertTrue(checked > 50, "Only " + checked + " files were checked");
+    }
+
+    @Test
+    void testReaderInputSkipsByteOrderMark() throws IOException {
+        List<Token> tokens = new ArrayList<>();
+        new GerberLexer().tokenize(new StringReader("\uFEFF%MOMM*%\nD10*\n"), tokens::add);
+
+        assertEquals(List.of(TokenType.UNIT, TokenType.APERTURE_SELECT),
+            tokens.stream().map(Token::getType).toList());
+    }
+
+    @Test
+    void testExtendedBlockWhitespaceAndMultipleCommands() {
+        String gerber = "%FSLAX26Y26*\r\nMOMM*%\n%TF.FileFunction,\t Copper,L1,Top*%\n%LPD*%%%D10*\n";
+        GerberLexer singlePass = new GerberLexer();
+        List<Token> tokens = singlePass.tokenize(gerber);
+
+        assertSameTokens(new GerberLexer(GerberLexer.Mode.REGEX).tokenize(gerber), tokens, "inline");
+        assertEquals(TokenType.FORMAT_SPEC, tokens.get(0).getType());
+        assertEquals(TokenType.UNIT, tokens.get(1).getType());
+        assertEquals("TF.FileFunction, Copper,L1,Top", tokens.get(2).getContent());
+        assertEquals(TokenType.APERTURE_SELECT, tokens.get(4).getType());
+        assertEquals("D10", tokens.get(4).getContent());
+    }
+
+    @Test
+    void testTokensFollowSourceOrderAndLines() {
+        String gerber = """
+            %FSLAX26Y26*%
+            %AMBOX*
+            21,1,$1,$1,0,0,0*%
+            D10*%LPC*%X100Y200D01*
+            M02*
+            """;
+        List<Token> tokens = new GerberLexer().tokenize(gerber);
+
+        assertEquals(List.of(TokenType.FORMAT_SPEC, TokenType.APERTURE_MACRO, TokenType.APERTURE_SELECT,
+                TokenType.POLARITY, TokenType.COORDINATE, TokenType.D01, TokenType.END_OF_FILE),
+            tokens.stream().map(Token::getType).toList());
+        assertEquals("AMBOX*\n21,1,$1,$1,0,0,0*", tokens.get(1).getContent());
+        assertEquals(2, tokens.get(1).getLine());
+        assertEquals(4, tokens.get(2).getLine());
+        assertEquals(4, tokens.get(3).getLine());
+        assertEquals(5, tokens.get(6).getLine());
+    }
+
+    @Test
+    void testUnterminatedBlockFromReaderFailsAtItsLine() {
+        String gerber = "%FSLAX26Y26*%\nD10*\n%TF.Comment," + "x".repeat(5 * 1024 * 1024);
+        List<Token> tokens = new ArrayList<>();
+
+        ParserException e = assertThrows(ParserException.class,
+            () -> new GerberLexer().tokenize(new StringReader(gerber), tokens::add));
+        assertEquals(3, e.getLine());
+        assertTrue(e.getMessage().contains("Unterminated '%'"), e.getMessage());
+        assertEquals(2, tokens.size());
+    }
+
+    private static void assertSameTokens(List<Token> expected, List<Token> actual, String source) {
+        assertEquals(expected.size(), actual.size(), "Token count differs for " + source);
+        for (int i = 0; i < expected.size(); i++) {
+            Token e = expected.get(i);
+            Token a = actual.get(i);
+            assertEquals(e.getType(), a.getType(), "Token " + i + " type differs for " + source + ": " + a);
+            assertEquals(e.getContent(), a.getContent(), "Token " + i + " content differs for " + source + ": " + a);
+        }
+    }
+
+    /**
+     * Reader that returns at most a few characters per read, so that commands straddle
+     * the lexer's read boundaries.
+     */
+    static Reader tricklingReader(String content) {
+        return new FilterReader(new StringReader(content)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 7));
+            }
+        };
+    }
+}
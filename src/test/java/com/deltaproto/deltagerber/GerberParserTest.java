@@ -5,10 +5,21 @@ import com.deltaproto.deltagerber.model.gerber.aperture.*;
 import com.deltaproto.deltagerber.model.gerber.aperture.MacroAperture;
 import com.deltaproto.deltagerber.model.gerber.operation.*;
 import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.parser.GerberSink;
 import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -456,4 +467,525 @@ public class GerberParserTest {
         assertEquals(1.0, flash.getX(), 0.001);
         assertEquals(2.0, flash.getY(), 0.001);
     }
+
+    @Test
+    void testStreamingParseMatchesDocumentParse() throws IOException {
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            String content = Files.readString(file);
+            GerberDocument doc = new GerberParser().parse(content);
+
+            List<GraphicsObject> streamed = new ArrayList<>();
+            List<Aperture> apertures = new ArrayList<>();
+            List<String> warnings = new ArrayList<>();
+            new GerberParser().parse(GerberLexerTest.tricklingReader(content), new GerberSink() {
+                @Override
+                public void onObject(GraphicsObject object) {
+                    streamed.add(object);
+                }
+
+                @Override
+                public void onAperture(Aperture aperture) {
+                    apertures.add(aperture);
+                }
+
+                @Override
+                public void onWarning(String warning) {
+                    warnings.add(warning);
+                }
+            });
+
+            assertEquals(doc.getObjects().size(), streamed.size(), "Object count differs for " + file);
+            for (int i = 0; i < streamed.size(); i++) {
+                GraphicsObject expected = doc.getObjects().get(i);
+                GraphicsObject actual = streamed.get(i);
+                assertEquals(expected.getClass(), actual.getClass(), "Object " + i + " differs for " + file);
+                assertEquals(expected.getPolarity(), actual.getPolarity(), "Object " + i + " differs for " + file);
+                assertEquals(expected.getBoundingBox().toString(), actual.getBoundingBox().toString(),
+                    "Object " + i + " differs for " + file);
+            }
+            assertEquals(doc.getApertures().size(), apertures.size(), "Aperture count differs for " + file);
+            assertEquals(doc.getWarnings(), warnings, "Warnings differ for " + file);
+        }
+    }
+
+    @Test
+    void testMappedParseMatchesStringParse() throws IOException {
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            GerberDocument expected = new GerberParser().parse(Files.readString(file));
+            GerberDocument actual = new GerberParser().parse(file);
+
+            assertEquals(expected.getObjects().size(), actual.getObjects().size(), "Object count differs for " + file);
+            assertEquals(expected.getApertures().size(), actual.getApertures().size(), "Apertures differ for " + file);
+            assertEquals(expected.getFileAttributes().keySet(), actual.getFileAttributes().keySet(),
+                "Attributes differ for " + file);
+            assertEquals(expected.getBoundingBox().toString(), actual.getBoundingBox().toString(),
+                "Bounding box differs for " + file);
+        }
+    }
+
+    @Test
+    void testStreamingParseDeliversStepRepeatCopiesAfterBlock() throws IOException {
+        String gerber = """
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.5*%
+            D10*
+            X0Y0D03*
+            %SRX2Y1I10.0J0*%
+            X1000000Y1000000D03*
+            %SR*%
+            X5000000Y5000000D03*
+            M02*
+            """;
+
+        List<Double> flashX = new ArrayList<>();
+        List<Integer> dCodes = new ArrayList<>();
+        new GerberParser().parse(new StringReader(gerber), new GerberSink() {
+            @Override
+            public void onObject(GraphicsObject object) {
+                flashX.add(((Flash) object).getX());
+            }
+
+            @Override
+            public void onAperture(Aperture aperture) {
+                dCodes.add(aperture.getDCode());
+            }
+        });
+
+        assertEquals(List.of(10), dCodes);
+        assertEquals(List.of(0.0, 1.0, 11.0, 5.0), flashX);
+    }
+
+    @Test
+    void testFixedPointParseMatchesDoubleParse() throws IOException {
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            String content = Files.readString(file);
+            GerberDocument expected = new GerberParser().parse(content);
+            GerberDocument actual = new GerberParser().setFixedPoint(true).parse(content);
+
+            assertEquals(expected.getObjects().size(), actual.getObjects().size(), "Object count differs for " + file);
+            for (int i = 0; i < expected.getObjects().size(); i++) {
+                GraphicsObject e = expected.getObjects().get(i);
+                GraphicsObject a = actual.getObjects().get(i);
+                assertNotSame(a, a.toMm(), "Object " + i + " is not fixed-point for " + file);
+                assertEquals(e.getClass(), a.toMm().getClass(), "Object " + i + " differs for " + file);
+                assertEquals(e.getPolarity(), a.getPolarity(), "Object " + i + " differs for " + file);
+                BoundingBox eb = e.getBoundingBox();
+                BoundingBox ab = a.getBoundingBox();
+                String context = "Object " + i + " bounds differ for " + file;
+                assertEquals(eb.getMinX(), ab.getMinX(), 1e-6, context);
+                assertEquals(eb.getMinY(), ab.getMinY(), 1e-6, context);
+                assertEquals(eb.getMaxX(), ab.getMaxX(), 1e-6, context);
+                assertEquals(eb.getMaxY(), ab.getMaxY(), 1e-6, context);
+                assertEquals(a.toMm().toSvg(), a.toSvg(), "Object " + i + " SVG differs for " + file);
+            }
+        }
+    }
+
+    @Test
+    void testFixedPointCoordinatesAreNanometres() {
+        String gerber = """
+            %FSLAX26Y26*%
+            %MOIN*%
+            %ADD10C,0.01*%
+            D10*
+            X1000000Y-500000D02*
+            X2000000Y-500000D01*
+            X3000000Y1D03*
+            G36*
+            X0Y0D02*
+            X1000000Y0D01*
+            X1000000Y1000000D01*
+            X0Y0D01*
+            G37*
+            M02*
+            """;
+        GerberDocument doc = new GerberParser().setFixedPoint(true).parse(gerber);
+
+        assertEquals(3, doc.getObjects().size());
+        FixedDraw draw = (FixedDraw) doc.getObjects().get(0);
+        assertEquals(25_400_000L, draw.getStartXNm());
+        assertEquals(-12_700_000L, draw.getStartYNm());
+        assertEquals(50_800_000L, draw.getEndXNm());
+
+        // 1e-6 inch = 25.4 nm rounds to 25 nm
+        FixedFlash flash = (FixedFlash) doc.getObjects().get(1);
+        assertEquals(76_200_000L, flash.getXNm());
+        assertEquals(25L, flash.getYNm());
+
+        FixedRegion region = (FixedRegion) doc.getObjects().get(2);
+        FixedContour contour = region.getContours().get(0);
+        assertEquals(3, contour.getSegmentCount());
+        assertEquals(25_400_000L, contour.getYNm(1));
+        assertFalse(contour.isArc(0));
+
+        String svg = new SVGRenderer().render(doc);
+        assertTrue(svg.contains("<line x1=\"25.400000\" y1=\"-12.700000\""), svg);
+    }
+
+    @Test
+    void testFixedPointDecodesDigitsExactly() {
+        // 0.6028275 inch is exactly 15311818.5 nm, which the double product misses by a hair
+        GerberDocument doc = new GerberParser().setFixedPoint(true).parse("""
+            %FSLAX27Y27*%
+            %MOIN*%
+            %ADD10C,0.01*%
+            D10*
+            X6028275Y-6028275D03*
+            G75*
+            G03X0Y0I6028275J0D01*
+            M02*
+            """);
+
+        FixedFlash flash = (FixedFlash) doc.getObjects().get(0);
+        assertEquals(15_311_819L, flash.getXNm());
+        assertEquals(-15_311_819L, flash.getYNm());
+        FixedArc arc = (FixedArc) doc.getObjects().get(1);
+        assertEquals(15_311_819L + 15_311_819L, arc.getCenterXNm());
+        assertEquals(-15_311_819L, arc.getCenterYNm());
+
+        doc = new GerberParser().setFixedPoint(true).parse("""
+            %FSLAX36Y36*%
+            %MOMM*%
+            %ADD10C,0.1*%
+            D10*
+            X123456789Y-1D03*
+            M02*
+            """);
+        flash = (FixedFlash) doc.getObjects().get(0);
+        assertEquals(123_456_789L, flash.getXNm());
+        assertEquals(-1L, flash.getYNm());
+    }
+
+    @Test
+    void testFixedPointObjectsAreValues() {
+        GerberDocument doc = new GerberParser().setFixedPoint(true).parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.1*%
+            D10*
+            X0Y0D02*
+            X1000000Y0D01*
+            X0Y0D02*
+            X1000000Y0D01*
+            X1000000Y0D03*
+            X1000000Y0D03*
+            X1000001Y0D03*
+            M02*
+            """);
+        List<GraphicsObject> objects = doc.getObjects();
+
+        assertEquals(objects.get(0), objects.get(1));
+        assertEquals(objects.get(0).hashCode(), objects.get(1).hashCode());
+        assertEquals(objects.get(2), objects.get(3));
+        assertNotEquals(objects.get(3), objects.get(4), "One nanometre apart");
+        assertEquals(3, new HashSet<>(objects).size());
+        FixedDraw draw = (FixedDraw) objects.get(0);
+        assertEquals(((FixedFlash) objects.get(2)).getXNm(), draw.getEndPoint().x());
+        assertEquals(new FixedPoint.Point(1_000_000, 0), draw.getEndPoint());
+    }
+
+    @Test
+    void testColumnarStoreMatchesListStore() throws IOException {
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            String content = Files.readString(file);
+            // The fixed-point model keeps nanometres in the columns
+            for (boolean fixedPoint : new boolean[] {false, true}) {
+                GerberDocument expected = new GerberParser().setFixedPoint(fixedPoint).parse(content);
+                GerberDocument actual = new GerberParser().setFixedPoint(fixedPoint).setColumnarStore(true)
+                    .parse(content);
+                String context = (fixedPoint ? "fixed-point " : "") + file;
+
+                assertInstanceOf(ColumnarObjectList.class, actual.getObjects());
+                assertEquals(expected.getObjects().size(), actual.getObjects().size(), "Object count differs for " + context);
+                int i = 0;
+                for (GraphicsObject a : actual.getObjects()) {
+                    GraphicsObject e = expected.getObjects().get(i);
+                    assertEquals(e.getClass(), a.getClass(), "Object " + i + " differs for " + context);
+                    assertEquals(e.getPolarity(), a.getPolarity(), "Object " + i + " differs for " + context);
+                    assertEquals(e.toSvg(), a.toSvg(), "Object " + i + " differs for " + context);
+                    i++;
+                }
+                BoundingBox eb = expected.getBoundingBox();
+                BoundingBox ab = actual.getBoundingBox();
+                assertEquals(eb.getMinX(), ab.getMinX(), "Bounding box differs for " + context);
+                assertEquals(eb.getMinY(), ab.getMinY(), "Bounding box differs for " + context);
+                assertEquals(eb.getMaxX(), ab.getMaxX(), "Bounding box differs for " + context);
+                assertEquals(eb.getMaxY(), ab.getMaxY(), "Bounding box differs for " + context);
+            }
+        }
+    }
+
+    @Test
+    void testColumnarStoreIsReadOnlyView() {
+        ColumnarObjectList objects = new ColumnarObjectList();
+        Aperture aperture = new CircleAperture(10, 0.5);
+        Flash rotated = new Flash(1, 2, aperture, 90, 1.0, false, false);
+        objects.add(new Flash(1, 2, aperture));
+        objects.add(rotated);
+
+        GraphicsObject first = objects.get(0);
+        first.setPolarity(Polarity.CLEAR);
+        assertEquals(Polarity.DARK, objects.get(0).getPolarity());
+        assertNotSame(first, objects.get(0));
+        // Transformed flashes are kept as they are
+        assertSame(rotated, objects.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> objects.set(0, rotated));
+        assertThrows(UnsupportedOperationException.class, () -> objects.remove(0));
+    }
+
+    @Test
+    void testLazyStepRepeatMatchesExpandedParse() throws IOException {
+        int blocks = 0;
+        for (Path file : GerberLexerTest.gerberTestFiles()) {
+            String content = Files.readString(file);
+            GerberDocument expected = new GerberParser().parse(content);
+            GerberDocument actual = new GerberParser().setLazyStepRepeat(true).parse(content);
+
+            List<GraphicsObject> flattened = new ArrayList<>();
+            StepRepeatBlock.flatten(actual.getObjects()).forEach(flattened::add);
+            assertEquals(expected.getObjects().size(), flattened.size(), "Object count differs for " + file);
+            for (int i = 0; i < flattened.size(); i++) {
+                assertEquals(expected.getObjects().get(i).toSvg(), flattened.get(i).toSvg(),
+                    "Object " + i + " differs for " + file);
+            }
+            assertEquals(expected.getBoundingBox().toString(), actual.getBoundingBox().toString(),
+                "Bounding box differs for " + file);
+            blocks += (int) actual.getObjects().stream().filter(o -> o instanceof StepRepeatBlock).count();
+        }
+        assertTrue(blocks > 0, "No step-and-repeat blocks in the test corpus");
+    }
+
+    @Test
+    void testLazyStepRepeatRendersBlockOnce() {
+        String gerber = """
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.5*%
+            D10*
+            %SRX3Y2I10.0J5.0*%
+            X0Y0D03*
+            X1000000Y0D02*
+            X2000000Y0D01*
+            %SR*%
+            %SRX2Y1I10.0J0*%
+            %LPC*%
+            X0Y0D03*
+            %SR*%
+            M02*
+            """;
+        GerberDocument doc = new GerberParser().setLazyStepRepeat(true).parse(gerber);
+
+        // The block holding a clear object is expanded
+        assertEquals(3, doc.getObjects().size());
+        StepRepeatBlock block = assertInstanceOf(StepRepeatBlock.class, doc.getObjects().get(0));
+        assertEquals(2, block.getObjects().size());
+        assertEquals(6, block.getInstanceCount());
+        assertEquals(Polarity.CLEAR, doc.getObjects().get(2).getPolarity());
+
+        BoundingBox bounds = block.getBoundingBox();
+        assertEquals(-0.25, bounds.getMinX(), 1e-9);
+        assertEquals(22.25, bounds.getMaxX(), 1e-9);
+        assertEquals(5.25, bounds.getMaxY(), 1e-9);
+
+        String svg = new SVGRenderer().render(doc);
+        assertEquals(1, svg.split("<g id=\"sr0\">", -1).length - 1, svg);
+        assertEquals(6, svg.split("<use href=\"#sr0\"", -1).length - 1, svg);
+        assertTrue(svg.indexOf("<g id=\"sr0\">") < svg.indexOf("</defs>"), svg);
+        assertTrue(svg.contains("<use href=\"#sr0\" x=\"20.000000\" y=\"5.000000\"/>"), svg);
+
+        // Without a renderer every instance is written out
+        assertEquals(6, block.toSvg().split("<g transform=", -1).length - 1);
+    }
+
+    @Test
+    void testSourceMapPointsObjectsAtTheirCommands() throws IOException {
+        String gerber = """
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.5*%
+            D10*
+            X1000000Y1000000D03*
+            X2000000Y1000000D02*
+            X3000000Y1000000D01*
+            X4000000*
+            X5000000Y2000000D01*
+            G36*
+            X0Y0D02*
+            X1000000Y0D01*
+            X1000000Y1000000D01*
+            X0Y0D01*
+            G37*
+            %SRX2Y1I5J0*%
+            X4000000Y4000000D03*
+            %SR*%
+              X5000000Y5000000D03*
+            M02*
+            """;
+        // Flash, draw, modal draw, draw, region, flash and its copy, indented flash
+        int[] lines = {5, 7, 8, 9, 10, 17, 17, 19};
+
+        assertNull(parser.parse(gerber).getSourceMap());
+
+        GerberParser mapping = new GerberParser().setSourceMap(true);
+        GerberDocument doc = mapping.parse(gerber);
+        SourceMap map = doc.getSourceMap();
+        assertEquals(doc.getObjects().size(), map.getObjectCount());
+        assertEquals(lines.length, map.getObjectCount());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], map.getLine(i), "Line of object " + i);
+        }
+        assertEquals(gerber.indexOf("X1000000Y1000000D03*"), map.getOffset(0));
+        assertEquals(1, map.getColumn(0));
+        assertEquals(3, map.getColumn(7));
+        assertEquals(21, map.getLineCount());
+
+        // A lazy step-and-repeat block maps to its %SR%
+        SourceMap lazy = new GerberParser().setSourceMap(true).setLazyStepRepeat(true).parse(gerber).getSourceMap();
+        assertEquals(7, lazy.getObjectCount());
+        assertEquals(16, lazy.getLine(5));
+
+        // Streaming from a reader, and from a file with a byte order mark and CRLF line breaks
+        List<GraphicsObject> streamed = new ArrayList<>();
+        SourceMap[] streamedMap = new SourceMap[1];
+        mapping.parse(new StringReader(gerber), new GerberSink() {
+            @Override
+            public void onObject(GraphicsObject object) {
+                streamed.add(object);
+            }
+
+            @Override
+            public void onSourceMap(SourceMap sourceMap) {
+                streamedMap[0] = sourceMap;
+            }
+        });
+        assertEquals(lines.length, streamed.size());
+        Path file = Files.createTempFile("source-map", ".gbr");
+        try {
+            Files.writeString(file, "\uFEFF" + gerber.replace("\n", "\r\n"));
+            SourceMap mapped = mapping.parse(file).getSourceMap();
+            for (int i = 0; i < lines.length; i++) {
+                assertEquals(lines[i], streamedMap[0].getLine(i), "Streamed line of object " + i);
+                assertEquals(lines[i], mapped.getLine(i), "Mapped line of object " + i);
+                assertEquals(map.getColumn(i), mapped.getColumn(i), "Mapped column of object " + i);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testParallelParseMatchesSequentialParse() throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (Path file : GerberLexerTest.gerberTestFiles()) {
+                String content = Files.readString(file);
+                GerberDocument expected = new GerberParser().parse(content);
+                for (int parallelism : new int[]{2, 16}) {
+                    GerberDocument actual = new GerberParser().setParallelThreshold(1)
+                        .setParallelism(parallelism).setExecutor(pool).parse(content);
+                    assertSameDocument(expected, actual, file + " in " + parallelism * 4 + " chunks");
+                }
+                // Chunks decode fixed-point coordinates from the tokens the sequential pass kept
+                List<String> fixed = new GerberParser().setFixedPoint(true).parse(content)
+                    .getObjects().stream().map(GraphicsObject::toSvg).toList();
+                List<String> fixedParallel = new GerberParser().setFixedPoint(true).setParallelThreshold(1)
+                    .setParallelism(16).setExecutor(pool).parse(content)
+                    .getObjects().stream().map(GraphicsObject::toSvg).toList();
+                assertEquals(fixed, fixedParallel, file + " in fixed point");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testParallelParseCarriesModalStateAcrossChunks() {
+        // Chunks may start at every line: between pending coordinates and their D-code,
+        // inside regions and step-and-repeat blocks, after unit and aperture changes
+        String gerber = """
+            %FSLAX26Y26*%
+            %MOMM*%
+            %TF.FileFunction,Component,L1,Top*%
+            %ADD10C,0.5*%
+            %ADD11R,1X2*%
+            D10*
+            X1000000Y1000000D02*
+            X2000000Y1000000D01*
+            X3000000Y2000000*
+            X4000000*
+            G03*
+            X5000000Y3000000I500000
+            J-500000D01*
+            G01*
+            %TO.C,R1*%
+            %TO.CVal,10k*%
+            X7000000Y7000000
+            D03*
+            X8000000Y8000000D03*
+            %TD*%
+            G36*
+            X0Y0D02*
+            X1000000Y0D01*
+            X1000000Y1000000D01*
+            G37*
+            %LPC*%
+            D11*
+            X500000Y500000D03*
+            %LPD*%
+            %SRX2Y2I5.0J5.0*%
+            X100000Y100000D03*
+            X200000
+            Y200000D01*
+            %SR*%
+            %MOIN*%
+            %ADD12C,0.01*%
+            D12*
+            X10000000D01*
+            %MOMM*%
+            Y10000000D01*
+            M02*
+            """;
+        GerberDocument expected = new GerberParser().parse(gerber);
+        for (boolean lazy : new boolean[]{false, true}) {
+            GerberDocument actual = new GerberParser().setParallelThreshold(1).setParallelism(50)
+                .setLazyStepRepeat(lazy).parse(gerber);
+            if (lazy) {
+                List<GraphicsObject> flattened = new ArrayList<>();
+                StepRepeatBlock.flatten(actual.getObjects()).forEach(flattened::add);
+                assertEquals(expected.getObjects().size(), flattened.size());
+            } else {
+                assertSameDocument(expected, actual, "inline");
+            }
+        }
+        assertEquals(1, expected.getComponents().size());
+        assertEquals(7.0, expected.getComponents().get(0).getX(), 1e-9);
+    }
+
+    private static void assertSameDocument(GerberDocument expected, GerberDocument actual, String source) {
+        assertEquals(expected.getObjects().size(), actual.getObjects().size(), "Object count differs for " + source);
+        for (int i = 0; i < expected.getObjects().size(); i++) {
+            assertEquals(expected.getObjects().get(i).toSvg(), actual.getObjects().get(i).toSvg(),
+                "Object " + i + " differs for " + source);
+        }
+        assertEquals(expected.getComponents().size(), actual.getComponents().size(),
+            "Component count differs for " + source);
+        for (int i = 0; i < expected.getComponents().size(); i++) {
+            ComponentPlacement e = expected.getComponents().get(i);
+            ComponentPlacement a = actual.getComponents().get(i);
+            assertEquals(e.getRefdes() + " " + e.getX() + " " + e.getY() + " " + e.getSide(),
+                a.getRefdes() + " " + a.getX() + " " + a.getY() + " " + a.getSide(),
+                "Component " + i + " differs for " + source);
+        }
+        assertEquals(expected.getWarnings(), actual.getWarnings(), "Warnings differ for " + source);
+        assertEquals(expected.getApertures().keySet(), actual.getApertures().keySet(), "Apertures differ for " + source);
+        assertEquals(expected.getFileAttributes().keySet(), actual.getFileAttributes().keySet(),
+            "Attributes differ for " + source);
+        for (GraphicsObject obj : actual.getObjects()) {
+            if (obj instanceof Flash flash) {
+                assertTrue(actual.getApertures().containsValue(flash.getAperture()),
+                    "Flash refers to an aperture outside the document in " + source);
+            }
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.loader.BoardLoader;
+import com.deltaproto.deltagerber.loader.LayerScanner;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Unit;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LayerScanner.
+ */
+public class LayerScannerTest {
+
+    private static LayerScanner.Header scan(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return LayerScanner.scan(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void testGerberX2Header() {
+        LayerScanner.Header header = scan("""
+            %TF.GenerationSoftware,KiCad,Pcbnew,8.0*%
+            %TF.FileFunction,Copper,L1,Top*%
+            %TF.FilePolarity,Positive*%
+            %FSLAX46Y46*%
+            G04 Gerber Fmt 4.6*
+            %MOMM*%
+            %LPD*%
+            G01*
+            %ADD10C,0.500000*%
+            D10*
+            X1000000Y1000000D03*
+            M02*
+            """);
+
+        assertEquals(BoardLoader.Format.GERBER, header.format());
+        assertEquals(LayerType.COPPER_TOP, header.layerType());
+        assertEquals(List.of("Copper", "L1", "Top"), header.fileFunction());
+        assertEquals("Positive", header.filePolarity());
+        assertEquals("KiCad Pcbnew", header.generationSoftware());
+        assertEquals(Unit.MM, header.unit());
+        assertEquals(4, header.coordinateFormat().getIntegerDigits());
+        assertEquals(6, header.coordinateFormat().getDecimalDigits());
+        assertTrue(header.coordinateFormat().isLeadingZeroOmitted());
+        assertFalse(header.isComponentFile());
+    }
+
+    @Test
+    void testCommentAttributesAndLayerTypes() {
+        LayerScanner.Header header = scan("""
+            G04 #@! TF.FileFunction,Soldermask,Bot*
+            G04 #@! TF.GenerationSoftware,KiCad,Pcbnew,8.0*
+            %FSLAX26Y26*%
+            G70*
+            """);
+        assertEquals(LayerType.SOLDERMASK_BOTTOM, header.layerType());
+        assertEquals("KiCad Pcbnew", header.generationSoftware());
+        assertEquals(Unit.INCH, header.unit());
+
+        String[][] functions = {
+            {"Profile,NP", "OUTLINE"},
+            {"Legend,Top", "SILKSCREEN_TOP"},
+            {"Paste,Bot", "PASTE_BOTTOM"},
+            {"Copper,L2,Inr", "OTHER"},
+            {"Plated,1,4,PTH,Drill", "DRILL_PLATED"},
+            {"NonPlated,1,4,NPTH,Drill", "DRILL_NON_PLATED"},
+            {"Component,L4,Bot", "PNP_BOTTOM"}};
+        for (String[] function : functions) {
+            LayerScanner.Header h = scan("%TF.FileFunction," + function[0] + "*%\n%MOMM*%\n");
+            assertEquals(LayerType.valueOf(function[1]), h.layerType(), function[0]);
+        }
+        assertTrue(scan("%TF.FileFunction,Component,L1,Top*%%MOMM*%").isComponentFile());
+    }
+
+    @Test
+    void testStopsAtFirstGraphicsCommand() {
+        LayerScanner.Header header = scan("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,0.1*%
+            D10*
+            X0Y0D03*
+            %TF.FileFunction,Copper,L1,Top*%
+            """);
+        assertEquals(BoardLoader.Format.GERBER, header.format());
+        assertEquals(LayerType.OTHER, header.layerType());
+        assertTrue(header.fileFunction().isEmpty());
+
+        // Neither Gerber nor Excellon
+        LayerScanner.Header unknown = scan("Drill Usage Report\nUnits: Millimeter\n");
+        assertNull(unknown.format());
+        assertNull(unknown.layerType());
+    }
+
+    @Test
+    void testExcellonHeader() throws IOException {
+        LayerScanner.Header header = scan("""
+            M48
+            ; DRILL file {KiCad 8.0} date 2024-01-01
+            ; #@! TF.GenerationSoftware,Kicad,Pcbnew,8.0
+            ; #@! TF.FileFunction,NonPlated,1,2,NPTH
+            FMAT,2
+            METRIC,TZ
+            T1C3.200
+            %
+            G90
+            T1
+            X10.0Y10.0
+            M30
+            """);
+        assertEquals(BoardLoader.Format.EXCELLON, header.format());
+        assertEquals(LayerType.DRILL_NON_PLATED, header.layerType());
+        assertEquals("Kicad Pcbnew", header.generationSoftware());
+        assertEquals(Unit.MM, header.unit());
+        assertEquals(3, header.coordinateFormat().getIntegerDigits());
+        assertTrue(header.coordinateFormat().isLeadingZeroOmitted());
+
+        // Rewind stop and FILE_FORMAT comment before the header unit
+        LayerScanner.Header arduino = LayerScanner.scan(Paths.get("testdata/arduino-uno/arduino-uno.drd"));
+        assertEquals(BoardLoader.Format.EXCELLON, arduino.format());
+        assertEquals(LayerType.DRILL, arduino.layerType());
+        assertEquals(Unit.INCH, arduino.unit());
+        assertEquals(2, arduino.coordinateFormat().getIntegerDigits());
+        assertEquals(4, arduino.coordinateFormat().getDecimalDigits());
+
+        // Comment lines before M48
+        LayerScanner.Header depr = LayerScanner.scan(
+            Paths.get("testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-RoundHoles.TXT"));
+        assertEquals(BoardLoader.Format.EXCELLON, depr.format());
+    }
+
+    @Test
+    void testHeaderMatchesParsedDocument() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(Paths.get("testdata/DEPR PR31 GBDR V04"))) {
+            files = list.filter(f -> f.getFileName().toString().matches(".*\\.(G[A-Z0-9]+)")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            GerberDocument doc = new GerberParser().parse(file);
+            LayerScanner.Header header = LayerScanner.scan(file);
+            assertEquals(BoardLoader.Format.GERBER, header.format(), file.toString());
+            // The parsed document is normalized to mm; the header reports the declared unit
+            Unit declared = Files.readString(file).contains("%MOIN") ? Unit.INCH : Unit.MM;
+            assertEquals(declared, header.unit(), file.toString());
+            assertEquals(doc.getFileFunctionValues(), header.fileFunction(), file.toString());
+            CoordinateFormat format = doc.getCoordinateFormat();
+            assertEquals(format.toString(), header.coordinateFormat().toString(), file.toString());
+        }
+
+        try (InputStream in = getClass().getResourceAsStream("/gerber-x2-drill-pth.gbr")) {
+            byte[] bytes = in.readAllBytes();
+            LayerScanner.Header header = LayerScanner.scan(bytes, 0, bytes.length);
+            GerberDocument doc = new GerberParser().parse(new String(bytes, StandardCharsets.UTF_8));
+            assertEquals(LayerType.DRILL_PLATED, header.layerType());
+            assertEquals(doc.getFileFunctionValues(), header.fileFunction());
+            assertEquals(doc.getGenerationSoftware(), header.generationSoftware());
+        }
+    }
+
+    @Test
+    void testBoardLoaderUsesDeclaredLayerType() {
+        byte[] copper = """
+            %TF.FileFunction,Copper,L2,Bot*%
+            %FSLAX26Y26*%%MOMM*%%ADD10C,0.1*%D10*X0Y0D03*M02*
+            """.getBytes(StandardCharsets.UTF_8);
+        BoardLoader.Result result = new BoardLoader().load(List.of(
+            BoardLoader.Source.of("bottom.gbr", copper),
+            BoardLoader.Source.of("override.gbr", copper).setLayerType(LayerType.COPPER_TOP)));
+
+        assertTrue(result.isComplete());
+        assertEquals(LayerType.COPPER_BOTTOM, result.getLayers().get(0).getLayerType());
+        assertEquals(LayerType.COPPER_TOP, result.getLayers().get(1).getLayerType());
+
+        List<LayerScanner.Header> headers = BoardLoader.scan(List.of(
+            BoardLoader.Source.of("bottom.gbr", copper),
+            BoardLoader.Source.of(Paths.get("testdata/DEPR PR31 GBDR V04/missing.GTL"))));
+        assertEquals(LayerType.COPPER_BOTTOM, headers.get(0).layerType());
+        assertNull(headers.get(1).format());
+    }
+}
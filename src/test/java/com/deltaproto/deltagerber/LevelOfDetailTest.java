@@ -0,0 +1,137 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.Geometry;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.ObroundAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Contour;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.LevelOfDetail;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LevelOfDetail.
+ */
+public class LevelOfDetailTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+
+    @Test
+    void testTinyObjectsAreDroppedOrDotted() {
+        SvgOptions lod = SvgOptions.exact().setMmPerPixel(0.1);
+        Flash speck = new Flash(1, 1, new CircleAperture(10, 0.04));
+        Flash via = new Flash(1, 1, new CircleAperture(11, 0.15));
+        Flash pad = new Flash(1, 1, new RectangleAperture(12, 0.15, 0.1));
+        Flash oval = new Flash(1, 1, new ObroundAperture(16, 0.15, 0.1));
+        Flash big = new Flash(1, 1, new RectangleAperture(13, 1, 1));
+        Draw trace = new Draw(0, 0, 5, 0, new CircleAperture(14, 0.02));
+
+        assertEquals("", LevelOfDetail.toSvg(speck, lod));
+        assertEquals("<circle cx=\"1.000000\" cy=\"1.000000\" r=\"0.075000\" fill=\"#000000\"/>",
+            LevelOfDetail.toSvg(via, lod));
+        assertEquals("<rect x=\"0.925000\" y=\"0.950000\" width=\"0.150000\" height=\"0.100000\" fill=\"#000000\"/>",
+            LevelOfDetail.toSvg(pad, lod));
+        Flash turned = new Flash(1, 1, new RectangleAperture(12, 0.15, 0.1), 270, 1, false, false);
+        assertEquals("<rect x=\"0.950000\" y=\"0.925000\" width=\"0.100000\" height=\"0.150000\" fill=\"#000000\"/>",
+            LevelOfDetail.toSvg(turned, lod), "A quarter turn swaps the sides");
+        assertEquals(oval.toSvg(lod), LevelOfDetail.toSvg(oval, lod), "Only shapes a dot draws exactly");
+        assertEquals(big.toSvg(lod), LevelOfDetail.toSvg(big, lod));
+        assertEquals(trace.toSvg(lod), LevelOfDetail.toSvg(trace, lod), "Thin draws are kept");
+        Draw stub = new Draw(0, 0, 0.01, 0, new CircleAperture(15, 0.01));
+        assertEquals(stub.toSvg(lod), LevelOfDetail.toSvg(stub, lod), "Short draws are kept, they may be part of a stroke");
+
+        SvgOptions full = SvgOptions.exact();
+        assertEquals(speck.toSvg(full), LevelOfDetail.toSvg(speck, full));
+        assertEquals(via.toSvg(full), LevelOfDetail.toSvg(via, full));
+    }
+
+    @Test
+    void testContourVerticesAreSimplifiedWithinTolerance() {
+        // A densely sampled, slightly wavy circle with one true arc
+        Contour contour = new Contour(10, 0);
+        List<double[]> vertices = new ArrayList<>();
+        vertices.add(new double[] {10, 0});
+        for (int i = 1; i < 2000; i++) {
+            double angle = Math.PI * 1.5 * i / 2000;
+            double r = 10 + 0.02 * Math.sin(i * 0.7);
+            contour.addLineTo(r * Math.cos(angle), r * Math.sin(angle));
+            vertices.add(new double[] {r * Math.cos(angle), r * Math.sin(angle)});
+        }
+        contour.addLineTo(0, -10);
+        contour.addArcTo(10, 0, 0, 0, false);
+
+        double mmPerPixel = 0.5;
+        double tolerance = mmPerPixel * LevelOfDetail.SIMPLIFY_TOLERANCE_PX;
+        String full = contour.toSvgPath(SvgOptions.exact());
+        String simplified = contour.toSvgPath(SvgOptions.exact().setMmPerPixel(mmPerPixel));
+        assertEquals(full, contour.toSvgPath(SvgOptions.exact().setMmPerPixel(0)));
+        assertTrue(simplified.contains(" A "), "Arcs are kept");
+
+        // Far fewer vertices, and every original vertex within the tolerance of the outline
+        String[] parts = simplified.replace("M ", "").replace(" Z", "").split(" A ")[0].split(" L ");
+        double[] ring = new double[2 * parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] xy = parts[i].trim().split(" ");
+            ring[2 * i] = Double.parseDouble(xy[0]);
+            ring[2 * i + 1] = Double.parseDouble(xy[1]);
+        }
+        assertTrue(parts.length < 2000 / 5, parts.length + " vertices kept of 2000");
+        for (double[] v : vertices) {
+            double distance = Double.POSITIVE_INFINITY;
+            for (int i = 2; i < ring.length; i += 2) {
+                distance = Math.min(distance, Geometry.segmentDistance(v[0], v[1],
+                    ring[i - 2], ring[i - 1], ring[i], ring[i + 1]));
+            }
+            assertTrue(distance <= tolerance + 1e-6, "Vertex off by " + distance);
+        }
+    }
+
+    @Test
+    void testThumbnailLooksLikeFullDetail() throws IOException {
+        GerberParser parser = new GerberParser();
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("outline", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GKO")))
+                .setLayerType(LayerType.OUTLINE),
+            new MultiLayerSVGRenderer.Layer("copper-top", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL")))
+                .setLayerType(LayerType.COPPER_TOP),
+            new MultiLayerSVGRenderer.Layer("sm-top", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTS")))
+                .setLayerType(LayerType.SOLDERMASK_TOP),
+            new MultiLayerSVGRenderer.Layer("ss-top", parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTO")))
+                .setLayerType(LayerType.SILKSCREEN_TOP));
+        GerberDocument outline = layers.get(0).getGerberDoc();
+        BoundingBox board = outline.getBoundingBox();
+
+        // The same margin and size as the thumbnail, at full detail
+        int widthPx = 200;
+        double margin = Math.max(1.5, 0.03 * Math.max(board.getWidth(), board.getHeight()));
+        double mmPerPixel = (board.getWidth() + 2 * margin) / widthPx;
+        int heightPx = (int) Math.round(widthPx * (board.getHeight() + 2 * margin) / (board.getWidth() + 2 * margin));
+        MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer().setMargin(margin);
+        String fullSvg = renderer.renderRealistic(layers);
+        renderer.setSvgOptions(SvgOptions.exact().setMmPerPixel(mmPerPixel));
+        String lodSvg = renderer.renderRealistic(layers);
+        assertTrue(lodSvg.length() < fullSvg.length(), lodSvg.length() + " vs " + fullSvg.length());
+
+        byte[] thumbnail = new MultiLayerSVGRenderer()
+            .renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, widthPx, heightPx);
+        byte[] fullPng = MultiLayerSVGRenderer.rasterizeSvgToPng(fullSvg, widthPx, heightPx);
+        PngComparer.ComparisonResult result = new PngComparer().compare(fullPng, thumbnail);
+        System.out.printf("Thumbnail LOD: SVG %d -> %d chars; %s%n", fullSvg.length(), lodSvg.length(), result);
+        assertTrue(result.getDifferingFraction() < 0.005, result.toString());
+        assertTrue(result.getMeanDifference() < 1.0, result.toString());
+    }
+}
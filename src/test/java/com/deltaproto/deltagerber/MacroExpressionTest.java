@@ -0,0 +1,203 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroExpression;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the MacroExpression.
+ * Compares the compiled expressions against the original string-rewriting evaluator.
+ */
+public class MacroExpressionTest {
+
+    @Test
+    void testCompiledMatchesStringEvaluation() {
+        Random random = new Random(11);
+        double[] registers = new double[8];
+        Map<Integer, Double> variables = new HashMap<>();
+        int compared = 0;
+        for (int i = 0; i < 50_000; i++) {
+            for (int v = 1; v < registers.length; v++) {
+                // Plain decimals: the old evaluator cannot read back values printed as 1.0E-4
+                registers[v] = (random.nextInt(20001) - 10000) / 100.0;
+                variables.put(v, registers[v]);
+            }
+            String expression = randomExpression(random, 3);
+
+            double expected;
+            try {
+                expected = legacyEvaluate(expression, variables);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            double actual = new MacroExpression(expression).evaluate(registers);
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual),
+                expression + " with " + variables + ": " + actual + " instead of " + expected);
+            compared++;
+        }
+        assertTrue(compared > 40_000, "Only " + compared + " expressions could be compared");
+    }
+
+    @Test
+    void testOperatorsAndPrecedence() {
+        double[] registers = {0, 2.5, -4};
+        assertEquals(7.0, new MacroExpression("1+2x3").evaluate(registers));
+        assertEquals(9.0, new MacroExpression("(1+2)X3").evaluate(registers));
+        assertEquals(-2.75, new MacroExpression("$1/2.5-$1+$1/-$2x-2").evaluate(registers));
+        assertEquals(4.0, new MacroExpression("--$2x-1").evaluate(registers));
+        assertEquals(-10.0, new MacroExpression("$1x$2").evaluate(registers));
+        assertEquals(0.0, new MacroExpression("$9").evaluate(registers), "Unset variables are 0");
+        assertEquals(0.0, new MacroExpression("").evaluate());
+        assertEquals(0.0001, new MacroExpression("1.0E-4").evaluate());
+        assertEquals(9, new MacroExpression("$9-$3").getMaxVariable());
+    }
+
+    @Test
+    void testInvalidExpressionThrowsOnEvaluation() {
+        MacroExpression expression = new MacroExpression("(1+2");
+        assertThrows(NumberFormatException.class, expression::evaluate);
+        assertThrows(NumberFormatException.class, () -> new MacroExpression("1+$").evaluate());
+        assertThrows(NumberFormatException.class, () -> new MacroExpression("2y3").evaluate());
+    }
+
+    @Test
+    void testTemplateEvaluatesAssignmentsIntoRegisters() {
+        MacroTemplate template = new MacroTemplate("T");
+        template.parse("$4=$1/2-$3*$5=$4x2*1,1,$5,0,0*");
+        double[] registers = template.evaluateVariables(List.of(3.0, 1.0, 0.5));
+
+        assertEquals(3.0, registers[1]);
+        assertEquals(0.5, registers[3]);
+        assertEquals(1.0, registers[4]);
+        assertEquals(2.0, registers[5]);
+        assertEquals(1, template.getPrimitives().size());
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        StringBuilder sb = new StringBuilder();
+        int terms = 1 + random.nextInt(4);
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) {
+                sb.append("+-x/X".charAt(random.nextInt(5)));
+            }
+            int sign = random.nextInt(6);
+            if (sign == 0) {
+                sb.append('-');
+            } else if (sign == 1) {
+                sb.append('+');
+            }
+            int kind = random.nextInt(depth > 0 ? 3 : 2);
+            if (kind == 0) {
+                sb.append('$').append(1 + random.nextInt(7));
+            } else if (kind == 1) {
+                sb.append(random.nextInt(100));
+                if (random.nextBoolean()) {
+                    sb.append('.').append(random.nextInt(1000));
+                }
+            } else {
+                sb.append('(').append(randomExpression(random, depth - 1)).append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Original string-rewriting MacroExpression.evaluate, kept as the reference.
+     */
+    static double legacyEvaluate(String expression, Map<Integer, Double> variables) {
+        Matcher matcher = Pattern.compile("\\$(\\d+)").matcher(expression.trim());
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            Double value = variables.get(Integer.parseInt(matcher.group(1)));
+            matcher.appendReplacement(result, String.valueOf(value != null ? value : 0.0));
+        }
+        matcher.appendTail(result);
+        return legacyParseExpression(result.toString());
+    }
+
+    private static double legacyParseExpression(String expr) {
+        expr = expr.trim();
+        if (expr.isEmpty()) {
+            return 0;
+        }
+        while (expr.contains("(")) {
+            int start = expr.lastIndexOf("(");
+            int end = expr.indexOf(")", start);
+            if (end == -1) {
+                throw new IllegalArgumentException("Mismatched parentheses: " + expr);
+            }
+            double innerResult = legacyParseAddSub(expr.substring(start + 1, end));
+            expr = expr.substring(0, start) + innerResult + expr.substring(end + 1);
+        }
+        return legacyParseAddSub(expr);
+    }
+
+    private static double legacyParseAddSub(String expr) {
+        int parenDepth = 0;
+        int lastAddSub = -1;
+        char lastOp = 0;
+        for (int i = expr.length() - 1; i >= 0; i--) {
+            char c = expr.charAt(i);
+            if (c == ')') parenDepth++;
+            else if (c == '(') parenDepth--;
+            else if (parenDepth == 0 && (c == '+' || c == '-')) {
+                if (i > 0) {
+                    char prev = expr.charAt(i - 1);
+                    if (prev != 'x' && prev != 'X' && prev != '/' && prev != '+' && prev != '-') {
+                        lastAddSub = i;
+                        lastOp = c;
+                        break;
+                    }
+                }
+            }
+        }
+        if (lastAddSub > 0) {
+            double left = legacyParseAddSub(expr.substring(0, lastAddSub));
+            double right = legacyParseMulDiv(expr.substring(lastAddSub + 1));
+            return lastOp == '+' ? left + right : left - right;
+        }
+        return legacyParseMulDiv(expr);
+    }
+
+    private static double legacyParseMulDiv(String expr) {
+        int parenDepth = 0;
+        int lastMulDiv = -1;
+        char lastOp = 0;
+        for (int i = expr.length() - 1; i >= 0; i--) {
+            char c = expr.charAt(i);
+            if (c == ')') parenDepth++;
+            else if (c == '(') parenDepth--;
+            else if (parenDepth == 0 && (c == 'x' || c == 'X' || c == '/')) {
+                lastMulDiv = i;
+                lastOp = c;
+                break;
+            }
+        }
+        if (lastMulDiv > 0) {
+            double left = legacyParseMulDiv(expr.substring(0, lastMulDiv));
+            double right = legacyParseUnary(expr.substring(lastMulDiv + 1));
+            return (lastOp == 'x' || lastOp == 'X') ? left * right : left / right;
+        }
+        return legacyParseUnary(expr);
+    }
+
+    private static double legacyParseUnary(String expr) {
+        expr = expr.trim();
+        if (expr.startsWith("-")) {
+            return -legacyParseUnary(expr.substring(1));
+        }
+        if (expr.startsWith("+")) {
+            return legacyParseUnary(expr.substring(1));
+        }
+        return Double.parseDouble(expr);
+    }
+}
@@ -1,13 +1,44 @@
 package com.deltaproto.deltagerber;
 
+import com.deltaproto.deltagerber.io.BinaryDocumentReader;
+import com.deltaproto.deltagerber.io.BinaryDocumentWriter;
+import com.deltaproto.deltagerber.io.ContentHash;
+import com.deltaproto.deltagerber.lexer.GerberLexer;
+import com.deltaproto.deltagerber.loader.BoardLoader;
+import com.deltaproto.deltagerber.loader.LayerScanner;
+import com.deltaproto.deltagerber.model.gerber.CoordinateFormat;
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.SourceMap;
+import com.deltaproto.deltagerber.model.gerber.SpatialIndex;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.MacroAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroExpression;
+import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
 import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -101,4 +132,746 @@ public class ParserPerformanceTest {
 
         assertTrue(fileCount > 0, "No Gerber files found in " + DEPR_DIR);
     }
+
+    @Test
+    void testLexerScalesLinearly() throws IOException {
+        Path file = DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL");
+        String content = Files.readString(file);
+        String large = content.repeat(16);
+
+        GerberLexer lexer = new GerberLexer();
+
+        // Warm up
+        for (int i = 0; i < 5; i++) {
+            lexer.tokenize(content);
+        }
+
+        long start = System.nanoTime();
+        int smallTokens = lexer.tokenize(content).size();
+        long smallElapsed = Math.max(1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        int largeTokens = lexer.tokenize(large).size();
+        long largeElapsed = System.nanoTime() - start;
+
+        System.out.println("Lex " + (content.length() / 1024) + " KB: " + smallElapsed / 1_000_000 + "ms, "
+            + smallTokens + " tokens");
+        System.out.println("Lex " + (large.length() / 1024) + " KB: " + largeElapsed / 1_000_000 + "ms, "
+            + largeTokens + " tokens");
+
+        assertEquals(smallTokens * 16, largeTokens);
+        // 16x the input should cost roughly 16x the time, far from the 256x of a quadratic lexer
+        assertTrue(largeElapsed < smallElapsed * 64,
+            "Lexing does not scale linearly: " + smallElapsed + "ns vs " + largeElapsed + "ns");
+    }
+
+    @Test
+    void testCoordinateDecodingThroughput() {
+        CoordinateFormat format = new CoordinateFormat(2, 6, true, true);
+        String[] values = new String[4096];
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (random.nextBoolean() ? "-" : "") + (1 + random.nextInt(99_999_999));
+        }
+        int rounds = 200;
+        long count = (long) rounds * values.length;
+
+        // Warm up
+        for (int r = 0; r < rounds; r++) {
+            for (String v : values) {
+                CoordinateDecodingTest.legacyGerberDecode(v, 2, 6, true);
+                format.parseCoordinate(v, 0, v.length());
+            }
+        }
+
+        double legacySum = 0;
+        double fastSum = 0;
+
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String v : values) {
+                legacySum += CoordinateDecodingTest.legacyGerberDecode(v, 2, 6, true);
+            }
+        }
+        long legacyElapsed = Math.max(1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String v : values) {
+                fastSum += format.parseCoordinate(v, 0, v.length());
+            }
+        }
+        long fastElapsed = Math.max(1, System.nanoTime() - start);
+
+        System.out.printf("Coordinate decoding: string %,d coords/s, allocation-free %,d coords/s%n",
+            count * 1_000_000_000L / legacyElapsed, count * 1_000_000_000L / fastElapsed);
+
+        assertEquals(legacySum, fastSum, "Decoders disagree");
+        assertTrue(fastElapsed < legacyElapsed * 2,
+            "Allocation-free decoding slower than string decoding: " + fastElapsed + "ns vs " + legacyElapsed + "ns");
+    }
+
+    @Test
+    void testMacroEvaluationThroughput() throws IOException {
+        // Every expression in the macro bodies of the macro test files
+        List<String> expressions = new ArrayList<>();
+        List<MacroAperture> apertures = new ArrayList<>();
+        try (var stream = Files.list(Paths.get("test-gerber-suite/macros"))) {
+            for (Path file : stream.sorted().toList()) {
+                GerberDocument doc = new GerberParser().parse(file);
+                for (MacroTemplate template : doc.getMacroTemplates().values()) {
+                    for (String statement : template.getBody().split("\\*")) {
+                        statement = statement.trim();
+                        if (statement.isEmpty() || statement.startsWith("0")) {
+                            continue;
+                        }
+                        String[] parts = statement.replaceFirst("^\\$\\d+=", "=").split(",");
+                        for (int i = parts[0].startsWith("=") ? 0 : 1; i < parts.length; i++) {
+                            expressions.add(parts[i].replace("=", "").trim());
+                        }
+                    }
+                }
+                for (Aperture aperture : doc.getApertures().values()) {
+                    if (aperture instanceof MacroAperture macro) {
+                        apertures.add(macro);
+                    }
+                }
+            }
+        }
+        assertFalse(expressions.isEmpty(), "No macro expressions found");
+
+        double[] registers = new double[10];
+        Map<Integer, Double> variables = new HashMap<>();
+        for (int v = 1; v < registers.length; v++) {
+            registers[v] = 0.25 * v;
+            variables.put(v, registers[v]);
+        }
+        List<MacroExpression> compiled = expressions.stream().map(MacroExpression::new).toList();
+        int rounds = 400;
+        long count = (long) rounds * expressions.size();
+
+        // Warm up
+        for (int r = 0; r < rounds / 4; r++) {
+            for (int i = 0; i < expressions.size(); i++) {
+                MacroExpressionTest.legacyEvaluate(expressions.get(i), variables);
+                compiled.get(i).evaluate(registers);
+            }
+        }
+
+        double legacySum = 0;
+        double compiledSum = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String expression : expressions) {
+                legacySum += MacroExpressionTest.legacyEvaluate(expression, variables);
+            }
+        }
+        long legacyElapsed = Math.max(1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (MacroExpression expression : compiled) {
+                compiledSum += expression.evaluate(registers);
+            }
+        }
+        long compiledElapsed = Math.max(1, System.nanoTime() - start);
+
+        // Instantiating and rendering every macro aperture, as an %AD command does
+        start = System.nanoTime();
+        int instantiations = 0;
+        for (int r = 0; r < rounds / 10; r++) {
+            for (MacroAperture macro : apertures) {
+                new MacroAperture(macro.getDCode(), macro.getTemplate(), macro.getParameters(), macro.getUnitFactor())
+                    .toSvgDef("m");
+                instantiations++;
+            }
+        }
+        long instantiateElapsed = Math.max(1, System.nanoTime() - start);
+
+        System.out.printf("Macro expressions (%d): string %,d evals/s, compiled %,d evals/s; "
+                + "%,d aperture instantiations/s%n", expressions.size(),
+            count * 1_000_000_000L / legacyElapsed, count * 1_000_000_000L / compiledElapsed,
+            instantiations * 1_000_000_000L / instantiateElapsed);
+
+        assertEquals(legacySum, compiledSum, "Evaluators disagree");
+        assertTrue(compiledElapsed < legacyElapsed,
+            "Compiled evaluation slower than string evaluation: " + compiledElapsed + "ns vs " + legacyElapsed + "ns");
+    }
+
+    @Test
+    void testColumnarStoreHeapUsage() throws IOException {
+        Path file = DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL");
+        String content = Files.readString(file);
+        int copies = 20;
+
+        long listBytes = retainedHeap(() -> new GerberParser().parse(content), copies);
+        long columnarBytes = retainedHeap(() -> new GerberParser().setColumnarStore(true).parse(content), copies);
+
+        GerberDocument list = new GerberParser().parse(content);
+        GerberDocument columnar = new GerberParser().setColumnarStore(true).parse(content);
+        int objects = list.getObjects().size();
+        System.out.printf("Heap per document (%d objects): ArrayList %,d bytes, columnar %,d bytes%n",
+            objects, listBytes / copies, columnarBytes / copies);
+
+        // Warm up, then time a full bounding box calculation and iteration
+        for (int i = 0; i < 20; i++) {
+            list.calculateBoundingBox();
+            columnar.calculateBoundingBox();
+        }
+        long start = System.nanoTime();
+        list.calculateBoundingBox();
+        long listBoundsNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        columnar.calculateBoundingBox();
+        long columnarBoundsNs = System.nanoTime() - start;
+        System.out.printf("Bounding box: ArrayList %dus, columnar %dus%n", listBoundsNs / 1000, columnarBoundsNs / 1000);
+
+        assertEquals(list.getBoundingBox().toString(), columnar.getBoundingBox().toString());
+        assertTrue(columnarBytes < listBytes,
+            "Columnar store uses more heap: " + columnarBytes + " vs " + listBytes + " bytes");
+    }
+
+    @Test
+    void testExcellonStreamingVersusRegexParse() throws IOException {
+        Map<String, String> inputs = new java.util.LinkedHashMap<>();
+        for (String name : new String[]{"arduino-uno/arduino-uno.drd",
+                "DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-RoundHoles.TXT",
+                "DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-SlotHoles.TXT"}) {
+            inputs.put(name, Files.readString(TESTDATA_DIR.resolve(name)));
+        }
+        // A dense panel: 120k hits over 8 tools
+        StringBuilder dense = new StringBuilder("M48\nMETRIC,TZ\n");
+        for (int t = 1; t <= 8; t++) {
+            dense.append('T').append(t).append("C0.").append(2 + t).append("00\n");
+        }
+        dense.append("%\nG90\nG05\n");
+        for (int i = 0; i < 120_000; i++) {
+            if (i % 15_000 == 0) {
+                dense.append('T').append(i / 15_000 + 1).append('\n');
+            }
+            dense.append('X').append((i % 400) * 1270).append('Y').append((i / 400) * 1270).append('\n');
+        }
+        dense.append("M30\n");
+        inputs.put("dense 120k hits", dense.toString());
+
+        ExcellonParser streaming = new ExcellonParser();
+        ExcellonParser regex = new ExcellonParser(ExcellonParser.Mode.REGEX);
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            String content = input.getValue();
+            int rounds = Math.max(5, 2_000_000 / content.length());
+            for (int i = 0; i < rounds; i++) {
+                streaming.parse(content);
+                regex.parse(content);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                regex.parse(content);
+            }
+            long regexNs = (System.nanoTime() - start) / rounds;
+            start = System.nanoTime();
+            int operations = 0;
+            for (int i = 0; i < rounds; i++) {
+                operations = streaming.parse(content).getOperations().size();
+            }
+            long streamingNs = (System.nanoTime() - start) / rounds;
+
+            System.out.printf("Excellon %s (%d KB, %d operations): regex %.2fms, streaming %.2fms (%.1fx)%n",
+                input.getKey(), content.length() / 1024, operations, regexNs / 1e6, streamingNs / 1e6,
+                (double) regexNs / streamingNs);
+            assertEquals(regex.parse(content).getOperations().size(), operations);
+            if (content.length() > 1_000_000) {
+                assertTrue(streamingNs < regexNs,
+                    "Streaming parse is not faster: " + streamingNs + "ns vs " + regexNs + "ns");
+            }
+        }
+    }
+
+    @Test
+    void testBinaryDocumentLoadVersusParse() throws IOException {
+        Path file = DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL");
+        Path binary = Files.createTempFile("depr-gtl", ".bin");
+        try {
+            GerberDocument parsed = new GerberParser().parse(file);
+            BinaryDocumentWriter.writeGerber(parsed, ContentHash.of(file), binary);
+
+            // Warm up, then time opening the document and reading every object
+            for (int i = 0; i < 10; i++) {
+                new GerberParser().parse(file).calculateBoundingBox();
+                BinaryDocumentReader.readGerber(binary).calculateBoundingBox();
+            }
+            int rounds = 10;
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                new GerberParser().parse(file).calculateBoundingBox();
+            }
+            long parseNs = (System.nanoTime() - start) / rounds;
+            start = System.nanoTime();
+            GerberDocument loaded = null;
+            for (int i = 0; i < rounds; i++) {
+                loaded = BinaryDocumentReader.readGerber(binary);
+                loaded.calculateBoundingBox();
+            }
+            long loadNs = (System.nanoTime() - start) / rounds;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                BinaryDocumentReader.readGerber(binary);
+            }
+            long openNs = (System.nanoTime() - start) / rounds;
+
+            System.out.printf("DEPR GTL (%d KB source, %d KB binary): parse %dus, load %dus, open only %dus%n",
+                Files.size(file) / 1024, Files.size(binary) / 1024, parseNs / 1000, loadNs / 1000, openNs / 1000);
+
+            assertEquals(parsed.getObjects().size(), loaded.getObjects().size());
+            assertEquals(parsed.getBoundingBox().toString(), loaded.getBoundingBox().toString());
+            assertTrue(loadNs < parseNs, "Loading the binary document is slower than parsing: "
+                + loadNs + "ns vs " + parseNs + "ns");
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    void testLazyStepRepeatPanel() {
+        // A 4,000 object board repeated 8 x 6 times on a panel
+        StringBuilder gerber = new StringBuilder("%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,0.2*%\n%ADD11R,1.0X0.5*%\n");
+        gerber.append("%SRX8Y6I110.0J90.0*%\n");
+        for (int i = 0; i < 2000; i++) {
+            long x = (i % 50) * 2_000_000L;
+            long y = (i / 50) * 2_000_000L;
+            gerber.append("D10*\nX").append(x).append('Y').append(y).append("D02*\n");
+            gerber.append('X').append(x + 1_500_000L).append('Y').append(y + 500_000L).append("D01*\n");
+            gerber.append("D11*\nX").append(x).append('Y').append(y + 1_000_000L).append("D03*\n");
+        }
+        gerber.append("%SR*%\nM02*\n");
+        String content = gerber.toString();
+
+        for (int i = 0; i < 5; i++) {
+            new GerberParser().parse(content);
+            new GerberParser().setLazyStepRepeat(true).parse(content);
+        }
+        long start = System.nanoTime();
+        GerberDocument expanded = new GerberParser().parse(content);
+        long expandedNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        GerberDocument lazy = new GerberParser().setLazyStepRepeat(true).parse(content);
+        long lazyNs = System.nanoTime() - start;
+
+        int copies = 4;
+        long expandedBytes = retainedHeap(() -> new GerberParser().parse(content), copies);
+        long lazyBytes = retainedHeap(() -> new GerberParser().setLazyStepRepeat(true).parse(content), copies);
+
+        start = System.nanoTime();
+        String expandedSvg = new SVGRenderer().render(expanded);
+        long expandedRenderNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        String lazySvg = new SVGRenderer().render(lazy);
+        long lazyRenderNs = System.nanoTime() - start;
+
+        System.out.printf("Panel (%d objects): expanded parse %dms, %,d bytes, SVG %d KB in %dms; "
+                + "lazy parse %dms, %,d bytes, SVG %d KB in %dms%n",
+            expanded.getObjects().size(), expandedNs / 1_000_000, expandedBytes / copies,
+            expandedSvg.length() / 1024, expandedRenderNs / 1_000_000,
+            lazyNs / 1_000_000, lazyBytes / copies, lazySvg.length() / 1024, lazyRenderNs / 1_000_000);
+
+        assertEquals(1, lazy.getObjects().size());
+        assertEquals(48 * 4000, expanded.getObjects().size());
+        assertEquals(expanded.getBoundingBox().toString(), lazy.getBoundingBox().toString());
+        assertTrue(lazyBytes * 10 < expandedBytes,
+            "Lazy panel is not much smaller: " + lazyBytes + " vs " + expandedBytes + " bytes");
+        assertTrue(lazySvg.length() * 10 < expandedSvg.length());
+    }
+
+    @Test
+    void testBoardLoaderVersusSequentialParse() throws IOException {
+        List<BoardLoader.Source> sources = BoardLoader.zipSources(TESTDATA_DIR.resolve("DEPR PR31 GBDR V04.zip"));
+        sources.removeIf(source -> source.getName().endsWith(".rpt"));
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            BoardLoader parallel = new BoardLoader(executor);
+            BoardLoader sequential = new BoardLoader(Runnable::run);
+            for (int i = 0; i < 5; i++) {
+                parallel.load(sources);
+                sequential.load(sources);
+            }
+
+            int rounds = 5;
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sequential.load(sources);
+            }
+            long sequentialNs = (System.nanoTime() - start) / rounds;
+            start = System.nanoTime();
+            BoardLoader.Result result = null;
+            for (int i = 0; i < rounds; i++) {
+                result = parallel.load(sources);
+            }
+            long parallelNs = (System.nanoTime() - start) / rounds;
+            long largestNs = Long.MAX_VALUE;
+            // The top copper is the largest file of the job
+            BoardLoader.Source largest = sources.stream()
+                .filter(source -> source.getName().endsWith(".GTL")).findFirst().orElseThrow();
+            for (int i = 0; i < rounds; i++) {
+                start = System.nanoTime();
+                sequential.load(List.of(largest));
+                largestNs = Math.min(largestNs, System.nanoTime() - start);
+            }
+
+            System.out.printf("DEPR job (%d files, %d cores): sequential %dms, parallel %dms, largest layer %dms%n",
+                sources.size(), cores, sequentialNs / 1_000_000, parallelNs / 1_000_000, largestNs / 1_000_000);
+
+            assertTrue(result.isComplete(), "Failures: " + result.getFailures());
+            assertEquals(sources.size(), result.getLayers().size());
+            if (cores >= 4) {
+                assertTrue(parallelNs < sequentialNs,
+                    "Parallel loading is not faster: " + parallelNs + "ns vs " + sequentialNs + "ns");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testHeaderScanOfLargeUpload() throws IOException {
+        // A 40-file upload: the DEPR job repeated
+        List<BoardLoader.Source> job = BoardLoader.zipSources(TESTDATA_DIR.resolve("DEPR PR31 GBDR V04.zip"));
+        job.removeIf(source -> source.getName().endsWith(".rpt"));
+        List<BoardLoader.Source> sources = new ArrayList<>();
+        while (sources.size() < 40) {
+            sources.addAll(job);
+        }
+        sources = sources.subList(0, 40);
+        BoardLoader sequential = new BoardLoader(Runnable::run);
+        for (int i = 0; i < 20; i++) {
+            BoardLoader.scan(sources);
+        }
+        sequential.load(job);
+
+        int rounds = 20;
+        long start = System.nanoTime();
+        List<LayerScanner.Header> headers = null;
+        for (int i = 0; i < rounds; i++) {
+            headers = BoardLoader.scan(sources);
+        }
+        long scanNs = (System.nanoTime() - start) / rounds;
+        start = System.nanoTime();
+        sequential.load(sources);
+        long parseNs = System.nanoTime() - start;
+
+        System.out.printf("Header scan of %d files: %.2fms (full parse %dms)%n",
+            sources.size(), scanNs / 1e6, parseNs / 1_000_000);
+
+        for (LayerScanner.Header header : headers) {
+            assertNotNull(header.format());
+        }
+        assertTrue(scanNs < 10_000_000, "Scanning 40 headers took " + scanNs / 1_000_000 + "ms");
+    }
+
+    @Test
+    void testParallelParseOfLargeLayer() {
+        // A single 300k-draw copper layer with a region every 1000 lines
+        StringBuilder gerber = new StringBuilder("%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,0.2*%\nD10*\n");
+        for (int i = 0; i < 300_000; i++) {
+            if (i % 1000 == 0) {
+                gerber.append("G36*\nX0Y0D02*\nX").append(i).append("000Y0D01*\nX0Y1000000D01*\nG37*\n");
+            }
+            gerber.append('X').append((i % 500) * 100_000).append('Y').append((i / 500) * 100_000)
+                .append(i % 3 == 0 ? "D02*\n" : "D01*\n");
+        }
+        gerber.append("M02*\n");
+        String content = gerber.toString();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, cores));
+        try {
+            GerberParser sequential = new GerberParser();
+            GerberParser parallel = new GerberParser().setParallelThreshold(1 << 20)
+                .setParallelism(Math.max(2, cores)).setExecutor(executor);
+            for (int i = 0; i < 3; i++) {
+                sequential.parse(content);
+                parallel.parse(content);
+            }
+
+            int rounds = 5;
+            long sequentialNs = Long.MAX_VALUE;
+            long parallelNs = Long.MAX_VALUE;
+            GerberDocument expected = null;
+            GerberDocument actual = null;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                expected = sequential.parse(content);
+                sequentialNs = Math.min(sequentialNs, System.nanoTime() - start);
+                start = System.nanoTime();
+                actual = parallel.parse(content);
+                parallelNs = Math.min(parallelNs, System.nanoTime() - start);
+            }
+
+            System.out.printf("Large layer (%d KB, %d objects, %d cores): sequential %dms, parallel %dms%n",
+                content.length() / 1024, expected.getObjects().size(), cores,
+                sequentialNs / 1_000_000, parallelNs / 1_000_000);
+
+            assertEquals(expected.getObjects().size(), actual.getObjects().size());
+            assertEquals(expected.getBoundingBox().toString(), actual.getBoundingBox().toString());
+            if (cores >= 4) {
+                assertTrue(parallelNs < sequentialNs,
+                    "Parallel parsing is not faster: " + parallelNs + "ns vs " + sequentialNs + "ns");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSourceMapOverhead() throws IOException {
+        String content = Files.readString(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL")).repeat(8);
+        GerberParser plain = new GerberParser();
+        GerberParser mapping = new GerberParser().setSourceMap(true);
+        for (int i = 0; i < 5; i++) {
+            plain.parse(content);
+            mapping.parse(content);
+        }
+
+        long plainNs = Long.MAX_VALUE;
+        long mappingNs = Long.MAX_VALUE;
+        GerberDocument doc = null;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            plain.parse(content);
+            plainNs = Math.min(plainNs, System.nanoTime() - start);
+            start = System.nanoTime();
+            doc = mapping.parse(content);
+            mappingNs = Math.min(mappingNs, System.nanoTime() - start);
+        }
+
+        SourceMap map = doc.getSourceMap();
+        int objects = doc.getObjects().size();
+        // One int per object plus the line table, one int per line
+        System.out.printf("Source map (%d objects, %d lines): %dms without, %dms with, %d KB%n",
+            objects, map.getLineCount(), plainNs / 1_000_000, mappingNs / 1_000_000,
+            4L * (objects + map.getLineCount()) / 1024);
+
+        assertEquals(objects, map.getObjectCount());
+        assertTrue(mappingNs < plainNs * 2, "Source map parse took " + mappingNs + "ns vs " + plainNs + "ns");
+    }
+
+    @Test
+    void testSpatialIndexOnMillionObjectLayer() {
+        // A 1000 x 1000 grid of pads with a trace beside each row
+        CircleAperture pad = new CircleAperture(10, 0.3);
+        CircleAperture trace = new CircleAperture(11, 0.1);
+        GerberDocument doc = new GerberDocument();
+        for (int row = 0; row < 1000; row++) {
+            for (int col = 0; col < 999; col++) {
+                doc.addObject(new Flash(col * 0.5, row * 0.5, pad));
+            }
+            doc.addObject(new Draw(0, row * 0.5 + 0.25, 500, row * 0.5 + 0.25, trace));
+        }
+
+        long start = System.nanoTime();
+        SpatialIndex<GraphicsObject> index = doc.getSpatialIndex();
+        long buildNs = System.nanoTime() - start;
+
+        Random random = new Random(1);
+        int queries = 20_000;
+        long found = 0;
+        for (int round = 0; round < 2; round++) {
+            found = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                double x = random.nextDouble() * 500;
+                double y = random.nextDouble() * 500;
+                found += index.query(new BoundingBox(x, y, x + 2, y + 2)).size();
+                found += index.objectsAt(x, y).size();
+                found += index.nearest(x, y, 4).size();
+            }
+        }
+        long queryNs = (System.nanoTime() - start) / queries;
+
+        System.out.printf("Spatial index of %d objects: built in %dms, window + point + 4-nearest query %.1fus%n",
+            doc.getObjects().size(), buildNs / 1_000_000, queryNs / 1e3);
+
+        assertTrue(found > queries * 4L);
+        assertTrue(buildNs < 5_000_000_000L, "Building took " + buildNs / 1_000_000 + "ms");
+        assertTrue(queryNs < 200_000, "Queries took " + queryNs / 1000 + "us");
+    }
+
+    @Test
+    void testViewportRenderOfLargePanel() {
+        // A 400 x 400 mm panel of pads and traces, and a 5 x 5 mm board of the same density
+        GerberDocument panel = padGrid(800);
+        GerberDocument board = padGrid(10);
+        BoundingBox window = new BoundingBox(200, 200, 205, 205);
+        SVGRenderer zoomed = new SVGRenderer().setViewport(window);
+        SVGRenderer plain = new SVGRenderer();
+
+        long start = System.nanoTime();
+        String first = zoomed.render(panel);
+        long firstNs = System.nanoTime() - start;
+
+        int renders = 200;
+        long zoomedNs = 0;
+        long boardNs = 0;
+        int length = 0;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < renders; i++) {
+                length += zoomed.render(panel).length();
+            }
+            zoomedNs = (System.nanoTime() - start) / renders;
+            start = System.nanoTime();
+            for (int i = 0; i < renders; i++) {
+                length += plain.render(board).length();
+            }
+            boardNs = (System.nanoTime() - start) / renders;
+        }
+
+        System.out.printf("Viewport render of %d objects: first %dms (with index), then %.2fms; "
+                + "small board %.2fms%n",
+            panel.getObjects().size(), firstNs / 1_000_000, zoomedNs / 1e6, boardNs / 1e6);
+
+        assertTrue(length > 0);
+        assertTrue(first.length() < 100_000, "Zoomed SVG is " + first.length() + " chars");
+        assertTrue(zoomedNs < 5 * boardNs + 2_000_000,
+            "Zoomed render took " + zoomedNs / 1000 + "us, small board " + boardNs / 1000 + "us");
+    }
+
+    @Test
+    void testLevelOfDetailThumbnail() throws IOException {
+        // A 75 x 75 mm panel as a 100 px thumbnail: every pad is under half a pixel
+        GerberDocument panel = padGrid(150);
+        int widthPx = 100;
+        SVGRenderer full = new SVGRenderer();
+        SVGRenderer lod = new SVGRenderer().setSvgOptions(SvgOptions.exact().setMmPerPixel(75.0 / widthPx));
+
+        long start = System.nanoTime();
+        String fullSvg = full.render(panel);
+        MultiLayerSVGRenderer.rasterizeSvgToPng(fullSvg, widthPx, widthPx);
+        long fullNs = System.nanoTime() - start;
+
+        String lodSvg = lod.render(panel);
+        long lodNs = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            MultiLayerSVGRenderer.rasterizeSvgToPng(lod.render(panel), widthPx, widthPx);
+            lodNs = Math.min(lodNs, System.nanoTime() - start);
+        }
+
+        System.out.printf("Thumbnail of %d objects: full %d chars in %dms, level of detail %d chars in %dms%n",
+            panel.getObjects().size(), fullSvg.length(), fullNs / 1_000_000, lodSvg.length(), lodNs / 1_000_000);
+
+        assertTrue(lodSvg.length() < fullSvg.length() / 10,
+            "Level-of-detail SVG is " + lodSvg.length() + " chars, full " + fullSvg.length());
+        assertTrue(lodNs < fullNs, "Level of detail took " + lodNs / 1000 + "us, full " + fullNs / 1000 + "us");
+    }
+
+    @Test
+    void testRenderThroughputOfLargestFile() throws IOException {
+        GerberDocument doc = new GerberParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL"));
+        SVGRenderer exact = new SVGRenderer();
+        SVGRenderer polygonized = new SVGRenderer().setSvgOptions(SvgOptions.polygonized());
+
+        for (int i = 0; i < 20; i++) {
+            exact.render(doc);
+            polygonized.render(doc);
+        }
+        int rounds = 20;
+        long start = System.nanoTime();
+        long chars = 0;
+        for (int i = 0; i < rounds; i++) {
+            chars += exact.render(doc).length();
+        }
+        long exactNs = (System.nanoTime() - start) / rounds;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            chars += polygonized.render(doc).length();
+        }
+        long polygonizedNs = (System.nanoTime() - start) / rounds;
+
+        // The same numbers through Formatter, as every emitter used to format them
+        double[] values = new double[200_000];
+        Random random = new Random(1);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (random.nextDouble() - 0.3) * 100;
+        }
+        StringBuilder formatted = new StringBuilder();
+        StringBuilder appended = new StringBuilder();
+        long formatterNs = Long.MAX_VALUE;
+        long appendNs = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            formatted.setLength(0);
+            start = System.nanoTime();
+            for (double value : values) {
+                formatted.append(String.format(Locale.US, "%.6f", value)).append(' ');
+            }
+            formatterNs = Math.min(formatterNs, System.nanoTime() - start);
+            appended.setLength(0);
+            start = System.nanoTime();
+            for (double value : values) {
+                SvgNumbers.append(appended, value).append(' ');
+            }
+            appendNs = Math.min(appendNs, System.nanoTime() - start);
+        }
+
+        System.out.printf("Render of GTL (%d objects): exact %.2fms, polygonized %.2fms (%,d chars); "
+                + "%,d numbers: String.format %dms, SvgNumbers %dms%n",
+            doc.getObjects().size(), exactNs / 1e6, polygonizedNs / 1e6, chars / rounds,
+            values.length, formatterNs / 1_000_000, appendNs / 1_000_000);
+        assertEquals(formatted.toString(), appended.toString());
+        assertTrue(appendNs * 3 < formatterNs,
+            "SvgNumbers took " + appendNs / 1000 + "us, String.format " + formatterNs / 1000 + "us");
+    }
+
+    /**
+     * An n x n grid of pads at 0.5 mm pitch with a trace beside each row.
+     */
+    private static GerberDocument padGrid(int n) {
+        CircleAperture pad = new CircleAperture(10, 0.3);
+        CircleAperture trace = new CircleAperture(11, 0.1);
+        GerberDocument doc = new GerberDocument();
+        doc.addAperture(pad);
+        doc.addAperture(trace);
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                doc.addObject(new Flash(col * 0.5, row * 0.5, pad));
+            }
+            doc.addObject(new Draw(0, row * 0.5 + 0.25, n * 0.5, row * 0.5 + 0.25, trace));
+        }
+        return doc;
+    }
+
+    /**
+     * Heap retained by a number of documents, measured as the used heap after GC.
+     */
+    private static long retainedHeap(java.util.function.Supplier<GerberDocument> parse, int copies) {
+        java.util.List<GerberDocument> docs = new java.util.ArrayList<>();
+        // A first round puts the heap under the same pressure, so soft references are
+        // cleared before the baseline rather than during the measurement
+        for (int i = 0; i < copies; i++) {
+            docs.add(parse.get());
+        }
+        docs.clear();
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < copies; i++) {
+            docs.add(parse.get());
+        }
+        long after = usedHeapAfterGc();
+        assertEquals(copies, docs.size());
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        // Collect until the heap stops shrinking, so garbage and soft caches left by
+        // earlier tests (e.g. Batik's) are not released in the middle of a measurement
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (i >= 2 && now >= used) {
+                return now;
+            }
+            used = Math.min(used, now);
+        }
+        return used;
+    }
 }
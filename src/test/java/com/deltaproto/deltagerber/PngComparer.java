@@ -0,0 +1,130 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Utility class for comparing rendered images pixel by pixel.
+ * Pixels are composited over white before comparing, so fully and nearly transparent
+ * pixels compare by how they look rather than by their (meaningless) color channels.
+ */
+public class PngComparer {
+
+    private static final int DEFAULT_CHANNEL_TOLERANCE = 8;
+    private final int channelTolerance;
+
+    public PngComparer() {
+        this(DEFAULT_CHANNEL_TOLERANCE);
+    }
+
+    /**
+     * @param channelTolerance largest difference of a color channel (0-255) that still
+     *                         counts as the same pixel
+     */
+    public PngComparer(int channelTolerance) {
+        this.channelTolerance = channelTolerance;
+    }
+
+    /**
+     * Rasterize two SVG documents at the same size and compare them.
+     */
+    public ComparisonResult compareSvg(String svg1, String svg2, int widthPx, int heightPx) throws IOException {
+        return compare(MultiLayerSVGRenderer.rasterizeSvgToPng(svg1, widthPx, heightPx),
+            MultiLayerSVGRenderer.rasterizeSvgToPng(svg2, widthPx, heightPx));
+    }
+
+    /**
+     * Compare two PNG images.
+     */
+    public ComparisonResult compare(byte[] png1, byte[] png2) throws IOException {
+        return compare(ImageIO.read(new ByteArrayInputStream(png1)), ImageIO.read(new ByteArrayInputStream(png2)));
+    }
+
+    /**
+     * Compare two images of the same size.
+     */
+    public ComparisonResult compare(BufferedImage image1, BufferedImage image2) {
+        if (image1.getWidth() != image2.getWidth() || image1.getHeight() != image2.getHeight()) {
+            throw new IllegalArgumentException(String.format("Image sizes differ: %dx%d vs %dx%d",
+                image1.getWidth(), image1.getHeight(), image2.getWidth(), image2.getHeight()));
+        }
+        ComparisonResult result = new ComparisonResult();
+        result.totalPixels = image1.getWidth() * image1.getHeight();
+        long channelSum = 0;
+        for (int y = 0; y < image1.getHeight(); y++) {
+            for (int x = 0; x < image1.getWidth(); x++) {
+                int p = image1.getRGB(x, y);
+                int q = image2.getRGB(x, y);
+                int worst = 0;
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int diff = Math.abs(overWhite(p, shift) - overWhite(q, shift));
+                    worst = Math.max(worst, diff);
+                    channelSum += diff;
+                }
+                if (worst > channelTolerance) {
+                    result.differingPixels++;
+                }
+                result.maxDifference = Math.max(result.maxDifference, worst);
+            }
+        }
+        result.meanDifference = result.totalPixels == 0 ? 0 : channelSum / (3.0 * result.totalPixels);
+        return result;
+    }
+
+    /**
+     * A color channel of an ARGB pixel composited over white.
+     */
+    private static int overWhite(int argb, int shift) {
+        int alpha = argb >>> 24;
+        return ((argb >>> shift & 0xff) * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    /**
+     * Result of a pixel comparison.
+     */
+    public static class ComparisonResult {
+        private int totalPixels;
+        private int differingPixels;
+        private int maxDifference;
+        private double meanDifference;
+
+        public int getTotalPixels() {
+            return totalPixels;
+        }
+
+        public int getDifferingPixels() {
+            return differingPixels;
+        }
+
+        /**
+         * Fraction of pixels that differ by more than the channel tolerance.
+         */
+        public double getDifferingFraction() {
+            return totalPixels == 0 ? 0 : (double) differingPixels / totalPixels;
+        }
+
+        /**
+         * Largest channel difference of any pixel, 0-255.
+         */
+        public int getMaxDifference() {
+            return maxDifference;
+        }
+
+        /**
+         * Mean channel difference over all pixels, 0-255.
+         */
+        public double getMeanDifference() {
+            return meanDifference;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d pixels differ (%.3f%%), max %d, mean %.3f",
+                differingPixels, totalPixels, 100 * getDifferingFraction(), maxDifference, meanDifference);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.deltaproto.deltagerber;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 import com.deltaproto.deltagerber.parser.ExcellonParser;
 import com.deltaproto.deltagerber.parser.GerberParser;
 import com.deltaproto.deltagerber.renderer.svg.LayerType;
@@ -335,6 +336,12 @@ public class RealisticSvgRenderTest {
         assertTrue(svg.contains("sm-top-mask"), "Should have soldermask mask");
         assertTrue(svg.contains("cf-top-mask"), "Should have copper finish mask");
 
+        // Drill holes punch the mech-mask as <use>s of one circle per tool
+        int tools = drillDoc.getHoleTable().getTools().size();
+        assertEquals(tools, countOccurrences(svg, "<circle id=\"D0_T"), "One circle def per drill tool");
+        assertEquals(drillDoc.getHoleTable().getHitCount(), countOccurrences(svg, "<use href=\"#D0_T"),
+            "One <use> per drill hit");
+
         Files.writeString(OUTPUT_DIR.resolve("arduino-uno-realistic-top.svg"), svg);
         System.out.println("Arduino Uno top SVG saved to " +
             OUTPUT_DIR.resolve("arduino-uno-realistic-top.svg"));
@@ -935,6 +942,60 @@ public class RealisticSvgRenderTest {
         return g.toString();
     }
 
+    @Test
+    @Order(15)
+    @DisplayName("Fixed-point model renders the same board as the double model")
+    void testFixedPointRealisticRender() throws Exception {
+        if (!Files.exists(ARDUINO_TEST_DIR)) {
+            System.out.println("Arduino Uno test directory not found, skipping");
+            return;
+        }
+
+        String doubleSvg = renderArduinoTop(new GerberParser(), new ExcellonParser());
+        String fixedSvg = renderArduinoTop(new GerberParser().setFixedPoint(true),
+            new ExcellonParser().setFixedPoint(true));
+
+        assertNotNull(fixedSvg);
+        // Rounding to nanometres stays below the 6-decimal (1 nm) precision of the SVG output
+        assertEquals(doubleSvg, fixedSvg);
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("Fixed-point outlines chain exactly as outlines in mm")
+    void testFixedPointOutlineChaining() throws Exception {
+        // Fixed-point outlines match end points on exact nanometre keys first, and fall
+        // back to the tolerance search for gaps and T-intersections
+        for (String outline : List.of(buildMixedDirectionOutline(), buildOutlineWithGaps(),
+                buildShortSegmentOutline(), buildTIntersectionOutline())) {
+            GerberDocument fixedDoc = new GerberParser().setFixedPoint(true).parse(outline);
+            GraphicsObject first = fixedDoc.getObjects().get(0);
+            assertNotSame(first, first.toMm(), "Outline is fixed-point");
+            assertEquals(renderOutline(gerberParser.parse(outline)), renderOutline(fixedDoc));
+        }
+    }
+
+    private static String renderOutline(GerberDocument outlineDoc) {
+        return new MultiLayerSVGRenderer().renderRealistic(List.of(
+            new MultiLayerSVGRenderer.Layer("outline", outlineDoc).setLayerType(LayerType.OUTLINE)));
+    }
+
+    private String renderArduinoTop(GerberParser parser, ExcellonParser drills) throws Exception {
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        String[][] files = {
+            {"arduino-uno.gko", "OUTLINE"},
+            {"arduino-uno.cmp", "COPPER_TOP"},
+            {"arduino-uno.stc", "SOLDERMASK_TOP"},
+            {"arduino-uno.plc", "SILKSCREEN_TOP"}};
+        for (String[] file : files) {
+            GerberDocument doc = parser.parse(Files.readString(ARDUINO_TEST_DIR.resolve(file[0])));
+            layers.add(new MultiLayerSVGRenderer.Layer(file[0], doc).setLayerType(LayerType.valueOf(file[1])));
+        }
+        DrillDocument drillDoc = drills.parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.drd")));
+        layers.add(new MultiLayerSVGRenderer.Layer("drill", drillDoc).setLayerType(LayerType.DRILL));
+        return new MultiLayerSVGRenderer().renderRealistic(layers);
+    }
+
     private static int countOccurrences(String haystack, String needle) {
         int count = 0, idx = 0;
         while ((idx = haystack.indexOf(needle, idx)) != -1) {
@@ -0,0 +1,163 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.drill.Tool;
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.SpatialIndex;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.ObroundAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.PolygonAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.*;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SpatialIndex.
+ */
+public class SpatialIndexTest {
+
+    @Test
+    void testQueriesMatchBruteForce() {
+        Random random = new Random(42);
+        List<BoundingBox> boxes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 50;
+            boxes.add(new BoundingBox(x, y, x + random.nextDouble() * 3, y + random.nextDouble() * 3));
+        }
+        boxes.add(new BoundingBox()); // Not indexed
+        SpatialIndex<BoundingBox> index = new SpatialIndex<>(boxes, box -> box, BoundingBox::distanceTo);
+        assertEquals(boxes.size(), index.getItemCount());
+
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 110 - 5;
+            double y = random.nextDouble() * 60 - 5;
+            BoundingBox window = new BoundingBox(x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10);
+            List<BoundingBox> expected = boxes.stream().filter(window::intersects).toList();
+            assertEquals(expected, index.query(window));
+
+            List<BoundingBox> covering = boxes.stream().filter(box -> box.contains(x, y)).toList();
+            assertEquals(covering, index.objectsAt(x, y));
+
+            List<Double> nearest = boxes.stream().map(box -> box.distanceTo(x, y))
+                .sorted().limit(5).toList();
+            assertEquals(nearest, index.nearest(x, y, 5).stream().map(box -> box.distanceTo(x, y)).toList());
+        }
+
+        SpatialIndex<BoundingBox> empty = new SpatialIndex<>(List.of(), box -> box, BoundingBox::distanceTo);
+        assertTrue(empty.query(new BoundingBox(0, 0, 1, 1)).isEmpty());
+        assertTrue(empty.nearest(0, 0, 3).isEmpty());
+        assertFalse(empty.getBounds().isValid());
+    }
+
+    @Test
+    void testExactHitTesting() {
+        // Circle: the corner of its bounding box is outside
+        Flash circle = new Flash(0, 0, new CircleAperture(10, 2.0, 0.5));
+        assertEquals(0, circle.distanceTo(0.7, 0.7));
+        assertTrue(circle.distanceTo(0.9, 0.9) > 0);
+        assertTrue(circle.distanceTo(0.1, 0.1) > 0, "Inside the hole");
+
+        // Rectangle rotated by 45 degrees
+        Flash diamond = new Flash(10, 0, new RectangleAperture(11, 2, 2), 45, 1.0, false, false);
+        assertEquals(0, diamond.distanceTo(10 + 1.4, 0));
+        assertTrue(diamond.distanceTo(10.9, 0.9) > 0);
+        assertEquals(0, new Flash(0, 0, new ObroundAperture(12, 4, 2)).distanceTo(1.9, 0));
+        assertTrue(new Flash(0, 0, new ObroundAperture(12, 4, 2)).distanceTo(1.9, 0.9) > 0);
+        assertTrue(new Flash(0, 0, new PolygonAperture(13, 2, 4)).distanceTo(0.6, 0.6) > 0);
+
+        // Diagonal draw: covers its centre line, not the corners of its box
+        Draw draw = new Draw(0, 0, 10, 10, new CircleAperture(10, 0.5));
+        assertEquals(0, draw.distanceTo(5.1, 5.0));
+        assertEquals(Math.hypot(5, 5) - 0.25, draw.distanceTo(10, 0), 1e-9);
+        Draw square = new Draw(0, 0, 10, 0, new RectangleAperture(11, 1, 1));
+        assertEquals(0, square.distanceTo(10.45, 0.45));
+
+        // Counter-clockwise quarter arc from (1, 0) to (0, 1)
+        Arc arc = new Arc(1, 0, 0, 1, 0, 0, false, new CircleAperture(10, 0.1));
+        assertEquals(0, arc.distanceTo(Math.sqrt(0.5), Math.sqrt(0.5)));
+        assertEquals(0.95, arc.distanceTo(0, 0), 1e-9);
+        assertEquals(Math.hypot(1, 1) - 0.05, arc.distanceTo(0, -1), 1e-9);
+
+        // Region with a square hole, filled even-odd
+        Region region = new Region();
+        Contour outer = new Contour(0, 0);
+        outer.addLineTo(10, 0);
+        outer.addLineTo(10, 10);
+        outer.addLineTo(0, 10);
+        outer.addLineTo(0, 0);
+        Contour hole = new Contour(4, 4);
+        hole.addLineTo(6, 4);
+        hole.addLineTo(6, 6);
+        hole.addLineTo(4, 6);
+        hole.addLineTo(4, 4);
+        region.addContour(outer);
+        region.addContour(hole);
+        assertEquals(0, region.distanceTo(2, 2));
+        assertEquals(1, region.distanceTo(5, 5), 1e-9);
+        assertEquals(1, region.distanceTo(11, 5), 1e-9);
+
+        // Drill slot and hit
+        Tool tool = new Tool(1, 1.0);
+        assertEquals(0, new DrillSlot(tool, 0, 0, 5, 0).distanceTo(2.5, 0.4));
+        assertEquals(0.5, new DrillHit(tool, 0, 0).distanceTo(1, 0), 1e-9);
+
+        List<GraphicsObject> objects = List.of(circle, diamond, draw, arc, region);
+        SpatialIndex<GraphicsObject> index = new SpatialIndex<>(objects,
+            GraphicsObject::getBoundingBox, GraphicsObject::distanceTo);
+        assertEquals(List.of(draw), index.objectsAt(5.1, 5.0));
+        assertEquals(List.of(draw, region), index.objectsAt(2, 2));
+        assertEquals(List.of(circle, draw, arc, region), index.objectsAt(0.7, 0.7));
+        assertEquals(List.of(region, draw), index.nearest(5.5, 4.2, 2));
+        assertEquals(List.of(draw, region), index.objectsAt(5, 5, 1.0));
+    }
+
+    @Test
+    void testDocumentIndexes() throws IOException {
+        GerberDocument doc = new GerberParser().parse(
+            Paths.get("testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04.GTL"));
+        SpatialIndex<GraphicsObject> index = doc.getSpatialIndex();
+        assertSame(index, doc.getSpatialIndex());
+        assertEquals(doc.getBoundingBox().toString(), index.getBounds().toString());
+
+        int checked = 0;
+        for (GraphicsObject obj : doc.getObjects()) {
+            if (obj instanceof Flash flash && checked++ < 200) {
+                assertTrue(index.objectsAt(flash.getX(), flash.getY()).contains(flash));
+                assertEquals(0, index.nearest(flash.getX(), flash.getY(), 1).get(0)
+                    .distanceTo(flash.getX(), flash.getY()));
+                assertTrue(index.query(flash.getBoundingBox()).contains(flash));
+            }
+        }
+        assertTrue(checked > 0);
+
+        doc.addObject(new Flash(-50, -50, new CircleAperture(10, 1)));
+        assertNotSame(index, doc.getSpatialIndex());
+        assertEquals(1, doc.getSpatialIndex().objectsAt(-50, -50).size());
+
+        DrillDocument drill = new ExcellonParser().parse(Paths.get("testdata/arduino-uno/arduino-uno.drd"));
+        SpatialIndex<DrillOperation> holes = drill.getSpatialIndex();
+        for (DrillOperation op : drill.getOperations()) {
+            BoundingBox box = op.getBoundingBox();
+            assertTrue(holes.objectsAt(box.getCenterX(), box.getCenterY()).contains(op));
+        }
+        List<DrillOperation> byDistance = new ArrayList<>(drill.getOperations());
+        byDistance.sort(Comparator.comparingDouble(op -> op.distanceTo(30, 20)));
+        assertEquals(byDistance.get(0).distanceTo(30, 20), holes.nearest(30, 20, 1).get(0).distanceTo(30, 20));
+    }
+}
@@ -0,0 +1,91 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.StrokeJoiner;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StrokeJoiner.
+ */
+public class StrokeJoinerTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+
+    @Test
+    void testRunsOfStrokesBecomeOnePath() {
+        CircleAperture thin = new CircleAperture(10, 0.2);
+        CircleAperture sameWidth = new CircleAperture(11, 0.2);
+        Draw clearDraw = new Draw(4, 0, 4, 1, thin);
+        clearDraw.setPolarity(Polarity.CLEAR);
+        List<GraphicsObject> objects = List.of(
+            new Draw(0, 0, 1, 0, thin),
+            new Draw(1, 0, 1, 1, thin),
+            new Arc(1, 1, 0, 1, 0.5, 1, false, thin),
+            new Draw(2, 0, 3, 0, sameWidth),
+            new Flash(3, 3, thin),
+            new Draw(0, 0, 1, 0, new CircleAperture(12, 0.1)),
+            new Draw(0, 0, 1, 0, new RectangleAperture(13, 0.2, 0.2)),
+            new Draw(1, 0, 2, 0, new RectangleAperture(13, 0.2, 0.2)),
+            clearDraw);
+
+        SvgOptions options = SvgOptions.compact().setJoinStrokes(true).setInheritedColor("#000000");
+        StringBuilder svg = new StringBuilder();
+        int next = 0;
+        while (next < objects.size()) {
+            next = StrokeJoiner.appendLine(svg, "", objects, next, options);
+        }
+        String[] lines = svg.toString().split("\n");
+        assertEquals("<path d=\"M0 0h1v1a.5.5 0 0 1-1 0M2 0h1\" fill=\"none\" stroke-width=\".2\""
+            + " stroke-linejoin=\"round\"/>", lines[0], "Connected strokes share a subpath, others start one");
+        assertEquals(objects.get(4).toSvg(options), lines[1]);
+        assertEquals(objects.get(5).toSvg(options), lines[2], "A run of one is written as is");
+        assertEquals(objects.get(6).toSvg(options), lines[3], "Only circular apertures are joined");
+        assertEquals(objects.get(7).toSvg(options), lines[4]);
+        assertEquals(clearDraw.toSvg(options), lines[5], "Polarity ends a run");
+        assertEquals(6, lines.length);
+
+        StringBuilder plain = new StringBuilder();
+        assertEquals(1, StrokeJoiner.appendLine(plain, "  ", objects, 0, SvgOptions.exact()));
+        assertEquals("  " + objects.get(0).toSvg() + "\n", plain.toString(), "Joining is off by default");
+    }
+
+    @Test
+    void testJoinedSilkscreenHasFewerElementsAndDrawsTheSame() throws IOException {
+        GerberDocument silk = new GerberParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTO"));
+        String full = new SVGRenderer().render(silk);
+        String joined = new SVGRenderer().setSvgOptions(new SvgOptions().setJoinStrokes(true)).render(silk);
+
+        assertTrue(countElements(joined) * 5 < countElements(full),
+            countElements(joined) + " vs " + countElements(full) + " elements");
+        // Separate elements add up their antialiasing where they overlap, a path doesn't,
+        // so only the edges of tiny and tightly curved strokes differ
+        PngComparer.ComparisonResult result = new PngComparer().compareSvg(full, joined, 800, 600);
+        assertTrue(result.getDifferingFraction() <= 0.01, result.toString());
+    }
+
+    private static int countElements(String svg) {
+        int count = 0;
+        for (int i = svg.indexOf('<'); i >= 0; i = svg.indexOf('<', i + 1)) {
+            if (svg.charAt(i + 1) != '/') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SvgNumbers formatter.
+ */
+public class SvgNumbersTest {
+
+    @Test
+    void testSpecialValuesMatchFormatter() {
+        double[] values = {0, -0.0, 1, -1, 0.5, -0.5, 1e-7, -1e-7, 4.9e-7, 5e-7, -5e-7, 1.0000005,
+            2.5e-6, 0.1234565, 0.1234575, 999999.9999995, 1e9 - 0.5e-6, 1e9, -1e12, 1e300,
+            Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, 0.1 + 0.2, 1.1 * 1.1, 123.456, -25.4 / 3};
+        for (double value : values) {
+            assertFormatsLikeFormatter(value);
+        }
+    }
+
+    @Test
+    void testRandomValuesMatchFormatter() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Coordinates of every magnitude, on and off the micrometre grid
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14) - 5);
+            assertFormatsLikeFormatter(value);
+            assertFormatsLikeFormatter(Math.round(value * 1e6) / 1e6);
+            assertFormatsLikeFormatter((Math.round(value * 1e7) + 0.5) / 1e7);
+        }
+    }
+
+    @Test
+    void testPointsAndCommands() {
+        StringBuilder svg = new StringBuilder("M");
+        SvgNumbers.append(svg, " L ", 1.5, -2);
+        SvgNumbers.append(svg.append(' '), 0.25, 3);
+        assertEquals("M L 1.500000 -2.000000 0.250000 3.000000", svg.toString());
+    }
+
+    private static void assertFormatsLikeFormatter(double value) {
+        String expected = String.format(Locale.US, "%.6f", value);
+        assertEquals(expected, SvgNumbers.append(new StringBuilder(), value).toString(),
+            "Formatting " + value);
+    }
+}
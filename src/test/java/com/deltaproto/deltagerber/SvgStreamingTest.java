@@ -0,0 +1,130 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for rendering SVG straight to a Writer or OutputStream.
+ */
+public class SvgStreamingTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+
+    @Test
+    void testStreamedRenderMatchesString() throws IOException {
+        GerberParser parser = new GerberParser();
+        GerberDocument outline = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GKO"));
+        GerberDocument copper = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL"));
+        GerberDocument mask = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTS"));
+        GerberDocument silk = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTO"));
+        DrillDocument drill = new ExcellonParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04-RoundHoles.TXT"));
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("outline", outline).setLayerType(LayerType.OUTLINE),
+            new MultiLayerSVGRenderer.Layer("copper", copper).setLayerType(LayerType.COPPER_TOP),
+            new MultiLayerSVGRenderer.Layer("mask", mask).setLayerType(LayerType.SOLDERMASK_TOP),
+            new MultiLayerSVGRenderer.Layer("silk", silk).setLayerType(LayerType.SILKSCREEN_TOP),
+            new MultiLayerSVGRenderer.Layer("drill", drill).setLayerType(LayerType.DRILL));
+
+        SVGRenderer renderer = new SVGRenderer();
+        StringWriter single = new StringWriter();
+        renderer.render(copper, single);
+        assertEquals(renderer.render(copper), single.toString());
+
+        MultiLayerSVGRenderer multi = new MultiLayerSVGRenderer();
+        StringWriter all = new StringWriter();
+        multi.render(layers, all);
+        assertEquals(multi.render(layers), all.toString());
+
+        ByteArrayOutputStream realistic = new ByteArrayOutputStream();
+        multi.renderRealistic(layers, realistic);
+        assertEquals(multi.renderRealistic(layers), realistic.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStepRepeatBlocksAreDefinedBeforeTheBody() throws IOException {
+        // The block is only referenced from the body, after the clear masks
+        GerberDocument doc = new GerberParser().setLazyStepRepeat(true).parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,1*%
+            %ADD11C,0.4*%
+            %SRX3Y2I5.0J4.0*%
+            D10*
+            X0Y0D03*
+            %SR*%
+            %LPC*%
+            %SRX3Y2I5.0J4.0*%
+            D11*
+            X0Y0D03*
+            %SR*%
+            M02*
+            """);
+        StringWriter out = new StringWriter();
+        new SVGRenderer().render(doc, out);
+        String svg = out.toString();
+
+        assertEquals(new SVGRenderer().render(doc), svg);
+        assertTrue(svg.indexOf("<mask id=\"cm0\">") < svg.indexOf("<g id=\"sr0\">"), svg);
+        assertTrue(svg.indexOf("<g id=\"sr0\">") < svg.indexOf("</defs>"), svg);
+        assertEquals(6, svg.split("<use href=\"#sr0\"", -1).length - 1, svg);
+    }
+
+    @Test
+    void testLargeRenderIsWrittenInChunks() throws IOException {
+        GerberDocument doc = new GerberDocument();
+        CircleAperture pad = new CircleAperture(10, 0.3);
+        doc.addAperture(pad);
+        for (int i = 0; i < 100_000; i++) {
+            doc.addObject(new Flash((i % 300) * 0.5, (i / 300) * 0.5, pad));
+        }
+
+        ChunkRecorder out = new ChunkRecorder();
+        new SVGRenderer().render(doc, out);
+
+        assertTrue(out.total > 5_000_000, "Rendered " + out.total + " chars");
+        assertTrue(out.writes > 50, out.writes + " writes");
+        assertTrue(out.largest < 256 * 1024, "Largest write " + out.largest + " chars");
+    }
+
+    /**
+     * A writer that only records how it was written to.
+     */
+    private static class ChunkRecorder extends Writer {
+        long total;
+        int writes;
+        int largest;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            total += len;
+            writes++;
+            largest = Math.max(largest, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for viewport-culled rendering.
+ */
+public class ViewportRenderTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+    private static final Pattern APERTURE_DEF = Pattern.compile("id=\"(ap\\d+)\"");
+    private static final Pattern APERTURE_USE = Pattern.compile("href=\"#(ap\\d+)\"");
+
+    @Test
+    void testViewportKeepsOnlyVisibleObjectsAndTheirApertures() throws IOException {
+        GerberDocument doc = new GerberParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL"));
+        Flash pad = (Flash) doc.getObjects().stream().filter(obj -> obj instanceof Flash).findFirst().orElseThrow();
+        BoundingBox viewport = new BoundingBox(pad.getX() - 2.5, pad.getY() - 2.5, pad.getX() + 2.5, pad.getY() + 2.5);
+
+        SVGRenderer renderer = new SVGRenderer().setMargin(0.5);
+        String full = renderer.render(doc);
+        String zoomed = renderer.setViewport(viewport).render(doc);
+
+        assertTrue(zoomed.contains(String.format(Locale.US, "viewBox=\"%.6f %.6f %.6f %.6f\"",
+            viewport.getMinX(), viewport.getMinY(), 5.0, 5.0)));
+        List<GraphicsObject> visible = doc.getObjects().stream()
+            .filter(obj -> viewport.intersects(obj.getBoundingBox())).toList();
+        assertTrue(!visible.isEmpty() && visible.size() < doc.getObjects().size() / 10);
+        // Dark objects are drawn in the body, clear ones inside their masks
+        String body = zoomed.substring(zoomed.indexOf("</defs>"));
+        assertEquals(visible.stream().filter(obj -> obj.getPolarity() == Polarity.DARK).count(),
+            body.lines().filter(line -> line.matches("  <(use|line|path|circle|polygon).*")).count());
+        assertEquals(visible.stream().filter(obj -> obj.getPolarity() == Polarity.CLEAR).count(),
+            zoomed.lines().filter(line -> line.matches("    <(use|line|path|circle|polygon).*")).count());
+        assertTrue(zoomed.length() < full.length() / 5);
+
+        // Every used aperture is defined, and only used apertures are
+        List<String> defined = matches(APERTURE_DEF, zoomed);
+        List<String> used = matches(APERTURE_USE, zoomed);
+        assertEquals(defined.stream().distinct().sorted().toList(), used.stream().distinct().sorted().toList());
+        assertTrue(defined.size() < matches(APERTURE_DEF, full).size());
+
+        // Inside the window, the culled render looks like the full one
+        assertSamePixels(reframe(full, viewport), zoomed, 500, 500);
+
+        renderer.setViewport(null);
+        assertEquals(full, renderer.render(doc));
+    }
+
+    @Test
+    void testClearObjectsCuttingIntoViewportStayMasked() throws IOException {
+        GerberDocument doc = new GerberParser().parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %ADD10C,1*%
+            %ADD11R,10X10*%
+            %ADD12C,0.5*%
+            %LPD*%
+            D11*
+            X0Y0D03*
+            X50000000Y0D03*
+            %LPC*%
+            D10*
+            X5000000Y0D03*
+            X50000000Y0D03*
+            %LPD*%
+            D12*
+            X100000000Y0D03*
+            M02*
+            """);
+        // The clear circle at (5, 0) reaches into the window from outside
+        BoundingBox viewport = new BoundingBox(3, -2, 4.7, 2);
+        String svg = new SVGRenderer().setViewport(viewport).render(doc);
+
+        assertTrue(svg.contains("id=\"ap10\"") && svg.contains("id=\"ap11\""));
+        assertFalse(svg.contains("ap12"), "Aperture only flashed outside the viewport");
+        assertTrue(svg.contains("<mask id=\"cm0\">"));
+        assertFalse(svg.contains("<mask id=\"cm1\">"));
+        assertEquals(1, svg.split("href=\"#ap10\"", -1).length - 1);
+        assertEquals(1, svg.split("href=\"#ap11\"", -1).length - 1);
+
+        // 100 px per mm; the window's x runs from 3 to 4.7, y = 0 is row 200
+        BufferedImage image = rasterize(svg, 170, 400);
+        assertTrue(alpha(image, 50, 200) > 200, "Dark square at x = 3.5");
+        assertTrue(alpha(image, 165, 200) < 50, "Cleared by the circle at x = 4.65");
+        assertSamePixels(reframe(new SVGRenderer().render(doc), viewport), svg, 170, 400);
+    }
+
+    @Test
+    void testMultiLayerViewportCullsLayersAndHoles() throws IOException {
+        GerberParser parser = new GerberParser();
+        GerberDocument copper = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTL"));
+        GerberDocument mask = parser.parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04.GTS"));
+        DrillDocument drill = new ExcellonParser().parse(DEPR_DIR.resolve("uP-H Main PCBA Assy V04-RoundHoles.TXT"));
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("copper", copper).setColor("#cc6600").setLayerType(LayerType.COPPER_TOP),
+            new MultiLayerSVGRenderer.Layer("mask", mask).setColor("#008800").setLayerType(LayerType.SOLDERMASK_TOP),
+            new MultiLayerSVGRenderer.Layer("drill", drill).setColor("#000000").setLayerType(LayerType.DRILL));
+
+        BoundingBox board = copper.getBoundingBox();
+        double cx = board.getCenterX();
+        double cy = board.getCenterY();
+        BoundingBox viewport = new BoundingBox(cx - 4, cy - 3, cx + 4, cy + 3);
+
+        MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer();
+        String full = renderer.render(layers);
+        String zoomed = renderer.setViewport(viewport).render(layers);
+
+        int fullUses = full.split("<use ", -1).length;
+        int zoomedUses = zoomed.split("<use ", -1).length;
+        assertTrue(zoomedUses < fullUses / 5, zoomedUses + " of " + fullUses);
+        for (GraphicsObject obj : mask.getSpatialIndex().query(viewport)) {
+            if (obj instanceof Flash flash) {
+                assertTrue(zoomed.contains(String.format(Locale.US, "x=\"%.6f\" y=\"%.6f\"", flash.getX(), flash.getY())));
+            }
+        }
+        assertSamePixels(reframe(full, viewport), zoomed, 400, 300);
+    }
+
+    private static List<String> matches(Pattern pattern, String svg) {
+        Matcher matcher = pattern.matcher(svg);
+        List<String> found = new ArrayList<>();
+        while (matcher.find()) {
+            found.add(matcher.group(1));
+        }
+        return found;
+    }
+
+    /**
+     * The SVG with its viewBox and Y flip moved to the viewport, so a full render can be
+     * compared to a culled one.
+     */
+    private static String reframe(String svg, BoundingBox viewport) {
+        String viewBox = String.format(Locale.US, "viewBox=\"%.6f %.6f %.6f %.6f\"",
+            viewport.getMinX(), viewport.getMinY(), viewport.getWidth(), viewport.getHeight());
+        String flip = String.format(Locale.US, "translate(0, %.6f) scale(1,-1)",
+            2 * viewport.getMinY() + viewport.getHeight());
+        return svg.replaceFirst("viewBox=\"[^\"]*\"", viewBox)
+            .replaceFirst("translate\\(0, [-0-9.]+\\) scale\\(1,-1\\)", Matcher.quoteReplacement(flip));
+    }
+
+    /**
+     * Compare two renders rasterized at the aspect ratio of their viewBox, so nothing
+     * outside it is drawn.
+     */
+    private static void assertSamePixels(String expected, String actual, int widthPx, int heightPx)
+            throws IOException {
+        PngComparer.ComparisonResult result = new PngComparer().compareSvg(expected, actual, widthPx, heightPx);
+        assertTrue(result.getDifferingFraction() <= 0.001, result.toString());
+    }
+
+    private static BufferedImage rasterize(String svg, int widthPx, int heightPx) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(
+            MultiLayerSVGRenderer.rasterizeSvgToPng(svg, widthPx, heightPx)));
+    }
+
+    private static int alpha(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) >>> 24;
+    }
+}